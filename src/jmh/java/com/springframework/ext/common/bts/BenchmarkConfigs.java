@@ -0,0 +1,146 @@
+package com.springframework.ext.common.bts;
+
+import org.springframework.ext.common.cache.CacheClient;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基准测试公用的配置生成与缓存实现
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class BenchmarkConfigs {
+    /** 白名单起始id */
+    static final long HIT_BASE = 3665061551L;
+    /** 黑名单起始id */
+    static final long EXCLUDE_BASE = 4665061551L;
+
+    private BenchmarkConfigs() {
+    }
+
+    /**
+     * 生成count个实验的配置，每个实验带listSize个白名单和黑名单id
+     */
+    static String config(int count, int listSize, String hash) {
+        StringBuilder config = new StringBuilder(count * (128 + listSize * 26)).append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                config.append(',');
+            }
+            config.append(experiment("experiment_" + i, 5, listSize, hash));
+        }
+        return config.append(']').toString();
+    }
+
+    static String experiment(String name, int percent, int listSize, String hash) {
+        StringBuilder experiment = new StringBuilder("{\"name\":\"").append(name)
+                .append("\",\"percent\":").append(percent)
+                .append(",\"basic\":100,\"status\":1");
+        if (hash != null) {
+            experiment.append(",\"hash\":\"").append(hash).append('"');
+        }
+        experiment.append(",\"hits\":").append(ids(HIT_BASE, listSize));
+        experiment.append(",\"excludes\":").append(ids(EXCLUDE_BASE, listSize));
+        return experiment.append(",\"extra\":\"{\\\"current\\\":1}\"}").toString();
+    }
+
+    static long[] randomIndexes(int size, long seed) {
+        Random random = new Random(seed);
+        long[] indexes = new long[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = 1000000000L + (random.nextLong() & 0xFFFFFFFFFL);
+        }
+        return indexes;
+    }
+
+    private static String ids(long base, int size) {
+        StringBuilder ids = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                ids.append(',');
+            }
+            ids.append('"').append(base + i * 7L).append('"');
+        }
+        return ids.append(']').toString();
+    }
+
+    /**
+     * 进程内的CacheClient实现，模拟GuavaCacheClient的命中路径
+     */
+    static final class LocalCacheClient implements CacheClient {
+        private final Map<Serializable, Object> cache = new ConcurrentHashMap<>();
+
+        @Override
+        public Serializable key(Serializable... identifies) {
+            return Arrays.asList(identifies).toString();
+        }
+
+        @Override
+        public boolean refresh() {
+            cache.clear();
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Serializable key, Callable<T> callable, int expire) {
+            return (T) cache.computeIfAbsent(key, k -> {
+                try {
+                    return callable.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Serializable key) {
+            return (T) cache.get(key);
+        }
+
+        @Override
+        public <K, V> Map<K, V> mget(List<K> keys) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean put(Serializable key, Serializable value, int expire) {
+            cache.put(key, value);
+            return true;
+        }
+
+        @Override
+        public boolean put(Serializable key, Serializable value, int expire, int version) {
+            return put(key, value, expire);
+        }
+
+        @Override
+        public boolean delete(Serializable key) {
+            return cache.remove(key) != null;
+        }
+
+        @Override
+        public boolean mdelete(List<? extends Object> keys) {
+            keys.forEach(cache::remove);
+            return true;
+        }
+
+        @Override
+        public boolean invalid(Serializable key) {
+            return delete(key);
+        }
+
+        @Override
+        public boolean minvalid(List<? extends Object> keys) {
+            return mdelete(keys);
+        }
+    }
+}
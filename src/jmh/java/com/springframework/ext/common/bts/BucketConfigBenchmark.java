@@ -0,0 +1,73 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配置解析：10、100、1000个实验的完整解析、编译与发布；延迟解析时加载只切分配置，首个请求只解析访问到的3个实验
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketConfigBenchmark -prof gc"
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketConfigBenchmark {
+    @Param({"10", "100", "1000"})
+    public int experiments;
+
+    @Param({"10"})
+    public int listSize;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private String bucketConfig;
+
+    @Setup
+    public void setUp() {
+        bucketConfig = BenchmarkConfigs.config(experiments, listSize, null);
+        BucketTestRegistry.setLazy(lazy);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BucketTestRegistry.setLazy(false);
+    }
+
+    @Benchmark
+    public BucketTestHelper mappingBucketTest() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(bucketConfig);
+        return helper;
+    }
+
+    /**
+     * 加载配置并完成首个请求：只访问其中3个实验
+     */
+    @Benchmark
+    public int firstRequest() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(bucketConfig);
+        return helper.bucket("experiment_0", 42L) + helper.bucket("experiment_1", 42L) + helper.bucket("experiment_2", 42L);
+    }
+}
@@ -0,0 +1,65 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ext.common.helper.JsonHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配置解析：JsonHelper反序列化+编译 与 流式解析 的耗时和分配对比
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketConfigParserBenchmark -prof gc"
+ *     gc.alloc.rate.norm即每次解析分配的字节数
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BucketConfigParserBenchmark {
+    @Param({"100", "1000"})
+    public int experiments;
+
+    @Param({"10", "10000"})
+    public int listSize;
+
+    private String bucketConfig;
+
+    @Setup
+    public void setUp() {
+        bucketConfig = BenchmarkConfigs.config(experiments, listSize, null);
+    }
+
+    @Benchmark
+    public List<CompiledBucketTest> jsonHelper() {
+        List<BucketTest> bucketTests = JsonHelper.fromJsonList(bucketConfig, BucketTest.class);
+        List<CompiledBucketTest> compiled = new ArrayList<>(bucketTests.size());
+        for (BucketTest bucketTest : bucketTests) {
+            compiled.add(bucketTest.compile());
+        }
+        return compiled;
+    }
+
+    @Benchmark
+    public List<CompiledBucketTest> streaming() {
+        return BucketConfigParser.parse(bucketConfig);
+    }
+}
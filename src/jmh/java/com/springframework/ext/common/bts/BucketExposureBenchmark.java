@@ -0,0 +1,102 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 曝光记录对请求路径的开销：未开启、开启并由后台线程消费、缓冲已满只计数丢弃，以及1/10采样
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketExposureBenchmark -prof gc"
+ *
+ *     on/sampled的gc.alloc.rate.norm应与off相同，即请求线程不分配对象
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketExposureBenchmark {
+    /** 索引个数，必须是2的幂 */
+    private static final int SIZE = 1024;
+
+    @Param({"off", "on", "full", "sampled"})
+    public String exposure;
+
+    private BucketTestHelper helper;
+    private BucketExposure log;
+    private long[] indexes;
+
+    @Setup
+    public void setUp() {
+        helper = new BucketTestHelper();
+        helper.setBucketConfig("[" + BenchmarkConfigs.experiment("experiment_exposure", 100, 0, null) + "]");
+        indexes = BenchmarkConfigs.randomIndexes(SIZE, 42L);
+
+        BucketExposureSink sink = batch -> {
+        };
+        switch (exposure) {
+            case "on":
+                log = new BucketExposure(1 << 16, 1024, sink).start();
+                break;
+            case "full":
+                // 不启动后台线程，写满后每次记录都走丢弃路径
+                log = new BucketExposure(16, 16, sink);
+                break;
+            case "sampled":
+                log = new BucketExposure(1 << 16, 1024, sink).start();
+                log.setSampling(10);
+                break;
+            default:
+                log = null;
+        }
+        BucketTestHelper.setExposure(log);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BucketTestHelper.setExposure(null);
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SIZE - 1);
+        }
+    }
+
+    @Benchmark
+    public int bucket(Cursor cursor) {
+        return helper.bucket("experiment_exposure", indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int bucket_contended(Cursor cursor) {
+        return helper.bucket("experiment_exposure", indexes[cursor.next()]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层实验的批量分桶：实验总数固定时，每层一次hash与每个实验一次hash的对比
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketLayersBenchmark -prof gc"
+ *     layers=0表示全部实验不分层
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketLayersBenchmark {
+    /** 索引个数，必须是2的幂 */
+    private static final int SIZE = 1024;
+
+    @Param({"200"})
+    public int experiments;
+
+    @Param({"0", "4", "20"})
+    public int layers;
+
+    private BucketTestRegistry registry;
+    private long[] indexes;
+
+    @Setup
+    public void setUp() {
+        StringBuilder config = new StringBuilder("[");
+        for (int i = 0; i < experiments; i++) {
+            config.append(i == 0 ? "" : ",").append("{\"name\":\"experiment_").append(i).append('"');
+            if (layers > 0) {
+                config.append(",\"layer\":\"layer_").append(i % layers).append('"');
+            }
+            // 每层内的实验合计不超过100%
+            int percent = layers > 0 ? Math.max(1, 100 * layers / experiments) : 5;
+            config.append(",\"percent\":").append(percent).append(",\"basic\":100,\"status\":1,\"hash\":\"murmur3\"}");
+        }
+        registry = new BucketTestRegistry();
+        registry.reload(config.append(']').toString());
+        indexes = BenchmarkConfigs.randomIndexes(SIZE, 42L);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SIZE - 1);
+        }
+    }
+
+    @Benchmark
+    public BucketAssignment bucketAll(Cursor cursor) {
+        return BucketAssignment.of(registry.snapshot(), indexes[cursor.next()]);
+    }
+}
@@ -0,0 +1,73 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标计数对请求路径的开销：开启与关闭的差值即每次分桶的计数成本，多线程下LongAdder分散竞争
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketMetricsBenchmark -prof gc"
+ *
+ *     on与off的差值应在几纳秒以内，且gc.alloc.rate.norm均为0
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketMetricsBenchmark {
+    /** 索引个数，必须是2的幂 */
+    private static final int SIZE = 1024;
+
+    @Param({"off", "on"})
+    public String metrics;
+
+    private BucketTestHelper helper;
+    private long[] indexes;
+
+    @Setup
+    public void setUp() {
+        helper = new BucketTestHelper();
+        helper.setBucketConfig(BenchmarkConfigs.config(10, 100, null));
+        helper.metrics().setEnabled("on".equals(metrics));
+        indexes = BenchmarkConfigs.randomIndexes(SIZE, 42L);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SIZE - 1);
+        }
+    }
+
+    @Benchmark
+    public int bucket(Cursor cursor) {
+        return helper.bucket("experiment_7", indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int bucket_contended(Cursor cursor) {
+        return helper.bucket("experiment_7", indexes[cursor.next()]);
+    }
+}
@@ -0,0 +1,187 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定向规则：编译后的判断函数与逐次遍历语法树的解释执行对比
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketRuleBenchmark -prof gc"
+ *
+ *     interpreted：属性放在Map中，每次判断遍历语法树、按属性名查找并解析数字/版本号，代表通用规则引擎的做法
+ *     compiled：属性已解析到BucketContext的槽位
+ *     compiled_withFill：每次判断前重新填充BucketContext，包含属性解析的开销
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketRuleBenchmark {
+    private static final String RULE = "region in ('cn', 'us', 'jp', 'kr') && version >= 3.2.0 "
+            + "&& (platform == 'ios' || tier > 2) && channel not in ('test', 'internal')";
+
+    private BucketRuleParser.Node tree;
+    private BucketRule rule;
+    private Map<String, String> attributes;
+    private BucketContext context;
+    private BucketTest bucketTest;
+
+    @Setup
+    public void setUp() {
+        tree = BucketRuleParser.parse(RULE);
+        rule = BucketRule.compile(RULE);
+        attributes = new HashMap<>();
+        attributes.put("region", "us");
+        attributes.put("version", "3.10.2");
+        attributes.put("platform", "android");
+        attributes.put("tier", "3");
+        attributes.put("channel", "store");
+        context = new BucketContext();
+        fill(context);
+
+        bucketTest = new BucketTest();
+        bucketTest.setName("bucket_rule");
+        bucketTest.setStatus(1);
+        bucketTest.setPercent(50);
+        bucketTest.setRule(RULE);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private long next;
+        private final BucketContext context = new BucketContext();
+
+        long next() {
+            return next++;
+        }
+    }
+
+    private void fill(BucketContext context) {
+        context.clear();
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            context.set(attribute.getKey(), attribute.getValue());
+        }
+    }
+
+    @Benchmark
+    public boolean interpreted() {
+        return Interpreter.matches(tree, attributes);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return rule.matches(context);
+    }
+
+    @Benchmark
+    public boolean compiled_withFill(Cursor cursor) {
+        fill(cursor.context);
+        return rule.matches(cursor.context);
+    }
+
+    @Benchmark
+    public int bucket_withRule(Cursor cursor) {
+        return bucketTest.bucket(cursor.next(), context);
+    }
+
+    /**
+     * 解释执行的基线：每次判断都遍历语法树，按名称查Map，并现场解析数字与版本号
+     */
+    static final class Interpreter {
+
+        static boolean matches(BucketRuleParser.Node node, Map<String, String> attributes) {
+            switch (node.op) {
+                case AND:
+                    for (BucketRuleParser.Node child : node.children) {
+                        if (!matches(child, attributes)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                case OR:
+                    for (BucketRuleParser.Node child : node.children) {
+                        if (matches(child, attributes)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case NOT:
+                    return !matches(node.children.get(0), attributes);
+                default:
+                    String actual = attributes.get(node.attribute);
+                    if (actual == null) {
+                        return false;
+                    }
+                    if (node.op == BucketRuleParser.Op.IN || node.op == BucketRuleParser.Op.NOT_IN) {
+                        boolean in = false;
+                        for (BucketRuleParser.Literal literal : node.literals) {
+                            in |= compare(actual, literal) == 0;
+                        }
+                        return in == (node.op == BucketRuleParser.Op.IN);
+                    }
+                    Integer compared = compare(actual, node.literals[0]);
+                    if (compared == null) {
+                        return false;
+                    }
+                    switch (node.op) {
+                        case EQ:
+                            return compared == 0;
+                        case NE:
+                            return compared != 0;
+                        case LT:
+                            return compared < 0;
+                        case LE:
+                            return compared <= 0;
+                        case GT:
+                            return compared > 0;
+                        default:
+                            return compared >= 0;
+                    }
+            }
+        }
+
+        private static Integer compare(String actual, BucketRuleParser.Literal literal) {
+            switch (literal.kind) {
+                case INTEGER:
+                    try {
+                        return Long.compare(Long.parseLong(actual), Long.parseLong(literal.text));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                case VERSION: {
+                    String[] left = actual.split("\\.");
+                    String[] right = literal.text.split("\\.");
+                    for (int i = 0; i < Math.max(left.length, right.length); i++) {
+                        int a = i < left.length ? Integer.parseInt(left[i]) : 0;
+                        int b = i < right.length ? Integer.parseInt(right[i]) : 0;
+                        if (a != b) {
+                            return Integer.compare(a, b);
+                        }
+                    }
+                    return 0;
+                }
+                default:
+                    return actual.compareTo(literal.text);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分流模拟：10个实验，索引区间、内存映射的二进制文件与文本文件在不同线程数下的吞吐
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketSimulatorBenchmark"
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketSimulatorBenchmark {
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"16777216"})
+    public int size;
+
+    private BucketSimulator simulator;
+    private Path binary;
+    private Path text;
+
+    @Setup
+    public void setUp() throws IOException {
+        simulator = new BucketSimulator(BucketTestHelper.instance(BenchmarkConfigs.config(10, 0, "murmur3")));
+        simulator.setThreads(threads);
+        long[] indexes = BenchmarkConfigs.randomIndexes(size, 42L);
+        binary = Files.createTempFile("simulator", ".bin");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(binary), 1 << 16))) {
+            for (long index : indexes) {
+                out.writeLong(index);
+            }
+        }
+        text = Files.createTempFile("simulator", ".txt");
+        try (Writer out = new OutputStreamWriter(Files.newOutputStream(text), StandardCharsets.US_ASCII)) {
+            for (long index : indexes) {
+                out.write(Long.toString(index));
+                out.write('\n');
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binary);
+        Files.deleteIfExists(text);
+    }
+
+    @Benchmark
+    public BucketSimulation range() {
+        return simulator.range(0, size);
+    }
+
+    @Benchmark
+    public BucketSimulation binaryFile() throws IOException {
+        return simulator.binaryFile(binary);
+    }
+
+    @Benchmark
+    public BucketSimulation textFile() throws IOException {
+        return simulator.textFile(text);
+    }
+}
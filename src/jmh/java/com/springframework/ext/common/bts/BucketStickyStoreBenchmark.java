@@ -0,0 +1,96 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 粘性分桶记录对请求路径的开销：未开启、开启且索引均已记录（只查映射区）
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketStickyStoreBenchmark -prof gc"
+ *
+ *     on的gc.alloc.rate.norm应与off相同，即查找不分配对象
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketStickyStoreBenchmark {
+    /** 索引个数，必须是2的幂 */
+    private static final int SIZE = 1 << 16;
+
+    @Param({"off", "on"})
+    public String sticky;
+
+    private BucketTestHelper helper;
+    private BucketStickyStore store;
+    private Path file;
+    private long[] indexes;
+
+    @Setup
+    public void setUp() throws IOException {
+        helper = new BucketTestHelper();
+        helper.setBucketConfig("[" + BenchmarkConfigs.experiment("experiment_sticky", 100, 0, "murmur3") + "]");
+        indexes = BenchmarkConfigs.randomIndexes(SIZE, 42L);
+        if ("on".equals(sticky)) {
+            file = Files.createTempDirectory("sticky").resolve("sticky.bin");
+            store = BucketStickyStore.open(file, SIZE * 2);
+            BucketTestHelper.setStickyStore(store);
+            // 预先记录全部索引，测量时只查找
+            for (long index : indexes) {
+                helper.bucket("experiment_sticky", index);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BucketTestHelper.setStickyStore(null);
+        if (store != null) {
+            store.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SIZE - 1);
+        }
+    }
+
+    @Benchmark
+    public int bucket(Cursor cursor) {
+        return helper.bucket("experiment_sticky", indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int bucket_contended(Cursor cursor) {
+        return helper.bucket("experiment_sticky", indexes[cursor.next()]);
+    }
+}
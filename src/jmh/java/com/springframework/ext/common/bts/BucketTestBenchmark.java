@@ -0,0 +1,119 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ext.common.helper.JsonHelper;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BucketTest.bucket热点路径：有无白名单/黑名单、命中与未命中、不同hash策略，字符串/UUID索引，以及带放量计划的实验
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketTestBenchmark -prof gc"
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketTestBenchmark {
+    /** 索引个数，必须是2的幂 */
+    private static final int SIZE = 1024;
+
+    @Param({"legacy", "murmur3", "xxhash"})
+    public String hash;
+
+    private BucketTest plain;
+    private BucketTest listed;
+    private BucketTest ramped;
+    private long[] indexes;
+    private UUID[] uuids;
+    private String[] uuidStrings;
+
+    @Setup
+    public void setUp() {
+        plain = JsonHelper.fromJson(BenchmarkConfigs.experiment("bucket_test", 5, 0, hash), BucketTest.class);
+        listed = JsonHelper.fromJson(BenchmarkConfigs.experiment("bucket_test", 5, 1000, hash), BucketTest.class);
+        ramped = JsonHelper.fromJson(BenchmarkConfigs.experiment("bucket_test", 5, 0, hash), BucketTest.class);
+        long now = System.currentTimeMillis();
+        ramped.setStartTime(now - TimeUnit.DAYS.toMillis(1));
+        ramped.setEndTime(now + TimeUnit.DAYS.toMillis(1));
+        ramped.setRamps(Arrays.asList(new BucketRamp(now - TimeUnit.HOURS.toMillis(1), 2),
+                new BucketRamp(now + TimeUnit.HOURS.toMillis(1), 5)));
+        indexes = BenchmarkConfigs.randomIndexes(SIZE, 42L);
+        uuids = new UUID[SIZE];
+        uuidStrings = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            uuids[i] = new UUID(indexes[i], ~indexes[i]);
+            uuidStrings[i] = uuids[i].toString();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SIZE - 1);
+        }
+    }
+
+    @Benchmark
+    public int bucket_noLists(Cursor cursor) {
+        return plain.bucket(indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    public int bucket_ramped(Cursor cursor) {
+        return ramped.bucket(indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    public int bucket_listsMiss(Cursor cursor) {
+        return listed.bucket(indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    public int bucket_whitelistHit(Cursor cursor) {
+        return listed.bucket(BenchmarkConfigs.HIT_BASE + (cursor.next() % 1000) * 7L);
+    }
+
+    @Benchmark
+    public int bucket_blacklistHit(Cursor cursor) {
+        return listed.bucket(BenchmarkConfigs.EXCLUDE_BASE + (cursor.next() % 1000) * 7L);
+    }
+
+    @Benchmark
+    public int bucket_uuid(Cursor cursor) {
+        return listed.bucket(uuids[cursor.next()]);
+    }
+
+    @Benchmark
+    public int bucket_uuidString(Cursor cursor) {
+        return listed.bucket(uuidStrings[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int bucket_contended(Cursor cursor) {
+        return listed.bucket(indexes[cursor.next()]);
+    }
+}
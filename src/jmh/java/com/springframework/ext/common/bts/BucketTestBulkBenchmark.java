@@ -0,0 +1,76 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ext.common.helper.JsonHelper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量分桶：逐个调用、单线程紧凑循环、fork-join并行的吞吐对比
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketTestBulkBenchmark"
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketTestBulkBenchmark {
+    @Param({"legacy", "murmur3"})
+    public String hash;
+
+    @Param({"16777216"})
+    public int size;
+
+    private CompiledBucketTest bucketTest;
+    private long[] indexes;
+    private int[] buckets;
+
+    @Setup
+    public void setUp() {
+        bucketTest = JsonHelper.fromJson(BenchmarkConfigs.experiment("bucket_test", 5, 0, hash), BucketTest.class).compile();
+        indexes = BenchmarkConfigs.randomIndexes(size, 42L);
+        buckets = new int[size];
+    }
+
+    @Benchmark
+    public int[] loop() {
+        for (int i = 0; i < indexes.length; i++) {
+            buckets[i] = bucketTest.bucket(indexes[i]);
+        }
+        return buckets;
+    }
+
+    @Benchmark
+    public int[] sequential() {
+        bucketTest.bucket(indexes, buckets);
+        return buckets;
+    }
+
+    @Benchmark
+    public int[] parallel() {
+        BucketTestBulk.bucket(bucketTest, indexes, buckets);
+        return buckets;
+    }
+
+    @Benchmark
+    public long[] parallelHits() {
+        return BucketTestBulk.hits(bucketTest, indexes);
+    }
+}
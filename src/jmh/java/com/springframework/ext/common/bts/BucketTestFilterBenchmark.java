@@ -0,0 +1,121 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BucketTestFilter每个请求的开销：request/response为动态代理，passThrough为不经过过滤器的基线，两者之差即过滤器开销
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketTestFilterBenchmark -prof gc"
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketTestFilterBenchmark {
+    /** 索引个数，必须是2的幂 */
+    private static final int SIZE = 1024;
+
+    @Param({"10", "100"})
+    public int experiments;
+
+    private BucketTestFilter filter;
+    private BucketTestFilter propagating;
+    private String[] userIds;
+
+    @Setup
+    public void setUp() {
+        BucketTestHelper helper = BucketTestHelper.instance(BenchmarkConfigs.config(experiments, 100, null));
+        filter = new BucketTestFilter(helper);
+        filter.setHeader("X-User-Id");
+        propagating = new BucketTestFilter(helper);
+        propagating.setHeader("X-User-Id");
+        propagating.setResponseHeader("X-Bucket");
+
+        long[] indexes = BenchmarkConfigs.randomIndexes(SIZE, 42L);
+        userIds = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            userIds[i] = String.valueOf(indexes[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        private final Map<String, Object> attributes = new HashMap<>();
+        private String userId;
+        private int next;
+        private BucketAssignment assignment;
+
+        final HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(Exchange.class.getClassLoader(),
+                new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getHeader":
+                            return "X-User-Id".equals(args[0]) ? userId : null;
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+
+        final HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(Exchange.class.getClassLoader(),
+                new Class[]{HttpServletResponse.class}, (proxy, method, args) -> "isCommitted".equals(method.getName()) ? false : null);
+
+        final FilterChain chain = (request, response) -> assignment = BucketTestFilter.assignment(request);
+
+        Exchange next(String[] userIds) {
+            userId = userIds[next++ & (SIZE - 1)];
+            return this;
+        }
+    }
+
+    @Benchmark
+    public BucketAssignment passThrough(Exchange exchange) throws IOException, ServletException {
+        exchange.next(userIds);
+        exchange.chain.doFilter(exchange.request, exchange.response);
+        return exchange.assignment;
+    }
+
+    @Benchmark
+    public BucketAssignment doFilter(Exchange exchange) throws IOException, ServletException {
+        exchange.next(userIds);
+        filter.doFilter(exchange.request, exchange.response, exchange.chain);
+        return exchange.assignment;
+    }
+
+    @Benchmark
+    public BucketAssignment doFilter_responseHeader(Exchange exchange) throws IOException, ServletException {
+        exchange.next(userIds);
+        propagating.doFilter(exchange.request, exchange.response, exchange.chain);
+        return exchange.assignment;
+    }
+}
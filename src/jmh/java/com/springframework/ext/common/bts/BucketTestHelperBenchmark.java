@@ -0,0 +1,140 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BucketTestHelper请求路径：instance、findBucketTest、isBucket、bucketAll，有无CacheClient，单线程与多线程竞争，
+ * 以及一个请求内重复判断同一实验时有无BucketMemo的对比
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketTestHelperBenchmark -prof gc"
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketTestHelperBenchmark {
+    /** 索引个数，必须是2的幂 */
+    private static final int SIZE = 1024;
+    /** 一个请求内重复判断的次数 */
+    private static final int REPEAT = 8;
+
+    @Param({"none", "local"})
+    public String cache;
+
+    @Param({"100"})
+    public int experiments;
+
+    private String bucketConfig;
+    /** 内容相同、实例不同的配置，模拟每次从配置中心取到新字符串 */
+    private String bucketConfigCopy;
+    private BucketTestHelper helper;
+    private long[] indexes;
+
+    @Setup
+    public void setUp() {
+        BucketTestHelper.setCacheClient("local".equals(cache) ? new BenchmarkConfigs.LocalCacheClient() : null);
+        bucketConfig = BenchmarkConfigs.config(experiments, 100, null);
+        bucketConfigCopy = new String(bucketConfig.toCharArray());
+        helper = BucketTestHelper.instance(bucketConfig);
+        indexes = BenchmarkConfigs.randomIndexes(SIZE, 42L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BucketTestHelper.setCacheClient(null);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SIZE - 1);
+        }
+    }
+
+    @Benchmark
+    public BucketTestHelper instance() {
+        return BucketTestHelper.instance(bucketConfig);
+    }
+
+    @Benchmark
+    public BucketTestHelper instance_equalContent() {
+        return BucketTestHelper.instance(bucketConfigCopy);
+    }
+
+    @Benchmark
+    public boolean instance_isBucket(Cursor cursor) {
+        return BucketTestHelper.instance(bucketConfig).isBucket("experiment_7", indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    public BucketTest findBucketTest() {
+        return helper.findBucketTest("experiment_7");
+    }
+
+    @Benchmark
+    public boolean isBucket(Cursor cursor) {
+        return helper.isBucket("experiment_7", indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    public BucketAssignment bucketAll(Cursor cursor) {
+        return helper.bucketAll(indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    public int isBucket_repeated(Cursor cursor) {
+        long index = indexes[cursor.next()];
+        int count = 0;
+        for (int i = 0; i < REPEAT; i++) {
+            count += helper.isBucket("experiment_7", index) ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int isBucket_repeated_memo(Cursor cursor) {
+        long index = indexes[cursor.next()];
+        int count = 0;
+        try (BucketMemo memo = BucketMemo.open()) {
+            for (int i = 0; i < REPEAT; i++) {
+                count += helper.isBucket("experiment_7", index) ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean isBucket_contended(Cursor cursor) {
+        return helper.isBucket("experiment_7", indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean instance_isBucket_contended(Cursor cursor) {
+        return BucketTestHelper.instance(bucketConfig).isBucket("experiment_7", indexes[cursor.next()]);
+    }
+}
@@ -0,0 +1,93 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BucketTestHelper写入/读出分布式缓存的开销：原始配置字符串的java序列化 + 反序列化后解析，对比紧凑二进制编码
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="BucketWireFormatBenchmark -prof gc"
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketWireFormatBenchmark {
+    @Param({"0", "1000", "100000"})
+    public int listSize;
+
+    private String bucketConfig;
+    private BucketTestHelper helper;
+    private byte[] configBytes;
+    private byte[] helperBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        bucketConfig = BenchmarkConfigs.config(20, listSize, "murmur3");
+        helper = new BucketTestHelper();
+        helper.setBucketConfig(bucketConfig);
+        configBytes = serialize(bucketConfig);
+        helperBytes = serialize(helper);
+    }
+
+    @Benchmark
+    public byte[] write_config() throws IOException {
+        return serialize(bucketConfig);
+    }
+
+    @Benchmark
+    public byte[] write_wire() throws IOException {
+        return serialize(helper);
+    }
+
+    /**
+     * 读出原始配置后需要重新解析
+     */
+    @Benchmark
+    public List<CompiledBucketTest> read_config() throws IOException, ClassNotFoundException {
+        return BucketConfigParser.parse((String) deserialize(configBytes));
+    }
+
+    @Benchmark
+    public Object read_wire() throws IOException, ClassNotFoundException {
+        return deserialize(helperBytes);
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
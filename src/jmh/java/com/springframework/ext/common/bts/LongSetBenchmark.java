@@ -0,0 +1,117 @@
+package com.springframework.ext.common.bts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大名单的存储方式：Set&lt;String&gt;、堆内LongHashSet、堆外表、堆外表+布隆过滤器的查找延迟与构建开销
+ *
+ * <pre>
+ *     mvn -Pjmh verify -Djmh.args="LongSetBenchmark -prof gc"
+ *     1. contains_*：查找延迟，命中与未命中各占一半
+ *     2. build_*配合-prof gc的alloc.rate.norm即为构建时的堆分配；各实现的内存占用由LongSetsTest断言
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:MaxDirectMemorySize=2g"})
+@State(Scope.Benchmark)
+public class LongSetBenchmark {
+    /** 索引个数，必须是2的幂 */
+    private static final int SIZE = 1024;
+
+    @Param({"100000", "5000000"})
+    public int count;
+
+    private long[] values;
+    private Set<String> strings;
+    private LongSet heap;
+    private LongSet offHeap;
+    private LongSet bloom;
+    private long[] indexes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = BenchmarkConfigs.HIT_BASE + i * 7L;
+        }
+        strings = new HashSet<>(count * 2);
+        for (long value : values) {
+            strings.add(String.valueOf(value));
+        }
+
+        heap = LongHashSet.of(values);
+        offHeap = new OffHeapLongHashSet(values);
+        bloom = new BloomLongSet(values, new OffHeapLongHashSet(values));
+
+        // 一半命中，一半未命中
+        indexes = new long[SIZE];
+        long[] random = BenchmarkConfigs.randomIndexes(SIZE, 42L);
+        for (int i = 0; i < SIZE; i++) {
+            indexes[i] = (i & 1) == 0 ? values[(int) ((random[i] & Long.MAX_VALUE) % count)] : random[i];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SIZE - 1);
+        }
+    }
+
+    @Benchmark
+    public boolean contains_strings(Cursor cursor) {
+        return strings.contains(String.valueOf(indexes[cursor.next()]));
+    }
+
+    @Benchmark
+    public boolean contains_heap(Cursor cursor) {
+        return heap.contains(indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean contains_offHeap(Cursor cursor) {
+        return offHeap.contains(indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean contains_bloomOffHeap(Cursor cursor) {
+        return bloom.contains(indexes[cursor.next()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LongSet build_heap() {
+        return LongHashSet.of(values);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LongSet build_bloomOffHeap() {
+        return new BloomLongSet(values, new OffHeapLongHashSet(values));
+    }
+}
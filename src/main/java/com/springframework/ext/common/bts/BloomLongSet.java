@@ -0,0 +1,77 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 带布隆过滤器前置的long集合：绝大多数不在集合中的值只访问一次位图即可返回
+ *
+ * <pre>
+ *     1. 每个元素约10个bit，3个hash函数，误判率约1%
+ *     2. 布隆过滤器判定可能存在时，再查询被包装的集合确认
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class BloomLongSet implements LongSet {
+    /** hash函数个数 */
+    private static final int HASHES = 3;
+    /** 位图 */
+    private final long[] bits;
+    /** 位图掩码（按bit） */
+    private final long mask;
+    /** 被包装的集合 */
+    private final LongSet delegate;
+
+    BloomLongSet(long[] values, LongSet delegate) {
+        long size = 64;
+        while (size < values.length * 10L) {
+            size <<= 1;
+        }
+        this.bits = new long[(int) (size >>> 6)];
+        this.mask = size - 1;
+        this.delegate = delegate;
+
+        for (long value : values) {
+            long hash = BucketHash.fmix64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                long bit = (h1 + i * h2) & mask;
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(long value) {
+        long hash = BucketHash.fmix64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + i * h2) & mask;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return delegate.contains(value);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 16L + bits.length * 8L + delegate.memoryBytes();
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return delegate.offHeapBytes();
+    }
+
+    @Override
+    public long[] toArray() {
+        return delegate.toArray();
+    }
+}
@@ -0,0 +1,38 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 实验分组：实验的流量按权重在各分组间划分
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketArm {
+    /** 分组标识 */
+    private String name;
+    /** 分组权重：不大于0的分组不分配流量 */
+    private int weight;
+
+    public BucketArm() {
+    }
+
+    public BucketArm(String name, int weight) {
+        this.name = name;
+        this.weight = weight;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+}
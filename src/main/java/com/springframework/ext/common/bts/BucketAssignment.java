@@ -0,0 +1,351 @@
+package com.springframework.ext.common.bts;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 批量分桶结果：一个索引值对一组实验的分桶结果，不可变，可以在请求内任意传递
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketAssignment {
+    /** 空结果 */
+    private static final BucketAssignment EMPTY = new BucketAssignment(0L, new String[0], new int[0]);
+    /** 实验数不超过此值时按名称顺序查找 */
+    private static final int LINEAR_SCAN = 8;
+    /** 分桶索引 */
+    private final long index;
+    /** 实验名 */
+    private final String[] names;
+    /** 实验名->位置，为null时顺序查找 */
+    private final Positions positions;
+    /** 结果码，见{@link CompiledBucketTest#bucketOf(int)}；由桶号构建时即为桶号 */
+    private final int[] outcomes;
+    /** 命中位图 */
+    private final long[] hits;
+    /** index是否为非数字索引的hash */
+    private final boolean keyed;
+    /** 与names对应的实验，读取时记录曝光；为null时不记录 */
+    private final CompiledBucketTest[] tests;
+    /** 记录指标与曝光的分桶工具 */
+    private final BucketTestHelper observer;
+
+    BucketAssignment(long index, String[] names, int[] buckets) {
+        this(index, names, null, buckets, false, null, null);
+    }
+
+    BucketAssignment(long index, String[] names, Positions positions, int[] outcomes, boolean keyed,
+                     CompiledBucketTest[] tests, BucketTestHelper observer) {
+        this.index = index;
+        this.names = names;
+        this.positions = positions;
+        this.outcomes = outcomes;
+        this.keyed = keyed;
+        this.tests = tests;
+        this.observer = observer;
+        this.hits = new long[(outcomes.length + 63) >>> 6];
+        for (int i = 0; i < outcomes.length; i++) {
+            if (CompiledBucketTest.bucketOf(outcomes[i]) >= 0) {
+                hits[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    public static BucketAssignment empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 对快照中的全部实验计算分桶：分层实验每层只计算一次hash
+     */
+    static BucketAssignment of(BucketTestRegistry.Snapshot snapshot, long index) {
+        CompiledBucketTest[] tests = snapshot.tests();
+        int[] outcomes = new int[tests.length];
+        snapshot.layers().evaluate(tests, index, outcomes);
+        return new BucketAssignment(index, snapshot.names(), snapshot.positions(), outcomes, false, null, null);
+    }
+
+    /**
+     * 对快照中的全部实验按字符串索引计算分桶：规范的数字串等同于long索引，其余只计算一次hash
+     */
+    static BucketAssignment of(BucketTestRegistry.Snapshot snapshot, CharSequence key) {
+        int length = key.length();
+        long index = BucketConfigParser.parseCanonicalLong(key, 0, length);
+        if (index != Long.MIN_VALUE || BucketConfigParser.isMinValue(key, 0, length)) {
+            return of(snapshot, index);
+        }
+
+        long hashed = CompiledBucketTest.key(key);
+        CompiledBucketTest[] tests = snapshot.tests();
+        int[] outcomes = new int[tests.length];
+        snapshot.layers().evaluateKey(tests, hashed, outcomes);
+        return new BucketAssignment(hashed, snapshot.names(), snapshot.positions(), outcomes, true, null, null);
+    }
+
+    /**
+     * 按粘性记录修正桶号，并在按实验读取时记录指标与曝光
+     *
+     * @param tests    快照中的实验，与names一一对应
+     * @param sticky   粘性分桶记录，为null时不修正
+     * @param observer 记录指标与曝光的分桶工具
+     */
+    BucketAssignment observed(CompiledBucketTest[] tests, BucketStickyStore sticky, BucketTestHelper observer) {
+        int[] outcomes = this.outcomes;
+        if (sticky != null) {
+            outcomes = outcomes.clone();
+            for (int i = 0; i < tests.length; i++) {
+                int recorded = sticky.bucket(tests[i], index, keyed, null);
+                if (recorded >= 0) {
+                    outcomes[i] = recorded;
+                } else {
+                    sticky.remember(tests[i], index, outcomes[i], keyed);
+                }
+            }
+        }
+        return new BucketAssignment(index, names, positions, outcomes, keyed, tests, observer);
+    }
+
+    /**
+     * 对指定的实验计算分桶，结果顺序与names一致；不存在的实验桶号为-1
+     */
+    static BucketAssignment of(BucketTestRegistry.Snapshot snapshot, String[] names, long index) {
+        int[] buckets = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            buckets[i] = snapshot.get(names[i]).bucket(index);
+        }
+        return new BucketAssignment(index, names, buckets);
+    }
+
+    /**
+     * 解析encode()的结果，格式错误的项被忽略
+     *
+     * @param index   分桶索引
+     * @param encoded 编码后的分桶结果
+     * @return 只包含命中实验的分桶结果
+     */
+    public static BucketAssignment decode(long index, String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return new BucketAssignment(index, new String[0], new int[0]);
+        }
+        List<String> names = new ArrayList<>();
+        int[] buckets = new int[8];
+        int start = 0;
+        while (start < encoded.length()) {
+            int end = encoded.indexOf(',', start);
+            if (end < 0) {
+                end = encoded.length();
+            }
+            int colon = encoded.lastIndexOf(':', end - 1);
+            if (colon > start) {
+                long bucket = BucketConfigParser.parseCanonicalLong(encoded, colon + 1, end);
+                if (bucket >= 0 && bucket <= Integer.MAX_VALUE) {
+                    if (names.size() == buckets.length) {
+                        buckets = Arrays.copyOf(buckets, buckets.length * 2);
+                    }
+                    buckets[names.size()] = (int) bucket;
+                    names.add(decodeName(encoded.substring(start, colon)));
+                }
+            }
+            start = end + 1;
+        }
+        return new BucketAssignment(index, names.toArray(new String[names.size()]), Arrays.copyOf(buckets, names.size()));
+    }
+
+    /**
+     * 把命中的实验编码为"name:bucket,name:bucket"，实验名按URL编码
+     *
+     * @return 编码后的分桶结果，没有命中时返回空串
+     */
+    public String encode() {
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < outcomes.length; i++) {
+            int bucket = CompiledBucketTest.bucketOf(outcomes[i]);
+            if (bucket < 0) {
+                continue;
+            }
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(encodeName(names[i])).append(':').append(bucket);
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * @return 分桶索引，非数字的字符串索引为其hash
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return 实验个数
+     */
+    public int size() {
+        return outcomes.length;
+    }
+
+    /**
+     * @return 第i个实验的名称
+     */
+    public String getName(int i) {
+        return names[i];
+    }
+
+    /**
+     * @return 第i个实验的桶号，未命中为-1
+     */
+    public int bucket(int i) {
+        return observe(i);
+    }
+
+    /**
+     * @return 第i个实验是否命中
+     */
+    public boolean isBucket(int i) {
+        return observe(i) >= 0;
+    }
+
+    /**
+     * 按实验名查找桶号
+     *
+     * @param name 实验名
+     * @return 桶号，未命中或不在本次结果中为-1
+     */
+    public int bucket(String name) {
+        int i = indexOf(name);
+        return i < 0 ? -1 : observe(i);
+    }
+
+    /**
+     * @return 实验name是否命中
+     */
+    public boolean isBucket(String name) {
+        return bucket(name) >= 0;
+    }
+
+    /**
+     * @return 命中的实验个数
+     */
+    public int hitCount() {
+        int count = 0;
+        for (long word : hits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return 命中位图的拷贝
+     */
+    public long[] toHits() {
+        return Arrays.copyOf(hits, hits.length);
+    }
+
+    /**
+     * @return 桶号的拷贝
+     */
+    public int[] toBuckets() {
+        int[] buckets = new int[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            buckets[i] = CompiledBucketTest.bucketOf(outcomes[i]);
+        }
+        return buckets;
+    }
+
+    private static String encodeName(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decodeName(String name) {
+        try {
+            return URLDecoder.decode(name, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return name;
+        }
+    }
+
+    private int observe(int i) {
+        int outcome = outcomes[i];
+        return observer == null ? CompiledBucketTest.bucketOf(outcome) : observer.observe(tests[i], index, outcome);
+    }
+
+    private int indexOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        if (positions != null) {
+            return positions.indexOf(name);
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (name.equals(names[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 实验名->位置的开放寻址表：随快照构建一次，该快照的所有分桶结果共享
+     */
+    static final class Positions {
+        /** 实验名，null为空槽位 */
+        private final String[] keys;
+        /** 在names中的位置 */
+        private final int[] values;
+        /** 槽位掩码 */
+        private final int mask;
+
+        private Positions(String[] names) {
+            int capacity = 2;
+            while (capacity < names.length * 2) {
+                capacity <<= 1;
+            }
+            this.keys = new String[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+            for (int i = 0; i < names.length; i++) {
+                int slot = slot(names[i]);
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = names[i];
+                values[slot] = i;
+            }
+        }
+
+        /**
+         * @param names 不重复的实验名
+         * @return 实验较少时返回null，按名称顺序查找
+         */
+        static Positions of(String[] names) {
+            return names.length <= LINEAR_SCAN ? null : new Positions(names);
+        }
+
+        int indexOf(String name) {
+            int slot = slot(name);
+            String key;
+            while ((key = keys[slot]) != null) {
+                if (key == name || key.equals(name)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int slot(String name) {
+            int hash = name.hashCode() * 0x9E3779B9;
+            return (hash ^ hash >>> 16) & mask;
+        }
+    }
+}
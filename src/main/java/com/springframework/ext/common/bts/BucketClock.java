@@ -0,0 +1,106 @@
+package com.springframework.ext.common.bts;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 粗粒度的共享时钟：后台线程定时刷新，分桶时只读一次volatile字段，不调用System.currentTimeMillis()
+ *
+ * <pre>
+ *     1. 首个带时间窗口或放量计划的实验编译时启动后台线程，没有此类实验时不占用线程
+ *     2. 精度为刷新间隔，默认10毫秒；实验的开始、结束与放量时间点最多延后一个间隔生效
+ *     3. 刷新线程为所有使用方共享，忽略中断继续刷新；线程意外退出时清除引用，下次start()重新启动
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketClock {
+    /** 默认刷新间隔（毫秒） */
+    private static final long DEFAULT_TICK_MILLIS = 10;
+    /** 当前时间（毫秒时间戳） */
+    private static volatile long now = System.currentTimeMillis();
+    /** 刷新间隔（毫秒） */
+    private static volatile long tickMillis = DEFAULT_TICK_MILLIS;
+    /** 是否固定时间，仅用于测试 */
+    private static volatile boolean fixed;
+    /** 刷新线程 */
+    private static Thread ticker;
+
+    private BucketClock() {
+    }
+
+    /**
+     * @return 最近一次刷新的时间（毫秒时间戳）
+     */
+    public static long now() {
+        return now;
+    }
+
+    /**
+     * 设置刷新间隔
+     *
+     * @param tickMillis 刷新间隔（毫秒），必须大于0
+     */
+    public static void setTickMillis(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        BucketClock.tickMillis = tickMillis;
+    }
+
+    public static long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * 启动刷新线程，重复调用无副作用
+     */
+    static synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        if (!fixed) {
+            now = System.currentTimeMillis();
+        }
+        ticker = new Thread(BucketClock::run, "BucketClock-ticker");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private static void run() {
+        try {
+            while (true) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(tickMillis);
+                } catch (InterruptedException e) {
+                    // 停止刷新会让时间冻结，共享线程不响应中断
+                }
+                if (!fixed) {
+                    now = System.currentTimeMillis();
+                }
+            }
+        } finally {
+            synchronized (BucketClock.class) {
+                if (ticker == Thread.currentThread()) {
+                    ticker = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 固定当前时间，停止跟随系统时间，用于测试
+     */
+    static void set(long millis) {
+        fixed = true;
+        now = millis;
+    }
+
+    /**
+     * 恢复跟随系统时间
+     */
+    static void reset() {
+        fixed = false;
+        now = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,16 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 分桶配置监听器：配置中心推送、本地文件监听等配置来源在配置变化时回调
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public interface BucketConfigListener {
+    /**
+     * 配置发生变化
+     *
+     * @param bucketConfig 新的完整分桶配置
+     */
+    void onChange(String bucketConfig);
+}
@@ -0,0 +1,620 @@
+package com.springframework.ext.common.bts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 分桶配置的流式解析器：按分桶配置的固定结构逐字符解析，直接构建{@link CompiledBucketTest}
+ *
+ * <pre>
+ *     1. hits/excludes中的数字id（字符串或数字形式）直接解析到long数组，不创建String和HashSet
+ *     2. extra只记录位置，首次访问时才解码
+ *     3. arms解析为分组名与权重数组
+ *     4. 数值字段兼容字符串形式（如"basic":"100"），未知字段直接跳过
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketConfigParser {
+    /** 配置内容 */
+    private final String json;
+    /** 当前位置 */
+    private int position;
+    /** 已解析的id个数 */
+    private long ids;
+
+    private BucketConfigParser(String json) {
+        this.json = json;
+    }
+
+    /**
+     * 解析完整的分桶配置
+     *
+     * @param bucketConfig 分桶配置，顶层为json数组
+     * @return 编译后的分桶测试，顺序与配置一致（不去重）
+     * @throws IllegalArgumentException 配置格式错误
+     */
+    public static List<CompiledBucketTest> parse(String bucketConfig) {
+        return parse(bucketConfig, new BucketConfigStats());
+    }
+
+    /**
+     * 解析完整的分桶配置，并记录解析统计
+     *
+     * @param bucketConfig 分桶配置，顶层为json数组
+     * @param stats        解析统计
+     * @return 编译后的分桶测试，顺序与配置一致（不去重）
+     * @throws IllegalArgumentException 配置格式错误
+     */
+    public static List<CompiledBucketTest> parse(String bucketConfig, BucketConfigStats stats) {
+        long start = System.nanoTime();
+        BucketConfigParser parser = new BucketConfigParser(bucketConfig);
+        List<CompiledBucketTest> bucketTests = new ArrayList<>();
+
+        parser.expect('[');
+        if (!parser.consume(']')) {
+            do {
+                CompiledBucketTest bucketTest = parser.readExperiment();
+                if (bucketTest != null) {
+                    bucketTests.add(bucketTest);
+                    stats.addMemoryBytes(bucketTest.memoryBytes());
+                    stats.addOffHeapBytes(bucketTest.offHeapBytes());
+                }
+            } while (parser.consume(','));
+            parser.expect(']');
+        }
+        parser.expectEnd();
+
+        stats.experiments(bucketTests.size());
+        stats.rebuilt(bucketTests.size());
+        stats.addIds(parser.ids);
+        stats.elapsedNanos(System.nanoTime() - start);
+        return bucketTests;
+    }
+
+    /**
+     * 解析单个实验的json片段
+     *
+     * @param fragment 单个实验的json对象
+     * @param stats    解析统计
+     * @return 编译后的分桶测试，片段为null时返回空测试
+     * @throws IllegalArgumentException 格式错误
+     */
+    static CompiledBucketTest parseExperiment(String fragment, BucketConfigStats stats) {
+        BucketConfigParser parser = new BucketConfigParser(fragment);
+        CompiledBucketTest bucketTest = parser.readExperiment();
+        parser.expectEnd();
+
+        stats.addIds(parser.ids);
+        return bucketTest == null ? CompiledBucketTest.empty() : bucketTest;
+    }
+
+    private CompiledBucketTest readExperiment() {
+        if (consumeLiteral("null")) {
+            return null;
+        }
+
+        CompiledBucketTest.Builder builder = CompiledBucketTest.builder();
+        expect('{');
+        if (consume('}')) {
+            return builder.build();
+        }
+
+        do {
+            String field = readString();
+            expect(':');
+            switch (field) {
+                case "name":
+                    builder.name(readNullableString());
+                    break;
+                case "percent":
+                    builder.percent(readInt(1));
+                    break;
+                case "basic":
+                    builder.basic(readInt(100));
+                    break;
+                case "status":
+                    builder.status(readInt(0));
+                    break;
+                case "hash":
+                    builder.hash(readNullableString());
+                    break;
+                case "hits": {
+                    List<String> names = new ArrayList<>(0);
+                    long[] hits = readLongs(names);
+                    builder.hits(hits, names.toArray(new String[names.size()]));
+                    break;
+                }
+                case "excludes": {
+                    List<String> names = new ArrayList<>(0);
+                    long[] excludes = readLongs(names);
+                    builder.excludes(excludes, names.toArray(new String[names.size()]));
+                    break;
+                }
+                case "layer":
+                    builder.layer(readNullableString());
+                    break;
+                case "arms":
+                    readArms(builder);
+                    break;
+                case "startTime":
+                    builder.startTime(readLong(0));
+                    break;
+                case "endTime":
+                    builder.endTime(readLong(0));
+                    break;
+                case "ramps":
+                    readRamps(builder);
+                    break;
+                case "rule":
+                    builder.rule(readNullableString());
+                    break;
+                case "extra":
+                    builder.extra(readText());
+                    break;
+                default:
+                    skipValue();
+                    break;
+            }
+        } while (consume(','));
+        expect('}');
+
+        return builder.build();
+    }
+
+    /**
+     * 读取id列表：规范的整数（字符串或数字形式）解析为long，其余放入names
+     */
+    private long[] readLongs(List<String> names) {
+        if (consumeLiteral("null")) {
+            return null;
+        }
+
+        expect('[');
+        long[] values = new long[16];
+        int size = 0;
+        if (!consume(']')) {
+            do {
+                skipWhitespace();
+                char c = peek();
+                if (c == '"') {
+                    int start = position + 1;
+                    int end = skipString();
+                    long number = parseCanonicalLong(json, start, end);
+                    if (number != Long.MIN_VALUE || isMinValue(json, start, end)) {
+                        if (size == values.length) {
+                            values = Arrays.copyOf(values, size * 2);
+                        }
+                        values[size++] = number;
+                    } else {
+                        names.add(unescape(json, start, end));
+                    }
+                } else if (c == 'n') {
+                    expectLiteral("null");
+                } else {
+                    int start = position;
+                    skipNumber();
+                    long number = parseCanonicalLong(json, start, position);
+                    if (number != Long.MIN_VALUE || isMinValue(json, start, position)) {
+                        if (size == values.length) {
+                            values = Arrays.copyOf(values, size * 2);
+                        }
+                        values[size++] = number;
+                    } else {
+                        names.add(json.substring(start, position));
+                    }
+                }
+            } while (consume(','));
+            expect(']');
+        }
+
+        ids += size;
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * 读取分组列表：[{"name":"A","weight":50}, ...]
+     */
+    private void readArms(CompiledBucketTest.Builder builder) {
+        if (consumeLiteral("null")) {
+            return;
+        }
+
+        List<String> names = new ArrayList<>();
+        int[] weights = new int[4];
+        expect('[');
+        if (!consume(']')) {
+            do {
+                String name = null;
+                int weight = 0;
+                if (!consumeLiteral("null")) {
+                    expect('{');
+                    if (!consume('}')) {
+                        do {
+                            String field = readString();
+                            expect(':');
+                            if ("name".equals(field)) {
+                                name = readNullableString();
+                            } else if ("weight".equals(field)) {
+                                weight = readInt(0);
+                            } else {
+                                skipValue();
+                            }
+                        } while (consume(','));
+                        expect('}');
+                    }
+                }
+                if (names.size() == weights.length) {
+                    weights = Arrays.copyOf(weights, weights.length * 2);
+                }
+                weights[names.size()] = weight;
+                names.add(name);
+            } while (consume(','));
+            expect(']');
+        }
+        builder.arms(names.toArray(new String[names.size()]), Arrays.copyOf(weights, names.size()));
+    }
+
+    /**
+     * 读取放量计划：[{"time":1767196800000,"percent":5}, ...]
+     */
+    private void readRamps(CompiledBucketTest.Builder builder) {
+        if (consumeLiteral("null")) {
+            return;
+        }
+
+        long[] times = new long[4];
+        int[] percents = new int[4];
+        int size = 0;
+        expect('[');
+        if (!consume(']')) {
+            do {
+                if (consumeLiteral("null")) {
+                    continue;
+                }
+                long time = 0;
+                int percent = 0;
+                expect('{');
+                if (!consume('}')) {
+                    do {
+                        String field = readString();
+                        expect(':');
+                        if ("time".equals(field)) {
+                            time = readLong(0);
+                        } else if ("percent".equals(field)) {
+                            percent = readInt(0);
+                        } else {
+                            skipValue();
+                        }
+                    } while (consume(','));
+                    expect('}');
+                }
+                if (size == times.length) {
+                    times = Arrays.copyOf(times, size * 2);
+                    percents = Arrays.copyOf(percents, size * 2);
+                }
+                times[size] = time;
+                percents[size++] = percent;
+            } while (consume(','));
+            expect(']');
+        }
+        builder.ramps(Arrays.copyOf(times, size), Arrays.copyOf(percents, size));
+    }
+
+    private long readLong(long defaultValue) {
+        skipWhitespace();
+        char c = peek();
+        if (c == 'n') {
+            expectLiteral("null");
+            return defaultValue;
+        }
+
+        int start;
+        int end;
+        if (c == '"') {
+            start = position + 1;
+            end = skipString();
+        } else {
+            start = position;
+            skipNumber();
+            end = position;
+        }
+
+        long number = parseCanonicalLong(json, start, end);
+        if (number != Long.MIN_VALUE || isMinValue(json, start, end)) {
+            return number;
+        }
+        String text = json.substring(start, end).trim();
+        try {
+            return (long) Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw error("invalid number '" + text + "'");
+        }
+    }
+
+    private int readInt(int defaultValue) {
+        skipWhitespace();
+        char c = peek();
+        if (c == 'n') {
+            expectLiteral("null");
+            return defaultValue;
+        }
+
+        int start;
+        int end;
+        if (c == '"') {
+            start = position + 1;
+            end = skipString();
+        } else {
+            start = position;
+            skipNumber();
+            end = position;
+        }
+
+        String number = json.substring(start, end).trim();
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            try {
+                return (int) Double.parseDouble(number);
+            } catch (NumberFormatException ex) {
+                throw error("invalid number '" + number + "'");
+            }
+        }
+    }
+
+    private String readNullableString() {
+        if (consumeLiteral("null")) {
+            return null;
+        }
+        return readString();
+    }
+
+    private String readString() {
+        skipWhitespace();
+        if (peek() != '"') {
+            throw error("expected string");
+        }
+        int start = position + 1;
+        int end = skipString();
+        return unescape(json, start, end);
+    }
+
+    private JsonText readText() {
+        skipWhitespace();
+        if (peek() == '"') {
+            int start = position + 1;
+            int end = skipString();
+            return JsonText.of(json, start, end, true);
+        }
+        if (consumeLiteral("null")) {
+            return null;
+        }
+        int start = position;
+        skipValue();
+        return JsonText.of(json, start, position, false);
+    }
+
+    private void skipValue() {
+        skipWhitespace();
+        char c = peek();
+        switch (c) {
+            case '"':
+                skipString();
+                break;
+            case '{':
+                position++;
+                if (!consume('}')) {
+                    do {
+                        readString();
+                        expect(':');
+                        skipValue();
+                    } while (consume(','));
+                    expect('}');
+                }
+                break;
+            case '[':
+                position++;
+                if (!consume(']')) {
+                    do {
+                        skipValue();
+                    } while (consume(','));
+                    expect(']');
+                }
+                break;
+            case 't':
+                expectLiteral("true");
+                break;
+            case 'f':
+                expectLiteral("false");
+                break;
+            case 'n':
+                expectLiteral("null");
+                break;
+            default:
+                skipNumber();
+                break;
+        }
+    }
+
+    /**
+     * 跳过当前位置的字符串
+     *
+     * @return 结束引号的位置
+     */
+    private int skipString() {
+        position++;
+        int length = json.length();
+        while (position < length) {
+            char c = json.charAt(position);
+            if (c == '\\') {
+                position += 2;
+            } else if (c == '"') {
+                return position++;
+            } else {
+                position++;
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private void skipNumber() {
+        int start = position;
+        int length = json.length();
+        while (position < length) {
+            char c = json.charAt(position);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (position == start) {
+            throw error("unexpected character");
+        }
+    }
+
+    private void skipWhitespace() {
+        int length = json.length();
+        while (position < length && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= json.length()) {
+            throw error("unexpected end");
+        }
+        return json.charAt(position);
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+        if (position < json.length() && json.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("expected '" + c + "'");
+        }
+    }
+
+    private boolean consumeLiteral(String literal) {
+        skipWhitespace();
+        if (json.startsWith(literal, position)) {
+            position += literal.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expectLiteral(String literal) {
+        if (!consumeLiteral(literal)) {
+            throw error("expected '" + literal + "'");
+        }
+    }
+
+    private void expectEnd() {
+        skipWhitespace();
+        if (position != json.length()) {
+            throw error("unexpected content");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + position);
+    }
+
+    /**
+     * 解析规范的十进制整数（与String.valueOf(long)的输出一致），不是规范整数时返回Long.MIN_VALUE
+     */
+    static long parseCanonicalLong(CharSequence value, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > 20) {
+            return Long.MIN_VALUE;
+        }
+
+        boolean negative = value.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || (value.charAt(i) == '0' && (end - i > 1 || negative))) {
+            // 空、前导0、"-0"都不是规范形式
+            return Long.MIN_VALUE;
+        }
+
+        long result = 0;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return Long.MIN_VALUE;
+            }
+            int digit = c - '0';
+            // 以负数累加，避免Long.MIN_VALUE溢出
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                return Long.MIN_VALUE;
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                return Long.MIN_VALUE;
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    static boolean isMinValue(CharSequence value, int start, int end) {
+        return "-9223372036854775808".contentEquals(value.subSequence(start, end));
+    }
+
+    /**
+     * json字符串去转义
+     */
+    static String unescape(String json, int start, int end) {
+        int escape = json.indexOf('\\', start);
+        if (escape < 0 || escape >= end) {
+            return json.substring(start, end);
+        }
+
+        StringBuilder value = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = json.charAt(i);
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            c = json.charAt(++i);
+            switch (c) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    value.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default:
+                    value.append(c);
+                    break;
+            }
+        }
+        return value.toString();
+    }
+}
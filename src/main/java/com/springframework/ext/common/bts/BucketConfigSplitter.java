@@ -0,0 +1,220 @@
+package com.springframework.ext.common.bts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 分桶配置切分：把顶层json数组切分为每个实验的json片段，不做反序列化
+ *
+ * <pre>
+ *     只识别字符串、转义与括号嵌套，片段内容的合法性由后续反序列化校验
+ *     延迟解析时只记录片段在配置中的位置，并读取name、layer等少数顶层字段
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class BucketConfigSplitter {
+
+    private BucketConfigSplitter() {
+    }
+
+    /**
+     * @param bucketConfig 分桶配置，顶层必须是json数组
+     * @return 每个数组元素的json片段（已去除首尾空白）
+     * @throws IllegalArgumentException 配置不是json数组或括号/引号不匹配
+     */
+    static List<String> split(String bucketConfig) {
+        int[] bounds = bounds(bucketConfig);
+        List<String> fragments = new ArrayList<>(bounds.length / 2);
+        for (int i = 0; i < bounds.length; i += 2) {
+            fragments.add(bucketConfig.substring(bounds[i], bounds[i + 1]));
+        }
+        return fragments;
+    }
+
+    /**
+     * @param bucketConfig 分桶配置，顶层必须是json数组
+     * @return 每个数组元素的[起始位置, 结束位置)，依次排列（已去除首尾空白）
+     * @throws IllegalArgumentException 配置不是json数组或括号/引号不匹配
+     */
+    static int[] bounds(String bucketConfig) {
+        int[] bounds = new int[16];
+        int count = 0;
+        int length = bucketConfig.length();
+        int position = skipWhitespace(bucketConfig, 0);
+        if (position >= length || bucketConfig.charAt(position) != '[') {
+            throw new IllegalArgumentException("bucketConfig is not a json array");
+        }
+
+        int depth = 0;
+        int start = -1;
+        boolean inString = false;
+        for (position++; position < length; position++) {
+            char c = bucketConfig.charAt(position);
+            if (inString) {
+                if (c == '\\') {
+                    position++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            if (start < 0 && !Character.isWhitespace(c) && c != ',' && c != ']') {
+                start = position;
+            }
+
+            switch (c) {
+                case '"':
+                    inString = true;
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                    depth--;
+                    if (depth < 0) {
+                        throw new IllegalArgumentException("unbalanced '}' at " + position);
+                    }
+                    break;
+                case ']':
+                    if (depth == 0) {
+                        if (start >= 0) {
+                            bounds = addBounds(bounds, count++, bucketConfig, start, position);
+                        }
+                        if (skipWhitespace(bucketConfig, position + 1) != length) {
+                            throw new IllegalArgumentException("unexpected content after ']' at " + position);
+                        }
+                        return Arrays.copyOf(bounds, count * 2);
+                    }
+                    depth--;
+                    break;
+                case ',':
+                    if (depth == 0) {
+                        if (start < 0) {
+                            throw new IllegalArgumentException("empty element at " + position);
+                        }
+                        bounds = addBounds(bounds, count++, bucketConfig, start, position);
+                        start = -1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("bucketConfig is not terminated");
+    }
+
+    private static int[] addBounds(int[] bounds, int index, String bucketConfig, int start, int end) {
+        while (end > start && Character.isWhitespace(bucketConfig.charAt(end - 1))) {
+            end--;
+        }
+        if (index * 2 + 2 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[index * 2] = start;
+        bounds[index * 2 + 1] = end;
+        return bounds;
+    }
+
+    /**
+     * 读取json对象片段的顶层字段，不反序列化其余内容；同名字段以最后出现的为准
+     *
+     * @param bucketConfig 分桶配置
+     * @param start        对象片段的起始位置
+     * @param end          对象片段的结束位置
+     * @param key          字段名
+     * @return 字段值的原始json文本（字符串带引号），字段不存在或片段不是对象时返回null
+     */
+    static String field(String bucketConfig, int start, int end, String key) {
+        if (start >= end || bucketConfig.charAt(start) != '{') {
+            return null;
+        }
+        String value = null;
+        int depth = 0;
+        // 顶层对象中下一个字符串是字段名
+        boolean expectKey = true;
+        for (int position = start; position < end; position++) {
+            char c = bucketConfig.charAt(position);
+            switch (c) {
+                case '"':
+                    int close = skipString(bucketConfig, position, end);
+                    if (depth == 1 && expectKey) {
+                        if (close - position - 1 == key.length() && bucketConfig.startsWith(key, position + 1)) {
+                            int from = skipWhitespace(bucketConfig, close + 1);
+                            if (from < end && bucketConfig.charAt(from) == ':') {
+                                from = skipWhitespace(bucketConfig, from + 1);
+                                value = bucketConfig.substring(from, valueEnd(bucketConfig, from, end));
+                            }
+                        }
+                        expectKey = false;
+                    }
+                    position = close;
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    break;
+                case ',':
+                    expectKey = depth == 1;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return 字符串结束引号的位置
+     */
+    private static int skipString(String value, int position, int end) {
+        for (position++; position < end; position++) {
+            char c = value.charAt(position);
+            if (c == '\\') {
+                position++;
+            } else if (c == '"') {
+                return position;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return 字段值的结束位置：字符串到结束引号之后，其他值到下一个逗号或右括号（嵌套的数组/对象按括号匹配）
+     */
+    private static int valueEnd(String value, int position, int end) {
+        if (position < end && value.charAt(position) == '"') {
+            return Math.min(skipString(value, position, end) + 1, end);
+        }
+        int depth = 0;
+        for (; position < end; position++) {
+            char c = value.charAt(position);
+            if (c == '"') {
+                position = skipString(value, position, end);
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if ((c == '}' || c == ']') && depth-- == 0 || c == ',' && depth == 0) {
+                break;
+            }
+        }
+        while (position > 0 && Character.isWhitespace(value.charAt(position - 1))) {
+            position--;
+        }
+        return position;
+    }
+
+    private static int skipWhitespace(String value, int position) {
+        while (position < value.length() && Character.isWhitespace(value.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+}
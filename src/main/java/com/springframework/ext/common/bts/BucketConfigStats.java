@@ -0,0 +1,86 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 配置解析统计：解析耗时与白名单/黑名单内存占用
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketConfigStats {
+    /** 实验个数 */
+    private int experiments;
+    /** 本次重新解析的实验个数 */
+    private int rebuilt;
+    /** 延迟到首次访问时解析的实验个数 */
+    private int deferred;
+    /** 本次解析的白名单/黑名单id个数 */
+    private long ids;
+    /** 白名单/黑名单占用的堆内存估算（字节） */
+    private long memoryBytes;
+    /** 白名单/黑名单占用的堆外内存（字节） */
+    private long offHeapBytes;
+    /** 解析耗时（纳秒） */
+    private long elapsedNanos;
+
+    void experiments(int experiments) {
+        this.experiments = experiments;
+    }
+
+    void rebuilt(int rebuilt) {
+        this.rebuilt = rebuilt;
+    }
+
+    void deferred(int deferred) {
+        this.deferred = deferred;
+    }
+
+    void addIds(long ids) {
+        this.ids += ids;
+    }
+
+    void addMemoryBytes(long memoryBytes) {
+        this.memoryBytes += memoryBytes;
+    }
+
+    void addOffHeapBytes(long offHeapBytes) {
+        this.offHeapBytes += offHeapBytes;
+    }
+
+    void elapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getExperiments() {
+        return experiments;
+    }
+
+    public int getRebuilt() {
+        return rebuilt;
+    }
+
+    public int getDeferred() {
+        return deferred;
+    }
+
+    public long getIds() {
+        return ids;
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("experiments:%d, rebuilt:%d, deferred:%d, ids:%d, memoryBytes:%d, offHeapBytes:%d, elapsedMillis:%.3f",
+                experiments, rebuilt, deferred, ids, memoryBytes, offHeapBytes, elapsedNanos / 1e6);
+    }
+}
@@ -0,0 +1,113 @@
+package com.springframework.ext.common.bts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * 本地配置文件监听：文件变化后读取完整内容推送给监听器
+ *
+ * <pre>
+ *     1. 基于WatchService，由后台守护线程等待文件事件，不轮询
+ *     2. 内容与上次推送相同时不重复推送
+ *     3. 监听器异常只记录日志，不影响后续变更的推送
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketConfigWatcher implements Closeable {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(BucketConfigWatcher.class);
+    /** 配置文件 */
+    private final Path file;
+    /** 配置监听器 */
+    private final BucketConfigListener listener;
+    /** 文件监听服务 */
+    private WatchService watchService;
+    /** 监听线程 */
+    private Thread thread;
+    /** 上次推送的配置 */
+    private volatile String lastConfig;
+
+    public BucketConfigWatcher(Path file, BucketConfigListener listener) {
+        this.file = file.toAbsolutePath();
+        this.listener = listener;
+    }
+
+    /**
+     * 推送一次当前文件内容，并开始监听后续变化
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        push();
+
+        thread = new Thread(this::watch, "BucketConfigWatcher-" + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(context)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    push();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 关闭监听
+        }
+    }
+
+    private void push() {
+        try {
+            if (!Files.isRegularFile(file)) {
+                return;
+            }
+            String bucketConfig = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            if (bucketConfig.equals(lastConfig)) {
+                return;
+            }
+            lastConfig = bucketConfig;
+            listener.onChange(bucketConfig);
+        } catch (Exception e) {
+            logger.error(String.format("push@file:%s", file), e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.springframework.ext.common.bts;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 定向规则的属性上下文：由调用方按请求填充，如地区、版本、平台、用户等级
+ *
+ * <pre>
+ *     1. 属性名在全局登记为槽位下标，规则编译时解析好槽位，判断时只做数组访问
+ *     2. 字符串值在设置时预先解析为整数和版本号（如"3.2.10"），比较时不再解析
+ *     3. clear()只递增版本号，不清空数组，可在同一线程内复用
+ *     4. 非线程安全，每个请求使用各自的实例
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketContext {
+    /** 属性名->槽位 */
+    private static final ConcurrentHashMap<String, Integer> SLOTS = new ConcurrentHashMap<>();
+    /** 槽位生成器 */
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+    /** 版本号每段的位数 */
+    private static final int VERSION_BITS = 21;
+    /** 版本号每段的最大值 */
+    private static final long VERSION_MAX = (1L << VERSION_BITS) - 1;
+    /** 字符串值 */
+    private String[] strings;
+    /** 整数值 */
+    private long[] numbers;
+    /** 版本号值 */
+    private long[] versions;
+    /** 字符串值的设置批次 */
+    private int[] stringStamps;
+    /** 整数值的设置批次 */
+    private int[] numberStamps;
+    /** 版本号值的设置批次 */
+    private int[] versionStamps;
+    /** 当前批次：与stamps相同的值才有效 */
+    private int stamp = 1;
+
+    public BucketContext() {
+        int size = Math.max(8, NEXT_SLOT.get());
+        this.strings = new String[size];
+        this.numbers = new long[size];
+        this.versions = new long[size];
+        this.stringStamps = new int[size];
+        this.numberStamps = new int[size];
+        this.versionStamps = new int[size];
+    }
+
+    /**
+     * 登记属性名
+     *
+     * @param name 属性名
+     * @return 属性的槽位，同名属性始终相同
+     */
+    public static int slot(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("attribute name is null");
+        }
+        Integer slot = SLOTS.get(name);
+        return slot != null ? slot : SLOTS.computeIfAbsent(name, key -> NEXT_SLOT.getAndIncrement());
+    }
+
+    public BucketContext set(String name, String value) {
+        return set(slot(name), value);
+    }
+
+    public BucketContext set(String name, long value) {
+        return set(slot(name), value);
+    }
+
+    /**
+     * 设置字符串属性：数字串同时作为整数，数字与点组成的串同时作为版本号
+     *
+     * @param slot  属性槽位，见{@link #slot(String)}
+     * @param value 属性值，null表示未设置
+     */
+    public BucketContext set(int slot, String value) {
+        ensure(slot);
+        if (value == null) {
+            stringStamps[slot] = 0;
+            numberStamps[slot] = 0;
+            versionStamps[slot] = 0;
+            return this;
+        }
+        strings[slot] = value;
+        stringStamps[slot] = stamp;
+
+        long number = BucketConfigParser.parseCanonicalLong(value, 0, value.length());
+        if (number != Long.MIN_VALUE || BucketConfigParser.isMinValue(value, 0, value.length())) {
+            numbers[slot] = number;
+            numberStamps[slot] = stamp;
+        } else {
+            numberStamps[slot] = 0;
+        }
+
+        long version = version(value);
+        if (version >= 0) {
+            versions[slot] = version;
+            versionStamps[slot] = stamp;
+        } else {
+            versionStamps[slot] = 0;
+        }
+        return this;
+    }
+
+    /**
+     * 设置整数属性：同时作为版本号的主版本，不作为字符串
+     */
+    public BucketContext set(int slot, long value) {
+        ensure(slot);
+        stringStamps[slot] = 0;
+        numbers[slot] = value;
+        numberStamps[slot] = stamp;
+        if (value >= 0 && value <= VERSION_MAX) {
+            versions[slot] = value << (VERSION_BITS * 2);
+            versionStamps[slot] = stamp;
+        } else {
+            versionStamps[slot] = 0;
+        }
+        return this;
+    }
+
+    /**
+     * 清空全部属性
+     */
+    public void clear() {
+        if (++stamp == 0) {
+            // 批次号回绕时清空，避免与很久以前的值相同
+            Arrays.fill(stringStamps, 0);
+            Arrays.fill(numberStamps, 0);
+            Arrays.fill(versionStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * @return 字符串值，未设置时返回null
+     */
+    String string(int slot) {
+        return slot < strings.length && stringStamps[slot] == stamp ? strings[slot] : null;
+    }
+
+    boolean hasNumber(int slot) {
+        return slot < numbers.length && numberStamps[slot] == stamp;
+    }
+
+    long number(int slot) {
+        return numbers[slot];
+    }
+
+    boolean hasVersion(int slot) {
+        return slot < versions.length && versionStamps[slot] == stamp;
+    }
+
+    long version(int slot) {
+        return versions[slot];
+    }
+
+    private void ensure(int slot) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("invalid attribute slot: " + slot);
+        }
+        if (slot >= strings.length) {
+            int size = Math.max(slot + 1, strings.length * 2);
+            strings = Arrays.copyOf(strings, size);
+            numbers = Arrays.copyOf(numbers, size);
+            versions = Arrays.copyOf(versions, size);
+            stringStamps = Arrays.copyOf(stringStamps, size);
+            numberStamps = Arrays.copyOf(numberStamps, size);
+            versionStamps = Arrays.copyOf(versionStamps, size);
+        }
+    }
+
+    /**
+     * 版本号编码：最多3段，每段不超过2^21-1，按段依次占21位，可直接比较大小
+     *
+     * @return 编码后的版本号，格式不符时返回-1
+     */
+    static long version(CharSequence value) {
+        int length = value.length();
+        if (length == 0) {
+            return -1;
+        }
+        long version = 0;
+        long part = 0;
+        int parts = 0;
+        boolean digits = false;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? value.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                part = part * 10 + (c - '0');
+                if (part > VERSION_MAX) {
+                    return -1;
+                }
+                digits = true;
+            } else if (c == '.' && digits && parts < 3) {
+                version |= part << (VERSION_BITS * (2 - parts));
+                parts++;
+                part = 0;
+                digits = false;
+            } else {
+                return -1;
+            }
+        }
+        return version;
+    }
+}
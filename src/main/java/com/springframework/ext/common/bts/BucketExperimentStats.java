@@ -0,0 +1,71 @@
+package com.springframework.ext.common.bts;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 单个实验的计数快照
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketExperimentStats {
+    /** 分桶标识 */
+    private final String name;
+    /** 分桶计算次数 */
+    private final long calls;
+    /** 在实验中的次数，含白名单 */
+    private final long hits;
+    /** 命中白名单的次数 */
+    private final long whitelisted;
+    /** 命中黑名单的次数 */
+    private final long blacklisted;
+
+    @ConstructorProperties({"name", "calls", "hits", "whitelisted", "blacklisted"})
+    public BucketExperimentStats(String name, long calls, long hits, long whitelisted, long blacklisted) {
+        this.name = name;
+        this.calls = calls;
+        this.hits = hits;
+        this.whitelisted = whitelisted;
+        this.blacklisted = blacklisted;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return 不在实验中的次数，含黑名单
+     */
+    public long getMisses() {
+        return Math.max(0, calls - hits);
+    }
+
+    public long getWhitelisted() {
+        return whitelisted;
+    }
+
+    public long getBlacklisted() {
+        return blacklisted;
+    }
+
+    /**
+     * @return 实际进入实验的流量比例
+     */
+    public double getHitRate() {
+        return calls == 0 ? 0 : (double) hits / calls;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{calls:%d, hits:%d, whitelisted:%d, blacklisted:%d}",
+                name, calls, hits, whitelisted, blacklisted);
+    }
+}
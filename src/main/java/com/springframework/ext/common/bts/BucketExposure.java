@@ -0,0 +1,448 @@
+package com.springframework.ext.common.bts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 曝光记录流：请求线程不加锁地写入预分配的环形缓冲，后台线程按批写出到{@link BucketExposureSink}
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketExposure implements Closeable {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(BucketExposure.class);
+    /** 空闲时的初始等待时间 */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /** 空闲时的最长等待时间 */
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(64);
+    /** 后台线程状态：运行中 */
+    private static final int RUNNING = 0;
+    /** 后台线程状态：已退出，由close写出剩余记录 */
+    private static final int STOPPED = 1;
+    /** 后台线程状态：close等待超时，由后台线程退出时关闭sink */
+    private static final int ABANDONED = 2;
+    /** 曝光输出 */
+    private final BucketExposureSink sink;
+    /** 槽位掩码 */
+    private final int mask;
+    /** 实验id */
+    private final int[] ids;
+    /** 分桶索引 */
+    private final long[] indexes;
+    /** 桶号 */
+    private final int[] buckets;
+    /** 时间戳 */
+    private final long[] timestamps;
+    /** 槽位已发布的序号+1 */
+    private final AtomicLongArray published;
+    /** 下一个待占用的序号 */
+    private final AtomicLong tail = new AtomicLong();
+    /** 下一个待消费的序号，只由消费线程写 */
+    private volatile long head;
+    /** 批量写出的缓冲 */
+    private final BucketExposureBatch batch;
+    /** 实验id -> 实验名：生产者首次遇到某个id时在锁内写时复制，读取无锁 */
+    private volatile Names names = Names.EMPTY;
+    /** 写入 id->实验名 表的锁 */
+    private final Object namesLock = new Object();
+    /** 上一代 id->实验名 表：压缩后保留一代，只由消费线程访问 */
+    private Names retired = Names.EMPTY;
+    /** 上次压缩后的表大小，只由消费线程访问 */
+    private int compacted;
+    /** 采样：每N个索引记录1个，1为全部记录 */
+    private volatile int sampling = 1;
+    /** 后台线程 */
+    private Thread drainer;
+    /** 是否运行中 */
+    private volatile boolean running;
+    /** 后台线程状态，close与后台线程据此决定由谁关闭sink */
+    private final AtomicInteger state = new AtomicInteger();
+    /** 写入缓冲的记录数 */
+    private final LongAdder recorded = new LongAdder();
+    /** 缓冲已满丢弃的记录数 */
+    private final LongAdder dropped = new LongAdder();
+    /** 采样跳过的记录数 */
+    private final LongAdder sampled = new LongAdder();
+    /** 写出到sink的记录数 */
+    private final LongAdder drained = new LongAdder();
+    /** sink异常次数 */
+    private final LongAdder errors = new LongAdder();
+    /** close超时未写出的记录数 */
+    private final LongAdder abandoned = new LongAdder();
+
+    /**
+     * @param capacity  缓冲容量，向上取整为2的幂
+     * @param batchSize 每批最多写出的记录数
+     * @param sink      曝光输出
+     */
+    public BucketExposure(int capacity, int batchSize, BucketExposureSink sink) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.sink = sink;
+        this.mask = size - 1;
+        this.ids = new int[size];
+        this.indexes = new long[size];
+        this.buckets = new int[size];
+        this.timestamps = new long[size];
+        this.published = new AtomicLongArray(size);
+        this.batch = new BucketExposureBatch(Math.min(batchSize, size));
+        // 记录时间取共享时钟，不在请求线程上调用System.currentTimeMillis()
+        BucketClock.start();
+    }
+
+    /**
+     * 启动后台写出线程
+     */
+    public synchronized BucketExposure start() {
+        if (drainer == null) {
+            running = true;
+            state.set(RUNNING);
+            drainer = new Thread(this::run, "BucketExposure-drainer");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+        return this;
+    }
+
+    /**
+     * 记录一次曝光：不阻塞、不分配对象
+     *
+     * @param bucketTest 实验
+     * @param index      分桶索引
+     * @param bucket     桶号
+     * @return 是否写入缓冲
+     */
+    public boolean record(CompiledBucketTest bucketTest, long index, int bucket) {
+        int sampling = this.sampling;
+        if (sampling > 1 && Long.remainderUnsigned(BucketHash.fmix64(index), sampling) != 0) {
+            sampled.increment();
+            return false;
+        }
+
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head > mask) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int id = bucketTest.id();
+        if (names.indexOf(id) < 0) {
+            register(id, bucketTest.getName());
+        }
+        int slot = (int) sequence & mask;
+        ids[slot] = id;
+        indexes[slot] = index;
+        buckets[slot] = bucket;
+        timestamps[slot] = BucketClock.now();
+        published.lazySet(slot, sequence + 1);
+        recorded.increment();
+        return true;
+    }
+
+    /**
+     * 写出一批已发布的记录，只能由单个线程调用
+     *
+     * @return 写出的记录数
+     */
+    int drain() {
+        compact();
+        long head = this.head;
+        int size = 0;
+        int limit = batch.ids.length;
+        while (size < limit) {
+            int slot = (int) head & mask;
+            if (published.get(slot) != head + 1) {
+                break;
+            }
+            batch.ids[size] = ids[slot];
+            batch.names[size] = resolve(ids[slot]);
+            batch.indexes[size] = indexes[slot];
+            batch.buckets[size] = buckets[slot];
+            batch.timestamps[size] = timestamps[slot];
+            size++;
+            head++;
+        }
+        if (size == 0) {
+            return 0;
+        }
+        // 先复制再释放槽位
+        this.head = head;
+
+        batch.size = size;
+        try {
+            sink.write(batch);
+            drained.add(size);
+        } catch (Exception e) {
+            errors.increment();
+            logger.error(String.format("drain@sink:%s, records:%d", sink, size), e);
+        }
+        return size;
+    }
+
+    private void register(int id, String name) {
+        synchronized (namesLock) {
+            Names names = this.names;
+            if (names.indexOf(id) < 0) {
+                this.names = names.with(id, name);
+            }
+        }
+    }
+
+    /**
+     * 按id解析实验名，并标记该id仍在使用
+     */
+    private String resolve(int id) {
+        Names names = this.names;
+        int i = names.indexOf(id);
+        if (i >= 0) {
+            names.used[i] = true;
+            return names.values[i];
+        }
+        i = retired.indexOf(id);
+        return i < 0 ? null : retired.values[i];
+    }
+
+    /**
+     * 表中累积了配置更新前的实验id时，只保留上次压缩后解析过的id；被移除但仍在使用的id由生产者重新写入
+     */
+    private void compact() {
+        if (names.size <= 2 * compacted + 64) {
+            return;
+        }
+        synchronized (namesLock) {
+            Names names = this.names;
+            Names kept = names.retain();
+            retired = names;
+            compacted = kept.size;
+            this.names = kept;
+        }
+    }
+
+    private void run() {
+        boolean flushed = true;
+        long idle = IDLE_NANOS;
+        while (running) {
+            if (drain() > 0) {
+                flushed = false;
+                idle = IDLE_NANOS;
+                continue;
+            }
+            if (!flushed) {
+                flush();
+                flushed = true;
+            }
+            LockSupport.parkNanos(this, idle);
+            idle = Math.min(idle << 1, MAX_IDLE_NANOS);
+        }
+        if (!state.compareAndSet(RUNNING, STOPPED)) {
+            // close已放弃等待，剩余记录已计入abandoned，这里只负责关闭sink
+            try {
+                closeSink();
+            } catch (Exception e) {
+                errors.increment();
+                logger.error(String.format("close@sink:%s", sink), e);
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            sink.flush();
+        } catch (Exception e) {
+            errors.increment();
+            logger.error(String.format("flush@sink:%s", sink), e);
+        }
+    }
+
+    /**
+     * 停止后台线程，写出剩余记录并关闭sink
+     */
+    @Override
+    public void close() throws IOException {
+        close(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * @param timeoutMillis 等待后台线程退出的最长时间
+     */
+    synchronized void close(long timeoutMillis) throws IOException {
+        running = false;
+        Thread drainer = this.drainer;
+        if (drainer != null) {
+            this.drainer = null;
+            LockSupport.unpark(drainer);
+            try {
+                drainer.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (state.compareAndSet(RUNNING, ABANDONED)) {
+                // 后台线程仍阻塞在sink上，不能并发drain，剩余记录只计数
+                long pending = getPending();
+                abandoned.add(pending);
+                logger.warn(String.format("close@sink:%s, drainer still running, abandoned:%d", sink, pending));
+                return;
+            }
+        }
+        while (drain() > 0) {
+            // 写出剩余记录
+        }
+        closeSink();
+    }
+
+    private void closeSink() throws IOException {
+        flush();
+        sink.close();
+    }
+
+    /**
+     * @param sampling 每N个索引记录1个，不大于1时全部记录
+     */
+    public void setSampling(int sampling) {
+        this.sampling = Math.max(sampling, 1);
+    }
+
+    public int getSampling() {
+        return sampling;
+    }
+
+    /**
+     * @return 缓冲中待写出的记录数
+     */
+    public long getPending() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    public long getRecorded() {
+        return recorded.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSampled() {
+        return sampled.sum();
+    }
+
+    public long getDrained() {
+        return drained.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getAbandoned() {
+        return abandoned.sum();
+    }
+
+    /**
+     * @return id->实验名 表的大小
+     */
+    int getNames() {
+        return names.size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("recorded:%d, dropped:%d, sampled:%d, drained:%d, errors:%d, abandoned:%d, pending:%d",
+                getRecorded(), getDropped(), getSampled(), getDrained(), getErrors(), getAbandoned(), getPending());
+    }
+
+    /**
+     * 不可变的 id->实验名 开放寻址表，id不为0
+     */
+    static final class Names {
+        static final Names EMPTY = new Names(16);
+        final int[] keys;
+        final String[] values;
+        /** 上次压缩后是否被消费线程解析过，只由消费线程写 */
+        final boolean[] used;
+        /** 元素个数，发布前确定 */
+        int size;
+
+        private Names(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new String[capacity];
+            this.used = new boolean[capacity];
+        }
+
+        int indexOf(int id) {
+            int mask = keys.length - 1;
+            for (int i = (int) BucketHash.fmix64(id) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == id) {
+                    return i;
+                }
+                if (keys[i] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        Names with(int id, String name) {
+            int capacity = keys.length;
+            while ((size + 1) * 2 > capacity) {
+                capacity <<= 1;
+            }
+            Names names = new Names(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    names.put(keys[i], values[i], used[i]);
+                }
+            }
+            names.put(id, name, false);
+            return names;
+        }
+
+        Names retain() {
+            int count = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0 && used[i]) {
+                    count++;
+                }
+            }
+            int capacity = 16;
+            while (count * 2 > capacity) {
+                capacity <<= 1;
+            }
+            Names names = new Names(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0 && used[i]) {
+                    names.put(keys[i], values[i], false);
+                }
+            }
+            return names;
+        }
+
+        private void put(int id, String name, boolean used) {
+            int mask = keys.length - 1;
+            int i = (int) BucketHash.fmix64(id) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = id;
+            values[i] = name;
+            this.used[i] = used;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 一批曝光记录：由后台线程复用，只在{@link BucketExposureSink#write}期间有效
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketExposureBatch {
+    /** 实验id */
+    final int[] ids;
+    /** 实验名 */
+    final String[] names;
+    /** 分桶索引 */
+    final long[] indexes;
+    /** 桶号 */
+    final int[] buckets;
+    /** 时间戳（毫秒） */
+    final long[] timestamps;
+    /** 记录数 */
+    int size;
+
+    BucketExposureBatch(int capacity) {
+        this.ids = new int[capacity];
+        this.names = new String[capacity];
+        this.indexes = new long[capacity];
+        this.buckets = new int[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 第i条记录的实验名，实验id已无法解析时为null
+     */
+    public String getName(int i) {
+        return names[i];
+    }
+
+    /**
+     * @return 第i条记录的实验实例id，配置更新后同名实验的id会变化
+     */
+    public int getExperimentId(int i) {
+        return ids[i];
+    }
+
+    public long getIndex(int i) {
+        return indexes[i];
+    }
+
+    public int getBucket(int i) {
+        return buckets[i];
+    }
+
+    public long getTimestamp(int i) {
+        return timestamps[i];
+    }
+}
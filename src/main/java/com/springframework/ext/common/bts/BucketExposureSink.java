@@ -0,0 +1,31 @@
+package com.springframework.ext.common.bts;
+
+import java.io.IOException;
+
+/**
+ * 曝光记录的输出：由{@link BucketExposure}的后台线程按批调用，无需线程安全
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public interface BucketExposureSink {
+
+    /**
+     * 写入一批曝光记录；batch在返回后会被复用，不能保留引用
+     *
+     * @param batch 曝光记录
+     */
+    void write(BucketExposureBatch batch) throws IOException;
+
+    /**
+     * 没有新记录时调用，把缓冲写出
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * 曝光流关闭时调用
+     */
+    default void close() throws IOException {
+    }
+}
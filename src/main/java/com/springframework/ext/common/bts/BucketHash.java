@@ -0,0 +1,180 @@
+package com.springframework.ext.common.bts;
+
+import java.util.UUID;
+
+/**
+ * 分桶hash策略：决定索引值落在[0, basic)中的哪个位置
+ *
+ * <pre>
+ *     1. LEGACY：原有算法，abs(index + abs(name.hashCode())) % basic，保证已有分桶不变
+ *     2. MURMUR3：MurmurHash3的64位fmix混淆index与实验名salt
+ *     3. XXHASH：XXH64对单个8字节输入的计算，以实验名salt为种子
+ *     后两者使连续的id均匀打散，且不同实验之间的分桶相互独立
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public enum BucketHash {
+    LEGACY {
+        @Override
+        long salt(String name) {
+            return name == null ? 0 : Math.abs(name.hashCode());
+        }
+
+        @Override
+        long position(long salt, long index, int basic) {
+            // 与原有实现保持一致：相加溢出后取绝对值（Long.MIN_VALUE时结果为负数，视为未命中）
+            return Math.abs(index + salt) % basic;
+        }
+    },
+    MURMUR3 {
+        @Override
+        long salt(String name) {
+            return hash64(name);
+        }
+
+        @Override
+        long position(long salt, long index, int basic) {
+            return (fmix64(index ^ salt) >>> 1) % basic;
+        }
+    },
+    XXHASH {
+        @Override
+        long salt(String name) {
+            return hash64(name);
+        }
+
+        @Override
+        long position(long salt, long index, int basic) {
+            return (xxh64(index, salt) >>> 1) % basic;
+        }
+    };
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    /**
+     * 根据配置值解析hash策略，为空时使用LEGACY
+     *
+     * @param hash 配置值，如"murmur3"、"xxhash"
+     * @return hash策略
+     * @throws IllegalArgumentException 无法识别的配置值：拼写错误时静默回退为LEGACY会让实验按错误的算法分桶
+     */
+    public static BucketHash of(String hash) {
+        if (hash == null || hash.trim().isEmpty()) {
+            return LEGACY;
+        }
+        for (BucketHash value : values()) {
+            if (value.name().equalsIgnoreCase(hash.trim())) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("unknown hash: " + hash);
+    }
+
+    /**
+     * 计算实验名的salt，编译时调用一次
+     */
+    abstract long salt(String name);
+
+    /**
+     * 计算索引值在[0, basic)中的位置，热点路径，不分配对象
+     */
+    abstract long position(long salt, long index, int basic);
+
+    /**
+     * MurmurHash3的64位finalizer
+     */
+    static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * XXH64对一个8字节（小端）输入的计算
+     */
+    static long xxh64(long input, long seed) {
+        long hash = seed + PRIME64_5 + 8;
+        long k1 = Long.rotateLeft(input * PRIME64_2, 31) * PRIME64_1;
+        hash ^= k1;
+        hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    /**
+     * 字符串的64位hash：FNV-1a逐字符累加后用fmix64混淆
+     */
+    static long hash64(CharSequence value) {
+        if (value == null) {
+            return 0;
+        }
+        long hash = FNV_OFFSET;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return fmix64(hash);
+    }
+
+    /**
+     * UUID的64位hash：与hash64(uuid.toString())相同，但不创建字符串
+     */
+    static long hash64(UUID value) {
+        if (value == null) {
+            return 0;
+        }
+        long most = value.getMostSignificantBits();
+        long least = value.getLeastSignificantBits();
+        long hash = FNV_OFFSET;
+        hash = hex(hash, most >>> 32, 8);
+        hash = (hash ^ '-') * FNV_PRIME;
+        hash = hex(hash, most >>> 16, 4);
+        hash = (hash ^ '-') * FNV_PRIME;
+        hash = hex(hash, most, 4);
+        hash = (hash ^ '-') * FNV_PRIME;
+        hash = hex(hash, least >>> 48, 4);
+        hash = (hash ^ '-') * FNV_PRIME;
+        hash = hex(hash, least, 12);
+        return fmix64(hash);
+    }
+
+    /**
+     * 字节数组的64位hash：FNV-1a逐字节累加后用fmix64混淆
+     */
+    static long hash64(byte[] value) {
+        if (value == null) {
+            return 0;
+        }
+        long hash = FNV_OFFSET;
+        for (byte b : value) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return fmix64(hash);
+    }
+
+    /**
+     * 把value的低digits个十六进制位（小写，高位在前）逐字符累加到FNV-1a
+     */
+    private static long hex(long hash, long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            int digit = (int) (value >>> shift) & 0xF;
+            hash = (hash ^ (digit < 10 ? '0' + digit : 'a' + digit - 10)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,378 @@
+package com.springframework.ext.common.bts;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * BucketTestHelper实例缓存：按配置内容或版本号寻址，容量有上限，同一配置并发未命中时只解析一次
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketHelperCache {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(BucketHelperCache.class);
+    /** 前置表大小，必须是2的幂 */
+    private static final int FRONT_SIZE = 16;
+    /** 默认容量 */
+    private static final int DEFAULT_MAX_SIZE = 64;
+    /** 前置表：元素不可变，槽位覆盖写 */
+    private final Entry[] front = new Entry[FRONT_SIZE];
+    /** 缓存key -> 实例，按访问顺序排列 */
+    private final LinkedHashMap<String, Node> helpers = new LinkedHashMap<>(16, 0.75f, true);
+    /** 缓存key -> 加载中的实例，与helpers使用同一把锁 */
+    private final Map<String, CompletableFuture<Node>> loading = new HashMap<>();
+    /** 版本号key的前缀，与sha256摘要区分 */
+    private static final String VERSION_PREFIX = "version:";
+    /** 刷新器：(缓存key, 实例)，null表示不刷新 */
+    private volatile BiConsumer<String, BucketTestHelper> refresher;
+    /** 刷新间隔（毫秒） */
+    private volatile long refreshMillis;
+    /** 刷新线程 */
+    private ExecutorService refreshExecutor;
+    /** 容量 */
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+    /** 命中次数 */
+    private final LongAdder hits = new LongAdder();
+    /** 未命中次数 */
+    private final LongAdder misses = new LongAdder();
+    /** 淘汰次数 */
+    private final LongAdder evictions = new LongAdder();
+    /** 等待其他线程加载的次数 */
+    private final LongAdder coalesced = new LongAdder();
+    /** 刷新次数 */
+    private final LongAdder refreshes = new LongAdder();
+    /** 刷新失败次数 */
+    private final LongAdder refreshErrors = new LongAdder();
+
+    /**
+     * 查找配置对应的实例，不存在时由loader创建
+     *
+     * @param bucketConfig 分桶配置
+     * @param loader       (分桶配置, 缓存key) -> 实例
+     * @return 配置对应的实例
+     */
+    BucketTestHelper get(String bucketConfig, BiFunction<String, String, BucketTestHelper> loader) {
+        int slot = bucketConfig.hashCode() & (FRONT_SIZE - 1);
+        Node node = front(slot, bucketConfig, false);
+        if (node == null) {
+            node = lookup(DigestUtils.sha256Hex(bucketConfig), bucketConfig, loader);
+            front[slot] = new Entry(bucketConfig, false, node);
+        }
+        return node.helper;
+    }
+
+    /**
+     * 按版本号查找实例，不计算配置摘要，不存在时由loader创建
+     *
+     * @param version      配置版本号，同一版本号须对应同一配置
+     * @param bucketConfig 分桶配置
+     * @param loader       (分桶配置, 缓存key) -> 实例
+     * @return 版本号对应的实例
+     */
+    BucketTestHelper get(String version, String bucketConfig, BiFunction<String, String, BucketTestHelper> loader) {
+        int slot = version.hashCode() & (FRONT_SIZE - 1);
+        Node node = front(slot, version, true);
+        if (node == null) {
+            node = lookup(VERSION_PREFIX + version, bucketConfig, loader);
+            front[slot] = new Entry(version, true, node);
+        }
+        return node.helper;
+    }
+
+    /**
+     * 在前置表中查找：先比较引用，再比较内容
+     */
+    private Node front(int slot, String key, boolean versioned) {
+        Entry entry = front[slot];
+        if (entry == null || entry.versioned != versioned || (entry.key != key && !entry.key.equals(key))) {
+            return null;
+        }
+        hits.increment();
+        Node node = entry.node;
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        refreshIfDue(node);
+        return node;
+    }
+
+    /**
+     * 在LRU表中查找，同一key并发未命中时只由一个线程加载
+     */
+    private Node lookup(String key, String bucketConfig, BiFunction<String, String, BucketTestHelper> loader) {
+        Node node;
+        CompletableFuture<Node> future;
+        boolean owner = false;
+        synchronized (helpers) {
+            node = helpers.get(key);
+            future = node == null ? loading.get(key) : null;
+            if (node == null && future == null) {
+                future = new CompletableFuture<>();
+                loading.put(key, future);
+                owner = true;
+            }
+        }
+
+        if (node != null) {
+            hits.increment();
+            refreshIfDue(node);
+        } else if (owner) {
+            misses.increment();
+            node = load(bucketConfig, key, loader, future);
+        } else {
+            coalesced.increment();
+            node = await(future);
+        }
+        return node;
+    }
+
+    /**
+     * 在锁外解析，避免阻塞其他配置的查找；完成后唤醒等待同一配置的线程
+     */
+    private Node load(String bucketConfig, String key, BiFunction<String, String, BucketTestHelper> loader,
+                      CompletableFuture<Node> future) {
+        Node node;
+        try {
+            node = new Node(key, loader.apply(bucketConfig, key), BucketClock.now() + refreshMillis);
+        } catch (RuntimeException | Error e) {
+            synchronized (helpers) {
+                loading.remove(key);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (helpers) {
+            helpers.put(key, node);
+            loading.remove(key);
+            evict();
+        }
+        future.complete(node);
+        return node;
+    }
+
+    private static Node await(CompletableFuture<Node> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 距上次刷新超过刷新间隔时提交异步刷新：只读一次粗粒度时钟，同一实例同时只有一个刷新任务
+     */
+    private void refreshIfDue(Node node) {
+        BiConsumer<String, BucketTestHelper> refresher = this.refresher;
+        if (refresher == null || BucketClock.now() < node.refreshAt || !node.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor().execute(() -> refresh(node, refresher));
+        } catch (RuntimeException e) {
+            node.refreshing.set(false);
+            refreshErrors.increment();
+            logger.warn("refresh@key:{} rejected", node.key, e);
+        }
+    }
+
+    private void refresh(Node node, BiConsumer<String, BucketTestHelper> refresher) {
+        try {
+            refresher.accept(node.key, node.helper);
+            refreshes.increment();
+        } catch (Exception e) {
+            refreshErrors.increment();
+            logger.warn("refresh@key:{} failed", node.key, e);
+        } finally {
+            // 失败时同样等待下一个间隔再重试，避免连续失败时反复提交
+            node.refreshAt = BucketClock.now() + refreshMillis;
+            node.refreshing.set(false);
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (refreshExecutor == null) {
+            refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "BucketHelperCache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return refreshExecutor;
+    }
+
+    /**
+     * 设置异步刷新：实例被访问且距加载或上次刷新超过refreshMillis时，在后台线程调用refresher
+     *
+     * @param refresher     (缓存key, 实例)，null表示不刷新
+     * @param refreshMillis 刷新间隔（毫秒）
+     */
+    void setRefresher(BiConsumer<String, BucketTestHelper> refresher, long refreshMillis) {
+        if (refresher != null) {
+            if (refreshMillis <= 0) {
+                throw new IllegalArgumentException("refreshMillis must be positive: " + refreshMillis);
+            }
+            BucketClock.start();
+        }
+        this.refreshMillis = refreshMillis;
+        this.refresher = refresher;
+    }
+
+    private void evict() {
+        while (helpers.size() > maxSize) {
+            Map.Entry<String, Node> eldest = helpers.entrySet().iterator().next();
+            Node node = eldest.getValue();
+            if (node.referenced) {
+                // 前置表命中过：清除标记并移到队尾
+                node.referenced = false;
+                helpers.get(eldest.getKey());
+                continue;
+            }
+            helpers.remove(eldest.getKey());
+            evictions.increment();
+            for (int i = 0; i < FRONT_SIZE; i++) {
+                Entry entry = front[i];
+                if (entry != null && entry.node == node) {
+                    front[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 移出实例：实例的配置已被修改，不再与缓存key一致
+     */
+    void remove(BucketTestHelper helper) {
+        synchronized (helpers) {
+            helpers.values().removeIf(node -> node.helper == helper);
+            for (int i = 0; i < FRONT_SIZE; i++) {
+                Entry entry = front[i];
+                if (entry != null && entry.node.helper == helper) {
+                    front[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓存，计数器保留
+     */
+    public void clear() {
+        synchronized (helpers) {
+            helpers.clear();
+            for (int i = 0; i < FRONT_SIZE; i++) {
+                front[i] = null;
+            }
+        }
+    }
+
+    /**
+     * 设置容量，超出的实例在下次写入时淘汰
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        synchronized (helpers) {
+            return helpers.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return 未命中时等待其他线程加载同一配置的次数
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    public long getRefreshErrors() {
+        return refreshErrors.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size:%d, maxSize:%d, hits:%d, misses:%d, coalesced:%d, evictions:%d, refreshes:%d, refreshErrors:%d",
+                size(), maxSize, getHits(), getMisses(), getCoalesced(), getEvictions(), getRefreshes(), getRefreshErrors());
+    }
+
+    /**
+     * LRU表元素：实例与访问标记
+     */
+    private static final class Node {
+        /** sha256摘要或带前缀的版本号 */
+        private final String key;
+        private final BucketTestHelper helper;
+        /** 上次淘汰检查后是否经前置表访问过 */
+        private volatile boolean referenced;
+        /** 下次刷新的时间（毫秒时间戳） */
+        private volatile long refreshAt;
+        /** 是否有刷新任务在执行 */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Node(String key, BucketTestHelper helper, long refreshAt) {
+            this.key = key;
+            this.helper = helper;
+            this.refreshAt = refreshAt;
+        }
+    }
+
+    /**
+     * 前置表元素：配置字符串或版本号与LRU表元素
+     */
+    private static final class Entry {
+        private final String key;
+        /** key是否为版本号 */
+        private final boolean versioned;
+        private final Node node;
+
+        Entry(String key, boolean versioned, Node node) {
+            this.key = key;
+            this.versioned = versioned;
+            this.node = node;
+        }
+    }
+}
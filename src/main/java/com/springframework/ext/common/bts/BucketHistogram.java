@@ -0,0 +1,109 @@
+package com.springframework.ext.common.bts;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以2的幂为区间的直方图：记录一次只需一次前导零计数和几次原子加，分位数精确到2倍以内
+ *
+ * <pre>
+ *     第i个区间为[2^(i-1), 2^i)，第0个区间只包含0；负值按0记录
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketHistogram {
+    /** 区间个数 */
+    private static final int BUCKETS = 65;
+    /** 每个区间的计数 */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /** 总次数 */
+    private final LongAdder count = new LongAdder();
+    /** 总和 */
+    private final LongAdder sum = new LongAdder();
+    /** 最大值 */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值
+     *
+     * @param value 值，如耗时纳秒数
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // 并发更新最大值时重试
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : getSum() / count;
+    }
+
+    /**
+     * 分位数的上界：返回第p分位所在区间的上界，不超过最大值
+     *
+     * @param p 分位，(0, 1]
+     * @return 分位数，没有记录时返回0
+     */
+    public long percentile(double p) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(p, 0), 1)));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                long upper = i == 0 ? 0 : i >= 64 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(upper, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 清空记录
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count:%d, mean:%d, p50:%d, p99:%d, max:%d",
+                getCount(), getMean(), percentile(0.5), percentile(0.99), getMax());
+    }
+}
@@ -0,0 +1,207 @@
+package com.springframework.ext.common.bts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层正交实验：同层实验互斥，不同层之间正交
+ *
+ * <pre>
+ *     1. 每层有独立的hash salt（由层名计算），索引值在层内的位置为[0, SLOTS)
+ *     2. 同层实验按配置顺序依次占用percent/basic比例的区间，区间互不重叠
+ *     3. 同层实验合计超过100%时拒绝整份配置，不静默少分配流量
+ *     4. 批量分桶时每层只计算一次hash，再二分查找所在实验；白名单/黑名单仍按实验单独判断
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class BucketLayers {
+    /** 层内槽位数：百万分之一的流量精度 */
+    static final long SLOTS = 1000000L;
+    /** 不分层实验的下标 */
+    private final int[] plain;
+    /** 各层 */
+    private final Layer[] layers;
+
+    private BucketLayers(int[] plain, Layer[] layers) {
+        this.plain = plain;
+        this.layers = layers;
+    }
+
+    /**
+     * @return 索引值在层内的位置，[0, SLOTS)
+     */
+    static long position(long layerSalt, long index) {
+        return BucketHash.MURMUR3.position(layerSalt, index, (int) SLOTS);
+    }
+
+    /**
+     * @return percent/basic比例对应的槽位数
+     */
+    static long width(int percent, int basic) {
+        if (percent <= 0) {
+            return 0;
+        }
+        return Math.min(SLOTS, percent * SLOTS / basic);
+    }
+
+    /**
+     * 按配置顺序为同层实验分配互不重叠的区间，区间不变的实验保持原实例
+     *
+     * @param bucketTests 按配置顺序排列的 name->实验
+     * @return 分配区间后的 name->实验，没有变化时返回原映射
+     * @throws IllegalArgumentException 同层实验合计超过100%
+     */
+    static Map<String, CompiledBucketTest> assign(Map<String, CompiledBucketTest> bucketTests) {
+        Map<String, Long> used = new LinkedHashMap<>();
+        Map<String, CompiledBucketTest> assigned = null;
+        for (Map.Entry<String, CompiledBucketTest> entry : bucketTests.entrySet()) {
+            CompiledBucketTest bucketTest = entry.getValue();
+            String layer = bucketTest.getLayer();
+            if (layer == null) {
+                continue;
+            }
+
+            long offset = used.containsKey(layer) ? used.get(layer) : 0L;
+            long expected = width(bucketTest.getPercent(), bucketTest.getBasic());
+            if (expected > SLOTS - offset) {
+                throw new IllegalArgumentException(String.format("layer %s is over-subscribed: experiment %s needs %d of %d slots, %d left",
+                        layer, bucketTest.getName(), expected, SLOTS, SLOTS - offset));
+            }
+            used.put(layer, offset + expected);
+
+            CompiledBucketTest ranged = bucketTest.withLayerRange(offset, expected);
+            if (ranged != bucketTest) {
+                if (assigned == null) {
+                    assigned = new LinkedHashMap<>(bucketTests);
+                }
+                assigned.put(entry.getKey(), ranged);
+            }
+        }
+        return assigned == null ? bucketTests : Collections.unmodifiableMap(assigned);
+    }
+
+    /**
+     * 按层分组，tests中的实验必须已经分配过区间
+     */
+    static BucketLayers of(CompiledBucketTest[] tests) {
+        List<Integer> plain = new ArrayList<>(tests.length);
+        Map<String, List<Integer>> members = new LinkedHashMap<>();
+        for (int i = 0; i < tests.length; i++) {
+            String layer = tests[i].getLayer();
+            if (layer == null) {
+                plain.add(i);
+            } else {
+                members.computeIfAbsent(layer, key -> new ArrayList<>()).add(i);
+            }
+        }
+        Layer[] layers = new Layer[members.size()];
+        int i = 0;
+        for (List<Integer> layer : members.values()) {
+            layers[i++] = new Layer(tests, toArray(layer));
+        }
+        return new BucketLayers(toArray(plain), layers);
+    }
+
+    /**
+     * 批量分桶：outcomes[i] = tests[i].evaluate(index)，每层只计算一次hash
+     */
+    void evaluate(CompiledBucketTest[] tests, long index, int[] outcomes) {
+        for (int i : plain) {
+            outcomes[i] = tests[i].evaluate(index);
+        }
+        for (Layer layer : layers) {
+            layer.evaluate(tests, index, false, outcomes);
+        }
+    }
+
+    /**
+     * 非数字索引的批量分桶：outcomes[i] = tests[i].evaluateKey(key)
+     */
+    void evaluateKey(CompiledBucketTest[] tests, long key, int[] outcomes) {
+        for (int i : plain) {
+            outcomes[i] = tests[i].evaluateKey(key);
+        }
+        for (Layer layer : layers) {
+            layer.evaluate(tests, key, true, outcomes);
+        }
+    }
+
+    /**
+     * @return 层数
+     */
+    int size() {
+        return layers.length;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * 单层：成员按区间起点升序排列
+     */
+    private static final class Layer {
+        /** 层的hash salt */
+        private final long salt;
+        /** 成员下标 */
+        private final int[] members;
+        /** 成员区间起点，与members一一对应 */
+        private final long[] offsets;
+        /** 配置了白名单/黑名单的成员下标 */
+        private final int[] listed;
+
+        Layer(CompiledBucketTest[] tests, int[] members) {
+            this.salt = tests[members[0]].layerSalt();
+            // 区间按配置顺序依次分配，成员顺序即区间顺序
+            this.members = members;
+            this.offsets = new long[members.length];
+            List<Integer> listed = new ArrayList<>(0);
+            for (int i = 0; i < members.length; i++) {
+                CompiledBucketTest bucketTest = tests[members[i]];
+                offsets[i] = bucketTest.layerOffset();
+                if (bucketTest.hasLists()) {
+                    listed.add(members[i]);
+                }
+            }
+            this.listed = toArray(listed);
+        }
+
+        void evaluate(CompiledBucketTest[] tests, long index, boolean key, int[] outcomes) {
+            for (int member : members) {
+                outcomes[member] = -1;
+            }
+
+            long position = position(salt, index);
+            // 最后一个起点不大于position的成员；区间长度为0的成员被其后的成员覆盖
+            int low = 0;
+            int high = offsets.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (offsets[mid] <= position) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int member = members[low];
+            outcomes[member] = evaluate(tests[member], index, key, position);
+
+            for (int i : listed) {
+                outcomes[i] = evaluate(tests[i], index, key, position);
+            }
+        }
+
+        private static int evaluate(CompiledBucketTest bucketTest, long index, boolean key, long position) {
+            return key ? bucketTest.evaluateKey(index, position) : bucketTest.evaluate(index, position);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.springframework.ext.common.bts;
+
+import java.util.Arrays;
+
+/**
+ * 请求内的分桶结果缓存：(实验id, 索引值) -> 结果码，固定容量的直接映射表，非线程安全
+ *
+ * <pre>
+ *     try (BucketMemo memo = BucketMemo.open()) {
+ *         chain.doFilter(request, response);
+ *     }
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketMemo implements AutoCloseable {
+    /** 默认容量 */
+    private static final int DEFAULT_CAPACITY = 64;
+    /** 当前线程绑定的缓存 */
+    private static final ThreadLocal<BucketMemo> CURRENT = new ThreadLocal<>();
+    /** 实验id，0表示空槽 */
+    private final int[] ids;
+    /** 索引值 */
+    private final long[] indexes;
+    /** 结果码，见{@link CompiledBucketTest#bucketOf(int)} */
+    private final int[] outcomes;
+    /** 槽位掩码 */
+    private final int mask;
+    /** open()之前绑定的缓存，close()时恢复 */
+    private BucketMemo previous;
+    /** 是否绑定在当前线程 */
+    private boolean bound;
+    /** 命中次数 */
+    private long hits;
+    /** 未命中次数 */
+    private long misses;
+
+    public BucketMemo() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public BucketMemo(int capacity) {
+        int size = 1;
+        while (size < capacity && size < (1 << 20)) {
+            size <<= 1;
+        }
+        this.ids = new int[size];
+        this.indexes = new long[size];
+        this.outcomes = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 创建缓存并绑定到当前线程，必须在finally或try-with-resources中close
+     *
+     * @return 绑定到当前线程的缓存
+     */
+    public static BucketMemo open() {
+        BucketMemo memo = new BucketMemo();
+        memo.previous = CURRENT.get();
+        memo.bound = true;
+        CURRENT.set(memo);
+        return memo;
+    }
+
+    /**
+     * @return 当前线程绑定的缓存，未绑定时返回null
+     */
+    public static BucketMemo current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 带缓存的分桶计算
+     *
+     * @param bucketTest 编译后的分桶测试
+     * @param index      索引值
+     * @return 桶号，同bucketTest.bucket(index)
+     */
+    public int bucket(CompiledBucketTest bucketTest, long index) {
+        return CompiledBucketTest.bucketOf(evaluate(bucketTest, index));
+    }
+
+    /**
+     * 带缓存的分桶计算，返回结果码
+     */
+    int evaluate(CompiledBucketTest bucketTest, long index) {
+        int id = bucketTest.id();
+        int slot = slot(id, index);
+        if (ids[slot] == id && indexes[slot] == index) {
+            hits++;
+            return outcomes[slot];
+        }
+
+        misses++;
+        int outcome = bucketTest.evaluate(index);
+        ids[slot] = id;
+        indexes[slot] = index;
+        outcomes[slot] = outcome;
+        return outcome;
+    }
+
+    /**
+     * 清空缓存内容与计数，可在复用载体对象前调用
+     */
+    public void clear() {
+        Arrays.fill(ids, 0);
+        hits = 0;
+        misses = 0;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * 解绑当前线程并恢复open()之前的缓存；未绑定的载体对象只清空内容
+     */
+    @Override
+    public void close() {
+        if (bound) {
+            bound = false;
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+                previous = null;
+            }
+        }
+        clear();
+    }
+
+    private int slot(int id, long index) {
+        long hash = (index ^ ((long) id << 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 40) & mask;
+    }
+}
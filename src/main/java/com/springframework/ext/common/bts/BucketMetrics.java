@@ -0,0 +1,274 @@
+package com.springframework.ext.common.bts;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 分桶指标：各实验的计算次数、命中/白名单/黑名单次数，以及配置加载耗时
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketMetrics implements BucketMetricsMXBean {
+    /** 缓存数组的初始槽位数 */
+    private static final int SLOTS = 64;
+    /** 各实验的计数器 */
+    private final ConcurrentHashMap<String, Experiment> experiments = new ConcurrentHashMap<>();
+    /** 实验id -> 计数器的直接映射缓存，长度为2的幂；实验数超过一半时扩容，良性竞争 */
+    private volatile Slot[] slots = new Slot[SLOTS];
+    /** 查找不存在的实验的次数 */
+    private final LongAdder unknown = new LongAdder();
+    /** 配置加载耗时（纳秒） */
+    private final BucketHistogram reloads = new BucketHistogram();
+    /** 配置加载失败次数 */
+    private final LongAdder reloadErrors = new LongAdder();
+    /** 是否记录实验计数 */
+    private volatile boolean enabled = true;
+
+    /**
+     * 记录一次分桶计算
+     *
+     * @param bucketTest 实验
+     * @param outcome    分桶结果码，见{@link CompiledBucketTest#bucketOf(int)}
+     */
+    void record(CompiledBucketTest bucketTest, int outcome) {
+        if (!enabled) {
+            return;
+        }
+        Experiment experiment = experiment(bucketTest);
+        if (experiment == null) {
+            unknown.increment();
+            return;
+        }
+        experiment.calls.increment();
+        if (outcome >= 0) {
+            experiment.hits.increment();
+        } else if (outcome == CompiledBucketTest.WHITELISTED) {
+            experiment.hits.increment();
+            experiment.whitelisted.increment();
+        } else if (outcome == CompiledBucketTest.EXCLUDED) {
+            experiment.blacklisted.increment();
+        }
+    }
+
+    private Experiment experiment(CompiledBucketTest bucketTest) {
+        int id = bucketTest.id();
+        Slot[] slots = this.slots;
+        Slot slot = slots[id & (slots.length - 1)];
+        if (slot != null && slot.id == id) {
+            return slot.experiment;
+        }
+        String name = bucketTest.getName();
+        if (name == null) {
+            return null;
+        }
+        Experiment experiment = experiments.computeIfAbsent(name, Experiment::new);
+        if (experiments.size() > slots.length >> 1) {
+            // 扩容后旧槽位作废，各实验在下次计数时重新填入
+            slots = new Slot[slots.length << 1];
+            this.slots = slots;
+        }
+        // 良性竞争：Slot的字段均为final，任意线程看到的都是完整对象
+        slots[id & (slots.length - 1)] = new Slot(id, experiment);
+        return experiment;
+    }
+
+    /**
+     * 记录一次配置加载
+     *
+     * @param nanos 耗时
+     */
+    void reloaded(long nanos) {
+        reloads.record(nanos);
+    }
+
+    void reloadFailed() {
+        reloadErrors.increment();
+    }
+
+    /**
+     * @param name 分桶标识
+     * @return 实验的计数快照，未计算过时返回null
+     */
+    public BucketExperimentStats get(String name) {
+        Experiment experiment = name == null ? null : experiments.get(name);
+        return experiment == null ? null : experiment.stats();
+    }
+
+    /**
+     * @return 各实验的计数快照，按实验名排序
+     */
+    public List<BucketExperimentStats> snapshot() {
+        List<BucketExperimentStats> stats = new ArrayList<>(experiments.size());
+        for (Experiment experiment : experiments.values()) {
+            stats.add(experiment.stats());
+        }
+        stats.sort(Comparator.comparing(BucketExperimentStats::getName));
+        return stats;
+    }
+
+    /**
+     * @return 配置加载耗时
+     */
+    public BucketHistogram reloads() {
+        return reloads;
+    }
+
+    @Override
+    public List<BucketExperimentStats> getExperiments() {
+        return snapshot();
+    }
+
+    @Override
+    public long getUnknown() {
+        return unknown.sum();
+    }
+
+    @Override
+    public long getReloadCount() {
+        return reloads.getCount();
+    }
+
+    @Override
+    public long getReloadErrors() {
+        return reloadErrors.sum();
+    }
+
+    @Override
+    public long getReloadMeanNanos() {
+        return reloads.getMean();
+    }
+
+    @Override
+    public long getReloadP99Nanos() {
+        return reloads.percentile(0.99);
+    }
+
+    @Override
+    public long getReloadMaxNanos() {
+        return reloads.getMax();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 清空全部计数：保留计数器本身，已缓存的槽位继续有效
+     */
+    @Override
+    public void reset() {
+        for (Experiment experiment : experiments.values()) {
+            experiment.reset();
+        }
+        unknown.reset();
+        reloads.reset();
+        reloadErrors.reset();
+    }
+
+    /**
+     * 注册到平台MBeanServer
+     *
+     * @param name 实例名，同一进程内不能重复
+     * @return 注册使用的ObjectName
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = objectName(name);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("register@name:" + name, e);
+        }
+    }
+
+    /**
+     * 从平台MBeanServer注销
+     *
+     * @param name 注册时的实例名
+     */
+    public void unregister(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("unregister@name:" + name, e);
+        }
+    }
+
+    static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("com.springframework.ext.common.bts:type=BucketMetrics,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("experiments:%d, unknown:%d, reloads:{%s}, reloadErrors:%d",
+                experiments.size(), getUnknown(), reloads, getReloadErrors());
+    }
+
+    /**
+     * 缓存槽位：编译实例的id与对应实验名的计数器
+     */
+    private static final class Slot {
+        /** 编译实例的id */
+        final int id;
+        /** 计数器 */
+        final Experiment experiment;
+
+        Slot(int id, Experiment experiment) {
+            this.id = id;
+            this.experiment = experiment;
+        }
+    }
+
+    /**
+     * 单个实验的计数器
+     */
+    static final class Experiment {
+        /** 分桶标识 */
+        final String name;
+        /** 计算次数 */
+        final LongAdder calls = new LongAdder();
+        /** 在实验中的次数 */
+        final LongAdder hits = new LongAdder();
+        /** 命中白名单的次数 */
+        final LongAdder whitelisted = new LongAdder();
+        /** 命中黑名单的次数 */
+        final LongAdder blacklisted = new LongAdder();
+
+        Experiment(String name) {
+            this.name = name;
+        }
+
+        void reset() {
+            calls.reset();
+            hits.reset();
+            whitelisted.reset();
+            blacklisted.reset();
+        }
+
+        BucketExperimentStats stats() {
+            return new BucketExperimentStats(name, calls.sum(), hits.sum(), whitelisted.sum(), blacklisted.sum());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.springframework.ext.common.bts;
+
+import java.util.List;
+
+/**
+ * 分桶指标的JMX接口
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public interface BucketMetricsMXBean {
+
+    /**
+     * @return 各实验的计数快照，按实验名排序
+     */
+    List<BucketExperimentStats> getExperiments();
+
+    /**
+     * @return 查找不存在的实验的次数
+     */
+    long getUnknown();
+
+    long getReloadCount();
+
+    long getReloadErrors();
+
+    long getReloadMeanNanos();
+
+    long getReloadP99Nanos();
+
+    long getReloadMaxNanos();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+}
@@ -0,0 +1,38 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 放量计划中的一步：到达time后实验的有效分流比例提升为percent
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketRamp {
+    /** 生效时间（毫秒时间戳） */
+    private long time;
+    /** 生效后的分流比例，不超过实验的percent */
+    private int percent;
+
+    public BucketRamp() {
+    }
+
+    public BucketRamp(long time, int percent) {
+        this.time = time;
+        this.percent = percent;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public int getPercent() {
+        return percent;
+    }
+
+    public void setPercent(int percent) {
+        this.percent = percent;
+    }
+}
@@ -0,0 +1,37 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 编译后的定向规则：配置加载时编译一次，判断时只访问{@link BucketContext}中的数组
+ *
+ * <pre>
+ *     语法：
+ *     1. 比较：attr == 'cn'、attr != 'cn'、version >= 3.2.0、tier < 3
+ *     2. 集合：region in ('cn', 'us')、platform not in ('web')
+ *     3. 组合：&&、||、!、括号
+ *     4. 字面量：单/双引号字符串，整数，版本号（数字与点，最多3段），未加引号的单词按字符串处理
+ *     5. 属性未设置时比较与集合判断均为false，!可取反
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+@FunctionalInterface
+public interface BucketRule {
+
+    /**
+     * @param context 属性上下文
+     * @return 是否满足规则
+     */
+    boolean matches(BucketContext context);
+
+    /**
+     * 编译规则
+     *
+     * @param rule 规则文本
+     * @return 编译后的规则
+     * @throws IllegalArgumentException 规则格式错误
+     */
+    static BucketRule compile(String rule) {
+        return BucketRuleParser.compile(BucketRuleParser.parse(rule));
+    }
+}
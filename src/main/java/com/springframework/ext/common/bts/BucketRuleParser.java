@@ -0,0 +1,518 @@
+package com.springframework.ext.common.bts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 定向规则的解析与编译：先解析为语法树，再按节点类型和字面量类型生成专用的判断函数
+ *
+ * <pre>
+ *     1. 属性名在编译时解析为{@link BucketContext}的槽位
+ *     2. 比较运算按字面量类型选择字符串、整数或版本号的判断，判断时不做类型转换
+ *     3. in集合元素较少时顺序比较，较多时使用HashSet或有序数组二分查找
+ *     4. 两个子节点的&&、||直接展开，不遍历数组
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class BucketRuleParser {
+    /** in集合顺序比较的最大元素个数 */
+    private static final int LINEAR_LIMIT = 8;
+    /** !与括号的最大嵌套层数：解析与编译均为递归，超长的嵌套会耗尽栈 */
+    static final int MAX_DEPTH = 32;
+    /** 规则文本 */
+    private final String text;
+    /** 当前位置 */
+    private int position;
+    /** 当前嵌套层数 */
+    private int depth;
+
+    private BucketRuleParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * 解析规则文本
+     *
+     * @param rule 规则文本
+     * @return 语法树
+     * @throws IllegalArgumentException 规则格式错误
+     */
+    static Node parse(String rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("rule is null");
+        }
+        BucketRuleParser parser = new BucketRuleParser(rule);
+        Node node = parser.readOr();
+        parser.skipWhitespace();
+        if (parser.position < rule.length()) {
+            throw parser.error("unexpected '" + rule.charAt(parser.position) + "'");
+        }
+        return node;
+    }
+
+    private Node readOr() {
+        List<Node> nodes = new ArrayList<>(2);
+        nodes.add(readAnd());
+        while (consume("||")) {
+            nodes.add(readAnd());
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new Node(Op.OR, nodes);
+    }
+
+    private Node readAnd() {
+        List<Node> nodes = new ArrayList<>(2);
+        nodes.add(readUnary());
+        while (consume("&&")) {
+            nodes.add(readUnary());
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new Node(Op.AND, nodes);
+    }
+
+    private Node readUnary() {
+        skipWhitespace();
+        if (peek() == '!' && !text.startsWith("!=", position)) {
+            position++;
+            enter();
+            Node node = new Node(Op.NOT, Arrays.asList(readUnary()));
+            depth--;
+            return node;
+        }
+        if (consume("(")) {
+            enter();
+            Node node = readOr();
+            expect(")");
+            depth--;
+            return node;
+        }
+        return readComparison();
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("nesting deeper than " + MAX_DEPTH);
+        }
+    }
+
+    private Node readComparison() {
+        String attribute = readWord();
+        if (attribute.isEmpty()) {
+            throw error("expected attribute");
+        }
+        skipWhitespace();
+        Op op;
+        if (consume("==")) {
+            op = Op.EQ;
+        } else if (consume("!=")) {
+            op = Op.NE;
+        } else if (consume("<=")) {
+            op = Op.LE;
+        } else if (consume(">=")) {
+            op = Op.GE;
+        } else if (consume("<")) {
+            op = Op.LT;
+        } else if (consume(">")) {
+            op = Op.GT;
+        } else if (consumeWord("in")) {
+            return new Node(Op.IN, attribute, readList());
+        } else if (consumeWord("not")) {
+            if (!consumeWord("in")) {
+                throw error("expected 'in'");
+            }
+            return new Node(Op.NOT_IN, attribute, readList());
+        } else {
+            throw error("expected operator");
+        }
+        return new Node(op, attribute, new Literal[]{readLiteral()});
+    }
+
+    private Literal[] readList() {
+        expect("(");
+        List<Literal> literals = new ArrayList<>();
+        if (!consume(")")) {
+            do {
+                literals.add(readLiteral());
+            } while (consume(","));
+            expect(")");
+        }
+        return literals.toArray(new Literal[literals.size()]);
+    }
+
+    private Literal readLiteral() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '\'' || c == '"') {
+            int end = text.indexOf(c, position + 1);
+            if (end < 0) {
+                throw error("unterminated string");
+            }
+            String value = text.substring(position + 1, end);
+            position = end + 1;
+            return new Literal(value, Kind.STRING, 0);
+        }
+        String word = readWord();
+        if (word.isEmpty()) {
+            throw error("expected literal");
+        }
+        long number = BucketConfigParser.parseCanonicalLong(word, 0, word.length());
+        if (number != Long.MIN_VALUE || BucketConfigParser.isMinValue(word, 0, word.length())) {
+            return new Literal(word, Kind.INTEGER, number);
+        }
+        long version = BucketContext.version(word);
+        if (version >= 0) {
+            return new Literal(word, Kind.VERSION, version);
+        }
+        return new Literal(word, Kind.STRING, 0);
+    }
+
+    /**
+     * 读取属性名或未加引号的字面量：字母、数字、_、.、-、:
+     */
+    private String readWord() {
+        skipWhitespace();
+        int start = position;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-' || c == ':') {
+                position++;
+            } else {
+                break;
+            }
+        }
+        return text.substring(start, position);
+    }
+
+    private boolean consumeWord(String word) {
+        skipWhitespace();
+        int end = position + word.length();
+        if (text.startsWith(word, position)
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+            position = end;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean consume(String token) {
+        skipWhitespace();
+        if (text.startsWith(token, position)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!consume(token)) {
+            throw error("expected '" + token + "'");
+        }
+    }
+
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + position + " in rule: " + text);
+    }
+
+    /**
+     * 编译语法树
+     *
+     * @param node 语法树
+     * @return 判断函数
+     */
+    static BucketRule compile(Node node) {
+        switch (node.op) {
+            case AND:
+                return and(compileAll(node.children));
+            case OR:
+                return or(compileAll(node.children));
+            case NOT: {
+                BucketRule rule = compile(node.children.get(0));
+                return context -> !rule.matches(context);
+            }
+            case IN:
+                return in(BucketContext.slot(node.attribute), node.literals);
+            case NOT_IN: {
+                int slot = BucketContext.slot(node.attribute);
+                BucketRule in = in(slot, node.literals);
+                // 属性未设置时为false
+                return context -> present(context, slot, node.literals) && !in.matches(context);
+            }
+            default:
+                return compare(node.op, BucketContext.slot(node.attribute), node.literals[0]);
+        }
+    }
+
+    private static BucketRule[] compileAll(List<Node> nodes) {
+        BucketRule[] rules = new BucketRule[nodes.size()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = compile(nodes.get(i));
+        }
+        return rules;
+    }
+
+    private static BucketRule and(BucketRule[] rules) {
+        if (rules.length == 2) {
+            BucketRule left = rules[0];
+            BucketRule right = rules[1];
+            return context -> left.matches(context) && right.matches(context);
+        }
+        return context -> {
+            for (BucketRule rule : rules) {
+                if (!rule.matches(context)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static BucketRule or(BucketRule[] rules) {
+        if (rules.length == 2) {
+            BucketRule left = rules[0];
+            BucketRule right = rules[1];
+            return context -> left.matches(context) || right.matches(context);
+        }
+        return context -> {
+            for (BucketRule rule : rules) {
+                if (rule.matches(context)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static BucketRule compare(Op op, int slot, Literal literal) {
+        switch (literal.kind) {
+            case INTEGER:
+                return integer(op, slot, literal.value);
+            case VERSION:
+                return version(op, slot, literal.value);
+            default:
+                return string(op, slot, literal.text);
+        }
+    }
+
+    private static BucketRule integer(Op op, int slot, long value) {
+        switch (op) {
+            case EQ:
+                return context -> context.hasNumber(slot) && context.number(slot) == value;
+            case NE:
+                return context -> context.hasNumber(slot) && context.number(slot) != value;
+            case LT:
+                return context -> context.hasNumber(slot) && context.number(slot) < value;
+            case LE:
+                return context -> context.hasNumber(slot) && context.number(slot) <= value;
+            case GT:
+                return context -> context.hasNumber(slot) && context.number(slot) > value;
+            default:
+                return context -> context.hasNumber(slot) && context.number(slot) >= value;
+        }
+    }
+
+    private static BucketRule version(Op op, int slot, long value) {
+        switch (op) {
+            case EQ:
+                return context -> context.hasVersion(slot) && context.version(slot) == value;
+            case NE:
+                return context -> context.hasVersion(slot) && context.version(slot) != value;
+            case LT:
+                return context -> context.hasVersion(slot) && context.version(slot) < value;
+            case LE:
+                return context -> context.hasVersion(slot) && context.version(slot) <= value;
+            case GT:
+                return context -> context.hasVersion(slot) && context.version(slot) > value;
+            default:
+                return context -> context.hasVersion(slot) && context.version(slot) >= value;
+        }
+    }
+
+    private static BucketRule string(Op op, int slot, String value) {
+        switch (op) {
+            case EQ:
+                return context -> value.equals(context.string(slot));
+            case NE:
+                return context -> {
+                    String actual = context.string(slot);
+                    return actual != null && !value.equals(actual);
+                };
+            case LT:
+                return context -> {
+                    String actual = context.string(slot);
+                    return actual != null && actual.compareTo(value) < 0;
+                };
+            case LE:
+                return context -> {
+                    String actual = context.string(slot);
+                    return actual != null && actual.compareTo(value) <= 0;
+                };
+            case GT:
+                return context -> {
+                    String actual = context.string(slot);
+                    return actual != null && actual.compareTo(value) > 0;
+                };
+            default:
+                return context -> {
+                    String actual = context.string(slot);
+                    return actual != null && actual.compareTo(value) >= 0;
+                };
+        }
+    }
+
+    private static BucketRule in(int slot, Literal[] literals) {
+        if (literals.length == 0) {
+            return context -> false;
+        }
+        Kind kind = literals[0].kind;
+        for (Literal literal : literals) {
+            if (literal.kind != kind) {
+                // 类型混合时逐个比较
+                BucketRule[] rules = new BucketRule[literals.length];
+                for (int i = 0; i < literals.length; i++) {
+                    rules[i] = compare(Op.EQ, slot, literals[i]);
+                }
+                return or(rules);
+            }
+        }
+
+        if (kind == Kind.STRING) {
+            String[] values = new String[literals.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = literals[i].text;
+            }
+            if (values.length <= LINEAR_LIMIT) {
+                return context -> {
+                    String actual = context.string(slot);
+                    if (actual != null) {
+                        for (String value : values) {
+                            if (value.equals(actual)) {
+                                return true;
+                            }
+                        }
+                    }
+                    return false;
+                };
+            }
+            Set<String> set = new HashSet<>(Arrays.asList(values));
+            return context -> {
+                String actual = context.string(slot);
+                return actual != null && set.contains(actual);
+            };
+        }
+
+        long[] values = new long[literals.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = literals[i].value;
+        }
+        Arrays.sort(values);
+        if (kind == Kind.VERSION) {
+            if (values.length <= LINEAR_LIMIT) {
+                return context -> context.hasVersion(slot) && contains(values, context.version(slot));
+            }
+            return context -> context.hasVersion(slot) && Arrays.binarySearch(values, context.version(slot)) >= 0;
+        }
+        if (values.length <= LINEAR_LIMIT) {
+            return context -> context.hasNumber(slot) && contains(values, context.number(slot));
+        }
+        return context -> context.hasNumber(slot) && Arrays.binarySearch(values, context.number(slot)) >= 0;
+    }
+
+    private static boolean contains(long[] values, long actual) {
+        for (long value : values) {
+            if (value == actual) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 属性是否设置了与字面量类型相同的值
+     */
+    private static boolean present(BucketContext context, int slot, Literal[] literals) {
+        if (literals.length == 0) {
+            return context.string(slot) != null || context.hasNumber(slot);
+        }
+        switch (literals[0].kind) {
+            case INTEGER:
+                return context.hasNumber(slot);
+            case VERSION:
+                return context.hasVersion(slot);
+            default:
+                return context.string(slot) != null;
+        }
+    }
+
+    /**
+     * 运算符
+     */
+    enum Op {
+        AND, OR, NOT, EQ, NE, LT, LE, GT, GE, IN, NOT_IN
+    }
+
+    /**
+     * 字面量类型
+     */
+    enum Kind {
+        STRING, INTEGER, VERSION
+    }
+
+    /**
+     * 字面量：整数与版本号在解析时换算为long
+     */
+    static final class Literal {
+        /** 原始文本 */
+        final String text;
+        /** 类型 */
+        final Kind kind;
+        /** 整数值或版本号编码 */
+        final long value;
+
+        Literal(String text, Kind kind, long value) {
+            this.text = text;
+            this.kind = kind;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 语法树节点：AND/OR/NOT使用children，其余使用attribute与literals
+     */
+    static final class Node {
+        /** 运算符 */
+        final Op op;
+        /** 子节点 */
+        final List<Node> children;
+        /** 属性名 */
+        final String attribute;
+        /** 字面量 */
+        final Literal[] literals;
+
+        Node(Op op, List<Node> children) {
+            this.op = op;
+            this.children = children;
+            this.attribute = null;
+            this.literals = null;
+        }
+
+        Node(Op op, String attribute, Literal[] literals) {
+            this.op = op;
+            this.children = null;
+            this.attribute = attribute;
+            this.literals = literals;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.springframework.ext.common.bts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分流模拟结果：各实验的桶分布、实验两两重叠个数，以及样本比例失衡（sample ratio mismatch）检验
+ *
+ * <pre>
+ *     1. 流量检验：进入实验的索引个数与配置比例（分层实验为层内区间宽度，放量实验为当前有效比例）做自由度为1的卡方检验
+ *     2. 分组检验：配置了分组时按配置的分组权重检验各分组的实际比例，否则检验各桶是否均匀
+ *     3. 任一检验的p值小于显著性水平时标记为失衡；白名单固定进入0号桶，名单很大时可能造成各桶检验失衡
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketSimulation {
+    /** Lanczos近似系数（g = 7） */
+    private static final double[] LANCZOS = {
+            0.99999999999980993, 676.5203681218851, -1259.1392167224028, 771.32342877765313,
+            -176.61502916214059, 12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6,
+            1.5056327351493116e-7};
+
+    /** 参与计算的索引个数 */
+    private final long ids;
+    /** 无法解析为long的行数（文本文件） */
+    private final long invalid;
+    /** 耗时（纳秒） */
+    private final long elapsedNanos;
+    /** 显著性水平 */
+    private final double alpha;
+    /** 各实验的结果，顺序与配置顺序一致 */
+    private final List<Experiment> experiments;
+    /** overlaps[i][j]为同时进入第i、j个实验的索引个数，对角线为进入实验的个数 */
+    private final long[][] overlaps;
+
+    BucketSimulation(long ids, long invalid, long elapsedNanos, double alpha, List<Experiment> experiments,
+                     long[][] overlaps) {
+        this.ids = ids;
+        this.invalid = invalid;
+        this.elapsedNanos = elapsedNanos;
+        this.alpha = alpha;
+        this.experiments = Collections.unmodifiableList(experiments);
+        this.overlaps = overlaps;
+    }
+
+    public long getIds() {
+        return ids;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public List<Experiment> getExperiments() {
+        return experiments;
+    }
+
+    /**
+     * @param name 分桶标识
+     * @return 实验的结果，不存在时返回null
+     */
+    public Experiment get(String name) {
+        for (Experiment experiment : experiments) {
+            if (experiment.name.equals(name)) {
+                return experiment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 同时进入第i、j个实验的索引个数
+     */
+    public long overlap(int i, int j) {
+        return overlaps[i][j];
+    }
+
+    /**
+     * @return 同时进入两个实验的索引个数，实验不存在时返回0
+     */
+    public long overlap(String first, String second) {
+        int i = indexOf(first);
+        int j = indexOf(second);
+        return i < 0 || j < 0 ? 0 : overlaps[i][j];
+    }
+
+    /**
+     * @return 两个实验相互独立时同时进入的期望个数；不同层的实验应接近该值，同层实验应为0
+     */
+    public double expectedOverlap(int i, int j) {
+        return ids == 0 ? 0 : (double) experiments.get(i).hits * experiments.get(j).hits / ids;
+    }
+
+    /**
+     * @return 标记为失衡的实验
+     */
+    public List<Experiment> getMismatches() {
+        List<Experiment> mismatches = new ArrayList<>();
+        for (Experiment experiment : experiments) {
+            if (experiment.mismatch) {
+                mismatches.add(experiment);
+            }
+        }
+        return mismatches;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < experiments.size(); i++) {
+            if (experiments.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("ids:%d, invalid:%d, elapsed:%dms, alpha:%s%n",
+                ids, invalid, elapsedNanos / 1000000, alpha));
+        for (Experiment experiment : experiments) {
+            report.append(experiment).append(String.format("%n"));
+        }
+        if (experiments.size() > 1) {
+            report.append(String.format("overlap (observed/expected if independent):%n"));
+            for (int i = 0; i < experiments.size(); i++) {
+                for (int j = i + 1; j < experiments.size(); j++) {
+                    report.append(String.format("  %s x %s: %d/%.0f%n", experiments.get(i).name,
+                            experiments.get(j).name, overlaps[i][j], expectedOverlap(i, j)));
+                }
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * 卡方检验的p值：自由度为df的卡方分布在chiSquare处的上侧概率，即Q(df/2, chiSquare/2)
+     *
+     * @param chiSquare 卡方统计量
+     * @param df        自由度
+     * @return p值，自由度不大于0时返回NaN
+     */
+    static double chiSquarePValue(double chiSquare, int df) {
+        if (df <= 0 || Double.isNaN(chiSquare)) {
+            return Double.NaN;
+        }
+        return regularizedGammaQ(df / 2.0, chiSquare / 2.0);
+    }
+
+    /**
+     * 卡方统计量：期望个数按weights等比分配observed的总数，权重为0的类别不参与
+     *
+     * @return {卡方统计量, 自由度}
+     */
+    static double[] chiSquare(long[] observed, double[] weights) {
+        long total = 0;
+        double weightSum = 0;
+        int categories = 0;
+        for (int i = 0; i < observed.length; i++) {
+            if (weights[i] > 0) {
+                total += observed[i];
+                weightSum += weights[i];
+                categories++;
+            }
+        }
+        if (categories < 2 || total == 0) {
+            return new double[]{Double.NaN, 0};
+        }
+        double chiSquare = 0;
+        for (int i = 0; i < observed.length; i++) {
+            if (weights[i] > 0) {
+                double expected = total * weights[i] / weightSum;
+                double diff = observed[i] - expected;
+                chiSquare += diff * diff / expected;
+            }
+        }
+        return new double[]{chiSquare, categories - 1};
+    }
+
+    /**
+     * 正则化上不完全gamma函数：x < a + 1时用级数展开求P再取补，否则用连分式直接求Q
+     */
+    private static double regularizedGammaQ(double a, double x) {
+        if (x <= 0) {
+            return 1;
+        }
+        double logPrefix = a * Math.log(x) - x - logGamma(a);
+        if (x < a + 1) {
+            double term = 1 / a;
+            double sum = term;
+            for (int n = 1; n < 100000; n++) {
+                term *= x / (a + n);
+                sum += term;
+                if (Math.abs(term) < Math.abs(sum) * 1e-15) {
+                    break;
+                }
+            }
+            return Math.max(0, 1 - sum * Math.exp(logPrefix));
+        }
+
+        // Lentz算法
+        double tiny = 1e-300;
+        double b = x + 1 - a;
+        double c = 1 / tiny;
+        double d = 1 / b;
+        double h = d;
+        for (int n = 1; n < 100000; n++) {
+            double an = -n * (n - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < tiny) {
+                d = tiny;
+            }
+            c = b + an / c;
+            if (Math.abs(c) < tiny) {
+                c = tiny;
+            }
+            d = 1 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-15) {
+                break;
+            }
+        }
+        return Math.exp(logPrefix) * h;
+    }
+
+    private static double logGamma(double x) {
+        if (x < 0.5) {
+            return Math.log(Math.PI / Math.abs(Math.sin(Math.PI * x))) - logGamma(1 - x);
+        }
+        x -= 1;
+        double sum = LANCZOS[0];
+        for (int i = 1; i < LANCZOS.length; i++) {
+            sum += LANCZOS[i] / (x + i);
+        }
+        double t = x + 7.5;
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(sum);
+    }
+
+    /**
+     * 单个实验的模拟结果
+     */
+    public static final class Experiment {
+        /** 分桶标识 */
+        private final String name;
+        /** 按配置期望进入实验的比例 */
+        private final double expectedShare;
+        /** 进入实验的索引个数，含白名单 */
+        private final long hits;
+        /** 各桶的索引个数 */
+        private final long[] buckets;
+        /** 分组名，未配置分组时为空数组 */
+        private final String[] armNames;
+        /** 各分组的索引个数，与armNames一一对应 */
+        private final long[] arms;
+        /** 流量检验的卡方统计量 */
+        private final double trafficChiSquare;
+        /** 流量检验的p值，期望比例为0或1时为NaN */
+        private final double trafficPValue;
+        /** 分组（或各桶）检验的卡方统计量 */
+        private final double splitChiSquare;
+        /** 分组（或各桶）检验的p值，少于2个类别时为NaN */
+        private final double splitPValue;
+        /** 是否失衡 */
+        private final boolean mismatch;
+
+        /**
+         * @param buckets 各桶的索引个数
+         * @param arms    各分组的索引个数，与配置的分组一一对应，未配置分组时为空数组
+         */
+        Experiment(CompiledBucketTest bucketTest, long ids, long[] buckets, long[] arms, double alpha) {
+            this.name = bucketTest.getName();
+            this.buckets = buckets;
+            long hits = 0;
+            for (long count : buckets) {
+                hits += count;
+            }
+            this.hits = hits;
+            this.expectedShare = expectedShare(bucketTest);
+
+            if (ids > 0 && expectedShare > 0 && expectedShare < 1) {
+                double in = ids * expectedShare;
+                double out = ids - in;
+                double diffIn = hits - in;
+                double diffOut = (ids - hits) - out;
+                this.trafficChiSquare = diffIn * diffIn / in + diffOut * diffOut / out;
+                this.trafficPValue = chiSquarePValue(trafficChiSquare, 1);
+            } else {
+                this.trafficChiSquare = Double.NaN;
+                this.trafficPValue = Double.NaN;
+            }
+
+            this.armNames = arms.length == 0 ? new String[0] : bucketTest.armNames();
+            this.arms = arms;
+            double[] split;
+            if (arms.length == 0) {
+                split = chiSquare(buckets, bucketWeights(bucketTest, buckets.length));
+            } else {
+                // 期望比例取自配置的分组权重，而不是分组实际占用的桶数，分组切分不准时才能被检出
+                int[] configured = bucketTest.armWeights();
+                double[] armWeights = new double[arms.length];
+                for (int arm = 0; arm < arms.length; arm++) {
+                    armWeights[arm] = Math.max(configured[arm], 0);
+                }
+                split = chiSquare(arms, armWeights);
+            }
+            this.splitChiSquare = split[0];
+            this.splitPValue = chiSquarePValue(split[0], (int) split[1]);
+            this.mismatch = trafficPValue < alpha || splitPValue < alpha;
+        }
+
+        /**
+         * 按配置期望进入实验的比例：不计白名单，定向规则按属性为空判断，放量实验按当前时间
+         */
+        private static double expectedShare(CompiledBucketTest bucketTest) {
+            int percent = bucketTest.getPercent();
+            if (!bucketTest.isEnable() || percent <= 0 || !bucketTest.ruleDefault()) {
+                return 0;
+            }
+            double share = bucketTest.getLayer() != null
+                    ? (double) bucketTest.layerWidth() / BucketLayers.SLOTS
+                    : Math.min(1.0, (double) percent / bucketTest.getBasic());
+            return share * bucketTest.effectivePercent() / percent;
+        }
+
+        /**
+         * 各桶的相对宽度：hash分桶的各桶等宽；分层实验的桶由层内区间等比换算，区间被截断时末尾的桶较窄
+         */
+        private static double[] bucketWeights(CompiledBucketTest bucketTest, int size) {
+            double[] weights = new double[size];
+            if (bucketTest.getPercent() <= 0) {
+                return weights;
+            }
+            if (bucketTest.getLayer() == null) {
+                Arrays.fill(weights, 1);
+                return weights;
+            }
+            long basic = bucketTest.getBasic();
+            long width = bucketTest.layerWidth();
+            for (int bucket = 0; bucket < size; bucket++) {
+                long from = (bucket * BucketLayers.SLOTS + basic - 1) / basic;
+                long until = Math.min(((bucket + 1) * BucketLayers.SLOTS + basic - 1) / basic, width);
+                weights[bucket] = Math.max(until - from, 0);
+            }
+            return weights;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getExpectedShare() {
+            return expectedShare;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return 各桶的索引个数，长度为max(percent, 1)，调用方不得修改
+         */
+        public long[] getBuckets() {
+            return buckets;
+        }
+
+        public String[] getArmNames() {
+            return armNames.clone();
+        }
+
+        public long[] getArms() {
+            return arms.clone();
+        }
+
+        public double getTrafficChiSquare() {
+            return trafficChiSquare;
+        }
+
+        public double getTrafficPValue() {
+            return trafficPValue;
+        }
+
+        public double getSplitChiSquare() {
+            return splitChiSquare;
+        }
+
+        public double getSplitPValue() {
+            return splitPValue;
+        }
+
+        public boolean isMismatch() {
+            return mismatch;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder arms = new StringBuilder();
+            for (int i = 0; i < armNames.length; i++) {
+                arms.append(i == 0 ? ", arms:" : ",").append(armNames[i]).append('=').append(this.arms[i]);
+            }
+            return String.format("%s: hits:%d, expectedShare:%.6f, traffic p:%.3g, split p:%.3g%s%s",
+                    name, hits, expectedShare, trafficPValue, splitPValue, arms, mismatch ? " SRM" : "");
+        }
+    }
+}
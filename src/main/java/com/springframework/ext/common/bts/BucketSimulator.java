@@ -0,0 +1,432 @@
+package com.springframework.ext.common.bts;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分流模拟：把大量索引值交给全部实验计算分桶，统计桶分布、实验两两重叠并做样本比例失衡检验，用于上线前验证分流配置
+ *
+ * <pre>
+ *     1. 索引来源：连续或等差的索引区间、大端long的二进制文件、每行一个索引的文本文件（取行首字段，逗号/制表符/空格分隔）
+ *     2. 文件按块内存映射，工作线程从共享游标领取下一块，块内按批调用{@link CompiledBucketTest#bucket(long[], int, int, int[])}
+ *     3. 每个工作线程独立累加桶计数与重叠矩阵，全部完成后合并，计数过程不需要任何同步
+ *     4. 模拟使用与线上相同的实验快照与分层结果；定向规则按属性为空判断，放量实验按当前时间
+ * </pre>
+ *
+ * 命令行入口见{@link BucketSimulatorLauncher}
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketSimulator {
+    /** 二进制文件每块的索引个数：16MB */
+    private static final long BINARY_CHUNK = 1L << 21;
+    /** 文本文件每块的字节数 */
+    private static final long TEXT_CHUNK = 1L << 24;
+    /** 跨块的一行最多多读的字节数：行首字段超过该长度时不是合法的long */
+    private static final int MAX_LINE = 64;
+    /** 默认显著性水平 */
+    private static final double DEFAULT_ALPHA = 0.001;
+    /** 线程编号 */
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    /** 参与模拟的实验，顺序与配置顺序一致 */
+    private final CompiledBucketTest[] tests;
+    /** 工作线程数 */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** 每批计算的索引个数 */
+    private int batchSize = 4096;
+    /** 显著性水平 */
+    private double alpha = DEFAULT_ALPHA;
+    /** 二进制文件每块的索引个数 */
+    long binaryChunk = BINARY_CHUNK;
+    /** 文本文件每块的字节数 */
+    long textChunk = TEXT_CHUNK;
+
+    /**
+     * @param helper 分桶测试辅助类，使用其当前生效的实验快照
+     */
+    public BucketSimulator(BucketTestHelper helper) {
+        this(helper.snapshot());
+    }
+
+    BucketSimulator(BucketTestRegistry.Snapshot snapshot) {
+        this.tests = snapshot.tests();
+    }
+
+    /**
+     * 模拟区间[from, to)中按step递增的索引
+     *
+     * @param from 起始索引（包含）
+     * @param to   结束索引（不包含）
+     * @param step 步长，必须大于0
+     * @return 模拟结果
+     */
+    public BucketSimulation range(final long from, final long to, final long step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step must be positive: " + step);
+        }
+        if (to < from) {
+            throw new IllegalArgumentException("to must not be less than from: " + from + " > " + to);
+        }
+        long span = Math.subtractExact(to, from);
+        long total = span == 0 ? 0 : (span - 1) / step + 1;
+        try {
+            return run(total, Math.max(batchSize, 1L << 16), (start, end, tally) -> {
+                long[] batch = tally.batch;
+                for (long i = start; i < end; ) {
+                    int size = (int) Math.min(batch.length, end - i);
+                    long index = from + i * step;
+                    for (int j = 0; j < size; j++, index += step) {
+                        batch[j] = index;
+                    }
+                    tally.add(size);
+                    i += size;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 模拟区间[from, to)中的全部索引
+     */
+    public BucketSimulation range(long from, long to) {
+        return range(from, to, 1);
+    }
+
+    /**
+     * 模拟二进制文件中的索引：每个索引8字节，大端（与DataOutputStream.writeLong一致）
+     *
+     * @param file 索引文件，长度必须是8的倍数
+     * @return 模拟结果
+     */
+    public BucketSimulation binaryFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if ((size & 7) != 0) {
+                throw new IOException("binary id file length is not a multiple of 8: " + file);
+            }
+            return run(size >>> 3, binaryChunk, (start, end, tally) -> {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start << 3, (end - start) << 3);
+                LongBuffer indexes = buffer.asLongBuffer();
+                long[] batch = tally.batch;
+                while (indexes.hasRemaining()) {
+                    int count = Math.min(batch.length, indexes.remaining());
+                    indexes.get(batch, 0, count);
+                    tally.add(count);
+                }
+            });
+        }
+    }
+
+    /**
+     * 模拟文本文件中的索引：每行一个，取行首字段；空行跳过，无法解析为long的行计入invalid
+     *
+     * @param file 索引文件，ASCII/UTF-8
+     * @return 模拟结果
+     */
+    public BucketSimulation textFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            return run(size, textChunk, (start, end, tally) -> {
+                // 多映射前一个字节判断块首是否为行首，多映射MAX_LINE字节读完跨块的最后一行
+                long begin = start == 0 ? 0 : start - 1;
+                long limit = Math.min(end + MAX_LINE, size);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, begin, limit - begin);
+                parse(buffer, start == 0 ? 0 : skipLine(buffer, 0), (int) (end - begin), tally);
+            });
+        }
+    }
+
+    /**
+     * 解析起点在[position, end)中的各行
+     */
+    private static void parse(MappedByteBuffer buffer, int position, int end, Tally tally) {
+        long[] batch = tally.batch;
+        int count = 0;
+        int limit = buffer.limit();
+        while (position < end) {
+            int p = position;
+            boolean negative = p < limit && buffer.get(p) == '-';
+            if (negative) {
+                p++;
+            }
+            // 按负数累加，与Long.parseLong相同，可以表示Long.MIN_VALUE
+            long value = 0;
+            int digits = 0;
+            boolean valid = true;
+            for (; p < limit; p++) {
+                byte c = buffer.get(p);
+                if (c == '\n' || c == '\r' || c == '\t' || c == ',' || c == ' ') {
+                    break;
+                }
+                int digit = c - '0';
+                if (digit < 0 || digit > 9 || value < Long.MIN_VALUE / 10 || value * 10 < Long.MIN_VALUE + digit) {
+                    valid = false;
+                    break;
+                }
+                value = value * 10 - digit;
+                digits++;
+            }
+            if (valid && digits > 0 && (negative || value != Long.MIN_VALUE)) {
+                batch[count++] = negative ? value : -value;
+                if (count == batch.length) {
+                    tally.add(count);
+                    count = 0;
+                }
+            } else if (digits > 0 || negative || p < limit && buffer.get(p) != '\n' && buffer.get(p) != '\r') {
+                tally.invalid++;
+            }
+            position = skipLine(buffer, p);
+        }
+        if (count > 0) {
+            tally.add(count);
+        }
+    }
+
+    /**
+     * @return position之后第一个换行符的下一个位置，没有换行符时返回limit
+     */
+    private static int skipLine(MappedByteBuffer buffer, int position) {
+        int limit = buffer.limit();
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        return position < limit ? position + 1 : limit;
+    }
+
+    /**
+     * 按块分配给工作线程并合并结果
+     *
+     * @param total 总长度（索引个数或字节数）
+     * @param chunk 每块的长度
+     */
+    private BucketSimulation run(long total, long chunk, ChunkReader reader) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong cursor = new AtomicLong();
+        int workers = (int) Math.max(1, Math.min(threads, (total + chunk - 1) / chunk));
+        Callable<Tally> worker = () -> {
+            Tally tally = new Tally(tests, batchSize);
+            long from;
+            while ((from = cursor.getAndAdd(chunk)) < total) {
+                reader.read(from, Math.min(from + chunk, total), tally);
+            }
+            return tally;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "BucketSimulator-" + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Tally result = null;
+        try {
+            List<Future<Tally>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(worker));
+            }
+            for (Future<Tally> future : futures) {
+                Tally tally = future.get();
+                if (result == null) {
+                    result = tally;
+                } else {
+                    result.merge(tally);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("simulation interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result.report(alpha, System.nanoTime() - start);
+    }
+
+    /**
+     * 设置工作线程数，默认为CPU核数
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * 设置每批计算的索引个数，默认4096
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 设置失衡检验的显著性水平，默认0.001
+     */
+    public void setAlpha(double alpha) {
+        if (!(alpha > 0 && alpha < 1)) {
+            throw new IllegalArgumentException("alpha must be in (0, 1): " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * 按块读取索引：读入tally.batch后调用tally.add
+     */
+    @FunctionalInterface
+    private interface ChunkReader {
+        void read(long from, long to, Tally tally) throws IOException;
+    }
+
+    /**
+     * 单个工作线程的计数
+     */
+    private static final class Tally {
+        private final CompiledBucketTest[] tests;
+        /** 本批索引 */
+        private final long[] batch;
+        /** 本批各实验的桶号：scratch[实验][批内位置] */
+        private final int[][] scratch;
+        /** 本批单个索引进入的实验下标 */
+        private final int[] entered;
+        /** 各实验各桶的索引个数 */
+        private final long[][] buckets;
+        /** 各实验各分组的索引个数，未配置分组时为空数组 */
+        private final long[][] arms;
+        /** overlaps[i][j]（i < j）为同时进入第i、j个实验的索引个数 */
+        private final long[][] overlaps;
+        /** 已计算的索引个数 */
+        private long ids;
+        /** 无法解析的行数 */
+        private long invalid;
+
+        Tally(CompiledBucketTest[] tests, int batchSize) {
+            this.tests = tests;
+            this.batch = new long[batchSize];
+            this.scratch = new int[tests.length][batchSize];
+            this.entered = new int[tests.length];
+            this.buckets = new long[tests.length][];
+            this.arms = new long[tests.length][];
+            for (int i = 0; i < tests.length; i++) {
+                buckets[i] = new long[Math.max(tests[i].getPercent(), 1)];
+                arms[i] = new long[tests[i].armBounds().length];
+            }
+            this.overlaps = new long[tests.length][tests.length];
+        }
+
+        /**
+         * 计算batch中前size个索引
+         */
+        void add(int size) {
+            ids += size;
+            for (int t = 0; t < tests.length; t++) {
+                CompiledBucketTest bucketTest = tests[t];
+                int[] result = scratch[t];
+                long[] counts = buckets[t];
+                long[] armCounts = arms[t];
+                bucketTest.bucket(batch, 0, size, result);
+                for (int i = 0; i < size; i++) {
+                    int bucket = result[i];
+                    if (bucket >= 0) {
+                        counts[bucket]++;
+                        if (armCounts.length > 0) {
+                            int arm = bucketTest.variantOf(batch[i], bucket);
+                            if (arm >= 0) {
+                                armCounts[arm]++;
+                            }
+                        }
+                    }
+                }
+            }
+            if (tests.length < 2) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                int count = 0;
+                for (int t = 0; t < tests.length; t++) {
+                    if (scratch[t][i] >= 0) {
+                        entered[count++] = t;
+                    }
+                }
+                for (int a = 0; a < count - 1; a++) {
+                    long[] row = overlaps[entered[a]];
+                    for (int b = a + 1; b < count; b++) {
+                        row[entered[b]]++;
+                    }
+                }
+            }
+        }
+
+        void merge(Tally other) {
+            ids += other.ids;
+            invalid += other.invalid;
+            for (int t = 0; t < tests.length; t++) {
+                for (int i = 0; i < buckets[t].length; i++) {
+                    buckets[t][i] += other.buckets[t][i];
+                }
+                for (int i = 0; i < arms[t].length; i++) {
+                    arms[t][i] += other.arms[t][i];
+                }
+                for (int j = 0; j < tests.length; j++) {
+                    overlaps[t][j] += other.overlaps[t][j];
+                }
+            }
+        }
+
+        BucketSimulation report(double alpha, long elapsedNanos) {
+            List<BucketSimulation.Experiment> experiments = new ArrayList<>(tests.length);
+            for (int t = 0; t < tests.length; t++) {
+                BucketSimulation.Experiment experiment = new BucketSimulation.Experiment(tests[t], ids, buckets[t], arms[t],
+                        alpha);
+                experiments.add(experiment);
+                overlaps[t][t] = experiment.getHits();
+                for (int j = 0; j < t; j++) {
+                    overlaps[t][j] = overlaps[j][t];
+                }
+            }
+            return new BucketSimulation(ids, invalid, elapsedNanos, alpha, experiments, overlaps);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.springframework.ext.common.bts;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 分流模拟命令行入口：BucketSimulatorLauncher &lt;配置json或.bts快照&gt; range &lt;from&gt; &lt;to&gt; [step] | binary &lt;file&gt; | text &lt;file&gt;
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketSimulatorLauncher {
+    /** 状态码：模拟完成且无失衡 */
+    public static final int OK = 0;
+    /** 状态码：参数错误 */
+    public static final int USAGE = 1;
+    /** 状态码：存在失衡的实验 */
+    public static final int MISMATCH = 2;
+    private static final String USAGE_LINE = "usage: BucketSimulatorLauncher <bucket.json|bucket.bts> "
+            + "range <from> <to> [step] | binary <file> | text <file>";
+
+    private BucketSimulatorLauncher() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * 执行一次模拟，结果输出到out
+     *
+     * @return 状态码：{@link #OK}、{@link #USAGE}、{@link #MISMATCH}
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) throws IOException {
+        if (args.length < 3 || !arity(args[1], args.length - 2)) {
+            err.println(USAGE_LINE);
+            return USAGE;
+        }
+        long from = 0, to = 0, step = 1;
+        if ("range".equals(args[1])) {
+            try {
+                from = Long.parseLong(args[2]);
+                to = Long.parseLong(args[3]);
+                step = args.length > 4 ? Long.parseLong(args[4]) : 1;
+            } catch (NumberFormatException e) {
+                err.println("invalid range: " + e.getMessage());
+                return USAGE;
+            }
+            if (step <= 0 || to < from) {
+                err.println("invalid range: from " + from + " to " + to + " step " + step);
+                return USAGE;
+            }
+        }
+
+        Path config = Paths.get(args[0]);
+        BucketTestHelper helper = args[0].endsWith(".bts")
+                ? BucketTestHelper.loadSnapshot(config)
+                : BucketTestHelper.instance(new String(Files.readAllBytes(config), StandardCharsets.UTF_8));
+        BucketSimulator simulator = new BucketSimulator(helper);
+
+        BucketSimulation simulation;
+        switch (args[1]) {
+            case "range":
+                simulation = simulator.range(from, to, step);
+                break;
+            case "binary":
+                simulation = simulator.binaryFile(Paths.get(args[2]));
+                break;
+            default:
+                simulation = simulator.textFile(Paths.get(args[2]));
+                break;
+        }
+        out.print(simulation);
+        return simulation.getMismatches().isEmpty() ? OK : MISMATCH;
+    }
+
+    /**
+     * @param count 索引来源之后的参数个数
+     */
+    private static boolean arity(String source, int count) {
+        switch (source) {
+            case "range":
+                return count == 2 || count == 3;
+            case "binary":
+            case "text":
+                return count == 1;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.springframework.ext.common.bts;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 编译后实验的二进制快照文件：启动时内存映射加载，白名单/黑名单直接在映射区上二分查找
+ *
+ * <pre>
+ *     文件格式（大端）：
+ *     1. 文件头：magic(int) version(int) count(int)
+ *     2. 实验头，共count个：
+ *        name status percent basic hash extra
+ *        hitNames excludeNames（int个数 + 字符串）
+ *        arms（int个数 + 每个分组的name、weight(int)）
+ *        layer
+ *        startTime(long) endTime(long) ramps（int个数 + 每步的time(long)、percent(int)）
+ *        rule
+ *        hitsOffset(long) hitsCount(int) excludesOffset(long) excludesCount(int)
+ *        字符串为 int字节数 + UTF-8字节，null时字节数为-1
+ *     3. 数据区：按8字节对齐的升序long数组，由实验头中的offset定位
+ *     同一主机上的多个进程映射同一文件时，数据区通过page cache共享
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketSnapshotFile {
+    /** 文件标识："BTS1" */
+    static final int MAGIC = 0x42545331;
+    /** 格式版本 */
+    static final int VERSION = 1;
+
+    private BucketSnapshotFile() {
+    }
+
+    /**
+     * 写入快照：先写临时文件，完成后原子替换目标文件
+     *
+     * @param bucketTests 编译后的实验
+     * @param file        目标文件
+     */
+    public static void write(Collection<CompiledBucketTest> bucketTests, Path file) throws IOException {
+        List<CompiledBucketTest> tests = new ArrayList<>(bucketTests);
+        List<long[]> hits = new ArrayList<>(tests.size());
+        List<long[]> excludes = new ArrayList<>(tests.size());
+        for (CompiledBucketTest bucketTest : tests) {
+            hits.add(bucketTest.hits().toArray());
+            excludes.add(bucketTest.excludes().toArray());
+        }
+
+        // 第一遍计算实验头的长度，从而确定数据区的起始位置
+        long[] offsets = new long[tests.size() * 2];
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        writeHeader(new DataOutputStream(header), tests, offsets, hits, excludes);
+        long offset = align(header.size());
+        for (int i = 0; i < tests.size(); i++) {
+            offsets[i * 2] = offset;
+            offset += hits.get(i).length * 8L;
+            offsets[i * 2 + 1] = offset;
+            offset += excludes.get(i).length * 8L;
+        }
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+            DataOutputStream out = new DataOutputStream(stream);
+            writeHeader(out, tests, offsets, hits, excludes);
+            for (long i = out.size(), start = align(out.size()); i < start; i++) {
+                out.writeByte(0);
+            }
+            for (int i = 0; i < tests.size(); i++) {
+                for (long value : hits.get(i)) {
+                    out.writeLong(value);
+                }
+                for (long value : excludes.get(i)) {
+                    out.writeLong(value);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 内存映射加载快照：只解析实验头，白名单/黑名单保留在映射区
+     *
+     * @param file 快照文件
+     * @return 编译后的实验，顺序与写入时一致
+     * @throws IllegalArgumentException 文件格式错误或超过2GB
+     */
+    public static List<CompiledBucketTest> load(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("snapshot is larger than 2GB: " + file);
+            }
+            // 映射在channel关闭后依然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a bucket snapshot: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported snapshot version: " + version);
+        }
+
+        try {
+            int count = readCount(buffer);
+            List<CompiledBucketTest> bucketTests = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                CompiledBucketTest.Builder builder = CompiledBucketTest.builder()
+                        .name(intern(readString(buffer)))
+                        .status(buffer.getInt())
+                        .percent(buffer.getInt())
+                        .basic(buffer.getInt())
+                        .hash(readString(buffer))
+                        .extra(JsonText.of(readString(buffer)));
+                String[] hitNames = readStrings(buffer);
+                String[] excludeNames = readStrings(buffer);
+                readArms(buffer, builder);
+                builder.layer(intern(readString(buffer)))
+                        .startTime(buffer.getLong())
+                        .endTime(buffer.getLong());
+                readRamps(buffer, builder);
+                builder.rule(readString(buffer));
+                builder.hits(readLongs(buffer, buffer.getLong(), buffer.getInt()), hitNames);
+                builder.excludes(readLongs(buffer, buffer.getLong(), buffer.getInt()), excludeNames);
+                bucketTests.add(builder.build());
+            }
+            return bucketTests;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated bucket snapshot: " + file, e);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, List<CompiledBucketTest> tests, long[] offsets,
+                                    List<long[]> hits, List<long[]> excludes) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(tests.size());
+        for (int i = 0; i < tests.size(); i++) {
+            CompiledBucketTest bucketTest = tests.get(i);
+            writeString(out, bucketTest.getName());
+            out.writeInt(bucketTest.getStatus());
+            out.writeInt(bucketTest.getPercent());
+            out.writeInt(bucketTest.getBasic());
+            writeString(out, bucketTest.getHash() == BucketHash.LEGACY ? null : bucketTest.getHash().name());
+            writeString(out, bucketTest.getExtra());
+            writeStrings(out, bucketTest.hitNames());
+            writeStrings(out, bucketTest.excludeNames());
+            writeArms(out, bucketTest.armNames(), bucketTest.armWeights());
+            writeString(out, bucketTest.getLayer());
+            out.writeLong(bucketTest.getStartTime());
+            out.writeLong(bucketTest.getEndTime());
+            writeRamps(out, bucketTest.rampTimes(), bucketTest.rampPercents());
+            writeString(out, bucketTest.getRule());
+            out.writeLong(offsets[i * 2]);
+            out.writeInt(hits.get(i).length);
+            out.writeLong(offsets[i * 2 + 1]);
+            out.writeInt(excludes.get(i).length);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeArms(DataOutputStream out, String[] names, int[] weights) throws IOException {
+        out.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            writeString(out, names[i]);
+            out.writeInt(weights[i]);
+        }
+    }
+
+    private static void writeRamps(DataOutputStream out, long[] times, int[] percents) throws IOException {
+        out.writeInt(times.length);
+        for (int i = 0; i < times.length; i++) {
+            out.writeLong(times[i]);
+            out.writeInt(percents[i]);
+        }
+    }
+
+    private static void readRamps(ByteBuffer buffer, CompiledBucketTest.Builder builder) {
+        long[] times = new long[readCount(buffer)];
+        int[] percents = new int[times.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = buffer.getLong();
+            percents[i] = buffer.getInt();
+        }
+        builder.ramps(times, percents);
+    }
+
+    private static void readArms(ByteBuffer buffer, CompiledBucketTest.Builder builder) {
+        String[] names = new String[readCount(buffer)];
+        int[] weights = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = intern(readString(buffer));
+            weights[i] = buffer.getInt();
+        }
+        builder.arms(names, weights);
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] values = new String[readCount(buffer)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(buffer);
+        }
+        return values;
+    }
+
+    /** 个数不能为负，也不能超过剩余字节数（每个元素至少占一个字节），避免损坏的文件触发超大数组分配 */
+    private static int readCount(ByteBuffer buffer) {
+        int position = buffer.position();
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("invalid count " + count + " at " + position);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int position = buffer.position();
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("invalid string length " + length + " at " + position);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    private static LongSet readLongs(ByteBuffer buffer, long offset, int count) {
+        if (count < 0 || offset < 0 || (offset & 7) != 0 || offset + count * 8L > buffer.capacity()) {
+            throw new IllegalArgumentException("invalid long array " + offset + "+" + count + " at " + buffer.position());
+        }
+        if (count == 0) {
+            return LongHashSet.EMPTY;
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) offset);
+        slice.limit((int) (offset + count * 8L));
+        LongBuffer values = slice.slice().asLongBuffer();
+        return new MappedLongSet(values);
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+}
@@ -0,0 +1,590 @@
+package com.springframework.ext.common.bts;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * 粘性分桶记录：(实验, 索引) -> 首次命中时的桶号，保存在本地内存映射文件中，只支持单进程、POSIX文件系统
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketStickyStore implements Closeable {
+    /** 文件标识："BSK1" */
+    static final int MAGIC = 0x42534B31;
+    /** 格式版本 */
+    static final int VERSION = 1;
+    /** 文件头长度：magic version maxEntries capacity size(int，大端)，size打开时按槽位重新统计 */
+    private static final int HEADER = 32;
+    /** 槽位长度：实验名hash(long) index(long) bucket+1(int，0为空槽位) 首次记录的分钟数(int，无符号) */
+    private static final int SLOT = 24;
+    /** 最大槽位数：保证文件不超过2GB */
+    private static final int MAX_CAPACITY = 1 << 26;
+    /** 一分钟的毫秒数：记录时间的单位 */
+    private static final long MINUTE = 60_000L;
+    /** 黄金分割乘数，用于打散连续的id */
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+    /** 锁的段数 */
+    private static final int STRIPES = 64;
+    /** 每段的槽位数：2^6 */
+    private static final int STRIPE_SHIFT = 6;
+    /** 文件 */
+    private final Path file;
+    /** 分段读写锁：每64个槽位一段，读为乐观读，写入只锁目标槽位所在的段 */
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+    /** 未能记录的次数：记录数已满 */
+    private final AtomicLong rejected = new AtomicLong();
+    /** 重建互斥：compact()、rename()依次执行 */
+    private final Object rebuilding = new Object();
+    /** 槽位表：重建时整体替换 */
+    private volatile Table table;
+    /** 记录数上限 */
+    private volatile int maxEntries;
+    /** 重建期间写入的槽位，只在持有全部段的写锁时设置；不在重建时为null */
+    private int[] pending;
+    /** pending中的槽位数 */
+    private int pendingCount;
+    /** 登记pending的锁：不同段的写入可能同时登记 */
+    private final Object marking = new Object();
+    /** 记录数 */
+    private final AtomicInteger size = new AtomicInteger();
+    /** 是否已关闭 */
+    private volatile boolean closed;
+
+    private BucketStickyStore(Path file) {
+        this.file = file;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * 打开记录文件，不存在时创建；已有文件的maxEntries不同时按新的上限重建，超出时保留最近的记录
+     *
+     * @param file       记录文件
+     * @param maxEntries 记录数上限，不超过2^25
+     * @return 粘性分桶记录
+     * @throws IllegalArgumentException 文件格式错误
+     */
+    public static BucketStickyStore open(Path file, int maxEntries) throws IOException {
+        if (maxEntries <= 0 || maxEntries > MAX_CAPACITY / 2) {
+            throw new IllegalArgumentException("maxEntries out of range: " + maxEntries);
+        }
+        BucketStickyStore store = new BucketStickyStore(file);
+        if (Files.exists(file)) {
+            store.map();
+        }
+        if (store.table == null || store.maxEntries != maxEntries) {
+            store.rebuild(maxEntries, key -> true, 0, LongUnaryOperator.identity());
+        }
+        // 记录时间取共享时钟，不在请求线程上调用System.currentTimeMillis()
+        BucketClock.start();
+        return store;
+    }
+
+    private void map() throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = channel.size();
+            if (length < HEADER || length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("not a bucket sticky store: " + file);
+            }
+            // 映射在channel关闭后依然有效
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("not a bucket sticky store: " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported sticky store version: " + version);
+        }
+        int maxEntries = buffer.getInt(8);
+        int capacity = buffer.getInt(12);
+        if (capacity <= 0 || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1
+                || buffer.capacity() != HEADER + capacity * (long) SLOT) {
+            throw new IllegalArgumentException("corrupted sticky store: " + file);
+        }
+        // 文件头中的size可能因进程崩溃少计一条，按槽位重新统计
+        int size = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (buffer.getInt(HEADER + slot * SLOT + 16) != 0) {
+                size++;
+            }
+        }
+        buffer.putInt(16, size);
+        this.table = new Table(buffer, capacity - 1);
+        this.maxEntries = maxEntries;
+        this.size.set(size);
+    }
+
+    /**
+     * 查找已记录且仍有效的桶号，有效性见{@link CompiledBucketTest#retains(long, int, boolean, BucketContext)}
+     *
+     * @param bucketTest 实验
+     * @param index      索引值，keyed时为非数字索引的hash
+     * @param keyed      是否为非数字索引
+     * @param context    属性上下文，null表示不带属性
+     * @return 桶号，未记录或已失效时返回-1
+     */
+    int bucket(CompiledBucketTest bucketTest, long index, boolean keyed, BucketContext context) {
+        int bucket = get(bucketTest.stickyKey(keyed), index);
+        return bucket >= 0 && bucketTest.retains(index, bucket, keyed, context) ? bucket : -1;
+    }
+
+    /**
+     * 记录命中实验时的桶号：未命中的索引不记录，放量后仍可进入实验；白名单由配置决定，不记录
+     *
+     * @param bucketTest 实验
+     * @param index      索引值，keyed时为非数字索引的hash
+     * @param outcome    计算得到的结果码，白名单命中为负数，不会被记录
+     * @param keyed      是否为非数字索引
+     */
+    void remember(CompiledBucketTest bucketTest, long index, int outcome, boolean keyed) {
+        if (outcome >= 0 && !bucketTest.isEmpty()) {
+            put(bucketTest.stickyKey(keyed), index, outcome);
+        }
+    }
+
+    /**
+     * 查找数字索引的记录，不判断实验当前是否有效
+     *
+     * @param experiment 实验名
+     * @param index      索引值
+     * @return 桶号，未记录时返回-1
+     */
+    public int get(String experiment, long index) {
+        return get(BucketHash.hash64(experiment), index);
+    }
+
+    int get(long key, long index) {
+        while (true) {
+            Table table = this.table;
+            long probe = probe(table, key, index);
+            // 重建在探测期间发布了新表时，到新表中重新查找
+            if (table == this.table) {
+                return probe < 0 ? -1 : (int) (probe >>> 32) - 1;
+            }
+        }
+    }
+
+    /**
+     * 沿探测序列查找(key, index)：逐个槽位在所在段上乐观读，冲突时加读锁重读；槽位只会由空变为非空
+     *
+     * @return 高32位为槽位状态（桶号+1，空槽位为0），低32位为已有记录的槽位或第一个空槽位的位置；表已满且未找到时返回-1
+     */
+    private long probe(Table table, long key, long index) {
+        ByteBuffer buffer = table.buffer;
+        int mask = table.mask;
+        int slot = slot(key, index, mask);
+        for (int probes = 0; probes <= mask; probes++) {
+            int position = HEADER + slot * SLOT;
+            StampedLock stripe = stripe(slot);
+            long stamp = stripe.tryOptimisticRead();
+            int state = buffer.getInt(position + 16);
+            boolean matched = buffer.getLong(position) == key && buffer.getLong(position + 8) == index;
+            if (!stripe.validate(stamp)) {
+                stamp = stripe.readLock();
+                try {
+                    state = buffer.getInt(position + 16);
+                    matched = buffer.getLong(position) == key && buffer.getLong(position + 8) == index;
+                } finally {
+                    stripe.unlockRead(stamp);
+                }
+            }
+            if (state == 0 || matched) {
+                return (long) state << 32 | position;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 记录桶号，已有记录时覆盖
+     *
+     * @return 是否已记录，记录数已满或已关闭时返回false
+     */
+    boolean put(long key, long index, int bucket) {
+        if (closed) {
+            return false;
+        }
+        // 先乐观查找：已记录相同桶号或记录数已满时不加写锁
+        int recorded = get(key, index);
+        if (recorded == bucket) {
+            return true;
+        }
+        if (recorded < 0 && size.get() >= maxEntries) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        while (true) {
+            Table table = this.table;
+            MappedByteBuffer buffer = table.buffer;
+            long probe = probe(table, key, index);
+            if (probe < 0) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            int position = (int) probe;
+            int slot = (position - HEADER) / SLOT;
+            StampedLock stripe = stripe(slot);
+            long stamp = stripe.writeLock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                if (table != this.table) {
+                    continue;
+                }
+                int state = buffer.getInt(position + 16);
+                if (state != 0) {
+                    if (buffer.getLong(position) != key || buffer.getLong(position + 8) != index) {
+                        // 空槽位已被其他索引占用，重新探测
+                        continue;
+                    }
+                    if (state != bucket + 1) {
+                        buffer.putInt(position + 16, bucket + 1);
+                        mark(slot);
+                    }
+                    return true;
+                }
+                if (!reserve()) {
+                    rejected.incrementAndGet();
+                    return false;
+                }
+                buffer.putLong(position, key);
+                buffer.putLong(position + 8, index);
+                buffer.putInt(position + 20, (int) (BucketClock.now() / MINUTE));
+                buffer.putInt(position + 16, bucket + 1);
+                buffer.putInt(16, size.get());
+                mark(slot);
+                return true;
+            } finally {
+                stripe.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 占用一个记录数名额
+     *
+     * @return 记录数已满时返回false
+     */
+    private boolean reserve() {
+        while (true) {
+            int size = this.size.get();
+            if (size >= maxEntries) {
+                return false;
+            }
+            if (this.size.compareAndSet(size, size + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private StampedLock stripe(int slot) {
+        return stripes[(slot >>> STRIPE_SHIFT) & (STRIPES - 1)];
+    }
+
+    /**
+     * 依次获取全部段的写锁
+     */
+    private long[] lockAll() {
+        long[] stamps = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stamps[i] = stripes[i].writeLock();
+        }
+        return stamps;
+    }
+
+    private void unlockAll(long[] stamps) {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlockWrite(stamps[i]);
+        }
+    }
+
+    /**
+     * 重建期间登记写入的槽位，替换前补写到新表；须持有槽位所在段的写锁
+     */
+    private void mark(int slot) {
+        if (pending != null) {
+            synchronized (marking) {
+                if (pendingCount == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingCount * 2);
+                }
+                pending[pendingCount++] = slot;
+            }
+        }
+    }
+
+    /**
+     * 清理记录：删除不在experiments中的实验、以及早于expireBeforeMillis记录的索引
+     *
+     * @param experiments        仍需保留的实验名，null表示不按实验清理
+     * @param expireBeforeMillis 早于此时间（毫秒时间戳，按分钟计）记录的索引被删除，0表示不按时间清理
+     * @return 删除的记录数
+     */
+    public int compact(Collection<String> experiments, long expireBeforeMillis) throws IOException {
+        LongPredicate keep = key -> true;
+        if (experiments != null) {
+            long[] keys = new long[experiments.size() * 2];
+            int i = 0;
+            for (String experiment : experiments) {
+                long key = BucketHash.hash64(experiment);
+                keys[i++] = key;
+                keys[i++] = key ^ 1;
+            }
+            LongSet live = LongSets.of(keys);
+            keep = live::contains;
+        }
+        int expireBefore = expireBeforeMillis <= 0 ? 0 : (int) (expireBeforeMillis / MINUTE);
+        synchronized (rebuilding) {
+            return rebuild(maxEntries, keep, expireBefore, LongUnaryOperator.identity());
+        }
+    }
+
+    /**
+     * 实验改名：把from的记录转到to名下，需在发布改名后的配置之前调用
+     *
+     * @param from 原实验名
+     * @param to   新实验名
+     */
+    public void rename(String from, String to) throws IOException {
+        long source = BucketHash.hash64(from);
+        long target = BucketHash.hash64(to);
+        synchronized (rebuilding) {
+            // 丢弃新名下已有的记录，避免改名后出现重复的key
+            rebuild(maxEntries, key -> key != target && key != (target ^ 1),
+                    0, key -> key == source ? target : key == (source ^ 1) ? target ^ 1 : key);
+        }
+    }
+
+    /**
+     * 按条件把记录写入新文件并原子替换：超过maxEntries时保留最近的记录；须持有rebuilding或在发布前调用
+     *
+     * <pre>
+     *     1. 加全部段的写锁开始登记写入的槽位，随即释放
+     *     2. 锁外扫描旧表、写临时文件并force：槽位一经写入，只有桶号会被覆盖，扫描时按所在段乐观读校验，冲突的槽位加读锁重读
+     *     3. 加全部段的写锁：补写登记的槽位（桶号以旧表为准）、原子替换文件、发布新表
+     * </pre>
+     *
+     * @param keep         按实验标识判断是否保留
+     * @param expireBefore 早于此时间（分钟，无符号）的记录被删除
+     * @param rename       实验标识的映射
+     * @return 删除的记录数
+     */
+    private int rebuild(int maxEntries, LongPredicate keep, int expireBefore, LongUnaryOperator rename)
+            throws IOException {
+        long[] stamps = lockAll();
+        try {
+            if (closed) {
+                throw new IOException("sticky store is closed: " + file);
+            }
+            pending = new int[64];
+            pendingCount = 0;
+        } finally {
+            unlockAll(stamps);
+        }
+        Path temp = null;
+        try {
+            Table table = this.table;
+            MappedByteBuffer source = table == null ? null : table.buffer;
+            int sourceCapacity = table == null ? 0 : table.mask + 1;
+            // 按时间从新到旧排序：高32位为时间（翻转符号位，按无符号比较），低32位为槽位；记录数不超过原上限
+            long[] order = new long[table == null ? 0 : this.maxEntries];
+            int count = 0;
+            for (int slot = 0; slot < sourceCapacity && count < order.length; slot++) {
+                int position = HEADER + slot * SLOT;
+                StampedLock stripe = stripe(slot);
+                long stamp = stripe.tryOptimisticRead();
+                // 空槽位在扫描期间写入时已登记
+                if (source.getInt(position + 16) == 0) {
+                    continue;
+                }
+                long key = source.getLong(position);
+                int minutes = source.getInt(position + 20);
+                if (!stripe.validate(stamp)) {
+                    stamp = stripe.readLock();
+                    try {
+                        key = source.getLong(position);
+                        minutes = source.getInt(position + 20);
+                    } finally {
+                        stripe.unlockRead(stamp);
+                    }
+                }
+                if (Integer.compareUnsigned(minutes, expireBefore) >= 0 && keep.test(key)) {
+                    order[count++] = ((minutes & 0xFFFFFFFFL) << 32 | slot) ^ Long.MIN_VALUE;
+                }
+            }
+            Arrays.sort(order, 0, count);
+
+            int capacity = 16;
+            while (capacity < maxEntries * 2L) {
+                capacity <<= 1;
+            }
+            int mask = capacity - 1;
+            long length = HEADER + capacity * (long) SLOT;
+            Path absolute = file.toAbsolutePath();
+            temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            MappedByteBuffer target;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                target = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            }
+            int size = 0;
+            for (int i = count - 1; i >= count - Math.min(count, maxEntries); i--) {
+                int position = HEADER + (int) order[i] * SLOT;
+                int to = locate(target, mask, rename.applyAsLong(source.getLong(position)), source.getLong(position + 8));
+                copy(source, position, target, to, rename);
+                size++;
+            }
+            target.putInt(0, MAGIC);
+            target.putInt(4, VERSION);
+            target.putInt(8, maxEntries);
+            target.putInt(12, capacity);
+            target.putInt(16, size);
+            target.force();
+
+            stamps = lockAll();
+            try {
+                if (closed) {
+                    throw new IOException("sticky store is closed: " + file);
+                }
+                for (int i = 0; i < pendingCount; i++) {
+                    int position = HEADER + pending[i] * SLOT;
+                    long key = source.getLong(position);
+                    if (Integer.compareUnsigned(source.getInt(position + 20), expireBefore) < 0 || !keep.test(key)) {
+                        continue;
+                    }
+                    int to = locate(target, mask, rename.applyAsLong(key), source.getLong(position + 8));
+                    if (target.getInt(to + 16) == 0) {
+                        if (size >= maxEntries) {
+                            rejected.incrementAndGet();
+                            continue;
+                        }
+                        size++;
+                    }
+                    copy(source, position, target, to, rename);
+                }
+                target.putInt(16, size);
+                // 读线程可能仍在旧映射区上乐观读，不能先解除映射：依赖POSIX的rename语义，Windows上替换失败
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                temp = null;
+                int removed = this.size.get() - size;
+                this.table = new Table(target, mask);
+                this.maxEntries = maxEntries;
+                this.size.set(size);
+                return removed;
+            } finally {
+                unlockAll(stamps);
+            }
+        } finally {
+            if (temp != null) {
+                Files.deleteIfExists(temp);
+            }
+            stamps = lockAll();
+            pending = null;
+            unlockAll(stamps);
+        }
+    }
+
+    /**
+     * @return (key, index)在target中的槽位位置：已有记录的槽位或第一个空槽位
+     */
+    private static int locate(ByteBuffer target, int mask, long key, long index) {
+        int slot = slot(key, index, mask);
+        int position;
+        while (target.getInt((position = HEADER + slot * SLOT) + 16) != 0
+                && (target.getLong(position) != key || target.getLong(position + 8) != index)) {
+            slot = (slot + 1) & mask;
+        }
+        return position;
+    }
+
+    private static void copy(ByteBuffer source, int from, ByteBuffer target, int to, LongUnaryOperator rename) {
+        target.putLong(to, rename.applyAsLong(source.getLong(from)));
+        target.putLong(to + 8, source.getLong(from + 8));
+        target.putInt(to + 20, source.getInt(from + 20));
+        target.putInt(to + 16, source.getInt(from + 16));
+    }
+
+    private static int slot(long key, long index, int mask) {
+        return (int) BucketHash.fmix64(key ^ index * PHI) & mask;
+    }
+
+    /**
+     * @return 记录数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return 因记录数已满未能记录的次数
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * 把映射区的修改写入磁盘：写入已在page cache中，只在需要防止主机掉电时调用
+     */
+    public void flush() {
+        table.buffer.force();
+    }
+
+    /**
+     * 写入磁盘并停止记录，已有的映射区随实例不可达后释放
+     */
+    @Override
+    public void close() {
+        long[] stamps = lockAll();
+        try {
+            if (!closed) {
+                closed = true;
+                table.buffer.force();
+            }
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BucketStickyStore{file=" + file  + ", size=" + size.get() + ", maxEntries=" + maxEntries
+                + ", rejected=" + rejected.get() + '}';
+    }
+
+    /**
+     * 映射区与槽位掩码：一起替换，读线程不会用新的掩码访问旧的映射区
+     */
+    private static final class Table {
+        /** 映射区 */
+        private final MappedByteBuffer buffer;
+        /** 槽位掩码 */
+        private final int mask;
+
+        Table(MappedByteBuffer buffer, int mask) {
+            this.buffer = buffer;
+            this.mask = mask;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.springframework.ext.common.bts;
 
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * 分桶测试实例
@@ -11,6 +15,8 @@ import java.util.Set;
  * @since: 2016-07-13.
  */
 public class BucketTest {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(BucketTest.class);
     /** 空测试 */
     private static final BucketTest EMPTY = new BucketTest();
     /** 分桶标识 */
@@ -27,6 +33,22 @@ public class BucketTest {
     private Set<String> excludes;
     /** 扩展配置 */
     private String extra;
+    /** hash策略: legacy(默认), murmur3, xxhash */
+    private String hash;
+    /** 实验分组：按权重划分[0, percent)的桶 */
+    private List<BucketArm> arms;
+    /** 所在的层：同层实验的流量互不重叠，不同层之间正交 */
+    private String layer;
+    /** 开始时间（毫秒时间戳），0表示不限 */
+    private long startTime;
+    /** 结束时间（毫秒时间戳，不包含），0表示不限 */
+    private long endTime;
+    /** 放量计划：按时间逐步提升有效分流比例，已进入实验的索引在放量过程中保持不变 */
+    private List<BucketRamp> ramps;
+    /** 定向规则，如 region in ('cn', 'us') && version >= 3.2.0，见{@link BucketRule} */
+    private String rule;
+    /** 编译后的实例：任一配置项变更后失效，下次分桶时重新编译 */
+    private transient volatile CompiledBucketTest compiled;
 
     public static BucketTest empty() {
         return EMPTY;
@@ -50,65 +72,125 @@ public class BucketTest {
      *     2. 命中白名单返回0号桶
      *     3. 当percent不大于0时,表示分流流量为0,不走bts
      *     4. basic有效值范围为[1,Long.MAX_VALUE], 此范围之外的值默认赋值为100
+     *     5. 配置了startTime/endTime时，时间窗口之外不在实验中（含白名单）
+     *     6. 配置了ramps时，按当前放量比例在[0, percent)的桶中抽取部分索引，白名单不受放量限制
+     *     7. 配置了rule时，按属性为空判断定向规则，需要按属性定向时使用bucket(long, BucketContext)
      * </pre>
      *
      * @param index
      * @return
      */
     public int bucket(long index) {
-        /** 分桶不可用状态 */
-        if (!isEnable()) {
-            return -1;
-        }
+        return compiled().bucket(index);
+    }
 
-        /** 黑名单验证 */
-        if(existInSet(index, getExcludes())){
-            // 命中黑名单，范围-1，未命中桶
-            return -1;
-        }
+    /**
+     * 带属性的分桶计算：配置了rule时按属性判断定向规则，不带属性的bucket(long)按属性为空判断
+     *
+     * @param index   索引值
+     * @param context 属性上下文
+     * @return 桶号，未命中返回-1
+     */
+    public int bucket(long index, BucketContext context) {
+        return compiled().bucket(index, context);
+    }
 
-        /** 白名单验证 */
-        if (existInSet(index, getHits())) {
-            // 命中白名单，返回0号桶
-            return 0;
-        }
+    public boolean isBucket(long index, BucketContext context) {
+        return bucket(index, context) >= 0;
+    }
 
-        /** 分流比例小于0, 不走bts */
-        int percent = getPercent();
-        if (percent <= 0) {
-            return -1;
-        }
+    /**
+     * 字符串索引的分桶计算，如浏览器uuid
+     * <pre>
+     *     1. 规范的数字串与对应的long索引结果相同
+     *     2. 其余字符串计算64位hash后分桶，不创建对象；白名单/黑名单中的非数字项按同一hash匹配
+     * </pre>
+     *
+     * @param key 索引值
+     * @return 桶号，未命中返回-1
+     */
+    public int bucket(CharSequence key) {
+        return compiled().bucket(key);
+    }
 
-        // 兼容basic不大于0的情况
-        int total = getBasic();
-        // 分层正交实验
-        index = overlap(index);
+    /**
+     * UUID索引的分桶计算，与bucket(uuid.toString())结果相同
+     */
+    public int bucket(UUID key) {
+        return compiled().bucket(key);
+    }
 
-        /** 计算hash桶 */
-        long bucket = index % total;
+    /**
+     * 字节数组索引的分桶计算
+     */
+    public int bucket(byte[] key) {
+        return compiled().bucket(key);
+    }
 
-        // 命中bts分桶
-        if (bucket < percent) {
-            return (int) bucket;
-        }
+    public boolean isBucket(CharSequence key) {
+        return bucket(key) >= 0;
+    }
 
-        // 未命中分桶
-        return -1;
+    public boolean isBucket(UUID key) {
+        return bucket(key) >= 0;
     }
 
-    private long overlap(long index) {
-        // 用实验名的hash值作为index的一部分，简单实现分层正交实验
-        int hash = Math.abs(name.hashCode());
-        index += hash;
-        // 绝对值转换，确保相加溢出后，还能返回正数
-        return Math.abs(index);
+    /**
+     * 分组计算：一次分桶确定是否在实验中，再按与分桶独立的hash确定分组
+     * <pre>
+     *     1. 分组比例只取决于权重，与percent、basic无关，percent很小时各分组比例依然准确
+     *     2. 白名单同样按权重分配到各分组；调整percent、放量不改变已有索引的分组
+     * </pre>
+     *
+     * @param index 索引值
+     * @return 分组标识，不在实验中或未配置分组时返回null
+     */
+    public String variant(long index) {
+        return compiled().variant(index);
     }
 
-    private boolean existInSet(long index, Set<String> set) {
-        if (set != null && !set.isEmpty()) {
-            return set.contains(String.valueOf(index));
+    /**
+     * 编译为不可变的分桶实例，配置不变时重复调用返回同一实例
+     * <pre>
+     *     注意：直接修改getHits()/getExcludes()返回的集合不会使已编译实例失效，应通过setter整体替换
+     *     分层实验的层内区间取决于同层的其他实验：BucketTestHelper.findBucketTest返回的配置沿用注册表分配的区间，
+     *     与helper的分桶结果一致；自行创建或修改过的分层配置按独占整层编译
+     * </pre>
+     *
+     * @return 编译后的分桶实例
+     * @throws IllegalArgumentException 配置无法编译，如分组或放量计划格式错误
+     */
+    public CompiledBucketTest compile() {
+        CompiledBucketTest compiled = this.compiled;
+        if (compiled == null) {
+            compiled = CompiledBucketTest.Builder.from(this).build();
+            this.compiled = compiled;
         }
-        return false;
+        return compiled;
+    }
+
+    /**
+     * 分桶时使用的编译实例：配置无法编译时记录一次错误，缓存空实例，分桶结果为-1，不在请求路径上抛出异常
+     */
+    private CompiledBucketTest compiled() {
+        CompiledBucketTest compiled = this.compiled;
+        if (compiled == null) {
+            try {
+                compiled = CompiledBucketTest.Builder.from(this).build();
+            } catch (IllegalArgumentException e) {
+                logger.error(String.format("compile@name:%s", name), e);
+                compiled = CompiledBucketTest.empty();
+            }
+            this.compiled = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * 绑定已编译的实例：由注册表中的实验还原的配置沿用其层内区间，任一配置项变更后失效
+     */
+    void bind(CompiledBucketTest compiled) {
+        this.compiled = compiled;
     }
 
     public boolean isEmpty(){
@@ -125,6 +207,7 @@ public class BucketTest {
 
     public void setName(String name) {
         this.name = name;
+        this.compiled = null;
     }
 
     public int getPercent() {
@@ -133,6 +216,7 @@ public class BucketTest {
 
     public void setPercent(int percent) {
         this.percent = percent;
+        this.compiled = null;
     }
 
     public int getBasic() {
@@ -144,6 +228,7 @@ public class BucketTest {
 
     public void setBasic(int basic) {
         this.basic = basic;
+        this.compiled = null;
     }
 
     public int getStatus() {
@@ -152,6 +237,7 @@ public class BucketTest {
 
     public void setStatus(int status) {
         this.status = status;
+        this.compiled = null;
     }
 
     public Set<String> getHits() {
@@ -160,6 +246,7 @@ public class BucketTest {
 
     public void setHits(Set<String> hits) {
         this.hits = hits;
+        this.compiled = null;
     }
 
     public Set<String> getExcludes() {
@@ -168,6 +255,7 @@ public class BucketTest {
 
     public void setExcludes(Set<String> excludes) {
         this.excludes = excludes;
+        this.compiled = null;
     }
 
     public String getExtra() {
@@ -176,5 +264,81 @@ public class BucketTest {
 
     public void setExtra(String extra) {
         this.extra = extra;
+        this.compiled = null;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @param hash hash策略
+     * @throws IllegalArgumentException 无法识别的hash策略
+     */
+    public void setHash(String hash) {
+        BucketHash.of(hash);
+        this.hash = hash;
+        this.compiled = null;
+    }
+
+    public List<BucketArm> getArms() {
+        return arms;
+    }
+
+    public void setArms(List<BucketArm> arms) {
+        this.arms = arms;
+        this.compiled = null;
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+
+    public void setLayer(String layer) {
+        this.layer = layer;
+        this.compiled = null;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+        this.compiled = null;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+        this.compiled = null;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    /**
+     * @param rule 定向规则
+     * @throws IllegalArgumentException 规则格式错误
+     */
+    public void setRule(String rule) {
+        if (StringUtils.isNotBlank(rule)) {
+            BucketRule.compile(rule);
+        }
+        this.rule = rule;
+        this.compiled = null;
+    }
+
+    public List<BucketRamp> getRamps() {
+        return ramps;
+    }
+
+    public void setRamps(List<BucketRamp> ramps) {
+        this.ramps = ramps;
+        this.compiled = null;
     }
 }
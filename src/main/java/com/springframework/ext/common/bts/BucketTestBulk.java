@@ -0,0 +1,156 @@
+package com.springframework.ext.common.bts;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * 批量分桶辅助类：对一个实验计算大量索引值的分桶，用于离线人群预估、曝光表预计算等场景
+ *
+ * <pre>
+ *     1. 大数组按THRESHOLD切分，通过fork-join在多核上并行计算
+ *     2. 每个子任务写入互不重叠的区间（位图按64对齐），不需要任何同步
+ *     3. 子任务内部调用{@link CompiledBucketTest#bucket(long[], int, int, int[])}的紧凑循环
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketTestBulk {
+    /** 单个子任务处理的最少索引个数，必须是64的倍数 */
+    static final int THRESHOLD = 1 << 14;
+
+    private BucketTestBulk() {
+    }
+
+    /**
+     * 并行计算桶号
+     *
+     * @param bucketTest 分桶测试
+     * @param indexes    索引值
+     * @return 桶号，与indexes一一对应，未命中为-1
+     */
+    public static int[] bucket(CompiledBucketTest bucketTest, long[] indexes) {
+        int[] buckets = new int[indexes.length];
+        bucket(bucketTest, indexes, buckets);
+        return buckets;
+    }
+
+    /**
+     * 并行计算桶号，结果写入buckets
+     *
+     * @param bucketTest 分桶测试
+     * @param indexes    索引值
+     * @param buckets    桶号输出，长度不小于indexes
+     */
+    public static void bucket(CompiledBucketTest bucketTest, long[] indexes, int[] buckets) {
+        if (buckets.length < indexes.length) {
+            throw new IllegalArgumentException("buckets is shorter than indexes");
+        }
+        invoke(new BucketAction(bucketTest, indexes, buckets, null, 0, indexes.length));
+    }
+
+    /**
+     * 并行计算命中位图：第i位为1表示indexes[i]命中分桶
+     *
+     * @param bucketTest 分桶测试
+     * @param indexes    索引值
+     * @return 命中位图，按long分组，长度为(indexes.length + 63) / 64
+     */
+    public static long[] hits(CompiledBucketTest bucketTest, long[] indexes) {
+        long[] hits = new long[(indexes.length + 63) >>> 6];
+        invoke(new BucketAction(bucketTest, indexes, null, hits, 0, indexes.length));
+        return hits;
+    }
+
+    /**
+     * 计算桶号，流为并行流时并行计算，结果顺序与流的遇到顺序一致
+     *
+     * @param bucketTest 分桶测试
+     * @param indexes    索引值
+     * @return 桶号
+     */
+    public static int[] bucket(CompiledBucketTest bucketTest, LongStream indexes) {
+        return indexes.mapToInt(bucketTest::bucket).toArray();
+    }
+
+    /**
+     * 统计每个桶命中的索引个数，流为并行流时每个线程独立累加后合并
+     *
+     * @param bucketTest 分桶测试
+     * @param indexes    索引值
+     * @return 各桶的命中个数，长度为max(percent, 1)（白名单固定落在0号桶）
+     */
+    public static long[] histogram(CompiledBucketTest bucketTest, LongStream indexes) {
+        final int size = Math.max(bucketTest.getPercent(), 1);
+        ObjLongConsumer<long[]> accumulator = (counts, index) -> {
+            int bucket = bucketTest.bucket(index);
+            if (bucket >= 0) {
+                counts[bucket]++;
+            }
+        };
+        return indexes.collect(() -> new long[size], accumulator, (left, right) -> {
+            for (int i = 0; i < left.length; i++) {
+                left[i] += right[i];
+            }
+        });
+    }
+
+    private static void invoke(BucketAction action) {
+        if (action.to - action.from <= THRESHOLD) {
+            action.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(action);
+        }
+    }
+
+    private static final class BucketAction extends RecursiveAction {
+        private final CompiledBucketTest bucketTest;
+        private final long[] indexes;
+        private final int[] buckets;
+        private final long[] hits;
+        private final int from;
+        private final int to;
+
+        BucketAction(CompiledBucketTest bucketTest, long[] indexes, int[] buckets, long[] hits, int from, int to) {
+            this.bucketTest = bucketTest;
+            this.indexes = indexes;
+            this.buckets = buckets;
+            this.hits = hits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                // 切分点按64对齐，保证两个子任务不会写同一个位图word
+                int middle = ((from + to) >>> 1) & ~63;
+                invokeAll(new BucketAction(bucketTest, indexes, buckets, hits, from, middle),
+                        new BucketAction(bucketTest, indexes, buckets, hits, middle, to));
+                return;
+            }
+
+            if (buckets != null) {
+                bucketTest.bucket(indexes, from, to, buckets);
+            } else {
+                fillHits();
+            }
+        }
+
+        private void fillHits() {
+            int[] chunk = new int[Math.min(to - from, 1024)];
+            for (int start = from; start < to; start += chunk.length) {
+                int end = Math.min(start + chunk.length, to);
+                // 借用桶号数组做中转，复用同一套紧凑循环
+                bucketTest.bucket(indexes, start, end, chunk, 0);
+                for (int i = start; i < end; i++) {
+                    if (chunk[i - start] >= 0) {
+                        hits[i >>> 6] |= 1L << i;
+                    }
+                }
+            }
+        }
+    }
+}
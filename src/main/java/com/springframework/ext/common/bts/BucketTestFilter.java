@@ -0,0 +1,187 @@
+package com.springframework.ext.common.bts;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 分桶过滤器：每个请求只提取一次分桶维度，批量计算全部实验，结果放入request属性
+ *
+ * <pre>
+ *     init-param：bucketConfig、header、cookie、parameter、responseHeader、trustHeader、resolvedOnly
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketTestFilter implements Filter {
+    /** 分桶结果在request中的属性名 */
+    public static final String ATTRIBUTE = BucketAssignment.class.getName();
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(BucketTestFilter.class);
+    /** 分桶工具 */
+    private BucketTestHelper helper;
+    /** 分桶维度所在的header */
+    private String header;
+    /** 分桶维度所在的cookie */
+    private String cookie;
+    /** 分桶维度所在的请求参数 */
+    private String parameter;
+    /** 分桶结果的响应头，为空时不输出 */
+    private String responseHeader;
+    /** 是否信任请求中已有的分桶结果 */
+    private boolean trustHeader;
+    /** 延迟解析时是否只计算已解析的实验 */
+    private boolean resolvedOnly;
+
+    public BucketTestFilter() {
+    }
+
+    public BucketTestFilter(BucketTestHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * 获取当前请求的分桶结果
+     *
+     * @param request 请求
+     * @return 分桶结果，未经过滤器时返回空结果
+     */
+    public static BucketAssignment assignment(ServletRequest request) {
+        Object assignment = request.getAttribute(ATTRIBUTE);
+        return assignment instanceof BucketAssignment ? (BucketAssignment) assignment : BucketAssignment.empty();
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String bucketConfig = filterConfig.getInitParameter("bucketConfig");
+        if (helper == null && StringUtils.isNotBlank(bucketConfig)) {
+            helper = BucketTestHelper.instance(bucketConfig);
+        }
+        header = StringUtils.defaultIfBlank(filterConfig.getInitParameter("header"), header);
+        cookie = StringUtils.defaultIfBlank(filterConfig.getInitParameter("cookie"), cookie);
+        parameter = StringUtils.defaultIfBlank(filterConfig.getInitParameter("parameter"), parameter);
+        responseHeader = StringUtils.defaultIfBlank(filterConfig.getInitParameter("responseHeader"), responseHeader);
+        String trustHeader = filterConfig.getInitParameter("trustHeader");
+        if (StringUtils.isNotBlank(trustHeader)) {
+            this.trustHeader = Boolean.parseBoolean(trustHeader.trim());
+        }
+        String resolvedOnly = filterConfig.getInitParameter("resolvedOnly");
+        if (StringUtils.isNotBlank(resolvedOnly)) {
+            this.resolvedOnly = Boolean.parseBoolean(resolvedOnly.trim());
+        }
+
+        if (helper == null) {
+            throw new ServletException("BucketTestFilter requires a BucketTestHelper or init-param bucketConfig");
+        }
+        if (header == null && cookie == null && parameter == null) {
+            logger.warn("init@no header, cookie or parameter configured, all requests get an empty assignment");
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        BucketAssignment assignment = assign(request);
+        request.setAttribute(ATTRIBUTE, assignment);
+        if (responseHeader != null && response instanceof HttpServletResponse && assignment.hitCount() > 0) {
+            ((HttpServletResponse) response).setHeader(responseHeader, assignment.encode());
+        }
+
+        try (BucketMemo memo = BucketMemo.open()) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private BucketAssignment assign(ServletRequest request) {
+        try {
+            String dimension = dimension(request);
+
+            if (trustHeader && responseHeader != null && request instanceof HttpServletRequest) {
+                String upstream = ((HttpServletRequest) request).getHeader(responseHeader);
+                if (upstream != null) {
+                    return BucketAssignment.decode(dimension == null ? 0L : CompiledBucketTest.indexOf(dimension), upstream);
+                }
+            }
+
+            return dimension == null ? BucketAssignment.empty() : helper.assign(dimension, resolvedOnly);
+        } catch (RuntimeException e) {
+            logger.error("assign@request", e);
+            return BucketAssignment.empty();
+        }
+    }
+
+    /**
+     * @return 分桶维度，不存在时返回null
+     */
+    private String dimension(ServletRequest request) {
+        if (request instanceof HttpServletRequest) {
+            HttpServletRequest httpRequest = (HttpServletRequest) request;
+            if (header != null) {
+                String value = httpRequest.getHeader(header);
+                if (StringUtils.isNotBlank(value)) {
+                    return value.trim();
+                }
+            }
+            if (cookie != null) {
+                Cookie[] cookies = httpRequest.getCookies();
+                if (cookies != null) {
+                    for (Cookie item : cookies) {
+                        if (cookie.equals(item.getName()) && StringUtils.isNotBlank(item.getValue())) {
+                            return item.getValue().trim();
+                        }
+                    }
+                }
+            }
+        }
+        if (parameter != null) {
+            String value = request.getParameter(parameter);
+            if (StringUtils.isNotBlank(value)) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+
+    public void setHelper(BucketTestHelper helper) {
+        this.helper = helper;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    public void setCookie(String cookie) {
+        this.cookie = cookie;
+    }
+
+    public void setParameter(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public void setResponseHeader(String responseHeader) {
+        this.responseHeader = responseHeader;
+    }
+
+    public void setTrustHeader(boolean trustHeader) {
+        this.trustHeader = trustHeader;
+    }
+
+    public void setResolvedOnly(boolean resolvedOnly) {
+        this.resolvedOnly = resolvedOnly;
+    }
+}
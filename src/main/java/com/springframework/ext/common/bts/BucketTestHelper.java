@@ -1,52 +1,112 @@
 package com.springframework.ext.common.bts;
 
-import com.google.common.collect.Maps;
-import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ext.common.cache.CacheClient;
-import org.springframework.ext.common.helper.JsonHelper;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 分桶测试辅助类
+ * <pre>
+ *     序列化（如写入分布式CacheClient）使用{@link BucketWireFormat}编码编译后的实验，不携带原始配置字符串；
+ *     反序列化后直接发布，不再解析json
+ * </pre>
  *
  * @author: oleone
  * @since: 2016-07-13.
  */
-public class BucketTestHelper implements Serializable {
+public class BucketTestHelper implements BucketConfigListener, Externalizable {
+    private static final long serialVersionUID = 2L;
     /** 日志对象 */
     private static Logger logger = LoggerFactory.getLogger(BucketTestHelper.class);
     /** 本地缓存 */
     private static CacheClient cacheClient;
+    /** 共享实例缓存 */
+    private static final BucketHelperCache HELPERS = new BucketHelperCache();
+    /** CacheClient中实例的key前缀：序列化格式变化时更换，避免读到旧格式的实例 */
+    private static final String CACHE_KEY_PREFIX = "BucketTest:Helper:v2:";
+    /** CacheClient中实例的过期时间（秒） */
+    private static final int CACHE_EXPIRE_SECONDS = (int) TimeUnit.MINUTES.toSeconds(5);
+    /** 远端缓存的提前续期间隔：过期时间的80% */
+    private static final long CACHE_REFRESH_MILLIS = TimeUnit.SECONDS.toMillis(CACHE_EXPIRE_SECONDS) * 4 / 5;
+    /** 曝光记录流：未设置时不记录 */
+    private static volatile BucketExposure exposure;
+    /** 粘性分桶记录：未设置时不记录 */
+    private static volatile BucketStickyStore sticky;
     /** 分桶配置 */
-    @Setter
     private String bucketConfig;
-    /** 分桶实例：为避免重复从配置中反序列化 */
-    private Map<String, BucketTest> bucketTestMap;
+    /** 分桶实例：配置变更时整体构建后原子替换，读操作无锁 */
+    private final BucketTestRegistry registry = new BucketTestRegistry();
+    /** 分桶指标 */
+    private final BucketMetrics metrics = new BucketMetrics();
+    /** 是否为instance()缓存中的共享实例 */
+    private volatile boolean shared;
 
+    /**
+     * 获取配置对应的共享实例：按配置内容寻址缓存，相同内容的配置返回同一实例；
+     * 共享实例被setBucketConfig/onChange修改后移出缓存，之后对原配置的调用得到新的实例
+     *
+     * @param bucketConfig 分桶配置
+     * @return 分桶测试辅助类
+     */
     public static BucketTestHelper instance(String bucketConfig) {
         if (StringUtils.isBlank(bucketConfig)) {
             throw new IllegalArgumentException("bucketConfig is blank");
         }
+        return HELPERS.get(bucketConfig, BucketTestHelper::load);
+    }
+
+    /**
+     * 按版本号获取共享实例：以版本号为缓存key，不计算配置摘要，适合配置较大、每次调用拿到新字符串实例的场景；
+     * 同一版本号须对应同一配置，配置变化时须更换版本号
+     *
+     * @param version      配置版本号
+     * @param bucketConfig 分桶配置
+     * @return 分桶测试辅助类
+     */
+    public static BucketTestHelper instance(String version, String bucketConfig) {
+        if (StringUtils.isBlank(version)) {
+            throw new IllegalArgumentException("version is blank");
+        }
+        if (StringUtils.isBlank(bucketConfig)) {
+            throw new IllegalArgumentException("bucketConfig is blank");
+        }
+        return HELPERS.get(version, bucketConfig, BucketTestHelper::load);
+    }
 
-        /* 如果有缓存，则优先用缓存 */
+    /**
+     * @return 共享实例缓存，可查看命中统计或调整容量
+     */
+    public static BucketHelperCache helperCache() {
+        return HELPERS;
+    }
+
+    private static BucketTestHelper load(String bucketConfig, String cacheKey) {
+        BucketTestHelper helper;
+        /* 如果有缓存，则优先用缓存：以内容摘要或版本号为key，不同配置不会冲突 */
         if (cacheClient != null) {
-            Serializable key = cacheClient.key("BucketTest:Helper:", bucketConfig.hashCode());
+            Serializable key = cacheClient.key(CACHE_KEY_PREFIX, cacheKey);
 
             // return if cached, otherwise create, cache and return
-            return cacheClient.get(key, () -> getInstance(bucketConfig), (int) TimeUnit.MINUTES.toSeconds(5));
+            helper = cacheClient.get(key, () -> getInstance(bucketConfig), CACHE_EXPIRE_SECONDS);
         }
         /* 无缓存，直接实例化 */
         else {
-            return getInstance(bucketConfig);
+            helper = getInstance(bucketConfig);
         }
+        helper.shared = true;
+        return helper;
     }
 
     private static BucketTestHelper getInstance(String bucketConfig) {
@@ -56,8 +116,117 @@ public class BucketTestHelper implements Serializable {
         return helper;
     }
 
+    /**
+     * 设置分桶配置：在当前线程上完成解析与编译，完成后原子发布给读线程
+     *
+     * @param bucketConfig 分桶配置
+     */
+    public void setBucketConfig(String bucketConfig) {
+        detach();
+        this.bucketConfig = bucketConfig;
+        mappingBucketTest(bucketConfig);
+    }
+
+    /**
+     * 配置变更推送：只重新解析内容有变化的实验，格式错误时保留当前配置
+     *
+     * @param bucketConfig 新的完整分桶配置
+     */
+    @Override
+    public void onChange(String bucketConfig) {
+        detach();
+        if (StringUtils.isBlank(bucketConfig)) {
+            logger.warn("onChange@bucketConfig is blank, ignored");
+            return;
+        }
+        if (mappingBucketTest(bucketConfig)) {
+            this.bucketConfig = bucketConfig;
+        }
+    }
+
+    /**
+     * 共享实例的内容即将不再与缓存key一致：移出缓存，避免其他调用方按原配置拿到修改后的实例
+     */
+    private void detach() {
+        if (shared) {
+            shared = false;
+            HELPERS.remove(this);
+        }
+    }
+
+    /**
+     * @return 是否为instance()缓存中的共享实例
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * 从二进制快照文件加载：内存映射，白名单/黑名单保留在映射区，不经过json解析
+     *
+     * @param file 由{@link #writeSnapshot(Path)}写入的快照文件
+     * @return 分桶测试辅助类
+     */
+    public static BucketTestHelper loadSnapshot(Path file) throws IOException {
+        long start = System.nanoTime();
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.registry.publishCompiled(BucketSnapshotFile.load(file));
+        helper.metrics.reloaded(System.nanoTime() - start);
+        return helper;
+    }
+
+    /**
+     * 将当前配置写入二进制快照文件
+     *
+     * @param file 快照文件
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        BucketSnapshotFile.write(registry.snapshot().asMap().values(), file);
+    }
+
+    /**
+     * 设置远端缓存：共享实例缓存作为近端缓存，未命中时才访问CacheClient；
+     * 被访问的实例在远端过期前由后台线程续期，请求线程不等待
+     *
+     * @param cacheClient 远端缓存，null表示不使用
+     */
     public static void setCacheClient(CacheClient cacheClient) {
         BucketTestHelper.cacheClient = cacheClient;
+        HELPERS.setRefresher(cacheClient == null ? null : BucketTestHelper::refresh, CACHE_REFRESH_MILLIS);
+    }
+
+    private static void refresh(String cacheKey, BucketTestHelper helper) {
+        CacheClient cacheClient = BucketTestHelper.cacheClient;
+        if (cacheClient != null) {
+            cacheClient.put(cacheClient.key(CACHE_KEY_PREFIX, cacheKey), helper, CACHE_EXPIRE_SECONDS);
+        }
+    }
+
+    /**
+     * 设置曝光记录流：设置后bucket/isBucket/variant命中实验时写入一条曝光记录，null为关闭
+     *
+     * @param exposure 曝光记录流，需已调用start()
+     */
+    public static void setExposure(BucketExposure exposure) {
+        BucketTestHelper.exposure = exposure;
+    }
+
+    public static BucketExposure getExposure() {
+        return exposure;
+    }
+
+    /**
+     * 设置粘性分桶记录：设置后bucket/isBucket/variant先查记录，已曝光的索引在调整percent、basic、hash策略后保持原桶号；
+     * 停用实验、加入黑名单、缩量到原桶号之下时按当前配置计算。bucketAll不查记录，null为关闭
+     *
+     * @param sticky 粘性分桶记录
+     */
+    public static void setStickyStore(BucketStickyStore sticky) {
+        BucketTestHelper.sticky = sticky;
+    }
+
+    public static BucketStickyStore getStickyStore() {
+        return sticky;
     }
 
     /**
@@ -80,48 +249,323 @@ public class BucketTestHelper implements Serializable {
      * @return 分桶值
      */
     public int bucket(final String name, final long index) {
-        // 实例化分桶测试
-        BucketTest bucketTest = valueOf(name);
+        // 查找分桶测试，根据索引计算分桶
+        return bucket(valueOf(name), index);
+    }
 
-        // 根据索引计算分桶
-        return bucketTest.bucket(index);
+    /**
+     * 判断索引在满足定向规则时是否在分桶中
+     *
+     * @param name    分桶策略
+     * @param index   分桶索引
+     * @param context 属性上下文，如地区、版本、平台
+     * @return 是否在分桶逻辑中
+     */
+    public boolean isBucket(final String name, final long index, final BucketContext context) {
+        return bucket(name, index, context) >= 0;
     }
 
-    public BucketTest findBucketTest(final String name) {
-        BucketTest bucketTest;
-        if (cacheClient != null) {
-            Serializable key = cacheClient.key("BucketTest:Instance:", name);
-            // return if cached, otherwise create, cache and return
-            bucketTest = cacheClient.get(key, () -> valueOf(name), (int) TimeUnit.MINUTES.toSeconds(5));
-        } else {
-            bucketTest = valueOf(name);
+    /**
+     * 带属性计算分桶值：配置了rule的实验按属性判断定向规则，未配置rule时同bucket(name, index)
+     *
+     * @param name    分桶策略
+     * @param index   分桶索引
+     * @param context 属性上下文
+     * @return 分桶值
+     */
+    public int bucket(final String name, final long index, final BucketContext context) {
+        return bucket(valueOf(name), index, context);
+    }
+
+    /**
+     * 带属性计算分组
+     *
+     * @param name    分桶策略
+     * @param index   分桶索引
+     * @param context 属性上下文
+     * @return 分组标识，不在实验中或未配置分组时返回null
+     */
+    public String variant(final String name, final long index, final BucketContext context) {
+        CompiledBucketTest bucketTest = valueOf(name);
+        return bucketTest.armName(bucketTest.variantOf(index, bucket(bucketTest, index, context)));
+    }
+
+    /**
+     * 判断字符串索引是否在分桶中，如cookie中的浏览器uuid
+     *
+     * @param name 分桶策略
+     * @param key  分桶索引
+     * @return 是否在分桶逻辑中
+     */
+    public boolean isBucket(final String name, final CharSequence key) {
+        return bucket(name, key) >= 0;
+    }
+
+    /**
+     * 计算字符串索引的分桶值：规范的数字串与对应的long索引结果相同
+     *
+     * @param name 分桶策略
+     * @param key  分桶索引
+     * @return 分桶值
+     */
+    public int bucket(final String name, final CharSequence key) {
+        if (key == null) {
+            return -1;
+        }
+        CompiledBucketTest bucketTest = valueOf(name);
+        int length = key.length();
+        long index = BucketConfigParser.parseCanonicalLong(key, 0, length);
+        if (index != Long.MIN_VALUE || BucketConfigParser.isMinValue(key, 0, length)) {
+            return bucket(bucketTest, index);
+        }
+        return bucketKey(bucketTest, CompiledBucketTest.key(key));
+    }
+
+    public boolean isBucket(final String name, final UUID key) {
+        return bucket(name, key) >= 0;
+    }
+
+    public int bucket(final String name, final UUID key) {
+        if (key == null) {
+            return -1;
+        }
+        CompiledBucketTest bucketTest = valueOf(name);
+        return bucketKey(bucketTest, BucketHash.hash64(key) >>> 1);
+    }
+
+    /**
+     * 计算分组：一次分桶确定所在分组，代替逐个分组调用isBucket
+     *
+     * @param name  分桶策略
+     * @param index 分桶索引,可以是userId,sellerId等
+     * @return 分组标识，不在实验中或未配置分组时返回null
+     */
+    public String variant(final String name, final long index) {
+        CompiledBucketTest bucketTest = valueOf(name);
+        return bucketTest.armName(bucketTest.variantOf(index, bucket(bucketTest, index)));
+    }
+
+    /**
+     * @return 分桶指标：各实验的计算次数、命中率，以及配置加载耗时
+     */
+    public BucketMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * @return 当前生效的实验快照
+     */
+    BucketTestRegistry.Snapshot snapshot() {
+        return registry.snapshot();
+    }
+
+    /**
+     * 按字符串索引批量计算分桶：非数字的索引只计算一次hash；不查粘性记录、不记录指标与曝光，需要时使用{@link #assign(CharSequence)}
+     *
+     * @param key 分桶索引，如浏览器uuid
+     * @return 批量分桶结果，顺序与配置顺序一致
+     */
+    public BucketAssignment bucketAll(final CharSequence key) {
+        return bucketAll(key, false);
+    }
+
+    /**
+     * 按字符串索引批量计算分桶
+     *
+     * @param key          分桶索引，如浏览器uuid
+     * @param resolvedOnly 延迟解析时只计算已解析的实验，不触发其余实验的解析
+     * @return 批量分桶结果，顺序与配置顺序一致
+     */
+    public BucketAssignment bucketAll(final CharSequence key, final boolean resolvedOnly) {
+        return key == null ? BucketAssignment.empty() : BucketAssignment.of(batch(resolvedOnly), key);
+    }
+
+    /**
+     * 按字符串索引批量计算分桶，与逐个调用bucket一致：先查粘性记录、记录命中的桶号，按实验读取结果时记录指标与曝光
+     *
+     * @param key 分桶索引，如浏览器uuid
+     * @return 批量分桶结果，顺序与配置顺序一致
+     */
+    public BucketAssignment assign(final CharSequence key) {
+        return assign(key, false);
+    }
+
+    /**
+     * 按字符串索引批量计算分桶，与逐个调用bucket一致
+     *
+     * @param key          分桶索引，如浏览器uuid
+     * @param resolvedOnly 延迟解析时只计算已解析的实验，不触发其余实验的解析
+     * @return 批量分桶结果，顺序与配置顺序一致
+     */
+    public BucketAssignment assign(final CharSequence key, final boolean resolvedOnly) {
+        if (key == null) {
+            return BucketAssignment.empty();
+        }
+        BucketTestRegistry.Snapshot snapshot = batch(resolvedOnly);
+        return BucketAssignment.of(snapshot, key).observed(snapshot.tests(), sticky, this);
+    }
+
+    /**
+     * 批量计算分桶：一次遍历计算当前配置中的全部实验；不查粘性记录、不记录指标与曝光
+     *
+     * @param index 分桶索引,可以是userId,sellerId等
+     * @return 批量分桶结果，顺序与配置顺序一致
+     */
+    public BucketAssignment bucketAll(final long index) {
+        return bucketAll(index, false);
+    }
+
+    /**
+     * 批量计算分桶
+     *
+     * @param index        分桶索引,可以是userId,sellerId等
+     * @param resolvedOnly 延迟解析时只计算已解析的实验，不触发其余实验的解析
+     * @return 批量分桶结果，顺序与配置顺序一致
+     */
+    public BucketAssignment bucketAll(final long index, final boolean resolvedOnly) {
+        return BucketAssignment.of(batch(resolvedOnly), index);
+    }
+
+    /**
+     * @return 批量分桶使用的快照：延迟解析时默认解析全部实验
+     */
+    private BucketTestRegistry.Snapshot batch(boolean resolvedOnly) {
+        BucketTestRegistry.Snapshot snapshot = registry.snapshot();
+        return resolvedOnly ? snapshot.resolvedOnly() : snapshot;
+    }
+
+    /**
+     * 批量计算分桶：对指定的一组实验计算分桶
+     *
+     * @param names 分桶策略列表
+     * @param index 分桶索引,可以是userId,sellerId等
+     * @return 批量分桶结果，顺序与names一致，不存在的实验桶号为-1
+     */
+    public BucketAssignment bucketAll(final List<String> names, final long index) {
+        if (names == null || names.isEmpty()) {
+            return BucketAssignment.empty();
         }
+        return BucketAssignment.of(registry.snapshot(), names.toArray(new String[names.size()]), index);
+    }
 
+    /**
+     * 查找实验的原始配置：由当前快照中的编译实例还原，同一实例只还原一次
+     *
+     * @param name 分桶策略
+     * @return 原始配置，不存在时返回null
+     */
+    public BucketTest findBucketTest(final String name) {
+        BucketTest bucketTest = valueOf(name).definition();
         return bucketTest.isEmpty() ? null : bucketTest;
     }
 
-    private BucketTest valueOf(final String name) {
-        if (this.bucketTestMap == null) {
-            this.bucketTestMap = mappingBucketTest();
+    private int bucket(CompiledBucketTest bucketTest, long index) {
+        // 已记录的粘性桶号优先
+        BucketStickyStore sticky = BucketTestHelper.sticky;
+        int outcome = sticky == null ? -1 : sticky.bucket(bucketTest, index, false, null);
+        if (outcome < 0) {
+            // 当前线程绑定了请求缓存时优先查缓存
+            BucketMemo memo = BucketMemo.current();
+            outcome = memo == null ? bucketTest.evaluate(index) : memo.evaluate(bucketTest, index);
+            if (sticky != null) {
+                sticky.remember(bucketTest, index, outcome, false);
+            }
+        }
+        return observe(bucketTest, index, outcome);
+    }
+
+    private int bucket(CompiledBucketTest bucketTest, long index, BucketContext context) {
+        if (context == null || bucketTest.getRule() == null) {
+            return bucket(bucketTest, index);
+        }
+        BucketStickyStore sticky = BucketTestHelper.sticky;
+        int outcome = sticky == null ? -1 : sticky.bucket(bucketTest, index, false, context);
+        if (outcome < 0) {
+            // 结果依赖属性，不经过请求缓存
+            outcome = bucketTest.evaluate(index, context);
+            if (sticky != null) {
+                sticky.remember(bucketTest, index, outcome, false);
+            }
+        }
+        return observe(bucketTest, index, outcome);
+    }
+
+    /**
+     * 非数字索引的分桶：粘性记录按hash与数字索引分开保存
+     */
+    private int bucketKey(CompiledBucketTest bucketTest, long key) {
+        BucketStickyStore sticky = BucketTestHelper.sticky;
+        int outcome = sticky == null ? -1 : sticky.bucket(bucketTest, key, true, null);
+        if (outcome < 0) {
+            outcome = bucketTest.evaluateKey(key);
+            if (sticky != null) {
+                sticky.remember(bucketTest, key, outcome, true);
+            }
         }
+        return observe(bucketTest, key, outcome);
+    }
 
-        return Optional.ofNullable(this.bucketTestMap.get(name)).orElse(BucketTest.empty());
+    /**
+     * 记录指标与曝光
+     *
+     * @param outcome 分桶结果码，粘性记录的桶号即为结果码
+     * @return 桶号
+     */
+    int observe(CompiledBucketTest bucketTest, long index, int outcome) {
+        metrics.record(bucketTest, outcome);
+        int bucket = CompiledBucketTest.bucketOf(outcome);
+        BucketExposure exposure = BucketTestHelper.exposure;
+        if (bucket >= 0 && exposure != null) {
+            exposure.record(bucketTest, index, bucket);
+        }
+        return bucket;
     }
 
-    private Map<String, BucketTest> mappingBucketTest() {
-        Map<String, BucketTest> bucketTestMap = Maps.newHashMap();
+    private CompiledBucketTest valueOf(final String name) {
+        return registry.find(name);
+    }
 
-        List<BucketTest> result = null;
+    private boolean mappingBucketTest(String bucketConfig) {
         try {
-            // 加载所有bucket配置，通过json反序列化为集合
-            result = JsonHelper.fromJsonList(bucketConfig, BucketTest.class);
+            // 加载所有bucket配置，只反序列化有变化的实验
+            BucketConfigStats stats = registry.reload(bucketConfig);
+            metrics.reloaded(stats.getElapsedNanos());
+            logger.info("mappingBucketTest@{}", stats);
+            return true;
         } catch (Exception e) {
+            metrics.reloadFailed();
             logger.error(String.format("valueOf@bucketConfig:%s", bucketConfig), e);
+            return false;
         }
+    }
 
-        if (result != null && !result.isEmpty()) {
-            result.parallelStream().forEach(s -> bucketTestMap.put(s.getName(), s));
+    /**
+     * 写出当前生效的实验：int字节数 + {@link BucketWireFormat}编码；延迟解析时未解析的实验写出原始片段，不触发解析
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        byte[] bytes = BucketWireFormat.encode(registry.snapshot());
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        int length = in.readInt();
+        if (length < 0) {
+            throw new InvalidObjectException("negative wire form length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        try {
+            registry.publishEntries(BucketWireFormat.decodeEntries(bytes));
+        } catch (IllegalArgumentException e) {
+            metrics.reloadFailed();
+            InvalidObjectException exception = new InvalidObjectException(e.getMessage());
+            exception.initCause(e);
+            throw exception;
         }
-        return bucketTestMap;
+        metrics.reloaded(System.nanoTime() - start);
     }
 }
@@ -0,0 +1,520 @@
+package com.springframework.ext.common.bts;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分桶测试注册表：通过单个volatile引用发布只读的 name->实验 快照，配置变更时整体构建后替换
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketTestRegistry {
+    /** 是否延迟解析，对之后加载的配置生效 */
+    private static volatile boolean lazy;
+    /** 当前快照 */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * 设置是否延迟解析：开启后加载配置时只建立 实验名->片段位置 的索引，实验在首次查找时才解析，
+     * 加载耗时与内存占用只与实际访问的实验有关；对之后加载的配置生效
+     */
+    public static void setLazy(boolean lazy) {
+        BucketTestRegistry.lazy = lazy;
+    }
+
+    public static boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * 根据分桶标识查找编译后的分桶测试
+     *
+     * @param name 分桶标识
+     * @return 分桶测试，不存在时返回空测试
+     */
+    public CompiledBucketTest find(String name) {
+        return snapshot.get(name);
+    }
+
+    /**
+     * @return 当前快照
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 构建并发布新的快照：同名实验以后出现的为准
+     *
+     * @param bucketTests 分桶配置
+     * @return 被替换掉的旧快照
+     */
+    public synchronized Snapshot publish(Collection<BucketTest> bucketTests) {
+        List<CompiledBucketTest> compiled = new ArrayList<>(bucketTests == null ? 0 : bucketTests.size());
+        if (bucketTests != null) {
+            for (BucketTest bucketTest : bucketTests) {
+                if (bucketTest != null) {
+                    compiled.add(bucketTest.compile());
+                }
+            }
+        }
+        return swap(Snapshot.of(compiled));
+    }
+
+    /**
+     * 发布已编译的分桶测试，如从二进制快照加载的实验：同名实验以后出现的为准
+     *
+     * @param bucketTests 已编译的分桶测试
+     * @return 被替换掉的旧快照
+     */
+    public synchronized Snapshot publishCompiled(Collection<CompiledBucketTest> bucketTests) {
+        return swap(Snapshot.of(bucketTests));
+    }
+
+    /**
+     * 发布反序列化得到的实验：都已编译时按{@link #publishCompiled(Collection)}发布，带有未解析片段时发布延迟解析的快照
+     *
+     * @param entries 已编译的实验或未解析的片段，按配置顺序
+     * @return 被替换掉的旧快照
+     */
+    synchronized Snapshot publishEntries(List<LazyBucketTest> entries) {
+        List<CompiledBucketTest> compiled = new ArrayList<>(entries.size());
+        for (LazyBucketTest entry : entries) {
+            if (entry.peek() == null) {
+                compiled = null;
+                break;
+            }
+            compiled.add(entry.peek());
+        }
+        if (compiled != null) {
+            return publishCompiled(compiled);
+        }
+
+        Map<String, LazyBucketTest> byName = new LinkedHashMap<>(entries.size() * 2);
+        for (LazyBucketTest entry : entries) {
+            CompiledBucketTest bucketTest = entry.peek();
+            String name = bucketTest == null ? entry.name() : bucketTest.getName();
+            if (name == null) {
+                // 无法延迟解析的片段（如分层实验）立即解析
+                bucketTest = entry.parse(new BucketConfigStats());
+                entry.set(bucketTest);
+                name = bucketTest.getName();
+            }
+            if (bucketTest != null && bucketTest.isEmpty()) {
+                continue;
+            }
+            byName.put(name, entry);
+        }
+        return swap(Snapshot.lazy(byName));
+    }
+
+    /**
+     * 按新配置增量更新：与当前快照逐个实验比较json片段，只解析和编译有变化的实验
+     *
+     * @param bucketConfig 分桶配置
+     * @return 解析统计
+     * @throws IllegalArgumentException 配置格式错误，此时当前快照保持不变
+     */
+    public synchronized BucketConfigStats reload(String bucketConfig) {
+        if (lazy) {
+            return reloadLazy(bucketConfig);
+        }
+        long start = System.nanoTime();
+        BucketConfigStats stats = new BucketConfigStats();
+        List<String> fragments = BucketConfigSplitter.split(bucketConfig);
+        Map<Digest, CompiledBucketTest> reusable = snapshot.bySource();
+
+        Map<String, CompiledBucketTest> bucketTests = new LinkedHashMap<>(fragments.size() * 2);
+        Map<String, Digest> sources = new HashMap<>(fragments.size() * 2);
+        int rebuilt = 0;
+        for (String fragment : fragments) {
+            Digest digest = Digest.of(fragment);
+            CompiledBucketTest bucketTest = reusable.get(digest);
+            if (bucketTest == null) {
+                bucketTest = BucketConfigParser.parseExperiment(fragment, stats);
+                rebuilt++;
+            }
+            if (bucketTest.isEmpty()) {
+                continue;
+            }
+            // 重复的实验名以后出现的为准，但保留首次出现的位置
+            bucketTests.put(bucketTest.getName(), bucketTest);
+            sources.put(bucketTest.getName(), digest);
+        }
+
+        swap(new Snapshot(Collections.unmodifiableMap(bucketTests), sources));
+
+        for (CompiledBucketTest bucketTest : bucketTests.values()) {
+            stats.addMemoryBytes(bucketTest.memoryBytes());
+            stats.addOffHeapBytes(bucketTest.offHeapBytes());
+        }
+        stats.experiments(bucketTests.size());
+        stats.rebuilt(rebuilt);
+        stats.elapsedNanos(System.nanoTime() - start);
+        return stats;
+    }
+
+    /**
+     * 延迟解析：只切分配置并读取实验名；内容未变化的实验沿用已解析的实例
+     */
+    private BucketConfigStats reloadLazy(String bucketConfig) {
+        long start = System.nanoTime();
+        BucketConfigStats stats = new BucketConfigStats();
+        int[] bounds = BucketConfigSplitter.bounds(bucketConfig);
+        Map<LazyBucketTest, LazyBucketTest> reusable = snapshot.byFragment();
+
+        Map<String, LazyBucketTest> entries = new LinkedHashMap<>(bounds.length);
+        int rebuilt = 0;
+        int deferred = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            LazyBucketTest entry = new LazyBucketTest(bucketConfig, bounds[i], bounds[i + 1]);
+            LazyBucketTest previous = reusable.isEmpty() ? null : reusable.get(entry);
+            CompiledBucketTest bucketTest = previous == null ? null : previous.peek();
+            String name;
+            if (bucketTest != null) {
+                entry.set(bucketTest);
+                name = bucketTest.getName();
+            } else if ((name = entry.name()) != null) {
+                deferred++;
+            } else {
+                bucketTest = entry.parse(stats);
+                entry.set(bucketTest);
+                name = bucketTest.getName();
+                rebuilt++;
+            }
+            if (bucketTest != null && bucketTest.isEmpty()) {
+                continue;
+            }
+            // 重复的实验名以后出现的为准，但保留首次出现的位置
+            entries.put(name, entry);
+        }
+
+        swap(Snapshot.lazy(entries));
+
+        for (LazyBucketTest entry : entries.values()) {
+            CompiledBucketTest bucketTest = entry.peek();
+            if (bucketTest != null) {
+                stats.addMemoryBytes(bucketTest.memoryBytes());
+                stats.addOffHeapBytes(bucketTest.offHeapBytes());
+            }
+        }
+        stats.experiments(entries.size());
+        stats.rebuilt(rebuilt);
+        stats.deferred(deferred);
+        stats.elapsedNanos(System.nanoTime() - start);
+        return stats;
+    }
+
+    Snapshot swap(Snapshot snapshot) {
+        Snapshot previous = this.snapshot;
+        this.snapshot = snapshot;
+        return previous;
+    }
+
+    /**
+     * 只读快照：构建完成后不再修改
+     */
+    public static final class Snapshot {
+        /** 空快照 */
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap());
+        /** 分桶实例 */
+        private final Map<String, CompiledBucketTest> bucketTests;
+        /** 按配置顺序排列的实验名，供批量分桶使用 */
+        private final String[] names;
+        /** 实验名->在names中的位置，批量分桶结果按实验名查找时使用 */
+        private final BucketAssignment.Positions positions;
+        /** 按配置顺序排列的实验，与names一一对应 */
+        private final CompiledBucketTest[] tests;
+        /** 每个实验json片段的摘要，与names一一对应；由实例发布时为null */
+        private final Digest[] sources;
+        /** 分层实验的批量分桶 */
+        private final BucketLayers layers;
+        /** 延迟解析的 name->实验，非延迟解析的快照为null */
+        private final Map<String, LazyBucketTest> entries;
+        /** 延迟解析的快照解析全部实验后的完整快照 */
+        private volatile Snapshot resolved;
+        /** 只含已解析实验的快照，已解析的实验增加后重建 */
+        private volatile Partial partial;
+
+        private Snapshot(Map<String, CompiledBucketTest> bucketTests) {
+            this(bucketTests, null);
+        }
+
+        /**
+         * 延迟解析的快照：bucketTests/tests/layers在首次需要全部实验时构建
+         */
+        private Snapshot(Map<String, LazyBucketTest> entries, boolean lazy) {
+            this.bucketTests = Collections.emptyMap();
+            this.names = null;
+            this.positions = null;
+            this.tests = null;
+            this.sources = null;
+            this.layers = null;
+            this.entries = entries;
+        }
+
+        /**
+         * 构建延迟解析的快照：加载时已解析的分层实验在此分配层内区间
+         */
+        static Snapshot lazy(Map<String, LazyBucketTest> entries) {
+            Map<String, CompiledBucketTest> layered = new LinkedHashMap<>();
+            for (Map.Entry<String, LazyBucketTest> entry : entries.entrySet()) {
+                CompiledBucketTest bucketTest = entry.getValue().peek();
+                if (bucketTest != null && bucketTest.getLayer() != null) {
+                    layered.put(entry.getKey(), bucketTest);
+                }
+            }
+            for (Map.Entry<String, CompiledBucketTest> entry : BucketLayers.assign(layered).entrySet()) {
+                entries.get(entry.getKey()).set(entry.getValue());
+            }
+            return new Snapshot(Collections.unmodifiableMap(entries), true);
+        }
+
+        private Snapshot(Map<String, CompiledBucketTest> bucketTests, Map<String, Digest> sources) {
+            this.bucketTests = BucketLayers.assign(bucketTests);
+            this.names = this.bucketTests.keySet().toArray(new String[0]);
+            this.positions = BucketAssignment.Positions.of(names);
+            this.tests = this.bucketTests.values().toArray(new CompiledBucketTest[0]);
+            if (sources == null) {
+                this.sources = null;
+            } else {
+                this.sources = new Digest[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    this.sources[i] = sources.get(names[i]);
+                }
+            }
+            this.layers = BucketLayers.of(tests);
+            this.entries = null;
+        }
+
+        static Snapshot of(Collection<CompiledBucketTest> bucketTests) {
+            if (bucketTests == null || bucketTests.isEmpty()) {
+                return EMPTY;
+            }
+
+            Map<String, CompiledBucketTest> compiled = new LinkedHashMap<>(bucketTests.size() * 2);
+            for (CompiledBucketTest bucketTest : bucketTests) {
+                if (bucketTest == null || bucketTest.isEmpty()) {
+                    continue;
+                }
+                // 重复的实验名以后出现的为准，但保留首次出现的位置
+                compiled.put(bucketTest.getName(), bucketTest);
+            }
+            return new Snapshot(Collections.unmodifiableMap(compiled));
+        }
+
+        public CompiledBucketTest get(String name) {
+            if (entries != null) {
+                LazyBucketTest entry = name == null ? null : entries.get(name);
+                return entry == null ? CompiledBucketTest.empty() : entry.get();
+            }
+            CompiledBucketTest bucketTest = name == null ? null : bucketTests.get(name);
+            return bucketTest == null ? CompiledBucketTest.empty() : bucketTest;
+        }
+
+        public int size() {
+            return entries != null ? entries.size() : bucketTests.size();
+        }
+
+        /**
+         * @return 实验名数组，调用方不得修改
+         */
+        String[] names() {
+            return entries != null ? resolve().names : names;
+        }
+
+        /**
+         * @return 实验名->位置，实验较少时为null
+         */
+        BucketAssignment.Positions positions() {
+            return entries != null ? resolve().positions : positions;
+        }
+
+        /**
+         * @return 实验数组，调用方不得修改
+         */
+        CompiledBucketTest[] tests() {
+            return entries != null ? resolve().tests : tests;
+        }
+
+        /**
+         * @return 分层实验的批量分桶
+         */
+        BucketLayers layers() {
+            return entries != null ? resolve().layers : layers;
+        }
+
+        /**
+         * @return 已解析的实验个数
+         */
+        int resolved() {
+            if (entries == null) {
+                return bucketTests.size();
+            }
+            int resolved = 0;
+            for (LazyBucketTest entry : entries.values()) {
+                if (entry.peek() != null) {
+                    resolved++;
+                }
+            }
+            return resolved;
+        }
+
+        /**
+         * 解析全部延迟解析的实验，构建完整快照；解析失败的实验被忽略
+         */
+        private Snapshot resolve() {
+            Snapshot resolved = this.resolved;
+            if (resolved == null) {
+                Map<String, CompiledBucketTest> bucketTests = new LinkedHashMap<>(entries.size() * 2);
+                for (Map.Entry<String, LazyBucketTest> entry : entries.entrySet()) {
+                    CompiledBucketTest bucketTest = entry.getValue().get();
+                    if (!bucketTest.isEmpty()) {
+                        bucketTests.put(entry.getKey(), bucketTest);
+                    }
+                }
+                resolved = new Snapshot(Collections.unmodifiableMap(bucketTests));
+                this.resolved = resolved;
+            }
+            return resolved;
+        }
+
+        /**
+         * 只含已解析实验的快照：延迟解析时批量分桶不触发解析，未访问过的实验不计算；非延迟解析的快照返回自身
+         *
+         * @return 只含已解析实验的快照
+         */
+        public Snapshot resolvedOnly() {
+            if (entries == null) {
+                return this;
+            }
+            Snapshot resolved = this.resolved;
+            if (resolved != null) {
+                return resolved;
+            }
+            // 已解析的实验只增不减，个数不变即内容不变
+            int count = resolved();
+            Partial partial = this.partial;
+            if (partial == null || partial.resolved != count) {
+                Map<String, CompiledBucketTest> bucketTests = new LinkedHashMap<>(count * 2);
+                for (Map.Entry<String, LazyBucketTest> entry : entries.entrySet()) {
+                    CompiledBucketTest bucketTest = entry.getValue().peek();
+                    if (bucketTest != null && !bucketTest.isEmpty()) {
+                        bucketTests.put(entry.getKey(), bucketTest);
+                    }
+                }
+                partial = new Partial(count, new Snapshot(Collections.unmodifiableMap(bucketTests)));
+                this.partial = partial;
+            }
+            return partial.snapshot;
+        }
+
+        /**
+         * @return 延迟解析的 name->实验，非延迟解析的快照为null
+         */
+        Map<String, LazyBucketTest> entries() {
+            return entries;
+        }
+
+        /**
+         * @return 延迟解析的片段->实验，用于增量更新时复用已解析的实验
+         */
+        Map<LazyBucketTest, LazyBucketTest> byFragment() {
+            if (entries == null) {
+                return Collections.emptyMap();
+            }
+            Map<LazyBucketTest, LazyBucketTest> byFragment = new HashMap<>(entries.size() * 2);
+            for (LazyBucketTest entry : entries.values()) {
+                if (entry.peek() != null && entry.hasFragment()) {
+                    byFragment.put(entry, entry);
+                }
+            }
+            return byFragment;
+        }
+
+        /**
+         * @return json片段摘要->实验，用于增量更新时复用未变化的实验
+         */
+        Map<Digest, CompiledBucketTest> bySource() {
+            if (sources == null) {
+                return Collections.emptyMap();
+            }
+            Map<Digest, CompiledBucketTest> bySource = new HashMap<>(sources.length * 2);
+            for (int i = 0; i < sources.length; i++) {
+                bySource.put(sources[i], tests[i]);
+            }
+            return bySource;
+        }
+
+        /**
+         * @return 只读的 name->实验 映射，遍历顺序与配置顺序一致
+         */
+        public Map<String, CompiledBucketTest> asMap() {
+            return entries != null ? resolve().bucketTests : bucketTests;
+        }
+    }
+
+    /**
+     * json片段的摘要：长度 + 128位md5，增量更新时代替片段判等，快照不保留片段本身
+     */
+    static final class Digest {
+        /** 片段长度 */
+        private final int length;
+        /** md5高64位 */
+        private final long high;
+        /** md5低64位 */
+        private final long low;
+
+        private Digest(int length, long high, long low) {
+            this.length = length;
+            this.high = high;
+            this.low = low;
+        }
+
+        static Digest of(String fragment) {
+            ByteBuffer md5 = ByteBuffer.wrap(DigestUtils.md5(fragment));
+            return new Digest(fragment.length(), md5.getLong(), md5.getLong());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Digest)) {
+                return false;
+            }
+            Digest other = (Digest) o;
+            return length == other.length && high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ high >>> 32);
+        }
+    }
+
+    /**
+     * 只含已解析实验的快照，及构建时已解析的实验个数
+     */
+    private static final class Partial {
+        /** 构建时已解析的实验个数 */
+        private final int resolved;
+        /** 只含已解析实验的快照 */
+        private final Snapshot snapshot;
+
+        Partial(int resolved, Snapshot snapshot) {
+            this.resolved = resolved;
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.springframework.ext.common.bts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后实验的紧凑二进制编码：用于BucketTestHelper写入分布式缓存时的序列化
+ *
+ * <pre>
+ *     格式：magic(byte) version(byte) count(varint)，之后为count个实验：
+ *        name status percent basic hash extra
+ *        hitNames excludeNames（varint个数 + 字符串）
+ *        arms（varint个数 + 每个分组的name、weight）
+ *        layer startTime endTime
+ *        ramps（varint个数 + 每步的time、percent，time按差值编码）
+ *        rule
+ *        hits excludes（varint个数 + 首个值 + 相邻差值）
+ *     之后为未解析的实验：varint个数，每个为position(varint) fragment(string)，position为在全部实验中的顺序
+ *     1. int/long为zigzag varint，小的正负数都只占1~2字节
+ *     2. 字符串为varint(字节数 + 1) + UTF-8字节，null时为0
+ *     3. 白名单/黑名单升序排列后只写相邻差值（按无符号varint），密集的id段每个约1~3字节
+ *     4. 延迟解析的快照中尚未解析的实验按原始json片段写出，不为序列化而解析；解码后仍为延迟解析
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class BucketWireFormat {
+    /** 格式标识 */
+    static final byte MAGIC = (byte) 0xB7;
+    /** 格式版本 */
+    static final byte VERSION = 1;
+
+    private BucketWireFormat() {
+    }
+
+    /**
+     * 编码
+     *
+     * @param bucketTests 编译后的实验
+     * @return 编码结果
+     */
+    public static byte[] encode(Collection<CompiledBucketTest> bucketTests) {
+        return encode(bucketTests, new String[0], new int[0]);
+    }
+
+    /**
+     * 编码快照：延迟解析的快照中已解析的实验按编译结果写出，未解析的写出原始片段
+     *
+     * @param snapshot 快照
+     * @return 编码结果
+     */
+    static byte[] encode(BucketTestRegistry.Snapshot snapshot) {
+        Map<String, LazyBucketTest> entries = snapshot.entries();
+        if (entries == null) {
+            return encode(snapshot.asMap().values());
+        }
+        List<CompiledBucketTest> bucketTests = new ArrayList<>(entries.size());
+        String[] fragments = new String[entries.size()];
+        int[] positions = new int[entries.size()];
+        int count = 0;
+        for (LazyBucketTest entry : entries.values()) {
+            CompiledBucketTest bucketTest = entry.peek();
+            if (bucketTest == null) {
+                fragments[count] = entry.fragment();
+                positions[count] = bucketTests.size() + count;
+                count++;
+            } else if (!bucketTest.isEmpty()) {
+                bucketTests.add(bucketTest);
+            }
+        }
+        return encode(bucketTests, Arrays.copyOf(fragments, count), Arrays.copyOf(positions, count));
+    }
+
+    private static byte[] encode(Collection<CompiledBucketTest> bucketTests, String[] fragments, int[] positions) {
+        Encoder out = new Encoder(256);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeVarint(bucketTests.size());
+        for (CompiledBucketTest bucketTest : bucketTests) {
+            out.writeString(bucketTest.getName());
+            out.writeInt(bucketTest.getStatus());
+            out.writeInt(bucketTest.getPercent());
+            out.writeInt(bucketTest.getBasic());
+            out.writeString(bucketTest.getHash() == BucketHash.LEGACY ? null : bucketTest.getHash().name());
+            out.writeString(bucketTest.getExtra());
+            out.writeStrings(bucketTest.hitNames());
+            out.writeStrings(bucketTest.excludeNames());
+
+            String[] armNames = bucketTest.armNames();
+            int[] armWeights = bucketTest.armWeights();
+            out.writeVarint(armNames.length);
+            for (int i = 0; i < armNames.length; i++) {
+                out.writeString(armNames[i]);
+                out.writeInt(armWeights[i]);
+            }
+
+            out.writeString(bucketTest.getLayer());
+            out.writeLong(bucketTest.getStartTime());
+            out.writeLong(bucketTest.getEndTime());
+            long[] rampTimes = bucketTest.rampTimes();
+            int[] rampPercents = bucketTest.rampPercents();
+            out.writeVarint(rampTimes.length);
+            for (int i = 0; i < rampTimes.length; i++) {
+                out.writeLong(rampTimes[i] - (i == 0 ? 0 : rampTimes[i - 1]));
+                out.writeInt(rampPercents[i]);
+            }
+            out.writeString(bucketTest.getRule());
+
+            out.writeSorted(bucketTest.hits().toArray());
+            out.writeSorted(bucketTest.excludes().toArray());
+        }
+        out.writeVarint(fragments.length);
+        for (int i = 0; i < fragments.length; i++) {
+            out.writeVarint(positions[i]);
+            out.writeString(fragments[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码：未解析的片段在此解析，解析失败的实验被忽略
+     *
+     * @param bytes 由{@link #encode(Collection)}生成的字节
+     * @return 编译后的实验，顺序与编码时一致
+     * @throws IllegalArgumentException 格式错误或数据不完整
+     */
+    public static List<CompiledBucketTest> decode(byte[] bytes) {
+        List<LazyBucketTest> entries = decodeEntries(bytes);
+        List<CompiledBucketTest> bucketTests = new ArrayList<>(entries.size());
+        for (LazyBucketTest entry : entries) {
+            CompiledBucketTest bucketTest = entry.get();
+            if (!bucketTest.isEmpty()) {
+                bucketTests.add(bucketTest);
+            }
+        }
+        return bucketTests;
+    }
+
+    /**
+     * 解码为已编译的实验与未解析的片段，片段不解析
+     *
+     * @param bytes 编码结果
+     * @return 按编码时的顺序
+     * @throws IllegalArgumentException 格式错误或数据不完整
+     */
+    static List<LazyBucketTest> decodeEntries(byte[] bytes) {
+        Decoder in = new Decoder(bytes);
+        if (bytes.length < 2 || in.readByte() != MAGIC) {
+            throw new IllegalArgumentException("not a bucket wire form");
+        }
+        int version = in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("unsupported wire version: " + version);
+        }
+
+        int count = in.readCount();
+        List<LazyBucketTest> bucketTests = new ArrayList<>(Math.min(count, 1024));
+        for (int n = 0; n < count; n++) {
+            CompiledBucketTest.Builder builder = CompiledBucketTest.builder()
+                    .name(intern(in.readString()))
+                    .status(in.readInt())
+                    .percent(in.readInt())
+                    .basic(in.readInt())
+                    .hash(in.readString())
+                    .extra(JsonText.of(in.readString()));
+            String[] hitNames = in.readStrings();
+            String[] excludeNames = in.readStrings();
+
+            String[] armNames = new String[in.readCount()];
+            int[] armWeights = new int[armNames.length];
+            for (int i = 0; i < armNames.length; i++) {
+                armNames[i] = intern(in.readString());
+                armWeights[i] = in.readInt();
+            }
+            builder.arms(armNames, armWeights);
+
+            builder.layer(intern(in.readString()))
+                    .startTime(in.readLong())
+                    .endTime(in.readLong());
+            long[] rampTimes = new long[in.readCount()];
+            int[] rampPercents = new int[rampTimes.length];
+            for (int i = 0; i < rampTimes.length; i++) {
+                rampTimes[i] = in.readLong() + (i == 0 ? 0 : rampTimes[i - 1]);
+                rampPercents[i] = in.readInt();
+            }
+            builder.ramps(rampTimes, rampPercents);
+            builder.rule(in.readString());
+
+            builder.hits(in.readSorted(), hitNames);
+            builder.excludes(in.readSorted(), excludeNames);
+            bucketTests.add(new LazyBucketTest(builder.build()));
+        }
+        int fragments = in.readCount();
+        for (int i = 0; i < fragments; i++) {
+            long position = in.readVarint();
+            String fragment = in.readString();
+            if (position < 0 || position > bucketTests.size() || fragment == null) {
+                throw new IllegalArgumentException("invalid fragment position " + position + " at " + in.position);
+            }
+            bucketTests.add((int) position, new LazyBucketTest(fragment, 0, fragment.length()));
+        }
+        if (in.position != bytes.length) {
+            throw new IllegalArgumentException("trailing bytes in wire form: " + (bytes.length - in.position));
+        }
+        return bucketTests;
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    /**
+     * 写入可扩容的字节数组
+     */
+    private static final class Encoder {
+        private byte[] buffer;
+        private int position;
+
+        Encoder(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * 无符号varint：每字节7位，最高位表示后面还有字节
+         */
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        void writeLong(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeStrings(String[] values) {
+            writeVarint(values.length);
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        /**
+         * 升序数组：首个值按zigzag，其余按与前一个值的差（无符号）
+         */
+        void writeSorted(long[] values) {
+            writeVarint(values.length);
+            if (values.length == 0) {
+                return;
+            }
+            writeLong(values[0]);
+            for (int i = 1; i < values.length; i++) {
+                writeVarint(values[i] - values[i - 1]);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    /**
+     * 从字节数组读取，越界时抛出IllegalArgumentException
+     */
+    private static final class Decoder {
+        private final byte[] buffer;
+        private int position;
+
+        Decoder(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("truncated wire form at " + position);
+            }
+            return buffer[position++];
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint at " + position);
+        }
+
+        /**
+         * @return 元素个数：不超过剩余字节数，避免损坏的数据导致分配超大数组
+         */
+        int readCount() {
+            long count = readVarint();
+            if (count < 0 || count > buffer.length - position) {
+                throw new IllegalArgumentException("invalid count " + count + " at " + position);
+            }
+            return (int) count;
+        }
+
+        int readInt() {
+            long value = readVarint();
+            return (int) (value >>> 1) ^ -(int) (value & 1);
+        }
+
+        long readLong() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() {
+            long length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("truncated wire form at " + position);
+            }
+            String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+
+        String[] readStrings() {
+            String[] values = new String[readCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        long[] readSorted() {
+            long[] values = new long[readCount()];
+            if (values.length == 0) {
+                return values;
+            }
+            values[0] = readLong();
+            for (int i = 1; i < values.length; i++) {
+                values[i] = values[i - 1] + readVarint();
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,1159 @@
+package com.springframework.ext.common.bts;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 编译后的分桶测试：不可变，可在多线程间安全共享，bucket(long)不分配对象，结果与BucketTest一致
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class CompiledBucketTest {
+    /** 实例id生成器 */
+    private static final AtomicInteger IDS = new AtomicInteger();
+    /** 放量抽样的槽位数 */
+    static final int RAMP_SLOTS = 1000000;
+    /** 分组的槽位数：按权重划分，权重比例的误差不超过百万分之一 */
+    static final int ARM_SLOTS = 1000000;
+    /** 不受时间限制的窗口 */
+    private static final Window ALWAYS = new Window(Long.MIN_VALUE, Long.MAX_VALUE, 0, RAMP_SLOTS);
+    /** 空测试 */
+    private static final CompiledBucketTest EMPTY = new Builder().build();
+    /** 分桶结果码：命中黑名单，桶号为-1 */
+    static final int EXCLUDED = -2;
+    /** 分桶结果码：命中白名单，桶号为0 */
+    static final int WHITELISTED = -3;
+    /** 实例id：每个实例唯一，不为0，用于{@link BucketMemo}与{@link BucketMetrics} */
+    private final int id;
+    /** 分桶标识 */
+    private final String name;
+    /** 分桶状态: 0 未启用, 1 启用中, 2 已失效 */
+    private final int status;
+    /** 是否启用 */
+    private final boolean enable;
+    /** 分流比例 */
+    private final int percent;
+    /** 样品份数：已校验，必定大于0 */
+    private final int basic;
+    /** hash策略 */
+    private final BucketHash hash;
+    /** 实验名hash：用于分层正交实验 */
+    private final long salt;
+    /** 实验名的64位hash：粘性分桶记录中的实验标识，与hash策略无关 */
+    private final long stickyKey;
+    /** 白名单：命中列表 */
+    private final LongSet hits;
+    /** 白名单中的非数字项，用于还原配置 */
+    private final String[] hitNames;
+    /** 白名单中非数字项的hash，用于字符串索引 */
+    private final LongSet hitKeys;
+    /** 黑名单：跳过列表 */
+    private final LongSet excludes;
+    /** 黑名单中的非数字项 */
+    private final String[] excludeNames;
+    /** 黑名单中非数字项的hash */
+    private final LongSet excludeKeys;
+    /** 分组标识 */
+    private final String[] armNames;
+    /** 分组权重 */
+    private final int[] armWeights;
+    /** 分组区间：第i个分组的槽位范围为[armBounds[i-1], armBounds[i]) */
+    private final int[] armBounds;
+    /** 分组的hash salt：与分桶、放量hash相互独立，调整percent不改变已有索引的分组 */
+    private final long armSalt;
+    /** 所在的层，null表示不分层 */
+    private final String layer;
+    /** 层的hash salt：同层实验相同，不同层相互独立 */
+    private final long layerSalt;
+    /** 层内流量区间的起点（槽位） */
+    private final long layerOffset;
+    /** 层内流量区间的长度（槽位） */
+    private final long layerWidth;
+    /** 开始时间，0表示不限 */
+    private final long startTime;
+    /** 结束时间（不包含），0表示不限 */
+    private final long endTime;
+    /** 放量时间点，升序 */
+    private final long[] rampTimes;
+    /** 各时间点生效的分流比例，单调不减 */
+    private final int[] rampPercents;
+    /** 是否有时间窗口或放量计划 */
+    private final boolean timed;
+    /** 放量抽样的hash salt：与分桶hash相互独立，放量不改变桶号与分组 */
+    private final long rampSalt;
+    /** 定向规则原文，null表示不限 */
+    private final String ruleText;
+    /** 编译后的定向规则 */
+    private final BucketRule rule;
+    /** 属性为空时规则的判断结果：不带属性的分桶按此结果处理 */
+    private final boolean ruleDefault;
+    /** 扩展配置：首次访问时才解码 */
+    private final JsonText extra;
+    /** 原始配置：由配置流式构建时，首次访问时才还原 */
+    private volatile BucketTest definition;
+    /** 当前时间所在的窗口：到期后重新计算，良性竞争 */
+    private Window window;
+
+    private CompiledBucketTest(Builder builder) {
+        this.id = nextId();
+        this.name = builder.name;
+        this.status = builder.status;
+        this.enable = builder.status == 1;
+        this.percent = builder.percent;
+        this.basic = builder.basic <= 0 ? 100 : builder.basic;
+        this.hash = BucketHash.of(builder.hash);
+        this.salt = hash.salt(name);
+        this.stickyKey = BucketHash.hash64(name);
+        this.hits = builder.hits;
+        this.hitNames = builder.hitNames;
+        this.hitKeys = keys(builder.hitNames);
+        this.excludes = builder.excludes;
+        this.excludeNames = builder.excludeNames;
+        this.excludeKeys = keys(builder.excludeNames);
+        this.armNames = builder.armNames;
+        this.armWeights = builder.armWeights;
+        this.armBounds = bounds(builder.armWeights);
+        this.layer = StringUtils.isEmpty(builder.layer) ? null : builder.layer;
+        this.layerSalt = BucketHash.hash64(layer);
+        this.layerOffset = 0;
+        this.layerWidth = BucketLayers.width(percent, basic);
+        this.startTime = builder.startTime;
+        this.endTime = builder.endTime;
+        this.rampTimes = builder.rampTimes;
+        this.rampPercents = builder.rampPercents;
+        this.timed = startTime != 0 || endTime != 0 || rampTimes.length > 0;
+        this.rampSalt = BucketHash.fmix64(salt ^ 0x9E3779B97F4A7C15L);
+        this.armSalt = BucketHash.fmix64(salt ^ 0xC2B2AE3D27D4EB4FL);
+        this.ruleText = StringUtils.isBlank(builder.rule) ? null : builder.rule;
+        this.rule = ruleText == null ? null : BucketRule.compile(ruleText);
+        this.ruleDefault = rule == null || rule.matches(new BucketContext());
+        this.extra = builder.extra;
+        this.definition = builder.definition;
+        if (timed) {
+            BucketClock.start();
+            this.window = window(BucketClock.now());
+        } else {
+            this.window = ALWAYS;
+        }
+    }
+
+    private CompiledBucketTest(CompiledBucketTest source, long layerOffset, long layerWidth) {
+        this.id = nextId();
+        this.name = source.name;
+        this.status = source.status;
+        this.enable = source.enable;
+        this.percent = source.percent;
+        this.basic = source.basic;
+        this.hash = source.hash;
+        this.salt = source.salt;
+        this.stickyKey = source.stickyKey;
+        this.hits = source.hits;
+        this.hitNames = source.hitNames;
+        this.hitKeys = source.hitKeys;
+        this.excludes = source.excludes;
+        this.excludeNames = source.excludeNames;
+        this.excludeKeys = source.excludeKeys;
+        this.armNames = source.armNames;
+        this.armWeights = source.armWeights;
+        this.armBounds = source.armBounds;
+        this.armSalt = source.armSalt;
+        this.layer = source.layer;
+        this.layerSalt = source.layerSalt;
+        this.layerOffset = layerOffset;
+        this.layerWidth = layerWidth;
+        this.startTime = source.startTime;
+        this.endTime = source.endTime;
+        this.rampTimes = source.rampTimes;
+        this.rampPercents = source.rampPercents;
+        this.timed = source.timed;
+        this.rampSalt = source.rampSalt;
+        this.ruleText = source.ruleText;
+        this.rule = source.rule;
+        this.ruleDefault = source.ruleDefault;
+        this.extra = source.extra;
+        // 原始配置绑定了编译实例，区间不同的实例各自还原
+        this.window = source.window;
+    }
+
+    /**
+     * 按累计权重把[0, ARM_SLOTS)划分为各分组的区间：不受percent影响，percent很小时各分组比例依然准确
+     */
+    private static int[] bounds(int[] weights) {
+        long total = 0;
+        for (int weight : weights) {
+            total += Math.max(weight, 0);
+        }
+        if (total == 0) {
+            return new int[0];
+        }
+        int[] bounds = new int[weights.length];
+        long cumulative = 0;
+        for (int i = 0; i < weights.length; i++) {
+            cumulative += Math.max(weights[i], 0);
+            bounds[i] = (int) (ARM_SLOTS * cumulative / total);
+        }
+        return bounds;
+    }
+
+    private static LongSet keys(String[] names) {
+        if (names.length == 0) {
+            return LongHashSet.EMPTY;
+        }
+        long[] keys = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = key(names[i]);
+        }
+        return LongSets.of(keys);
+    }
+
+    /**
+     * 非数字字符串索引的hash：取非负值，保证LEGACY取模不溢出
+     */
+    static long key(CharSequence value) {
+        return BucketHash.hash64(value) >>> 1;
+    }
+
+    /**
+     * @return 字符串索引在BucketAssignment中记录的索引：规范的数字串为其数值，其余为key(value)
+     */
+    static long indexOf(CharSequence value) {
+        int length = value.length();
+        long index = BucketConfigParser.parseCanonicalLong(value, 0, length);
+        if (index != Long.MIN_VALUE || BucketConfigParser.isMinValue(value, 0, length)) {
+            return index;
+        }
+        return key(value);
+    }
+
+    private static int nextId() {
+        int id;
+        do {
+            id = IDS.incrementAndGet();
+        } while (id == 0);
+        return id;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    public static CompiledBucketTest empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 判断当前索引值是否在分桶测试中
+     *
+     * @param index 索引值
+     * @return 索引值是否在分桶测试中
+     */
+    public boolean isBucket(long index) {
+        return bucket(index) >= 0;
+    }
+
+    /**
+     * 分桶计算，规则同{@link BucketTest#bucket(long)}
+     *
+     * @param index 索引值
+     * @return 桶号，未命中返回-1
+     */
+    public int bucket(long index) {
+        return bucketOf(evaluate(index));
+    }
+
+    /**
+     * 分桶计算，返回结果码：非负为按hash命中的桶号，-1为未命中，{@link #EXCLUDED}、{@link #WHITELISTED}为名单命中
+     *
+     * @param index 索引值
+     * @return 结果码，由{@link #bucketOf(int)}转换为桶号
+     */
+    int evaluate(long index) {
+        /** 分桶不可用状态，或不在时间窗口内 */
+        if (!enable || timed && closed()) {
+            return -1;
+        }
+
+        /** 黑名单验证 */
+        if (excludes.contains(index)) {
+            return EXCLUDED;
+        }
+
+        /** 白名单验证 */
+        if (hits.contains(index)) {
+            return WHITELISTED;
+        }
+
+        return position(index);
+    }
+
+    /**
+     * @param outcome 结果码
+     * @return 桶号，未命中返回-1
+     */
+    static int bucketOf(int outcome) {
+        return outcome >= -1 ? outcome : outcome == WHITELISTED ? 0 : -1;
+    }
+
+    /**
+     * 带属性的分桶计算：先按白名单/黑名单判断，再判断定向规则，满足后按hash分桶
+     *
+     * @param index   索引值
+     * @param context 属性上下文，null时同bucket(index)
+     * @return 桶号，未命中返回-1
+     */
+    public int bucket(long index, BucketContext context) {
+        return bucketOf(evaluate(index, context));
+    }
+
+    /**
+     * 带属性的分桶计算，返回结果码
+     */
+    int evaluate(long index, BucketContext context) {
+        if (rule == null || context == null) {
+            return evaluate(index);
+        }
+        if (!enable || timed && closed()) {
+            return -1;
+        }
+        if (excludes.contains(index)) {
+            return EXCLUDED;
+        }
+        if (hits.contains(index)) {
+            return WHITELISTED;
+        }
+        return rule.matches(context) ? place(index) : -1;
+    }
+
+    public boolean isBucket(long index, BucketContext context) {
+        return bucket(index, context) >= 0;
+    }
+
+    /**
+     * 字符串索引的分桶计算：规范的数字串与对应的long索引结果相同，其余按hash分桶
+     *
+     * @param key 索引值，如浏览器uuid
+     * @return 桶号，未命中返回-1
+     */
+    public int bucket(CharSequence key) {
+        if (key == null) {
+            return -1;
+        }
+        int length = key.length();
+        long index = BucketConfigParser.parseCanonicalLong(key, 0, length);
+        if (index != Long.MIN_VALUE || BucketConfigParser.isMinValue(key, 0, length)) {
+            return bucket(index);
+        }
+        return bucketKey(key(key));
+    }
+
+    /**
+     * UUID索引的分桶计算：与bucket(uuid.toString())结果相同，但不创建字符串
+     */
+    public int bucket(UUID key) {
+        if (key == null) {
+            return -1;
+        }
+        return bucketKey(BucketHash.hash64(key) >>> 1);
+    }
+
+    /**
+     * 字节数组索引的分桶计算：白名单/黑名单按字节内容的hash匹配，不与字符串形式互通
+     */
+    public int bucket(byte[] key) {
+        if (key == null) {
+            return -1;
+        }
+        return bucketKey(BucketHash.hash64(key) >>> 1);
+    }
+
+    public boolean isBucket(CharSequence key) {
+        return bucket(key) >= 0;
+    }
+
+    public boolean isBucket(UUID key) {
+        return bucket(key) >= 0;
+    }
+
+    /**
+     * 已hash的非数字索引的分桶计算：白名单/黑名单按hash匹配
+     *
+     * @param key 索引值的hash，见key(CharSequence)
+     * @return 桶号，未命中返回-1
+     */
+    int bucketKey(long key) {
+        return bucketOf(evaluateKey(key));
+    }
+
+    /**
+     * 已hash的非数字索引的分桶计算，返回结果码
+     */
+    int evaluateKey(long key) {
+        if (!enable || timed && closed()) {
+            return -1;
+        }
+        if (excludeKeys.contains(key)) {
+            return EXCLUDED;
+        }
+        if (hitKeys.contains(key)) {
+            return WHITELISTED;
+        }
+        return position(key);
+    }
+
+    /**
+     * 白名单/黑名单之后的分桶计算：不带属性时按属性为空判断定向规则
+     */
+    private int position(long index) {
+        return ruleDefault ? place(index) : -1;
+    }
+
+    /**
+     * 定向规则之后的分桶计算
+     */
+    private int place(long index) {
+        /** 分流比例小于0, 不走bts */
+        if (percent <= 0) {
+            return -1;
+        }
+
+        /** 分层实验：按层内位置计算 */
+        if (layer != null) {
+            return admit(index, layerBucket(BucketLayers.position(layerSalt, index)));
+        }
+
+        /** 计算hash桶 */
+        long bucket = hash.position(salt, index, basic);
+
+        return bucket < percent ? admit(index, (int) bucket) : -1;
+    }
+
+    /**
+     * 分层实验的分桶计算：层内位置已由调用方算好，同层的多个实验共用
+     *
+     * @param index    索引值
+     * @param position 索引值在本层的位置
+     * @return 结果码，见{@link #evaluate(long)}
+     */
+    int evaluate(long index, long position) {
+        if (!enable || timed && closed()) {
+            return -1;
+        }
+        if (excludes.contains(index)) {
+            return EXCLUDED;
+        }
+        if (hits.contains(index)) {
+            return WHITELISTED;
+        }
+        if (percent <= 0 || !ruleDefault) {
+            return -1;
+        }
+        return admit(index, layerBucket(position));
+    }
+
+    /**
+     * 分层实验中已hash的非数字索引的分桶计算，返回结果码
+     */
+    int evaluateKey(long key, long position) {
+        if (!enable || timed && closed()) {
+            return -1;
+        }
+        if (excludeKeys.contains(key)) {
+            return EXCLUDED;
+        }
+        if (hitKeys.contains(key)) {
+            return WHITELISTED;
+        }
+        if (percent <= 0 || !ruleDefault) {
+            return -1;
+        }
+        return admit(key, layerBucket(position));
+    }
+
+    /**
+     * @return 当前是否在时间窗口之外
+     */
+    private boolean closed() {
+        return window().percent < 0;
+    }
+
+    /**
+     * 放量抽样：按与分桶独立的hash抽取当前比例的索引，比例只增不减，已进入的索引不会退出
+     *
+     * @param index  索引值
+     * @param bucket 按完整percent计算的桶号
+     * @return 被抽中时返回桶号，否则返回-1
+     */
+    private int admit(long index, int bucket) {
+        if (!timed || bucket < 0) {
+            return bucket;
+        }
+        int threshold = window().threshold;
+        if (threshold >= RAMP_SLOTS) {
+            return bucket;
+        }
+        return Long.remainderUnsigned(BucketHash.fmix64(index ^ rampSalt), RAMP_SLOTS) < threshold ? bucket : -1;
+    }
+
+    private Window window() {
+        long now = BucketClock.now();
+        Window window = this.window;
+        if (now < window.from || now >= window.until) {
+            window = window(now);
+            this.window = window;
+        }
+        return window;
+    }
+
+    /**
+     * 计算时间点所在的窗口：窗口内的有效比例不变
+     */
+    private Window window(long now) {
+        if (startTime != 0 && now < startTime) {
+            return new Window(Long.MIN_VALUE, startTime, -1, 0);
+        }
+        if (endTime != 0 && now >= endTime) {
+            return new Window(endTime, Long.MAX_VALUE, -1, 0);
+        }
+
+        long from = startTime == 0 ? Long.MIN_VALUE : startTime;
+        long until = endTime == 0 ? Long.MAX_VALUE : endTime;
+        int effective = rampTimes.length == 0 ? percent : 0;
+        for (int i = 0; i < rampTimes.length; i++) {
+            if (rampTimes[i] > now) {
+                until = Math.min(until, rampTimes[i]);
+                break;
+            }
+            from = Math.max(from, rampTimes[i]);
+            effective = rampPercents[i];
+        }
+        effective = Math.max(0, Math.min(effective, percent));
+        int threshold = percent <= 0 ? 0 : (int) ((long) effective * RAMP_SLOTS / percent);
+        return new Window(from, until, effective, threshold);
+    }
+
+    /**
+     * @return 当前有效的分流比例：不在时间窗口内时为0
+     */
+    public int effectivePercent() {
+        if (!timed) {
+            return percent;
+        }
+        return Math.max(window().percent, 0);
+    }
+
+    /**
+     * 层内位置落在本实验的区间时，把区间内的偏移等比换算为[0, percent)的桶号
+     */
+    private int layerBucket(long position) {
+        long offset = position - layerOffset;
+        if (offset < 0 || offset >= layerWidth) {
+            return -1;
+        }
+        return (int) (offset * basic / BucketLayers.SLOTS);
+    }
+
+    /**
+     * @return 层内区间起点为layerOffset、长度为layerWidth的实例，区间不变时返回自身
+     */
+    CompiledBucketTest withLayerRange(long layerOffset, long layerWidth) {
+        if (this.layerOffset == layerOffset && this.layerWidth == layerWidth) {
+            return this;
+        }
+        return new CompiledBucketTest(this, layerOffset, layerWidth);
+    }
+
+    /**
+     * 分组计算，规则同{@link BucketTest#variant(long)}
+     *
+     * @param index 索引值
+     * @return 分组标识，不在实验中或未配置分组时返回null
+     */
+    public String variant(long index) {
+        return armName(variantIndex(index));
+    }
+
+    /**
+     * @return 分组下标对应的分组标识，-1时返回null
+     */
+    String armName(int arm) {
+        return arm < 0 ? null : armNames[arm];
+    }
+
+    /**
+     * 分组计算
+     *
+     * @param index 索引值
+     * @return 分组下标（与配置顺序一致），不在实验中或未配置分组时返回-1
+     */
+    public int variantIndex(long index) {
+        if (armBounds.length == 0) {
+            return -1;
+        }
+        return variantOf(index, bucket(index));
+    }
+
+    /**
+     * 进入实验的索引按独立的hash落在[0, ARM_SLOTS)的槽位上，槽位所在的权重区间即为分组；白名单同样按权重分配
+     *
+     * @param index  索引值，非数字索引时为其hash
+     * @param bucket 索引的桶号
+     * @return 分组下标，不在实验中或未配置分组时返回-1
+     */
+    int variantOf(long index, int bucket) {
+        int[] bounds = this.armBounds;
+        if (bucket < 0 || bounds.length == 0) {
+            return -1;
+        }
+        long slot = Long.remainderUnsigned(BucketHash.fmix64(index ^ armSalt), ARM_SLOTS);
+        for (int i = 0; i < bounds.length; i++) {
+            if (slot < bounds[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 批量分桶计算：buckets[i] = bucket(indexes[i])
+     *
+     * @param indexes 索引值
+     * @param buckets 桶号输出，长度不小于indexes
+     */
+    public void bucket(long[] indexes, int[] buckets) {
+        bucket(indexes, 0, indexes.length, buckets);
+    }
+
+    /**
+     * 批量分桶计算：对[from, to)区间内的索引计算桶号，结果写入buckets的相同位置
+     * <pre>
+     *     没有白名单/黑名单时走纯算术循环：无分支调用、无对象分配，便于JIT展开
+     * </pre>
+     *
+     * @param indexes 索引值
+     * @param from    起始位置（包含）
+     * @param to      结束位置（不包含）
+     * @param buckets 桶号输出
+     */
+    public void bucket(long[] indexes, int from, int to, int[] buckets) {
+        bucket(indexes, from, to, buckets, from);
+    }
+
+    /**
+     * 批量分桶计算：indexes[from + i]的桶号写入buckets[offset + i]
+     */
+    void bucket(long[] indexes, int from, int to, int[] buckets, int offset) {
+        if (!enable || (percent <= 0 && hits.isEmpty())) {
+            Arrays.fill(buckets, offset, offset + to - from, -1);
+            return;
+        }
+
+        final int shift = offset - from;
+        if (layer == null && !timed && rule == null && hits.isEmpty() && excludes.isEmpty()) {
+            final long salt = this.salt;
+            final int basic = this.basic;
+            final long percent = this.percent;
+            if (hash == BucketHash.LEGACY) {
+                for (int i = from; i < to; i++) {
+                    long bucket = Math.abs(indexes[i] + salt) % basic;
+                    buckets[i + shift] = bucket < percent ? (int) bucket : -1;
+                }
+            } else {
+                final BucketHash hash = this.hash;
+                for (int i = from; i < to; i++) {
+                    long bucket = hash.position(salt, indexes[i], basic);
+                    buckets[i + shift] = bucket < percent ? (int) bucket : -1;
+                }
+            }
+            return;
+        }
+
+        for (int i = from; i < to; i++) {
+            buckets[i + shift] = bucket(indexes[i]);
+        }
+    }
+
+    /**
+     * @return 编译前的原始配置，compile()返回本实例，分层实验保留层内区间
+     */
+    BucketTest definition() {
+        BucketTest definition = this.definition;
+        if (definition == null) {
+            definition = new BucketTest();
+            definition.setName(name);
+            definition.setStatus(status);
+            definition.setPercent(percent);
+            definition.setBasic(basic);
+            definition.setHash(hash == BucketHash.LEGACY ? null : hash.name().toLowerCase());
+            definition.setHits(toSet(hits, hitNames));
+            definition.setExcludes(toSet(excludes, excludeNames));
+            definition.setExtra(getExtra());
+            definition.setArms(toArms(armNames, armWeights));
+            definition.setLayer(layer);
+            definition.setStartTime(startTime);
+            definition.setEndTime(endTime);
+            definition.setRamps(toRamps(rampTimes, rampPercents));
+            definition.setRule(ruleText);
+            definition.bind(this);
+            this.definition = definition;
+        }
+        return definition;
+    }
+
+    private static List<BucketArm> toArms(String[] names, int[] weights) {
+        if (names.length == 0) {
+            return null;
+        }
+        List<BucketArm> arms = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            arms.add(new BucketArm(names[i], weights[i]));
+        }
+        return arms;
+    }
+
+    private static List<BucketRamp> toRamps(long[] times, int[] percents) {
+        if (times.length == 0) {
+            return null;
+        }
+        List<BucketRamp> ramps = new ArrayList<>(times.length);
+        for (int i = 0; i < times.length; i++) {
+            ramps.add(new BucketRamp(times[i], percents[i]));
+        }
+        return ramps;
+    }
+
+    private static Set<String> toSet(LongSet numbers, String[] names) {
+        if (numbers.isEmpty() && names.length == 0) {
+            return null;
+        }
+        Set<String> set = new LinkedHashSet<>((numbers.size() + names.length) * 2);
+        for (long number : numbers.toArray()) {
+            set.add(String.valueOf(number));
+        }
+        set.addAll(Arrays.asList(names));
+        return set;
+    }
+
+    /**
+     * @return 白名单、黑名单占用的堆内存估算（字节）
+     */
+    long memoryBytes() {
+        return hits.memoryBytes() + excludes.memoryBytes() + hitKeys.memoryBytes() + excludeKeys.memoryBytes();
+    }
+
+    /**
+     * @return 白名单、黑名单占用的堆外内存（字节）
+     */
+    long offHeapBytes() {
+        return hits.offHeapBytes() + excludes.offHeapBytes() + hitKeys.offHeapBytes() + excludeKeys.offHeapBytes();
+    }
+
+    public boolean isEmpty() {
+        return StringUtils.isEmpty(name);
+    }
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPercent() {
+        return percent;
+    }
+
+    public int getBasic() {
+        return basic;
+    }
+
+    public BucketHash getHash() {
+        return hash;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    LongSet hits() {
+        return hits;
+    }
+
+    String[] hitNames() {
+        return hitNames;
+    }
+
+    LongSet excludes() {
+        return excludes;
+    }
+
+    /**
+     * @return 是否配置了白名单/黑名单（含非数字项）
+     */
+    boolean hasLists() {
+        return !hits.isEmpty() || !excludes.isEmpty() || !hitKeys.isEmpty() || !excludeKeys.isEmpty();
+    }
+
+    String[] excludeNames() {
+        return excludeNames;
+    }
+
+    /**
+     * @return 所在的层，null表示不分层
+     */
+    public String getLayer() {
+        return layer;
+    }
+
+    int id() {
+        return id;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @return 定向规则原文，null表示不限
+     */
+    public String getRule() {
+        return ruleText;
+    }
+
+    long[] rampTimes() {
+        return rampTimes;
+    }
+
+    int[] rampPercents() {
+        return rampPercents;
+    }
+
+    /**
+     * @param keyed 是否为非数字索引：与数字索引分开记录，避免hash与id相同时串用
+     * @return 粘性分桶记录中的实验标识
+     */
+    long stickyKey(boolean keyed) {
+        return keyed ? stickyKey ^ 1 : stickyKey;
+    }
+
+    /**
+     * 判断已记录的粘性桶号是否仍然有效
+     * <pre>
+     *     percent、basic、hash策略变化时已曝光的索引保持原桶号；以下情况按当前配置计算：
+     *     1. 停用实验、不在时间窗口内、缩量到桶号之下
+     *     2. 加入黑名单；在白名单中（白名单固定为0号桶，不记录，移出白名单后按hash分桶）
+     *     3. 不满足定向规则：按本次调用的属性判断，不带属性时按属性为空判断
+     *     4. 分层实验的区间重新划分后，层内位置已不在本实验的区间，避免同层两个实验同时命中
+     * </pre>
+     *
+     * @param index   索引值，keyed时为非数字索引的hash
+     * @param bucket  已记录的桶号
+     * @param keyed   是否为非数字索引
+     * @param context 属性上下文，null表示不带属性
+     * @return 是否沿用已记录的桶号
+     */
+    boolean retains(long index, int bucket, boolean keyed, BucketContext context) {
+        if (bucket < 0 || bucket >= percent || !enable || timed && closed()) {
+            return false;
+        }
+        if ((keyed ? excludeKeys : excludes).contains(index) || (keyed ? hitKeys : hits).contains(index)) {
+            return false;
+        }
+        if (!(rule == null || context == null ? ruleDefault : rule.matches(context))) {
+            return false;
+        }
+        return layer == null || layerBucket(BucketLayers.position(layerSalt, index)) >= 0;
+    }
+
+    long layerSalt() {
+        return layerSalt;
+    }
+
+    long layerOffset() {
+        return layerOffset;
+    }
+
+    long layerWidth() {
+        return layerWidth;
+    }
+
+    String[] armNames() {
+        return armNames;
+    }
+
+    int[] armWeights() {
+        return armWeights;
+    }
+
+    /**
+     * @return 各分组在[0, ARM_SLOTS)中的累计上界，未配置分组时为空数组
+     */
+    int[] armBounds() {
+        return armBounds;
+    }
+
+    /**
+     * @return 属性为空时定向规则的结果，未配置规则时为true
+     */
+    boolean ruleDefault() {
+        return ruleDefault;
+    }
+
+    public String getExtra() {
+        return extra == null ? null : extra.value();
+    }
+
+    /**
+     * 构建器：字段均为原始配置值，build时统一校验与预计算
+     */
+    static final class Builder {
+        private static final String[] NO_NAMES = new String[0];
+        private static final int[] NO_WEIGHTS = new int[0];
+        private static final long[] NO_TIMES = new long[0];
+
+        private String name;
+        private int status;
+        private int percent = 1;
+        private int basic = 100;
+        private String hash;
+        private LongSet hits = LongHashSet.EMPTY;
+        private String[] hitNames = NO_NAMES;
+        private LongSet excludes = LongHashSet.EMPTY;
+        private String[] excludeNames = NO_NAMES;
+        private String[] armNames = NO_NAMES;
+        private int[] armWeights = NO_WEIGHTS;
+        private String layer;
+        private long startTime;
+        private long endTime;
+        private long[] rampTimes = NO_TIMES;
+        private int[] rampPercents = NO_WEIGHTS;
+        private String rule;
+        private JsonText extra;
+        private BucketTest definition;
+
+        /**
+         * 由BucketTest构建：白名单/黑名单中规范的数字串转为long，其余保留为名称
+         */
+        static Builder from(BucketTest bucketTest) {
+            Builder builder = new Builder()
+                    .name(bucketTest.getName())
+                    .status(bucketTest.getStatus())
+                    .percent(bucketTest.getPercent())
+                    .basic(bucketTest.getBasic())
+                    .hash(bucketTest.getHash())
+                    .layer(bucketTest.getLayer())
+                    .startTime(bucketTest.getStartTime())
+                    .endTime(bucketTest.getEndTime())
+                    .rule(bucketTest.getRule())
+                    .extra(JsonText.of(bucketTest.getExtra()));
+            builder.definition = bucketTest;
+
+            List<String> hitNames = new ArrayList<>();
+            long[] hits = toLongs(bucketTest.getHits(), hitNames);
+            builder.hits(hits, hitNames.toArray(new String[hitNames.size()]));
+
+            List<String> excludeNames = new ArrayList<>();
+            long[] excludes = toLongs(bucketTest.getExcludes(), excludeNames);
+            builder.excludes(excludes, excludeNames.toArray(new String[excludeNames.size()]));
+
+            List<BucketArm> arms = bucketTest.getArms();
+            if (arms != null) {
+                String[] armNames = new String[arms.size()];
+                int[] armWeights = new int[arms.size()];
+                for (int i = 0; i < armNames.length; i++) {
+                    BucketArm arm = arms.get(i);
+                    armNames[i] = arm == null ? null : arm.getName();
+                    armWeights[i] = arm == null ? 0 : arm.getWeight();
+                }
+                builder.arms(armNames, armWeights);
+            }
+
+            List<BucketRamp> ramps = bucketTest.getRamps();
+            if (ramps != null) {
+                long[] rampTimes = new long[ramps.size()];
+                int[] rampPercents = new int[ramps.size()];
+                int size = 0;
+                for (BucketRamp ramp : ramps) {
+                    if (ramp != null) {
+                        rampTimes[size] = ramp.getTime();
+                        rampPercents[size++] = ramp.getPercent();
+                    }
+                }
+                builder.ramps(Arrays.copyOf(rampTimes, size), Arrays.copyOf(rampPercents, size));
+            }
+            return builder;
+        }
+
+        Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        Builder status(int status) {
+            this.status = status;
+            return this;
+        }
+
+        Builder percent(int percent) {
+            this.percent = percent;
+            return this;
+        }
+
+        Builder basic(int basic) {
+            this.basic = basic;
+            return this;
+        }
+
+        Builder hash(String hash) {
+            this.hash = hash;
+            return this;
+        }
+
+        Builder layer(String layer) {
+            this.layer = layer;
+            return this;
+        }
+
+        Builder hits(long[] hits, String[] hitNames) {
+            return hits(LongSets.of(hits), hitNames);
+        }
+
+        Builder hits(LongSet hits, String[] hitNames) {
+            this.hits = hits;
+            this.hitNames = hitNames == null ? NO_NAMES : hitNames;
+            return this;
+        }
+
+        Builder excludes(long[] excludes, String[] excludeNames) {
+            return excludes(LongSets.of(excludes), excludeNames);
+        }
+
+        Builder excludes(LongSet excludes, String[] excludeNames) {
+            this.excludes = excludes;
+            this.excludeNames = excludeNames == null ? NO_NAMES : excludeNames;
+            return this;
+        }
+
+        Builder arms(String[] armNames, int[] armWeights) {
+            if (armNames == null || armWeights == null || armNames.length != armWeights.length) {
+                throw new IllegalArgumentException("arm names and weights must have the same length");
+            }
+            this.armNames = armNames;
+            this.armWeights = armWeights;
+            return this;
+        }
+
+        Builder rule(String rule) {
+            this.rule = rule;
+            return this;
+        }
+
+        Builder startTime(long startTime) {
+            this.startTime = startTime;
+            return this;
+        }
+
+        Builder endTime(long endTime) {
+            this.endTime = endTime;
+            return this;
+        }
+
+        /**
+         * 放量计划：按时间排序，比例按累计最大值取单调不减，保证已进入的索引不会退出
+         */
+        Builder ramps(long[] rampTimes, int[] rampPercents) {
+            if (rampTimes == null || rampPercents == null || rampTimes.length != rampPercents.length) {
+                throw new IllegalArgumentException("ramp times and percents must have the same length");
+            }
+            Integer[] order = new Integer[rampTimes.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(rampTimes[a], rampTimes[b]));
+            this.rampTimes = new long[order.length];
+            this.rampPercents = new int[order.length];
+            int max = 0;
+            for (int i = 0; i < order.length; i++) {
+                max = Math.max(max, rampPercents[order[i]]);
+                this.rampTimes[i] = rampTimes[order[i]];
+                this.rampPercents[i] = max;
+            }
+            return this;
+        }
+
+        Builder extra(JsonText extra) {
+            this.extra = extra;
+            return this;
+        }
+
+        CompiledBucketTest build() {
+            return new CompiledBucketTest(this);
+        }
+
+        /**
+         * 规范的数字串转为long返回，其余的非数字项放入names
+         */
+        private static long[] toLongs(Set<String> values, List<String> names) {
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            long[] numbers = new long[values.size()];
+            int size = 0;
+            for (String value : values) {
+                // 只有规范的数字串才可能与String.valueOf(index)相等
+                Long number = parseLong(value);
+                if (number != null) {
+                    numbers[size++] = number;
+                } else if (value != null) {
+                    names.add(value);
+                }
+            }
+            return size == numbers.length ? numbers : Arrays.copyOf(numbers, size);
+        }
+
+        private static Long parseLong(String value) {
+            if (StringUtils.isEmpty(value)) {
+                return null;
+            }
+            try {
+                long number = Long.parseLong(value);
+                return String.valueOf(number).equals(value) ? number : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 时间窗口：[from, until)内的有效比例不变
+     */
+    private static final class Window {
+        /** 起始时间（包含） */
+        final long from;
+        /** 结束时间（不包含） */
+        final long until;
+        /** 有效分流比例，-1表示不在实验时间内 */
+        final int percent;
+        /** 放量抽样阈值：[0, RAMP_SLOTS] */
+        final int threshold;
+
+        Window(long from, long until, int percent, int threshold) {
+            this.from = from;
+            this.until = until;
+            this.percent = percent;
+            this.threshold = threshold;
+        }
+    }
+}
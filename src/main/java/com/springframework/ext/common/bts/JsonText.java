@@ -0,0 +1,50 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 配置中的一段json值：只保留该值的原始文本，首次访问时才去转义；不引用整个配置，配置字符串在加载后即可回收
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class JsonText {
+    /** 未去转义的原始文本，不需要去转义时为null */
+    private final String raw;
+    /** 解码后的值 */
+    private volatile String value;
+
+    private JsonText(String raw, String value) {
+        this.raw = raw;
+        this.value = value;
+    }
+
+    /**
+     * @param value 已解码的值
+     */
+    static JsonText of(String value) {
+        if (value == null) {
+            return null;
+        }
+        return new JsonText(null, value);
+    }
+
+    /**
+     * @param source 原始配置
+     * @param start  起始位置，字符串时不含引号
+     * @param end    结束位置，字符串时不含引号
+     * @param quoted 是否为json字符串
+     */
+    static JsonText of(String source, int start, int end, boolean quoted) {
+        String text = source.substring(start, end);
+        // 不含转义的字符串与非字符串值原样返回，无需保留原始文本
+        return quoted && text.indexOf('\\') >= 0 ? new JsonText(text, null) : new JsonText(null, text);
+    }
+
+    String value() {
+        String value = this.value;
+        if (value == null) {
+            value = BucketConfigParser.unescape(raw, 0, raw.length());
+            this.value = value;
+        }
+        return value;
+    }
+}
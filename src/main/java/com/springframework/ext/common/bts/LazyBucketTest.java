@@ -0,0 +1,146 @@
+package com.springframework.ext.common.bts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 延迟解析的实验：只记录json片段在配置中的位置，首次访问时解析并编译
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class LazyBucketTest {
+    /** 日志对象 */
+    private static Logger logger = LoggerFactory.getLogger(LazyBucketTest.class);
+    /** 分桶配置，片段不复制；已编译的实验为null */
+    private final String bucketConfig;
+    /** 片段起始位置 */
+    private final int start;
+    /** 片段结束位置（不包含） */
+    private final int end;
+    /** 片段内容的hash，0表示未计算 */
+    private int hash;
+    /** 编译结果，null表示尚未解析 */
+    private volatile CompiledBucketTest compiled;
+
+    LazyBucketTest(String bucketConfig, int start, int end) {
+        this.bucketConfig = bucketConfig;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * 已编译的实验，如反序列化得到的实验
+     */
+    LazyBucketTest(CompiledBucketTest compiled) {
+        this(null, 0, 0);
+        this.compiled = compiled;
+    }
+
+    /**
+     * @return 是否带有json片段
+     */
+    boolean hasFragment() {
+        return bucketConfig != null;
+    }
+
+    /**
+     * 不解析片段读取实验名：只有name为不含转义的字符串、且未配置layer时可以延迟解析
+     *
+     * @return 实验名，需要立即解析时返回null
+     */
+    String name() {
+        String name = BucketConfigSplitter.field(bucketConfig, start, end, "name");
+        if (name == null || name.length() < 3 || name.charAt(0) != '"' || name.indexOf('\\') >= 0) {
+            return null;
+        }
+        // 分层实验的区间取决于同层其他实验，加载时必须解析
+        String layer = BucketConfigSplitter.field(bucketConfig, start, end, "layer");
+        if (layer != null && !"null".equals(layer)) {
+            return null;
+        }
+        return name.substring(1, name.length() - 1);
+    }
+
+    /**
+     * @return 编译后的实例，首次调用时解析（双重检查），片段格式错误时为空实验
+     */
+    CompiledBucketTest get() {
+        CompiledBucketTest compiled = this.compiled;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = this.compiled;
+                if (compiled == null) {
+                    compiled = decode();
+                    this.compiled = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * @return 编译后的实例，尚未解析时返回null
+     */
+    CompiledBucketTest peek() {
+        return compiled;
+    }
+
+    /**
+     * 加载时设置已解析的实例，须在发布前调用
+     */
+    void set(CompiledBucketTest compiled) {
+        this.compiled = compiled;
+    }
+
+    /**
+     * 立即解析，格式错误时抛出异常
+     */
+    CompiledBucketTest parse(BucketConfigStats stats) {
+        return BucketConfigParser.parseExperiment(fragment(), stats);
+    }
+
+    private CompiledBucketTest decode() {
+        long start = System.nanoTime();
+        try {
+            CompiledBucketTest bucketTest = parse(new BucketConfigStats());
+            logger.debug("decode@name:{}, elapsedMicros:{}", bucketTest.getName(), (System.nanoTime() - start) / 1000);
+            return bucketTest;
+        } catch (RuntimeException e) {
+            logger.error(String.format("decode@fragment:%s", fragment()), e);
+            return CompiledBucketTest.empty();
+        }
+    }
+
+    String fragment() {
+        return bucketConfig.substring(start, end);
+    }
+
+    /**
+     * 按片段内容判等，配置更新时复用内容未变化的实验；没有片段的实验只按引用判等
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LazyBucketTest)) {
+            return false;
+        }
+        LazyBucketTest other = (LazyBucketTest) o;
+        return bucketConfig != null && other.bucketConfig != null && end - start == other.end - other.start
+                && bucketConfig.regionMatches(start, other.bucketConfig, other.start, end - start);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+        if (hash == 0 && bucketConfig != null) {
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + bucketConfig.charAt(i);
+            }
+            this.hash = hash;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,135 @@
+package com.springframework.ext.common.bts;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的long集合：开放寻址、线性探测，contains不产生任何对象分配
+ *
+ * <pre>
+ *     1. 0作为空槽标记，值0单独用containsZero记录
+ *     2. 装载因子不超过0.5，保证探测链足够短
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class LongHashSet implements LongSet {
+    /** 空集合 */
+    static final LongHashSet EMPTY = new LongHashSet(new long[0]);
+    /** 黄金分割乘数，用于打散连续的id */
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+    /** 槽位 */
+    private final long[] table;
+    /** 槽位掩码 */
+    private final int mask;
+    /** 是否包含0 */
+    private final boolean containsZero;
+    /** 元素个数 */
+    private final int size;
+
+    private LongHashSet(long[] values) {
+        int capacity = tableSize(values.length);
+        long[] table = new long[capacity];
+        int mask = capacity - 1;
+        boolean containsZero = false;
+        int size = 0;
+
+        for (long value : values) {
+            if (value == 0) {
+                if (!containsZero) {
+                    containsZero = true;
+                    size++;
+                }
+                continue;
+            }
+            int slot = slot(value, mask);
+            while (table[slot] != 0 && table[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == 0) {
+                table[slot] = value;
+                size++;
+            }
+        }
+
+        this.table = table;
+        this.mask = mask;
+        this.containsZero = containsZero;
+        this.size = size;
+    }
+
+    static LongHashSet of(long[] values) {
+        if (values == null || values.length == 0) {
+            return EMPTY;
+        }
+        return new LongHashSet(values);
+    }
+
+    @Override
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        long[] table = this.table;
+        int slot = slot(value, mask);
+        long current;
+        while ((current = table[slot]) != 0) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 堆内存占用估算（字节）
+     */
+    @Override
+    public long memoryBytes() {
+        return 16L + table.length * 8L;
+    }
+
+    /**
+     * 导出全部元素（升序），仅用于非热点路径
+     */
+    @Override
+    public long[] toArray() {
+        long[] values = new long[size];
+        int i = 0;
+        if (containsZero) {
+            values[i++] = 0;
+        }
+        for (long value : table) {
+            if (value != 0) {
+                values[i++] = value;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private static int slot(long value, int mask) {
+        long hash = value * PHI;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int tableSize(int expected) {
+        // 至少保留一个空槽，保证探测可以终止
+        int capacity = 2;
+        while (capacity < expected * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,35 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 白名单/黑名单的long集合：contains在热点路径上调用，实现不得分配对象
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+interface LongSet {
+
+    boolean contains(long value);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return 堆内存占用估算（字节）
+     */
+    long memoryBytes();
+
+    /**
+     * @return 堆外内存占用（字节）
+     */
+    default long offHeapBytes() {
+        return 0L;
+    }
+
+    /**
+     * 导出全部元素（升序），仅用于非热点路径
+     */
+    long[] toArray();
+}
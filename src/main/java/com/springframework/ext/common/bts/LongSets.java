@@ -0,0 +1,52 @@
+package com.springframework.ext.common.bts;
+
+/**
+ * 白名单/黑名单集合的存储策略
+ *
+ * <pre>
+ *     1. 元素个数小于offHeapThreshold时存放在堆内的LongHashSet
+ *     2. 超过阈值时存放在堆外的OffHeapLongHashSet，避免大名单增加GC压力
+ *     3. 堆外集合默认加布隆过滤器前置，非成员大多不需要访问堆外表
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class LongSets {
+    /** 默认堆外阈值 */
+    private static final int DEFAULT_OFF_HEAP_THRESHOLD = 1 << 20;
+    /** 堆外阈值：元素个数不小于该值时存放在堆外 */
+    private static volatile int offHeapThreshold = DEFAULT_OFF_HEAP_THRESHOLD;
+    /** 堆外集合是否加布隆过滤器前置 */
+    private static volatile boolean bloomFilter = true;
+
+    private LongSets() {
+    }
+
+    /**
+     * 设置堆外阈值，对之后解析的配置生效
+     *
+     * @param offHeapThreshold 元素个数阈值，不大于0时全部存放在堆外，Integer.MAX_VALUE时全部存放在堆内
+     */
+    public static void setOffHeapThreshold(int offHeapThreshold) {
+        LongSets.offHeapThreshold = offHeapThreshold;
+    }
+
+    /**
+     * 设置堆外集合是否加布隆过滤器前置，对之后解析的配置生效
+     */
+    public static void setBloomFilter(boolean bloomFilter) {
+        LongSets.bloomFilter = bloomFilter;
+    }
+
+    static LongSet of(long[] values) {
+        if (values == null || values.length == 0) {
+            return LongHashSet.EMPTY;
+        }
+        if (values.length < offHeapThreshold) {
+            return LongHashSet.of(values);
+        }
+        LongSet set = new OffHeapLongHashSet(values);
+        return bloomFilter ? new BloomLongSet(values, set) : set;
+    }
+}
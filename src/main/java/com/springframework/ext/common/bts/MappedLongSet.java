@@ -0,0 +1,69 @@
+package com.springframework.ext.common.bts;
+
+import java.nio.LongBuffer;
+
+/**
+ * 基于LongBuffer的有序long集合：数据可以位于内存映射文件中，不占用堆内存
+ *
+ * <pre>
+ *     contains为二分查找，使用绝对位置读取，不修改buffer状态，可并发访问
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class MappedLongSet implements LongSet {
+    /** 升序排列、无重复的元素 */
+    private final LongBuffer values;
+    /** 元素个数 */
+    private final int size;
+
+    MappedLongSet(LongBuffer values) {
+        this.values = values;
+        this.size = values.limit();
+    }
+
+    @Override
+    public boolean contains(long value) {
+        LongBuffer values = this.values;
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long current = values.get(middle);
+            if (current < value) {
+                low = middle + 1;
+            } else if (current > value) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        // 数据位于堆外，只计算视图对象本身
+        return 64L;
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return values.capacity() * 8L;
+    }
+
+    @Override
+    public long[] toArray() {
+        long[] array = new long[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
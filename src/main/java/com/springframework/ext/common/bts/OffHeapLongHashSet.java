@@ -0,0 +1,123 @@
+package com.springframework.ext.common.bts;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * 堆外的long集合：开放寻址表存放在direct ByteBuffer中，GC不扫描、不复制
+ *
+ * <pre>
+ *     1. 探测规则与LongHashSet一致，装载因子不超过0.5
+ *     2. 堆外内存随集合不可达后由GC的Cleaner释放
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+final class OffHeapLongHashSet implements LongSet {
+    /** 黄金分割乘数，用于打散连续的id */
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+    /** 最大槽位数：保证direct buffer不超过1GB */
+    private static final int MAX_CAPACITY = 1 << 27;
+    /** 槽位 */
+    private final LongBuffer table;
+    /** 槽位掩码 */
+    private final int mask;
+    /** 是否包含0 */
+    private final boolean containsZero;
+    /** 元素个数 */
+    private final int size;
+
+    OffHeapLongHashSet(long[] values) {
+        if (values.length > MAX_CAPACITY / 2) {
+            throw new IllegalArgumentException("too many values for off-heap set: " + values.length);
+        }
+        int capacity = 2;
+        while (capacity < values.length * 2L) {
+            capacity <<= 1;
+        }
+        LongBuffer table = ByteBuffer.allocateDirect(capacity * 8).asLongBuffer();
+        int mask = capacity - 1;
+        boolean containsZero = false;
+        int size = 0;
+
+        for (long value : values) {
+            if (value == 0) {
+                if (!containsZero) {
+                    containsZero = true;
+                    size++;
+                }
+                continue;
+            }
+            int slot = slot(value, mask);
+            long current;
+            while ((current = table.get(slot)) != 0 && current != value) {
+                slot = (slot + 1) & mask;
+            }
+            if (current == 0) {
+                table.put(slot, value);
+                size++;
+            }
+        }
+
+        this.table = table;
+        this.mask = mask;
+        this.containsZero = containsZero;
+        this.size = size;
+    }
+
+    @Override
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        LongBuffer table = this.table;
+        int slot = slot(value, mask);
+        long current;
+        while ((current = table.get(slot)) != 0) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 64L;
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return (mask + 1) * 8L;
+    }
+
+    @Override
+    public long[] toArray() {
+        long[] values = new long[size];
+        int i = 0;
+        if (containsZero) {
+            values[i++] = 0;
+        }
+        for (int slot = 0; slot <= mask; slot++) {
+            long value = table.get(slot);
+            if (value != 0) {
+                values[i++] = value;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private static int slot(long value, int mask) {
+        long hash = value * PHI;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
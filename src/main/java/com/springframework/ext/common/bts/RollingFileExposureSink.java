@@ -0,0 +1,125 @@
+package com.springframework.ext.common.bts;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 按大小滚动的本地文件曝光输出：每条记录一行，字段以tab分隔
+ *
+ * <pre>
+ *     timestamp	name	index	bucket
+ *
+ *     当前文件超过maxBytes后依次重命名为file.1, file.2 ... file.{maxFiles}，最旧的文件被删除
+ * </pre>
+ *
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public final class RollingFileExposureSink implements BucketExposureSink {
+    /** 写缓冲大小 */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** 当前文件 */
+    private final Path file;
+    /** 单个文件的最大字节数 */
+    private final long maxBytes;
+    /** 保留的历史文件数 */
+    private final int maxFiles;
+    /** 行缓冲，只在写出线程上使用 */
+    private final StringBuilder line = new StringBuilder(128);
+    /** 当前输出 */
+    private Writer writer;
+    /** 当前文件已写入的字节数 */
+    private long written;
+
+    /**
+     * @param file     当前文件
+     * @param maxBytes 单个文件的最大字节数
+     * @param maxFiles 保留的历史文件数，0表示滚动时直接丢弃旧文件
+     */
+    public RollingFileExposureSink(Path file, long maxBytes, int maxFiles) {
+        if (maxBytes <= 0 || maxFiles < 0) {
+            throw new IllegalArgumentException("maxBytes must be positive and maxFiles must not be negative");
+        }
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public void write(BucketExposureBatch batch) throws IOException {
+        if (writer == null) {
+            open();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            line.setLength(0);
+            line.append(batch.getTimestamp(i)).append('\t')
+                    .append(batch.getName(i)).append('\t')
+                    .append(batch.getIndex(i)).append('\t')
+                    .append(batch.getBucket(i)).append('\n');
+            writer.append(line);
+            // 实验名通常为ASCII，按字符数估算文件大小
+            written += line.length();
+            if (written >= maxBytes) {
+                roll();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.written = Files.exists(file) ? Files.size(file) : 0;
+        this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private void roll() throws IOException {
+        close();
+        if (maxFiles == 0) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.deleteIfExists(rolled(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                Path source = rolled(i);
+                if (Files.exists(source)) {
+                    Files.move(source, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        open();
+    }
+
+    Path rolled(int i) {
+        return file.resolveSibling(file.getFileName() + "." + i);
+    }
+
+    @Override
+    public String toString() {
+        return "RollingFileExposureSink:" + file;
+    }
+}
@@ -0,0 +1,86 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketAssignmentTest {
+    private static final String BUCKET_CONFIG = "[{\"name\":\"all\",\"basic\":100,\"percent\":100,\"status\":1},"
+            + "{\"name\":\"none\",\"basic\":100,\"percent\":0,\"status\":1},"
+            + "{\"name\":\"disabled\",\"basic\":100,\"percent\":100,\"status\":2},"
+            + "{\"name\":\"white\",\"basic\":100,\"percent\":0,\"status\":1,\"hits\":[\"123450\"]}]";
+
+    @Test
+    public void bucketAll_SameAsSingle() {
+        BucketTestHelper helper = BucketTestHelper.instance(BUCKET_CONFIG);
+
+        for (long index = 123440L; index < 123460L; index++) {
+            BucketAssignment assignment = helper.bucketAll(index);
+
+            assertThat(assignment.size(), CoreMatchers.is(4));
+            for (int i = 0; i < assignment.size(); i++) {
+                assertThat(assignment.bucket(i), CoreMatchers.is(helper.bucket(assignment.getName(i), index)));
+                assertThat(assignment.isBucket(i), CoreMatchers.is(helper.isBucket(assignment.getName(i), index)));
+            }
+        }
+    }
+
+    @Test
+    public void bucketAll_Hits() {
+        BucketAssignment assignment = BucketTestHelper.instance(BUCKET_CONFIG).bucketAll(123450L);
+
+        assertThat(assignment.getIndex(), CoreMatchers.is(123450L));
+        assertThat(assignment.hitCount(), CoreMatchers.is(2));
+        assertThat(assignment.isBucket("all"), CoreMatchers.is(true));
+        assertThat(assignment.isBucket("white"), CoreMatchers.is(true));
+        assertThat(assignment.bucket("white"), CoreMatchers.is(0));
+        assertThat(assignment.isBucket("disabled"), CoreMatchers.is(false));
+        assertThat(assignment.toHits()[0], CoreMatchers.is(0b1001L));
+    }
+
+    @Test
+    public void bucketAll_ByNames() {
+        BucketAssignment assignment = BucketTestHelper.instance(BUCKET_CONFIG).bucketAll(Arrays.asList("white", "unknown", "all"), 123450L);
+
+        assertThat(assignment.size(), CoreMatchers.is(3));
+        assertThat(assignment.getName(0), CoreMatchers.is("white"));
+        assertThat(assignment.bucket(0), CoreMatchers.is(0));
+        assertThat(assignment.bucket(1), CoreMatchers.is(-1));
+        assertThat(assignment.isBucket(2), CoreMatchers.is(true));
+        assertThat(assignment.bucket("unknown"), CoreMatchers.is(-1));
+    }
+
+    @Test
+    public void bucketAll_EmptyNames() {
+        BucketAssignment assignment = BucketTestHelper.instance(BUCKET_CONFIG).bucketAll(null, 1L);
+
+        assertThat(assignment.size(), CoreMatchers.is(0));
+        assertThat(assignment.hitCount(), CoreMatchers.is(0));
+    }
+
+    @Test
+    public void bucketAll_ManyExperiments() {
+        StringBuilder config = new StringBuilder("[");
+        for (int i = 0; i < 130; i++) {
+            config.append(i == 0 ? "" : ",").append("{\"name\":\"e").append(i).append("\",\"percent\":").append(i % 2 == 0 ? 100 : 0).append(",\"status\":1}");
+        }
+        BucketAssignment assignment = BucketTestHelper.instance(config.append("]").toString()).bucketAll(42L);
+
+        assertThat(assignment.size(), CoreMatchers.is(130));
+        assertThat(assignment.hitCount(), CoreMatchers.is(65));
+        assertThat(assignment.isBucket(128), CoreMatchers.is(true));
+        assertThat(assignment.isBucket(129), CoreMatchers.is(false));
+        for (int i = 0; i < 130; i++) {
+            assertThat(assignment.isBucket(new String("e" + i)), CoreMatchers.is(i % 2 == 0));
+        }
+        assertThat(assignment.bucket("e130"), CoreMatchers.is(-1));
+        assertThat(assignment.bucket((String) null), CoreMatchers.is(-1));
+    }
+}
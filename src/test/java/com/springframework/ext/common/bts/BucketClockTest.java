@@ -0,0 +1,52 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketClockTest {
+
+    @After
+    public void tearDown() {
+        BucketClock.reset();
+    }
+
+    @Test
+    public void ticker_IgnoresInterrupt() throws Exception {
+        BucketClock.start();
+        Thread ticker = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("BucketClock-ticker".equals(thread.getName())) {
+                ticker = thread;
+            }
+        }
+        assertThat(ticker, CoreMatchers.notNullValue());
+
+        ticker.interrupt();
+        TimeUnit.MILLISECONDS.sleep(BucketClock.getTickMillis() * 5);
+        long before = BucketClock.now();
+        TimeUnit.MILLISECONDS.sleep(BucketClock.getTickMillis() * 10);
+
+        // 中断后仍在刷新，时间没有冻结
+        assertThat(ticker.isAlive(), CoreMatchers.is(true));
+        assertThat(BucketClock.now() > before, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void set_Fixed() {
+        BucketClock.start();
+        BucketClock.set(42L);
+        assertThat(BucketClock.now(), CoreMatchers.is(42L));
+
+        BucketClock.reset();
+        assertThat(BucketClock.now() > 42L, CoreMatchers.is(true));
+    }
+}
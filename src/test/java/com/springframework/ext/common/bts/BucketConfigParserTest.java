@@ -0,0 +1,117 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+import org.springframework.ext.common.helper.JsonHelper;
+
+import java.util.List;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketConfigParserTest {
+
+    @Test
+    public void parse_Fields() {
+        List<CompiledBucketTest> bucketTests = BucketConfigParser.parse("[{\"name\":\"bucket_test\", \"percent\":\"5\", \"basic\":\"0\", \"status\":1, \"hash\":\"murmur3\", \"unknown\":{\"a\":[1,{\"b\":null}]},"
+                + " \"hits\":[\"3665061551\",3700502224,\"hislist\",\"0123\",null], \"excludes\":[\"3665061555\"], \"extra\":\"{\\\"current\\\":1\\u0021\"}, null]");
+
+        assertThat(bucketTests.size(), CoreMatchers.is(1));
+        CompiledBucketTest bucketTest = bucketTests.get(0);
+        assertThat(bucketTest.getName(), CoreMatchers.is("bucket_test"));
+        assertThat(bucketTest.getPercent(), CoreMatchers.is(5));
+        assertThat(bucketTest.getBasic(), CoreMatchers.is(100));
+        assertThat(bucketTest.isEnable(), CoreMatchers.is(true));
+        assertThat(bucketTest.getHash(), CoreMatchers.is(BucketHash.MURMUR3));
+        assertThat(bucketTest.bucket(3665061551L), CoreMatchers.is(0));
+        assertThat(bucketTest.bucket(3700502224L), CoreMatchers.is(0));
+        assertThat(bucketTest.bucket(3665061555L), CoreMatchers.is(-1));
+        assertThat(bucketTest.getExtra(), CoreMatchers.is("{\"current\":1!"));
+        assertThat(bucketTest.definition().getHits().contains("hislist"), CoreMatchers.is(true));
+        assertThat(bucketTest.definition().getHits().contains("0123"), CoreMatchers.is(true));
+        assertThat(bucketTest.definition().getHits().contains("3700502224"), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void parse_ObjectExtra() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse("[{\"name\":\"a\",\"extra\":{\"current\": [1, 2]}}]").get(0);
+
+        assertThat(bucketTest.getExtra(), CoreMatchers.is("{\"current\": [1, 2]}"));
+    }
+
+    @Test
+    public void parse_SameAsJsonHelper() {
+        String bucketConfig = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":7,\"status\":1,\"hits\":[\"123\",\"hislist\"],\"excludes\":[\"456\"]},"
+                + "{\"name\":\"other\",\"percent\":30,\"status\":\"1\",\"hash\":\"xxhash\"}]";
+        List<CompiledBucketTest> parsed = BucketConfigParser.parse(bucketConfig);
+        List<BucketTest> expected = JsonHelper.fromJsonList(bucketConfig, BucketTest.class);
+
+        for (int i = 0; i < expected.size(); i++) {
+            for (long index = -1000; index < 1000; index++) {
+                assertThat(parsed.get(i).bucket(index), CoreMatchers.is(expected.get(i).bucket(index)));
+            }
+        }
+    }
+
+    @Test
+    public void parse_Arms() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse("[{\"name\":\"a\",\"percent\":100,\"status\":1,"
+                + "\"arms\":[{\"name\":\"control\",\"weight\":\"50\",\"memo\":[1]},{\"weight\":50,\"name\":\"treatment\"}]}]").get(0);
+
+        assertThat(bucketTest.armNames()[1], CoreMatchers.is("treatment"));
+        assertThat(bucketTest.armWeights()[0], CoreMatchers.is(50));
+        int control = 0;
+        for (long index = 0; index < 10000; index++) {
+            control += "control".equals(bucketTest.variant(index)) ? 1 : 0;
+        }
+        assertThat(Math.abs(control / 10000.0 - 0.5) < 0.03, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void parse_Stats() {
+        BucketConfigStats stats = new BucketConfigStats();
+        BucketConfigParser.parse("[{\"name\":\"a\",\"hits\":[\"1\",\"2\"],\"excludes\":[3]},{\"name\":\"b\"}]", stats);
+
+        assertThat(stats.getExperiments(), CoreMatchers.is(2));
+        assertThat(stats.getIds(), CoreMatchers.is(3L));
+        assertThat(stats.getMemoryBytes() > 0, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void parseCanonicalLong() {
+        assertThat(parse("123"), CoreMatchers.is(123L));
+        assertThat(parse("-123"), CoreMatchers.is(-123L));
+        assertThat(parse("0"), CoreMatchers.is(0L));
+        assertThat(parse("9223372036854775807"), CoreMatchers.is(Long.MAX_VALUE));
+        assertThat(parse("-9223372036854775807"), CoreMatchers.is(-Long.MAX_VALUE));
+        assertThat(parse("9223372036854775808"), CoreMatchers.is(Long.MIN_VALUE));
+        assertThat(parse("0123"), CoreMatchers.is(Long.MIN_VALUE));
+        assertThat(parse("-0"), CoreMatchers.is(Long.MIN_VALUE));
+        assertThat(parse("+1"), CoreMatchers.is(Long.MIN_VALUE));
+        assertThat(parse("1.0"), CoreMatchers.is(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void parse_MinValue() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse("[{\"name\":\"a\",\"percent\":0,\"status\":1,\"hits\":[\"-9223372036854775808\"]}]").get(0);
+
+        assertThat(bucketTest.bucket(Long.MIN_VALUE), CoreMatchers.is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_Malformed() {
+        BucketConfigParser.parse("[{\"name:\"bucket_test\",\"basic\":100}]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_TrailingContent() {
+        BucketConfigParser.parse("[{\"name\":\"bucket_test\"}] x");
+    }
+
+    private static long parse(String value) {
+        return BucketConfigParser.parseCanonicalLong(value, 0, value.length());
+    }
+}
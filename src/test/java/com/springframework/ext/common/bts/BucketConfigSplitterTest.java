@@ -0,0 +1,75 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketConfigSplitterTest {
+
+    @Test
+    public void split_Elements() {
+        List<String> fragments = BucketConfigSplitter.split(" [ {\"name\":\"a\",\"hits\":[\"1\",\"2\"]} ,\n{\"name\":\"b,]}\\\"\",\"extra\":\"{\\\"current\\\":1\"} ] ");
+
+        assertThat(fragments, CoreMatchers.is(Arrays.asList("{\"name\":\"a\",\"hits\":[\"1\",\"2\"]}", "{\"name\":\"b,]}\\\"\",\"extra\":\"{\\\"current\\\":1\"}")));
+    }
+
+    @Test
+    public void split_Empty() {
+        assertThat(BucketConfigSplitter.split("[]"), CoreMatchers.is(Collections.<String>emptyList()));
+        assertThat(BucketConfigSplitter.split("[ ]"), CoreMatchers.is(Collections.<String>emptyList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void split_NotArray() {
+        BucketConfigSplitter.split("{\"name\":\"a\"}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void split_NotTerminated() {
+        BucketConfigSplitter.split("[{\"name\":\"a\"}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void split_TrailingContent() {
+        BucketConfigSplitter.split("[{\"name\":\"a\"}] x");
+    }
+
+    @Test
+    public void bounds_Trimmed() {
+        String config = " [ {\"name\":\"a\"} ,\n {\"name\":\"b\"}\n] ";
+
+        int[] bounds = BucketConfigSplitter.bounds(config);
+
+        assertThat(bounds.length, CoreMatchers.is(4));
+        assertThat(config.substring(bounds[0], bounds[1]), CoreMatchers.is("{\"name\":\"a\"}"));
+        assertThat(config.substring(bounds[2], bounds[3]), CoreMatchers.is("{\"name\":\"b\"}"));
+    }
+
+    @Test
+    public void field_TopLevelOnly() {
+        String fragment = "{\"extra\":\"{\\\"name\\\":1}\",\"arms\":[{\"name\":\"A\"}],\"meta\":{\"name\":\"x\",\"layer\":\"y\"},"
+                + "\"name\" : \"a,}\" , \"percent\":5, \"layer\":null, \"hits\":[\"1\", \"2\"]}";
+
+        assertThat(field(fragment, "name"), CoreMatchers.is("\"a,}\""));
+        assertThat(field(fragment, "percent"), CoreMatchers.is("5"));
+        assertThat(field(fragment, "layer"), CoreMatchers.is("null"));
+        assertThat(field(fragment, "hits"), CoreMatchers.is("[\"1\", \"2\"]"));
+        assertThat(field(fragment, "status"), CoreMatchers.nullValue());
+        assertThat(field("null", "name"), CoreMatchers.nullValue());
+        // 同名字段以最后出现的为准
+        assertThat(field("{\"name\":\"a\",\"name\":\"b\"}", "name"), CoreMatchers.is("\"b\""));
+    }
+
+    private static String field(String fragment, String key) {
+        return BucketConfigSplitter.field(fragment, 0, fragment.length(), key);
+    }
+}
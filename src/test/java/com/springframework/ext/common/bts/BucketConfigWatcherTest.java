@@ -0,0 +1,41 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketConfigWatcherTest {
+
+    @Test
+    public void watch_PushOnChange() throws Exception {
+        Path directory = Files.createTempDirectory("bucket-config");
+        Path file = directory.resolve("bucket.json");
+        Files.write(file, "[{\"name\":\"bucket_test\",\"percent\":0,\"status\":1}]".getBytes(StandardCharsets.UTF_8));
+
+        BucketTestHelper helper = new BucketTestHelper();
+        try (BucketConfigWatcher watcher = new BucketConfigWatcher(file, helper)) {
+            watcher.start();
+            assertThat(helper.isBucket("bucket_test", 1L), CoreMatchers.is(false));
+
+            Files.write(file, "[{\"name\":\"bucket_test\",\"percent\":100,\"status\":1}]".getBytes(StandardCharsets.UTF_8));
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!helper.isBucket("bucket_test", 1L) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(helper.isBucket("bucket_test", 1L), CoreMatchers.is(true));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketExposureTest {
+    private static final String BUCKET_CONFIG = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":100,\"status\":1,"
+            + "\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}]},"
+            + "{\"name\":\"bucket_none\",\"basic\":100,\"percent\":0,\"status\":1}]";
+
+    @After
+    public void tearDown() {
+        BucketTestHelper.setExposure(null);
+        BucketClock.reset();
+    }
+
+    @Test
+    public void record_ClockTimestamp() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        List<Long> timestamps = new ArrayList<>();
+        BucketExposure exposure = new BucketExposure(8, 8, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                timestamps.add(batch.getTimestamp(i));
+            }
+        });
+        BucketClock.set(1234567L);
+
+        exposure.record(bucketTest, 1L, 0);
+        exposure.drain();
+
+        assertThat(timestamps, CoreMatchers.is(Collections.singletonList(1234567L)));
+    }
+
+    @Test
+    public void record_Drain() throws Exception {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        CollectingSink sink = new CollectingSink();
+        BucketExposure exposure = new BucketExposure(8, 3, sink);
+
+        for (long index = 0; index < 5; index++) {
+            assertThat(exposure.record(bucketTest, index, (int) index), CoreMatchers.is(true));
+        }
+        assertThat(exposure.getPending(), CoreMatchers.is(5L));
+        assertThat(exposure.drain(), CoreMatchers.is(3));
+        assertThat(exposure.drain(), CoreMatchers.is(2));
+        assertThat(exposure.drain(), CoreMatchers.is(0));
+
+        assertThat(sink.lines.size(), CoreMatchers.is(5));
+        assertThat(sink.lines.get(4), CoreMatchers.is("bucket_test:4:4"));
+        assertThat(exposure.getDrained(), CoreMatchers.is(5L));
+        assertThat(exposure.getPending(), CoreMatchers.is(0L));
+    }
+
+    @Test
+    public void record_ReloadsCompactNames() {
+        CollectingSink sink = new CollectingSink();
+        BucketExposure exposure = new BucketExposure(512, 8, sink);
+        CompiledBucketTest bucketTest = null;
+
+        for (int reload = 0; reload < 200; reload++) {
+            bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+            exposure.record(bucketTest, reload, 0);
+            exposure.drain();
+        }
+        CompiledBucketTest stale = bucketTest;
+        for (int reload = 0; reload < 100; reload++) {
+            exposure.record(BucketConfigParser.parse(BUCKET_CONFIG).get(0), reload, 0);
+        }
+        // 已注册但尚未写出的记录跨压缩仍可解析
+        exposure.record(stale, 1000L, 1);
+        while (exposure.drain() > 0) {
+            // 写出剩余记录
+        }
+
+        assertThat(sink.lines.size(), CoreMatchers.is(301));
+        assertThat(sink.lines.get(300), CoreMatchers.is("bucket_test:1000:1"));
+        assertThat(sink.lines.contains("null:0:0"), CoreMatchers.is(false));
+        assertThat(exposure.getNames() < 300, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void record_FullDrops() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        CollectingSink sink = new CollectingSink();
+        BucketExposure exposure = new BucketExposure(4, 4, sink);
+
+        for (long index = 0; index < 10; index++) {
+            exposure.record(bucketTest, index, 0);
+        }
+        assertThat(exposure.getRecorded(), CoreMatchers.is(4L));
+        assertThat(exposure.getDropped(), CoreMatchers.is(6L));
+
+        // 消费后槽位可以复用
+        exposure.drain();
+        assertThat(exposure.record(bucketTest, 10L, 0), CoreMatchers.is(true));
+        exposure.drain();
+        assertThat(sink.lines.get(4), CoreMatchers.is("bucket_test:10:0"));
+    }
+
+    @Test
+    public void record_Sampling() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        BucketExposure exposure = new BucketExposure(1 << 14, 1024, new CollectingSink());
+        exposure.setSampling(10);
+
+        for (long index = 0; index < 10000; index++) {
+            exposure.record(bucketTest, index, 0);
+        }
+        long recorded = exposure.getRecorded();
+        assertThat(recorded > 800 && recorded < 1200, CoreMatchers.is(true));
+        assertThat(recorded + exposure.getSampled(), CoreMatchers.is(10000L));
+
+        // 同一索引的采样结果稳定
+        boolean first = exposure.record(bucketTest, 42L, 0);
+        for (int i = 0; i < 10; i++) {
+            assertThat(exposure.record(bucketTest, 42L, 0), CoreMatchers.is(first));
+        }
+    }
+
+    @Test
+    public void record_SinkError() throws Exception {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        BucketExposure exposure = new BucketExposure(4, 4, batch -> {
+            throw new IllegalStateException("sink down");
+        });
+
+        exposure.record(bucketTest, 1L, 0);
+        assertThat(exposure.drain(), CoreMatchers.is(1));
+        assertThat(exposure.getErrors(), CoreMatchers.is(1L));
+        assertThat(exposure.getDrained(), CoreMatchers.is(0L));
+        assertThat(exposure.getPending(), CoreMatchers.is(0L));
+    }
+
+    @Test
+    public void helper_RecordsHits() throws Exception {
+        BucketTestHelper helper = BucketTestHelper.instance(BUCKET_CONFIG);
+        CollectingSink sink = new CollectingSink();
+        BucketExposure exposure = new BucketExposure(1024, 64, sink).start();
+        BucketTestHelper.setExposure(exposure);
+
+        int bucket = helper.bucket("bucket_test", 123L);
+        String variant = helper.variant("bucket_test", 123L);
+        assertThat(helper.isBucket("bucket_none", 123L), CoreMatchers.is(false));
+        assertThat(helper.isBucket("bucket_missing", 123L), CoreMatchers.is(false));
+        helper.bucket("bucket_test", "abc");
+        BucketTestHelper.setExposure(null);
+        helper.bucket("bucket_test", 456L);
+        exposure.close();
+
+        assertThat(variant, CoreMatchers.notNullValue());
+        assertThat(sink.lines.size(), CoreMatchers.is(3));
+        assertThat(sink.lines.get(0), CoreMatchers.is("bucket_test:123:" + bucket));
+        assertThat(sink.lines.get(2), CoreMatchers.is("bucket_test:" + CompiledBucketTest.indexOf("abc")
+                + ":" + helper.bucket("bucket_test", "abc")));
+        assertThat(sink.closed, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void record_Concurrent() throws Exception {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        CollectingSink sink = new CollectingSink();
+        BucketExposure exposure = new BucketExposure(1 << 16, 256, sink).start();
+
+        int threads = 4;
+        int perThread = 10000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long base = t * (long) perThread;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    exposure.record(bucketTest, base + i, 0);
+                }
+                done.countDown();
+            }).start();
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS), CoreMatchers.is(true));
+        exposure.close();
+
+        assertThat(exposure.getRecorded() + exposure.getDropped(), CoreMatchers.is((long) threads * perThread));
+        assertThat((long) sink.lines.size(), CoreMatchers.is(exposure.getRecorded()));
+        assertThat(exposure.getDrained(), CoreMatchers.is(exposure.getRecorded()));
+    }
+
+    @Test
+    public void close_SlowSinkAbandons() throws Exception {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingSink sink = new CollectingSink() {
+            @Override
+            public void write(BucketExposureBatch batch) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(batch);
+            }
+        };
+        BucketExposure exposure = new BucketExposure(8, 1, sink).start();
+
+        exposure.record(bucketTest, 1L, 0);
+        assertThat(writing.await(10, TimeUnit.SECONDS), CoreMatchers.is(true));
+        exposure.record(bucketTest, 2L, 0);
+        exposure.record(bucketTest, 3L, 0);
+        exposure.close(50);
+
+        // 后台线程仍阻塞在sink上：close不并发写出，也不关闭sink
+        assertThat(exposure.getAbandoned(), CoreMatchers.is(2L));
+        assertThat(sink.closed, CoreMatchers.is(false));
+
+        release.countDown();
+        for (int i = 0; i < 1000 && !sink.closed; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(sink.closed, CoreMatchers.is(true));
+        assertThat(sink.lines, CoreMatchers.is(Collections.singletonList("bucket_test:1:0")));
+    }
+
+    static class CollectingSink implements BucketExposureSink {
+        final List<String> lines = new ArrayList<>();
+        volatile boolean closed;
+
+        @Override
+        public synchronized void write(BucketExposureBatch batch) {
+            for (int i = 0; i < batch.size(); i++) {
+                lines.add(batch.getName(i) + ":" + batch.getIndex(i) + ":" + batch.getBucket(i));
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+import org.springframework.ext.common.helper.JsonHelper;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketHashTest {
+
+    @Test
+    public void of_DefaultIsLegacy() {
+        assertThat(BucketHash.of(null), CoreMatchers.is(BucketHash.LEGACY));
+        assertThat(BucketHash.of(" "), CoreMatchers.is(BucketHash.LEGACY));
+        assertThat(BucketHash.of(" Murmur3 "), CoreMatchers.is(BucketHash.MURMUR3));
+        assertThat(BucketHash.of("xxhash"), CoreMatchers.is(BucketHash.XXHASH));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_UnknownRejected() {
+        BucketHash.of("murmur");
+    }
+
+    @Test
+    public void legacy_SameAsOverlap() {
+        String name = "bucket_test";
+        long salt = BucketHash.LEGACY.salt(name);
+
+        for (long index = 0; index < 1000; index++) {
+            assertThat(BucketHash.LEGACY.position(salt, index, 100), CoreMatchers.is(Math.abs(index + Math.abs(name.hashCode())) % 100));
+        }
+    }
+
+    @Test
+    public void xxh64_KnownValue() {
+        // XXH64(8个0字节, seed=0)
+        assertThat(BucketHash.xxh64(0L, 0L), CoreMatchers.is(0x34C96ACDCADB1BBBL));
+    }
+
+    @Test
+    public void position_InRange() {
+        for (BucketHash hash : BucketHash.values()) {
+            long salt = hash.salt("bucket_test");
+            for (long index : new long[]{0L, 1L, -1L, Long.MAX_VALUE, Long.MIN_VALUE + 1}) {
+                long position = hash.position(salt, index, 100);
+                assertTrue(hash + "@" + index, position >= 0 && position < 100);
+            }
+            if (hash != BucketHash.LEGACY) {
+                long position = hash.position(salt, Long.MIN_VALUE, 100);
+                assertTrue(hash + "@MIN_VALUE", position >= 0 && position < 100);
+            }
+        }
+    }
+
+    @Test
+    public void mixed_Uniform() {
+        // 连续id下，卡方统计量应接近自由度(99)，远小于临界值
+        for (BucketHash hash : new BucketHash[]{BucketHash.MURMUR3, BucketHash.XXHASH}) {
+            assertTrue(hash.name(), chiSquare(hash, "bucket_test", 1000000L) < 160);
+        }
+    }
+
+    @Test
+    public void mixed_IndependentAcrossExperiments() {
+        // 两个实验各切10%，独立时重叠约为1%
+        for (BucketHash hash : new BucketHash[]{BucketHash.MURMUR3, BucketHash.XXHASH}) {
+            long saltA = hash.salt("experiment_a");
+            long saltB = hash.salt("experiment_b");
+            int both = 0;
+            for (long index = 0; index < 1000000L; index++) {
+                if (hash.position(saltA, index, 100) < 10 && hash.position(saltB, index, 100) < 10) {
+                    both++;
+                }
+            }
+            assertTrue(hash.name() + ":" + both, both > 9000 && both < 11000);
+        }
+    }
+
+    @Test
+    public void bucket_ConfiguredHash() {
+        BucketTest legacy = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":10, \"status\":\"1\"}", BucketTest.class);
+        BucketTest murmur = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":10, \"status\":\"1\", \"hash\":\"murmur3\"}", BucketTest.class);
+
+        assertThat(legacy.compile().getHash(), CoreMatchers.is(BucketHash.LEGACY));
+        assertThat(murmur.compile().getHash(), CoreMatchers.is(BucketHash.MURMUR3));
+
+        int hits = 0;
+        for (long index = 0; index < 100000L; index++) {
+            int bucket = murmur.bucket(index);
+            assertTrue(bucket < 10);
+            if (bucket >= 0) {
+                hits++;
+            }
+        }
+        assertTrue(String.valueOf(hits), hits > 9500 && hits < 10500);
+    }
+
+    private static double chiSquare(BucketHash hash, String name, long count) {
+        long salt = hash.salt(name);
+        long[] buckets = new long[100];
+        for (long index = 0; index < count; index++) {
+            buckets[(int) hash.position(salt, index, 100)]++;
+        }
+        double expected = count / 100.0;
+        double chiSquare = 0;
+        for (long bucket : buckets) {
+            chiSquare += (bucket - expected) * (bucket - expected) / expected;
+        }
+        return chiSquare;
+    }
+
+    @Test
+    public void hash64_UUIDSameAsString() {
+        for (int i = 0; i < 100; i++) {
+            UUID uuid = UUID.randomUUID();
+            assertThat(BucketHash.hash64(uuid), CoreMatchers.is(BucketHash.hash64(uuid.toString())));
+        }
+        UUID uuid = new UUID(0L, -1L);
+        assertThat(BucketHash.hash64(uuid), CoreMatchers.is(BucketHash.hash64(uuid.toString())));
+    }
+
+    @Test
+    public void hash64_Bytes() {
+        assertThat(BucketHash.hash64("abc".getBytes()), CoreMatchers.is(BucketHash.hash64("abc")));
+        assertThat(BucketHash.hash64(new byte[]{(byte) 0xFF}) == BucketHash.hash64(new byte[]{0x7F}), CoreMatchers.is(false));
+    }
+}
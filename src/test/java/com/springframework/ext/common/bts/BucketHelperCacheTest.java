@@ -0,0 +1,217 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketHelperCacheTest {
+    private static final BiFunction<String, String, BucketTestHelper> LOADER = (bucketConfig, digest) -> {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(bucketConfig);
+        return helper;
+    };
+
+    @After
+    public void tearDown() {
+        BucketClock.reset();
+    }
+
+    @Test
+    public void get_SameContent() {
+        BucketHelperCache cache = new BucketHelperCache();
+        String bucketConfig = "[{\"name\":\"bucket_test\",\"percent\":100,\"status\":1}]";
+
+        BucketTestHelper helper = cache.get(bucketConfig, LOADER);
+
+        assertThat(cache.get(bucketConfig, LOADER), CoreMatchers.sameInstance(helper));
+        assertThat(cache.get(new String(bucketConfig.toCharArray()), LOADER), CoreMatchers.sameInstance(helper));
+        assertThat(cache.getMisses(), CoreMatchers.is(1L));
+        assertThat(cache.getHits(), CoreMatchers.is(2L));
+        assertThat(cache.size(), CoreMatchers.is(1));
+    }
+
+    @Test
+    public void get_Versioned() {
+        BucketHelperCache cache = new BucketHelperCache();
+        String bucketConfig = "[{\"name\":\"bucket_test\",\"percent\":100,\"status\":1}]";
+        List<String> keys = new ArrayList<>();
+        BiFunction<String, String, BucketTestHelper> loader = (config, key) -> {
+            keys.add(key);
+            return LOADER.apply(config, key);
+        };
+
+        BucketTestHelper helper = cache.get("v1", bucketConfig, loader);
+
+        assertThat(cache.get("v1", new String(bucketConfig.toCharArray()), loader), CoreMatchers.sameInstance(helper));
+        assertThat(cache.get(new String("v1".toCharArray()), bucketConfig, loader), CoreMatchers.sameInstance(helper));
+        // 版本号与内容寻址互不混用
+        assertThat(cache.get(bucketConfig, loader) == helper, CoreMatchers.is(false));
+        assertThat(cache.get("v2", bucketConfig, loader) == helper, CoreMatchers.is(false));
+        assertThat(keys.get(0), CoreMatchers.is("version:v1"));
+        assertThat(keys.size(), CoreMatchers.is(3));
+        assertThat(cache.getHits(), CoreMatchers.is(2L));
+    }
+
+    @Test
+    public void get_HashCodeCollision() {
+        BucketHelperCache cache = new BucketHelperCache();
+        String left = "[{\"name\":\"Aa\",\"percent\":100,\"status\":1}]";
+        String right = "[{\"name\":\"BB\",\"percent\":100,\"status\":1}]";
+        assertThat(left.hashCode(), CoreMatchers.is(right.hashCode()));
+
+        BucketTestHelper first = cache.get(left, LOADER);
+        BucketTestHelper second = cache.get(right, LOADER);
+
+        assertThat(first == second, CoreMatchers.is(false));
+        assertThat(first.isBucket("Aa", 1L), CoreMatchers.is(true));
+        assertThat(second.isBucket("BB", 1L), CoreMatchers.is(true));
+        assertThat(cache.get(left, LOADER), CoreMatchers.sameInstance(first));
+        assertThat(cache.getMisses(), CoreMatchers.is(2L));
+    }
+
+    @Test
+    public void get_Evict() {
+        BucketHelperCache cache = new BucketHelperCache();
+        cache.setMaxSize(2);
+        String a = "[{\"name\":\"a\"}]";
+        String b = "[{\"name\":\"b\"}]";
+        String c = "[{\"name\":\"c\"}]";
+
+        BucketTestHelper first = cache.get(a, LOADER);
+        cache.get(b, LOADER);
+        cache.get(a, LOADER);
+        cache.get(c, LOADER);
+
+        assertThat(cache.size(), CoreMatchers.is(2));
+        assertThat(cache.getEvictions(), CoreMatchers.is(1L));
+        assertThat(cache.get(a, LOADER), CoreMatchers.sameInstance(first));
+        cache.get(b, LOADER);
+        assertThat(cache.getMisses(), CoreMatchers.is(4L));
+    }
+
+    @Test
+    public void instance_Shared() {
+        String bucketConfig = "[{\"name\":\"shared\",\"percent\":100,\"status\":1}]";
+        long misses = BucketTestHelper.helperCache().getMisses();
+
+        BucketTestHelper helper = BucketTestHelper.instance(bucketConfig);
+
+        assertThat(BucketTestHelper.instance(new StringBuilder(bucketConfig).toString()), CoreMatchers.sameInstance(helper));
+        assertThat(BucketTestHelper.helperCache().getMisses() - misses, CoreMatchers.is(1L));
+    }
+
+    @Test
+    public void get_SingleFlight() throws Exception {
+        BucketHelperCache cache = new BucketHelperCache();
+        String bucketConfig = "[{\"name\":\"bucket_test\",\"percent\":100,\"status\":1}]";
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        BiFunction<String, String, BucketTestHelper> slowLoader = (config, digest) -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return LOADER.apply(config, digest);
+        };
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<BucketTestHelper>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            // 不同的字符串实例，避免前置表命中
+            String copy = new String(bucketConfig.toCharArray());
+            futures.add(executor.submit(() -> cache.get(copy, slowLoader)));
+        }
+        while (cache.getMisses() + cache.getCoalesced() < threads) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        BucketTestHelper helper = futures.get(0).get();
+        for (Future<BucketTestHelper> future : futures) {
+            assertThat(future.get(), CoreMatchers.sameInstance(helper));
+        }
+        executor.shutdown();
+        assertThat(loads.get(), CoreMatchers.is(1));
+        assertThat(cache.getMisses(), CoreMatchers.is(1L));
+        assertThat(cache.getCoalesced(), CoreMatchers.is((long) threads - 1));
+    }
+
+    @Test
+    public void get_LoaderFailure() {
+        BucketHelperCache cache = new BucketHelperCache();
+        String bucketConfig = "[{\"name\":\"bucket_test\"}]";
+        try {
+            cache.get(bucketConfig, (config, digest) -> {
+                throw new IllegalStateException("cache down");
+            });
+            throw new AssertionError("expected failure");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), CoreMatchers.is("cache down"));
+        }
+
+        // 失败后不保留加载状态，下次调用重新加载
+        assertThat(cache.get(bucketConfig, LOADER).isBucket("bucket_test", 1L), CoreMatchers.is(false));
+        assertThat(cache.size(), CoreMatchers.is(1));
+    }
+
+    @Test
+    public void get_RefreshAhead() throws Exception {
+        BucketHelperCache cache = new BucketHelperCache();
+        String bucketConfig = "[{\"name\":\"bucket_test\",\"percent\":100,\"status\":1}]";
+        List<String> refreshed = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        cache.setRefresher((digest, helper) -> {
+            synchronized (refreshed) {
+                refreshed.add(digest);
+            }
+            done.countDown();
+        }, 1000L);
+
+        BucketClock.set(10000L);
+        BucketTestHelper helper = cache.get(bucketConfig, LOADER);
+        BucketClock.set(10999L);
+        assertThat(cache.get(bucketConfig, LOADER), CoreMatchers.sameInstance(helper));
+        assertThat(cache.getRefreshes(), CoreMatchers.is(0L));
+
+        BucketClock.set(11000L);
+        assertThat(cache.get(bucketConfig, LOADER), CoreMatchers.sameInstance(helper));
+        assertThat(done.await(5, TimeUnit.SECONDS), CoreMatchers.is(true));
+        while (cache.getRefreshes() == 0) {
+            Thread.sleep(1);
+        }
+
+        // 刷新后等待下一个间隔
+        for (int i = 0; i < 10; i++) {
+            cache.get(bucketConfig, LOADER);
+        }
+        Thread.sleep(50);
+        assertThat(refreshed.size(), CoreMatchers.is(1));
+        assertThat(cache.getRefreshes(), CoreMatchers.is(1L));
+        assertThat(cache.getMisses(), CoreMatchers.is(1L));
+
+        cache.setRefresher(null, 0L);
+        BucketClock.set(20000L);
+        cache.get(bucketConfig, LOADER);
+        Thread.sleep(20);
+        assertThat(cache.getRefreshes(), CoreMatchers.is(1L));
+    }
+}
@@ -0,0 +1,126 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketLayersTest {
+    private static final int COUNT = 100000;
+
+    @Test
+    public void bucketAll_MutuallyExclusiveInLayer() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.reload("[" + experiment("a", "L", 30) + "," + experiment("b", "L", 30) + "," + experiment("c", "L", 30) + "]");
+
+        int[] counts = new int[3];
+        for (long index = 0; index < COUNT; index++) {
+            BucketAssignment assignment = BucketAssignment.of(registry.snapshot(), index);
+            assertThat(assignment.hitCount() <= 1, CoreMatchers.is(true));
+            for (int i = 0; i < 3; i++) {
+                if (assignment.isBucket(i)) {
+                    counts[i]++;
+                }
+            }
+        }
+        for (int count : counts) {
+            assertThat(Math.abs(count - COUNT * 0.3) < COUNT * 0.01, CoreMatchers.is(true));
+        }
+    }
+
+    @Test
+    public void bucketAll_SameAsSingle() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.reload("[" + experiment("a", "L", 20) + "," + experiment("plain", null, 50) + ","
+                + "{\"name\":\"b\",\"layer\":\"L\",\"percent\":30,\"status\":1,\"hits\":[\"7\"],\"excludes\":[\"8\"]},"
+                + experiment("c", "M", 100) + "]");
+
+        for (long index = 0; index < 10000; index++) {
+            BucketAssignment assignment = BucketAssignment.of(registry.snapshot(), index);
+            for (int i = 0; i < assignment.size(); i++) {
+                assertThat(assignment.bucket(i), CoreMatchers.is(registry.find(assignment.getName(i)).bucket(index)));
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            String key = "uuid-" + i;
+            BucketAssignment assignment = BucketAssignment.of(registry.snapshot(), key);
+            for (int j = 0; j < assignment.size(); j++) {
+                assertThat(assignment.bucket(j), CoreMatchers.is(registry.find(assignment.getName(j)).bucket(key)));
+            }
+        }
+        assertThat(registry.find("b").bucket(7L), CoreMatchers.is(0));
+        assertThat(registry.find("b").bucket(8L), CoreMatchers.is(-1));
+        assertThat(registry.snapshot().layers().size(), CoreMatchers.is(2));
+    }
+
+    @Test
+    public void bucket_BucketsWithinPercent() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.reload("[" + experiment("a", "L", 40) + "," + experiment("b", "L", 10) + "]");
+
+        int[] buckets = new int[10];
+        for (long index = 0; index < COUNT; index++) {
+            int bucket = registry.find("b").bucket(index);
+            assertThat(bucket < 10, CoreMatchers.is(true));
+            if (bucket >= 0) {
+                buckets[bucket]++;
+            }
+        }
+        for (int count : buckets) {
+            assertThat(Math.abs(count - COUNT * 0.01) < COUNT * 0.002, CoreMatchers.is(true));
+        }
+    }
+
+    @Test
+    public void bucket_IndependentAcrossLayers() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.reload("[" + experiment("a", "L1", 50) + "," + experiment("b", "L2", 50) + "]");
+
+        int both = 0;
+        for (long index = 0; index < COUNT; index++) {
+            if (registry.find("a").isBucket(index) && registry.find("b").isBucket(index)) {
+                both++;
+            }
+        }
+        assertThat(Math.abs(both - COUNT * 0.25) < COUNT * 0.01, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void assign_LayerOversubscribedRejected() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.reload("[" + experiment("a", "L", 60) + "," + experiment("b", "L", 40) + "]");
+
+        try {
+            registry.reload("[" + experiment("a", "L", 60) + "," + experiment("b", "L", 60) + "]");
+            throw new AssertionError("expected failure");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().contains("layer L is over-subscribed"), CoreMatchers.is(true));
+        }
+
+        assertThat(registry.find("b").getPercent(), CoreMatchers.is(40));
+        assertThat(registry.find("b").layerWidth(), CoreMatchers.is(BucketLayers.SLOTS * 4 / 10));
+    }
+
+    @Test
+    public void reload_ReuseUnchangedRange() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.reload("[" + experiment("a", "L", 10) + "," + experiment("b", "L", 10) + "," + experiment("c", "M", 10) + "]");
+        CompiledBucketTest b = registry.find("b");
+        CompiledBucketTest c = registry.find("c");
+
+        registry.reload("[" + experiment("a", "L", 20) + "," + experiment("b", "L", 10) + "," + experiment("c", "M", 10) + "]");
+
+        assertThat(registry.find("b") == b, CoreMatchers.is(false));
+        assertThat(registry.find("b").layerOffset(), CoreMatchers.is(BucketLayers.SLOTS * 2 / 10));
+        assertThat(registry.find("c"), CoreMatchers.sameInstance(c));
+    }
+
+    private static String experiment(String name, String layer, int percent) {
+        return "{\"name\":\"" + name + "\"," + (layer == null ? "" : "\"layer\":\"" + layer + "\",")
+                + "\"percent\":" + percent + ",\"basic\":100,\"status\":1}";
+    }
+}
@@ -0,0 +1,95 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketMemoTest {
+    private static final String BUCKET_CONFIG = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":50,\"status\":1,\"hits\":[\"123\"],"
+            + "\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}]}]";
+
+    @Test
+    public void bucket_SameAsCompiled() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        BucketMemo memo = new BucketMemo(16);
+
+        for (int round = 0; round < 2; round++) {
+            for (long index = 0; index < 1000; index++) {
+                assertThat(memo.bucket(bucketTest, index), CoreMatchers.is(bucketTest.bucket(index)));
+            }
+        }
+        assertThat(memo.getMisses() >= 1000, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void bucket_Repeated() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        CompiledBucketTest other = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        BucketMemo memo = new BucketMemo();
+
+        for (int i = 0; i < 10; i++) {
+            memo.bucket(bucketTest, 123L);
+            memo.bucket(other, 123L);
+        }
+
+        assertThat(memo.getMisses(), CoreMatchers.is(2L));
+        assertThat(memo.getHits(), CoreMatchers.is(18L));
+    }
+
+    @Test
+    public void open_BindsCurrentThread() {
+        BucketTestHelper helper = BucketTestHelper.instance(BUCKET_CONFIG);
+        String variant = BucketConfigParser.parse(BUCKET_CONFIG).get(0).variant(123L);
+        assertThat(BucketMemo.current(), CoreMatchers.nullValue());
+
+        try (BucketMemo memo = BucketMemo.open()) {
+            assertThat(BucketMemo.current(), CoreMatchers.sameInstance(memo));
+            for (int i = 0; i < 3; i++) {
+                assertThat(helper.isBucket("bucket_test", 123L), CoreMatchers.is(true));
+                assertThat(helper.variant("bucket_test", 123L), CoreMatchers.is(variant));
+            }
+            assertThat(memo.getMisses(), CoreMatchers.is(1L));
+            assertThat(memo.getHits(), CoreMatchers.is(5L));
+
+            try (BucketMemo nested = BucketMemo.open()) {
+                assertThat(BucketMemo.current(), CoreMatchers.sameInstance(nested));
+            }
+            assertThat(BucketMemo.current(), CoreMatchers.sameInstance(memo));
+        }
+        assertThat(BucketMemo.current(), CoreMatchers.nullValue());
+    }
+
+    @Test
+    public void open_NothingRetainedAfterClose() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        BucketMemo first;
+        try (BucketMemo memo = BucketMemo.open()) {
+            memo.bucket(bucketTest, 123L);
+            first = memo;
+        }
+        assertThat(BucketMemo.current(), CoreMatchers.nullValue());
+
+        try (BucketMemo memo = BucketMemo.open()) {
+            assertThat(memo, CoreMatchers.not(CoreMatchers.sameInstance(first)));
+            memo.bucket(bucketTest, 123L);
+            assertThat(memo.getMisses(), CoreMatchers.is(1L));
+        }
+    }
+
+    @Test
+    public void bucket_ReloadInvalidates() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.onChange("[{\"name\":\"bucket_test\",\"percent\":0,\"status\":1,\"hits\":[\"123\"]}]");
+
+        try (BucketMemo memo = BucketMemo.open()) {
+            assertThat(helper.bucket("bucket_test", 123L), CoreMatchers.is(0));
+            helper.onChange("[{\"name\":\"bucket_test\",\"percent\":0,\"status\":1,\"excludes\":[\"123\"]}]");
+            assertThat(helper.bucket("bucket_test", 123L), CoreMatchers.is(-1));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketMetricsTest {
+    private static final String BUCKET_CONFIG = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":50,\"status\":1,"
+            + "\"hits\":[\"123\",\"abc\"],\"excludes\":[\"456\",\"def\"]},"
+            + "{\"name\":\"bucket_off\",\"basic\":100,\"percent\":100,\"status\":0}]";
+
+    @Test
+    public void record_Counts() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(BUCKET_CONFIG);
+        long hits = 0;
+        for (long index = 1000; index < 2000; index++) {
+            hits += helper.isBucket("bucket_test", index) ? 1 : 0;
+        }
+        helper.isBucket("bucket_test", 123L);
+        helper.isBucket("bucket_test", 456L);
+        helper.isBucket("bucket_test", "abc");
+        helper.isBucket("bucket_test", "def");
+        helper.variant("bucket_test", 123L);
+        helper.isBucket("bucket_off", 123L);
+        helper.isBucket("bucket_missing", 123L);
+
+        BucketExperimentStats stats = helper.metrics().get("bucket_test");
+        assertThat(stats.getCalls(), CoreMatchers.is(1005L));
+        assertThat(stats.getHits(), CoreMatchers.is(hits + 3));
+        assertThat(stats.getWhitelisted(), CoreMatchers.is(3L));
+        assertThat(stats.getBlacklisted(), CoreMatchers.is(2L));
+        assertThat(stats.getMisses(), CoreMatchers.is(1005L - hits - 3));
+        assertThat(hits > 400 && hits < 600, CoreMatchers.is(true));
+
+        BucketExperimentStats off = helper.metrics().get("bucket_off");
+        assertThat(off.getCalls(), CoreMatchers.is(1L));
+        assertThat(off.getBlacklisted(), CoreMatchers.is(0L));
+        assertThat(helper.metrics().getUnknown(), CoreMatchers.is(1L));
+        assertThat(helper.metrics().get("bucket_missing"), CoreMatchers.nullValue());
+    }
+
+    @Test
+    public void record_ListsThroughMemoAndAssignment() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(BUCKET_CONFIG);
+        try (BucketMemo memo = BucketMemo.open()) {
+            for (int i = 0; i < 2; i++) {
+                helper.isBucket("bucket_test", 123L);
+                helper.isBucket("bucket_test", 456L);
+            }
+            assertThat(memo.getHits(), CoreMatchers.is(2L));
+        }
+        BucketAssignment assignment = helper.assign("abc");
+        assertThat(assignment.bucket("bucket_test"), CoreMatchers.is(0));
+        assertThat(helper.assign("def").isBucket("bucket_test"), CoreMatchers.is(false));
+
+        BucketExperimentStats stats = helper.metrics().get("bucket_test");
+        assertThat(stats.getCalls(), CoreMatchers.is(6L));
+        assertThat(stats.getWhitelisted(), CoreMatchers.is(3L));
+        assertThat(stats.getBlacklisted(), CoreMatchers.is(3L));
+    }
+
+    @Test
+    public void record_ManyExperiments() {
+        StringBuilder config = new StringBuilder("[");
+        for (int i = 0; i < 300; i++) {
+            config.append(i == 0 ? "" : ",").append("{\"name\":\"bucket_").append(i)
+                    .append("\",\"percent\":100,\"status\":1}");
+        }
+        BucketTestHelper helper = BucketTestHelper.instance(config.append(']').toString());
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 300; i++) {
+                helper.isBucket("bucket_" + i, 123L);
+            }
+        }
+
+        List<BucketExperimentStats> stats = helper.metrics().snapshot();
+        assertThat(stats.size(), CoreMatchers.is(300));
+        for (BucketExperimentStats stat : stats) {
+            assertThat(stat.getCalls(), CoreMatchers.is(3L));
+            assertThat(stat.getHits(), CoreMatchers.is(3L));
+        }
+    }
+
+    @Test
+    public void record_SurvivesReload() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(BUCKET_CONFIG);
+        helper.isBucket("bucket_test", 123L);
+
+        helper.onChange(BUCKET_CONFIG.replace("\"percent\":50", "\"percent\":60"));
+        helper.isBucket("bucket_test", 123L);
+        helper.onChange("[{broken");
+
+        assertThat(helper.metrics().get("bucket_test").getCalls(), CoreMatchers.is(2L));
+        assertThat(helper.metrics().getReloadCount(), CoreMatchers.is(2L));
+        assertThat(helper.metrics().getReloadErrors(), CoreMatchers.is(1L));
+        assertThat(helper.metrics().getReloadMaxNanos() > 0, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void reset_Disabled() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(BUCKET_CONFIG);
+        helper.isBucket("bucket_test", 123L);
+
+        helper.metrics().reset();
+        assertThat(helper.metrics().get("bucket_test").getCalls(), CoreMatchers.is(0L));
+        helper.isBucket("bucket_test", 123L);
+        assertThat(helper.metrics().get("bucket_test").getCalls(), CoreMatchers.is(1L));
+
+        helper.metrics().setEnabled(false);
+        helper.isBucket("bucket_test", 123L);
+        assertThat(helper.metrics().get("bucket_test").getCalls(), CoreMatchers.is(1L));
+    }
+
+    @Test
+    public void metrics_PerHelper() throws Exception {
+        BucketTestHelper first = new BucketTestHelper();
+        first.setBucketConfig(BUCKET_CONFIG);
+        Path file = Files.createTempFile("metrics", ".bts");
+        first.writeSnapshot(file);
+        BucketTestHelper second = BucketTestHelper.loadSnapshot(file);
+        first.isBucket("bucket_test", 123L);
+        second.isBucket("bucket_test", 123L);
+        second.isBucket("bucket_test", 123L);
+
+        assertThat(first.metrics().get("bucket_test").getCalls(), CoreMatchers.is(1L));
+        assertThat(second.metrics().get("bucket_test").getCalls(), CoreMatchers.is(2L));
+        assertThat(second.metrics().getReloadCount(), CoreMatchers.is(1L));
+    }
+
+    @Test
+    public void register_MXBean() throws Exception {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(BUCKET_CONFIG);
+        helper.isBucket("bucket_test", 123L);
+
+        ObjectName name = helper.metrics().register("metrics_test");
+        try {
+            Object unknown = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Unknown");
+            assertThat(unknown, CoreMatchers.is((Object) 0L));
+            Object experiments = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Experiments");
+            assertThat(experiments.getClass().isArray(), CoreMatchers.is(true));
+        } finally {
+            helper.metrics().unregister("metrics_test");
+        }
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name), CoreMatchers.is(false));
+
+        List<BucketExperimentStats> snapshot = helper.metrics().snapshot();
+        assertThat(snapshot.size(), CoreMatchers.is(1));
+        assertThat(snapshot.get(0).getName(), CoreMatchers.is("bucket_test"));
+    }
+
+    @Test
+    public void histogram_Percentile() {
+        BucketHistogram histogram = new BucketHistogram();
+        assertThat(histogram.percentile(0.99), CoreMatchers.is(0L));
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertThat(histogram.getCount(), CoreMatchers.is(1000L));
+        assertThat(histogram.getMax(), CoreMatchers.is(1000L));
+        assertThat(histogram.getMean(), CoreMatchers.is(500L));
+        // 分位数为所在2的幂区间的上界
+        assertThat(histogram.percentile(0.5), CoreMatchers.is(511L));
+        assertThat(histogram.percentile(0.99), CoreMatchers.is(1000L));
+        histogram.record(-1);
+        assertThat(histogram.percentile(0.0001), CoreMatchers.is(0L));
+    }
+}
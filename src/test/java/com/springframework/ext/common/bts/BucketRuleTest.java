@@ -0,0 +1,166 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketRuleTest {
+    private static final String RULE = "region in ('cn', 'us') && version >= 3.2.0 && (platform == \"ios\" || tier > 2)";
+
+    @Test
+    public void matches_Combined() {
+        BucketRule rule = BucketRule.compile(RULE);
+        BucketContext context = new BucketContext();
+
+        context.set("region", "cn").set("version", "3.10.1").set("platform", "ios");
+        assertThat(rule.matches(context), CoreMatchers.is(true));
+
+        context.set("platform", "android");
+        assertThat(rule.matches(context), CoreMatchers.is(false));
+        context.set("tier", 3);
+        assertThat(rule.matches(context), CoreMatchers.is(true));
+
+        context.set("version", "3.1.9");
+        assertThat(rule.matches(context), CoreMatchers.is(false));
+        context.set("version", "3.2");
+        assertThat(rule.matches(context), CoreMatchers.is(true));
+
+        context.set("region", "jp");
+        assertThat(rule.matches(context), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void matches_Missing() {
+        BucketContext context = new BucketContext();
+
+        assertThat(BucketRule.compile("region == 'cn'").matches(context), CoreMatchers.is(false));
+        assertThat(BucketRule.compile("region != 'cn'").matches(context), CoreMatchers.is(false));
+        assertThat(BucketRule.compile("region not in ('cn')").matches(context), CoreMatchers.is(false));
+        assertThat(BucketRule.compile("!(region == 'cn')").matches(context), CoreMatchers.is(true));
+        assertThat(BucketRule.compile("tier >= 0").matches(context), CoreMatchers.is(false));
+
+        context.set("region", "us");
+        assertThat(BucketRule.compile("region != 'cn'").matches(context), CoreMatchers.is(true));
+        assertThat(BucketRule.compile("region not in ('cn', 'jp')").matches(context), CoreMatchers.is(true));
+
+        context.clear();
+        assertThat(BucketRule.compile("region == 'us'").matches(context), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void matches_Numbers() {
+        BucketContext context = new BucketContext().set("tier", "2").set("uid", 1234567890123L);
+
+        assertThat(BucketRule.compile("tier == 2").matches(context), CoreMatchers.is(true));
+        assertThat(BucketRule.compile("tier < 2 || tier > 2").matches(context), CoreMatchers.is(false));
+        assertThat(BucketRule.compile("tier in (1, 2, 3, 4, 5, 6, 7, 8, 9, 10)").matches(context), CoreMatchers.is(true));
+        assertThat(BucketRule.compile("tier == '2'").matches(context), CoreMatchers.is(true));
+        assertThat(BucketRule.compile("uid >= 1234567890123").matches(context), CoreMatchers.is(true));
+        // 整数属性不作为字符串比较
+        assertThat(BucketRule.compile("uid == '1234567890123'").matches(context), CoreMatchers.is(false));
+        assertThat(BucketRule.compile("tier >= 2.0.0").matches(context), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void matches_LargeSet() {
+        StringBuilder rule = new StringBuilder("city in (");
+        for (int i = 0; i < 100; i++) {
+            rule.append(i > 0 ? "," : "").append("'c").append(i).append('\'');
+        }
+        BucketRule compiled = BucketRule.compile(rule.append(')').toString());
+
+        assertThat(compiled.matches(new BucketContext().set("city", "c42")), CoreMatchers.is(true));
+        assertThat(compiled.matches(new BucketContext().set("city", "c100")), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void compile_Errors() {
+        String[] rules = {"", "region ==", "region = 'cn'", "region in 'cn'", "(region == 'cn'", "region == 'cn", "region not 'cn'",
+                "region == 'cn' &&"};
+        for (String rule : rules) {
+            try {
+                BucketRule.compile(rule);
+                throw new AssertionError("expected failure: " + rule);
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage().contains("rule"), CoreMatchers.is(true));
+            }
+        }
+    }
+
+    @Test
+    public void bucket_WithRule() throws Exception {
+        String config = "[{\"name\":\"bucket_rule\",\"percent\":100,\"status\":1,\"hits\":[\"123\"],"
+                + "\"rule\":\"platform == 'ios' && version >= 3.2.0\"}]";
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(config);
+        BucketContext ios = new BucketContext().set("platform", "ios").set("version", "3.2.1");
+        BucketContext android = new BucketContext().set("platform", "android").set("version", "3.2.1");
+
+        assertThat(helper.isBucket("bucket_rule", 456L, ios), CoreMatchers.is(true));
+        assertThat(helper.isBucket("bucket_rule", 456L, android), CoreMatchers.is(false));
+        // 不带属性时按属性为空判断
+        assertThat(helper.isBucket("bucket_rule", 456L), CoreMatchers.is(false));
+        assertThat(helper.bucketAll(456L).isBucket("bucket_rule"), CoreMatchers.is(false));
+        // 白名单不受规则限制
+        assertThat(helper.isBucket("bucket_rule", 123L, android), CoreMatchers.is(true));
+
+        assertThat(helper.findBucketTest("bucket_rule").getRule(), CoreMatchers.is("platform == 'ios' && version >= 3.2.0"));
+
+        Path file = Files.createTempFile("rule", ".bts");
+        helper.writeSnapshot(file);
+        BucketTestHelper loaded = BucketTestHelper.loadSnapshot(file);
+        assertThat(loaded.isBucket("bucket_rule", 456L, ios), CoreMatchers.is(true));
+        assertThat(loaded.isBucket("bucket_rule", 456L, android), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void bucket_NegatedRuleWithoutContext() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(
+                "[{\"name\":\"bucket_rule\",\"percent\":100,\"status\":1,\"rule\":\"!(region == 'cn')\"}]").get(0);
+
+        assertThat(bucketTest.isBucket(456L), CoreMatchers.is(true));
+        assertThat(bucketTest.isBucket(456L, new BucketContext().set("region", "cn")), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void compile_NestingLimited() {
+        StringBuilder nested = new StringBuilder();
+        for (int i = 0; i < BucketRuleParser.MAX_DEPTH; i++) {
+            nested.append('(');
+        }
+        nested.append("region == 'cn'");
+        for (int i = 0; i < BucketRuleParser.MAX_DEPTH; i++) {
+            nested.append(')');
+        }
+        assertThat(BucketRule.compile(nested.toString()).matches(new BucketContext().set("region", "cn")), CoreMatchers.is(true));
+
+        for (String rule : new String[]{"(" + nested + ")", repeat('!', 100000) + "region == 'cn'", repeat('(', 100000)}) {
+            try {
+                BucketRule.compile(rule);
+                throw new AssertionError("expected failure: " + rule.length());
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage().startsWith("nesting deeper than"), CoreMatchers.is(true));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setRule_Malformed() {
+        new BucketTest().setRule("region ==");
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
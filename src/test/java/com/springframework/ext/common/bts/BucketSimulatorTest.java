@@ -0,0 +1,239 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketSimulatorTest {
+    private static final String CONFIG = "["
+            + "{\"name\":\"a\",\"percent\":30,\"status\":1,\"hash\":\"murmur3\",\"hits\":[\"3\"],"
+            + "\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":2}]},"
+            + "{\"name\":\"b\",\"layer\":\"L\",\"percent\":40,\"status\":1},"
+            + "{\"name\":\"c\",\"layer\":\"L\",\"percent\":30,\"status\":1,\"excludes\":[\"5\"]},"
+            + "{\"name\":\"d\",\"percent\":10,\"status\":1}]";
+    private static final int SIZE = 200000;
+
+    @Test
+    public void range_SameAsSingle() {
+        BucketTestHelper helper = BucketTestHelper.instance(CONFIG);
+        BucketSimulator simulator = simulator(helper);
+
+        BucketSimulation simulation = simulator.range(0, SIZE);
+
+        CompiledBucketTest[] tests = helper.snapshot().tests();
+        long[][] buckets = new long[tests.length][];
+        long[][] overlaps = new long[tests.length][tests.length];
+        for (int t = 0; t < tests.length; t++) {
+            buckets[t] = new long[tests[t].getPercent()];
+        }
+        for (long index = 0; index < SIZE; index++) {
+            for (int i = 0; i < tests.length; i++) {
+                int bucket = tests[i].bucket(index);
+                if (bucket < 0) {
+                    continue;
+                }
+                buckets[i][bucket]++;
+                for (int j = 0; j < tests.length; j++) {
+                    if (tests[j].bucket(index) >= 0) {
+                        overlaps[i][j]++;
+                    }
+                }
+            }
+        }
+
+        assertThat(simulation.getIds(), CoreMatchers.is((long) SIZE));
+        for (int t = 0; t < tests.length; t++) {
+            assertArrayEquals(buckets[t], simulation.getExperiments().get(t).getBuckets());
+            for (int j = 0; j < tests.length; j++) {
+                assertThat(simulation.overlap(t, j), CoreMatchers.is(overlaps[t][j]));
+            }
+        }
+        // 同层实验互不重叠
+        assertThat(simulation.overlap("b", "c"), CoreMatchers.is(0L));
+        assertThat(simulation.get("a").getArms()[0] + simulation.get("a").getArms()[1],
+                CoreMatchers.is(simulation.get("a").getHits()));
+    }
+
+    @Test
+    public void range_Balanced() {
+        BucketSimulation simulation = simulator(BucketTestHelper.instance(CONFIG)).range(0, 1000000);
+
+        assertThat(simulation.getMismatches().isEmpty(), CoreMatchers.is(true));
+        assertThat(Math.abs(simulation.get("a").getHits() / 1000000.0 - 0.3) < 0.005, CoreMatchers.is(true));
+        assertThat(simulation.get("b").getExpectedShare(), CoreMatchers.is(0.4));
+        double expected = simulation.expectedOverlap(0, 3);
+        assertThat(Math.abs(simulation.overlap(0, 3) - expected) < expected * 0.05, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void range_ClusteredIds() {
+        // legacy按取模分桶，步长为basic的索引全部落在同一个桶
+        BucketTestHelper helper = BucketTestHelper.instance(
+                "[{\"name\":\"legacy\",\"percent\":50,\"status\":1},{\"name\":\"mixed\",\"percent\":50,\"status\":1,\"hash\":\"murmur3\"}]");
+
+        BucketSimulation simulation = simulator(helper).range(0, 10000000, 100);
+
+        assertThat(simulation.getIds(), CoreMatchers.is(100000L));
+        assertThat(simulation.get("legacy").isMismatch(), CoreMatchers.is(true));
+        assertThat(simulation.get("mixed").isMismatch(), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void binaryFile_SameAsRange() throws IOException {
+        Path file = Files.createTempFile("simulator", ".bin");
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+                for (long index = 0; index < SIZE; index++) {
+                    out.writeLong(index);
+                }
+            }
+            BucketSimulator simulator = simulator(BucketTestHelper.instance(CONFIG));
+            simulator.binaryChunk = 10007;
+
+            assertSame(simulator.range(0, SIZE), simulator.binaryFile(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void textFile_SameAsRange() throws IOException {
+        Path file = Files.createTempFile("simulator", ".txt");
+        try {
+            try (OutputStream stream = Files.newOutputStream(file);
+                 BufferedWriter out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+                for (long index = 0; index < SIZE; index++) {
+                    if (index % 1000 == 0) {
+                        out.write("abc\n\n");
+                    }
+                    out.write(index % 3 == 0 ? index + "\t2026-10-18\n" : index % 3 == 1 ? index + "\r\n" : index + "\n");
+                }
+                out.write("99999999999999999999\n-");
+            }
+            BucketSimulator simulator = simulator(BucketTestHelper.instance(CONFIG));
+            simulator.textChunk = 1009;
+
+            BucketSimulation simulation = simulator.textFile(file);
+
+            assertSame(simulator.range(0, SIZE), simulation);
+            assertThat(simulation.getInvalid(), CoreMatchers.is(SIZE / 1000 + 2L));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void textFile_NegativeAndBounds() throws IOException {
+        Path file = Files.createTempFile("simulator", ".txt");
+        try {
+            Files.write(file, ("-9223372036854775808\n9223372036854775807\n9223372036854775808\n-42")
+                    .getBytes(StandardCharsets.UTF_8));
+            BucketSimulator simulator = simulator(BucketTestHelper.instance("[{\"name\":\"all\",\"percent\":100,\"status\":1}]"));
+
+            BucketSimulation simulation = simulator.textFile(file);
+
+            assertThat(simulation.getIds(), CoreMatchers.is(3L));
+            assertThat(simulation.getInvalid(), CoreMatchers.is(1L));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void split_ArmSharesFromWeights() {
+        CompiledBucketTest bucketTest = BucketConfigParser.parse("[{\"name\":\"arms\",\"percent\":3,\"status\":1,"
+                + "\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}]}]").get(0);
+        long[] buckets = {10000, 10000, 10000};
+
+        // 1:1的分组实际按1个桶:2个桶切分
+        BucketSimulation.Experiment skewed = new BucketSimulation.Experiment(bucketTest, 1000000, buckets,
+                new long[]{10000, 20000}, 0.001);
+        BucketSimulation.Experiment even = new BucketSimulation.Experiment(bucketTest, 1000000, buckets,
+                new long[]{15050, 14950}, 0.001);
+
+        assertThat(skewed.isMismatch(), CoreMatchers.is(true));
+        assertThat(skewed.getSplitPValue() < 1e-10, CoreMatchers.is(true));
+        assertThat(even.isMismatch(), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void launcher_Arity() throws IOException {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(err, true);
+        String[][] invalid = {
+                {"bucket.json", "range", "0"},
+                {"bucket.json", "range", "0", "10", "1", "2"},
+                {"bucket.json", "binary"},
+                {"bucket.json", "text", "a.txt", "b.txt"},
+                {"bucket.json", "csv", "a.csv"},
+                {"bucket.json", "range", "0", "x"},
+                {"bucket.json", "range", "10", "0"},
+                {"bucket.json", "range", "0", "10", "0"},
+        };
+        for (String[] args : invalid) {
+            assertThat(BucketSimulatorLauncher.run(args, stream, stream), CoreMatchers.is(BucketSimulatorLauncher.USAGE));
+        }
+        assertThat(err.toString().contains("usage: "), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void launcher_Range() throws IOException {
+        Path config = Files.createTempFile("bucket", ".json");
+        try {
+            Files.write(config, CONFIG.getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PrintStream stream = new PrintStream(out, true);
+
+            int status = BucketSimulatorLauncher.run(new String[]{config.toString(), "range", "0", "20000"}, stream, stream);
+
+            assertThat(status, CoreMatchers.is(BucketSimulatorLauncher.OK));
+            assertThat(out.toString().isEmpty(), CoreMatchers.is(false));
+        } finally {
+            Files.delete(config);
+        }
+    }
+
+    @Test
+    public void chiSquarePValue() {
+        assertThat(Math.abs(BucketSimulation.chiSquarePValue(3.841459, 1) - 0.05) < 1e-6, CoreMatchers.is(true));
+        assertThat(Math.abs(BucketSimulation.chiSquarePValue(9.21034, 2) - 0.01) < 1e-6, CoreMatchers.is(true));
+        assertThat(Math.abs(BucketSimulation.chiSquarePValue(0.0158, 1) - 0.9) < 1e-3, CoreMatchers.is(true));
+        assertThat(Math.abs(BucketSimulation.chiSquarePValue(23.209, 10) - 0.01) < 1e-4, CoreMatchers.is(true));
+        assertThat(BucketSimulation.chiSquarePValue(0, 3), CoreMatchers.is(1.0));
+        assertThat(Double.isNaN(BucketSimulation.chiSquarePValue(1, 0)), CoreMatchers.is(true));
+    }
+
+    private static BucketSimulator simulator(BucketTestHelper helper) {
+        BucketSimulator simulator = new BucketSimulator(helper);
+        simulator.setThreads(3);
+        simulator.setBatchSize(1000);
+        return simulator;
+    }
+
+    private static void assertSame(BucketSimulation expected, BucketSimulation actual) {
+        assertThat(actual.getIds(), CoreMatchers.is(expected.getIds()));
+        for (int t = 0; t < expected.getExperiments().size(); t++) {
+            assertArrayEquals(expected.getExperiments().get(t).getBuckets(), actual.getExperiments().get(t).getBuckets());
+            for (int j = 0; j < expected.getExperiments().size(); j++) {
+                assertThat(actual.overlap(t, j), CoreMatchers.is(expected.overlap(t, j)));
+            }
+        }
+    }
+}
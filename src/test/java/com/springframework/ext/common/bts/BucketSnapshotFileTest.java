@@ -0,0 +1,160 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketSnapshotFileTest {
+    private static final String BUCKET_CONFIG = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":7,\"status\":1,\"hits\":[\"123\",\"hislist\",\"-9\"],\"excludes\":[\"456\"],\"extra\":\"{\\\"current\\\":1}\"},"
+            + "{\"name\":\"other\",\"percent\":30,\"status\":2,\"hash\":\"xxhash\"}]";
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("bucket", ".bts");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void load_SameAsWritten() throws Exception {
+        List<CompiledBucketTest> expected = BucketConfigParser.parse(BUCKET_CONFIG);
+        BucketSnapshotFile.write(expected, file);
+
+        List<CompiledBucketTest> loaded = BucketSnapshotFile.load(file);
+
+        assertThat(loaded.size(), CoreMatchers.is(2));
+        for (int i = 0; i < expected.size(); i++) {
+            CompiledBucketTest left = expected.get(i);
+            CompiledBucketTest right = loaded.get(i);
+            assertThat(right.getName(), CoreMatchers.is(left.getName()));
+            assertThat(right.getStatus(), CoreMatchers.is(left.getStatus()));
+            assertThat(right.getHash(), CoreMatchers.is(left.getHash()));
+            assertThat(right.getExtra(), CoreMatchers.is(left.getExtra()));
+            assertThat(Arrays.asList(right.hitNames()), CoreMatchers.is(Arrays.asList(left.hitNames())));
+            for (long index = -1000; index < 1000; index++) {
+                assertThat(right.bucket(index), CoreMatchers.is(left.bucket(index)));
+            }
+        }
+        assertThat(loaded.get(0).hits() instanceof MappedLongSet, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void load_Arms() throws Exception {
+        List<CompiledBucketTest> expected = BucketConfigParser.parse("[{\"name\":\"a\",\"percent\":90,\"status\":1,\"layer\":\"L\","
+                + "\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":2}]}]");
+        BucketSnapshotFile.write(expected, file);
+
+        CompiledBucketTest loaded = BucketSnapshotFile.load(file).get(0);
+
+        assertThat(loaded.getLayer(), CoreMatchers.is("L"));
+        for (long index = 0; index < 1000; index++) {
+            assertThat(loaded.variant(index), CoreMatchers.is(expected.get(0).variant(index)));
+        }
+    }
+
+    @Test
+    public void load_Ramps() throws Exception {
+        List<CompiledBucketTest> expected = BucketConfigParser.parse("[{\"name\":\"a\",\"percent\":50,\"status\":1,"
+                + "\"startTime\":1000,\"endTime\":9000,\"ramps\":[{\"time\":2000,\"percent\":5}]}]");
+        BucketSnapshotFile.write(expected, file);
+
+        CompiledBucketTest loaded = BucketSnapshotFile.load(file).get(0);
+
+        assertThat(loaded.getStartTime(), CoreMatchers.is(1000L));
+        assertThat(loaded.getEndTime(), CoreMatchers.is(9000L));
+        assertThat(loaded.rampTimes()[0], CoreMatchers.is(2000L));
+        assertThat(loaded.rampPercents()[0], CoreMatchers.is(5));
+    }
+
+    @Test
+    public void load_LargeList() throws Exception {
+        StringBuilder config = new StringBuilder("[{\"name\":\"large\",\"percent\":0,\"status\":1,\"hits\":[");
+        for (int i = 0; i < 100000; i++) {
+            config.append(i == 0 ? "" : ",").append(1000000L + i * 3L);
+        }
+        BucketSnapshotFile.write(BucketConfigParser.parse(config.append("]}]").toString()), file);
+
+        CompiledBucketTest loaded = BucketSnapshotFile.load(file).get(0);
+
+        assertThat(loaded.hits().size(), CoreMatchers.is(100000));
+        for (int i = 0; i < 100000; i++) {
+            assertThat(loaded.isBucket(1000000L + i * 3L), CoreMatchers.is(true));
+            assertThat(loaded.isBucket(1000001L + i * 3L), CoreMatchers.is(false));
+        }
+    }
+
+    @Test
+    public void helper_WriteAndLoad() throws Exception {
+        BucketTestHelper helper = BucketTestHelper.instance(BUCKET_CONFIG);
+        helper.writeSnapshot(file);
+
+        BucketTestHelper loaded = BucketTestHelper.loadSnapshot(file);
+
+        assertThat(loaded.isBucket("bucket_test", 123L), CoreMatchers.is(true));
+        assertThat(loaded.isBucket("bucket_test", 456L), CoreMatchers.is(false));
+        assertThat(loaded.findBucketTest("bucket_test").getExtra(), CoreMatchers.is("{\"current\":1}"));
+        assertThat(loaded.findBucketTest("bucket_test").getHits().contains("hislist"), CoreMatchers.is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_NotSnapshot() throws Exception {
+        Files.write(file, BUCKET_CONFIG.getBytes(StandardCharsets.UTF_8));
+
+        BucketSnapshotFile.load(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_Truncated() throws Exception {
+        BucketSnapshotFile.write(BucketConfigParser.parse(BUCKET_CONFIG), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, 40));
+
+        BucketSnapshotFile.load(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_InvalidCount() throws Exception {
+        BucketSnapshotFile.write(BucketConfigParser.parse(BUCKET_CONFIG), file);
+        byte[] bytes = Files.readAllBytes(file);
+        // 实验个数（文件头第三个int）改为Integer.MAX_VALUE
+        bytes[8] = 0x7f;
+        Files.write(file, bytes);
+
+        BucketSnapshotFile.load(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_InvalidOffset() throws Exception {
+        BucketSnapshotFile.write(BucketConfigParser.parse("[{\"name\":\"bucket_test\",\"percent\":7,\"status\":1,\"hits\":[\"123\"]}]"), file);
+        byte[] bytes = Files.readAllBytes(file);
+        // 唯一的白名单值位于文件末尾，实验头中的hitsOffset(long)即指向它
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int hitsOffset = 12;
+        while (buffer.getLong(hitsOffset) != bytes.length - 8L) {
+            hitsOffset++;
+        }
+        bytes[hitsOffset] = 0x10;
+        Files.write(file, bytes);
+
+        BucketSnapshotFile.load(file);
+    }
+}
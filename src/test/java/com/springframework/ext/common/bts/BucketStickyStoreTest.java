@@ -0,0 +1,379 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketStickyStoreTest {
+    private static final String CONFIG = "[{\"name\":\"sticky\",\"basic\":100,\"percent\":50,\"status\":1,\"hash\":\"murmur3\"}]";
+    private static final String RESHUFFLED = "[{\"name\":\"sticky\",\"basic\":200,\"percent\":120,\"status\":1,\"hash\":\"xxhash\"}]";
+
+    @After
+    public void tearDown() {
+        BucketTestHelper.setStickyStore(null);
+        BucketClock.reset();
+    }
+
+    @Test
+    public void helper_KeepsBucketAfterReconfig() throws Exception {
+        BucketStickyStore store = BucketStickyStore.open(file(), 10000);
+        BucketTestHelper.setStickyStore(store);
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(CONFIG);
+        int[] before = new int[1000];
+        for (int index = 0; index < before.length; index++) {
+            before[index] = helper.bucket("sticky", index);
+        }
+
+        helper.onChange(RESHUFFLED);
+
+        CompiledBucketTest reshuffled = BucketConfigParser.parse(RESHUFFLED).get(0);
+        int changed = 0;
+        for (int index = 0; index < before.length; index++) {
+            int expected = before[index] >= 0 ? before[index] : reshuffled.bucket(index);
+            assertThat(helper.bucket("sticky", index), CoreMatchers.is(expected));
+            changed += before[index] >= 0 && reshuffled.bucket(index) != before[index] ? 1 : 0;
+        }
+        // 不记录时大部分已曝光的索引会换桶
+        assertThat(changed > 400, CoreMatchers.is(true));
+        assertThat(store.get("sticky", 0), CoreMatchers.is(helper.bucket("sticky", 0)));
+    }
+
+    @Test
+    public void helper_ExitsWhenStoppedOrExcluded() throws Exception {
+        BucketTestHelper.setStickyStore(BucketStickyStore.open(file(), 100));
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig("[{\"name\":\"sticky\",\"percent\":100,\"status\":1}]");
+        // 取一个桶号不小于50、一个桶号小于10的索引
+        long high = 0;
+        while (helper.bucket("sticky", high) < 50) {
+            high++;
+        }
+        long low = 0;
+        while (helper.bucket("sticky", low) >= 10) {
+            low++;
+        }
+        int highBucket = helper.bucket("sticky", high);
+        int lowBucket = helper.bucket("sticky", low);
+
+        helper.onChange("[{\"name\":\"sticky\",\"percent\":100,\"status\":2}]");
+        assertThat(helper.bucket("sticky", high), CoreMatchers.is(-1));
+
+        helper.onChange("[{\"name\":\"sticky\",\"percent\":100,\"status\":1,\"excludes\":[\"" + high + "\"]}]");
+        assertThat(helper.bucket("sticky", high), CoreMatchers.is(-1));
+        assertThat(helper.bucket("sticky", low), CoreMatchers.is(lowBucket));
+
+        helper.onChange("[{\"name\":\"sticky\",\"percent\":100,\"status\":1}]");
+        assertThat(helper.bucket("sticky", high), CoreMatchers.is(highBucket));
+
+        // 缩量到原桶号之下时按当前配置计算
+        helper.onChange("[{\"name\":\"sticky\",\"percent\":10,\"status\":1}]");
+        assertThat(helper.bucket("sticky", high), CoreMatchers.is(-1));
+        assertThat(helper.bucket("sticky", low), CoreMatchers.is(lowBucket));
+    }
+
+    @Test
+    public void helper_RechecksRule() throws Exception {
+        BucketTestHelper.setStickyStore(BucketStickyStore.open(file(), 1000));
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig("[{\"name\":\"sticky\",\"percent\":100,\"status\":1,\"rule\":\"region == 'cn'\"}]");
+        BucketContext cn = new BucketContext().set("region", "cn");
+        BucketContext us = new BucketContext().set("region", "us");
+        int[] before = new int[100];
+        for (int index = 0; index < before.length; index++) {
+            before[index] = helper.bucket("sticky", index, cn);
+            assertThat(before[index] >= 0, CoreMatchers.is(true));
+        }
+
+        helper.onChange("[{\"name\":\"sticky\",\"basic\":1000,\"percent\":1000,\"status\":1,\"hash\":\"xxhash\","
+                + "\"rule\":\"region == 'cn'\"}]");
+
+        for (int index = 0; index < before.length; index++) {
+            assertThat(helper.bucket("sticky", index, cn), CoreMatchers.is(before[index]));
+            assertThat(helper.bucket("sticky", index, us), CoreMatchers.is(-1));
+            // 不带属性时按属性为空判断，规则不满足
+            assertThat(helper.bucket("sticky", index), CoreMatchers.is(-1));
+        }
+    }
+
+    @Test
+    public void helper_RechecksWhitelist() throws Exception {
+        BucketStickyStore store = BucketStickyStore.open(file(), 1000);
+        BucketTestHelper.setStickyStore(store);
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig("[{\"name\":\"sticky\",\"percent\":0,\"status\":1,\"hits\":[\"42\"]}]");
+        assertThat(helper.bucket("sticky", 42L), CoreMatchers.is(0));
+        // 白名单不记录，移出白名单后按hash分桶
+        assertThat(store.get("sticky", 42L), CoreMatchers.is(-1));
+        helper.onChange("[{\"name\":\"sticky\",\"percent\":0,\"status\":1}]");
+        assertThat(helper.bucket("sticky", 42L), CoreMatchers.is(-1));
+
+        // 已记录的索引加入白名单后固定为0号桶
+        helper.onChange("[{\"name\":\"sticky\",\"percent\":100,\"status\":1,\"hash\":\"murmur3\"}]");
+        long index = 0;
+        while (helper.bucket("sticky", index) == 0) {
+            index++;
+        }
+        helper.onChange("[{\"name\":\"sticky\",\"percent\":100,\"status\":1,\"hash\":\"murmur3\",\"hits\":[\"" + index + "\"]}]");
+        assertThat(helper.bucket("sticky", index), CoreMatchers.is(0));
+    }
+
+    @Test
+    public void helper_RechecksLayerRange() throws Exception {
+        BucketTestHelper.setStickyStore(BucketStickyStore.open(file(), 100000));
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig("[{\"name\":\"first\",\"layer\":\"L\",\"percent\":50,\"status\":1},"
+                + "{\"name\":\"second\",\"layer\":\"L\",\"percent\":50,\"status\":1}]");
+        int[] first = new int[10000];
+        for (int index = 0; index < first.length; index++) {
+            first[index] = helper.bucket("first", index);
+            helper.bucket("second", index);
+        }
+
+        // 重新划分：first缩小为[0, 20%)，原first区间的后半段划给second
+        helper.onChange("[{\"name\":\"first\",\"layer\":\"L\",\"percent\":20,\"status\":1},"
+                + "{\"name\":\"second\",\"layer\":\"L\",\"percent\":80,\"status\":1}]");
+
+        int kept = 0;
+        for (int index = 0; index < first.length; index++) {
+            boolean inFirst = helper.isBucket("first", index);
+            boolean inSecond = helper.isBucket("second", index);
+            assertThat("index " + index, inFirst && inSecond, CoreMatchers.is(false));
+            if (inFirst) {
+                assertThat(helper.bucket("first", index), CoreMatchers.is(first[index]));
+                kept++;
+            }
+        }
+        assertThat(Math.abs(kept / (double) first.length - 0.2) < 0.02, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void helper_Keyed() throws Exception {
+        BucketTestHelper.setStickyStore(BucketStickyStore.open(file(), 100));
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig("[{\"name\":\"sticky\",\"percent\":100,\"status\":1,\"hash\":\"murmur3\"}]");
+        String[] keys = {"uuid-a", "uuid-b", "uuid-c", "uuid-d"};
+        int[] before = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            before[i] = helper.bucket("sticky", keys[i]);
+        }
+
+        helper.onChange("[{\"name\":\"sticky\",\"basic\":1000,\"percent\":1000,\"status\":1,\"hash\":\"xxhash\"}]");
+
+        for (int i = 0; i < keys.length; i++) {
+            assertThat(helper.bucket("sticky", keys[i]), CoreMatchers.is(before[i]));
+        }
+        // 数字索引与非数字索引分开记录
+        long hash = CompiledBucketTest.key("uuid-a");
+        assertThat(BucketTestHelper.getStickyStore().get("sticky", hash), CoreMatchers.is(-1));
+    }
+
+    @Test
+    public void open_Persistent() throws Exception {
+        Path file = file();
+        BucketStickyStore store = BucketStickyStore.open(file, 1000);
+        for (long index = 0; index < 500; index++) {
+            store.put(BucketHash.hash64("sticky"), index * 7919, (int) (index % 100));
+        }
+        store.close();
+        assertThat(store.put(1L, 1L, 1), CoreMatchers.is(false));
+
+        BucketStickyStore reopened = BucketStickyStore.open(file, 1000);
+
+        assertThat(reopened.size(), CoreMatchers.is(500));
+        for (long index = 0; index < 500; index++) {
+            assertThat(reopened.get("sticky", index * 7919), CoreMatchers.is((int) (index % 100)));
+        }
+        assertThat(reopened.get("sticky", 1), CoreMatchers.is(-1));
+        assertThat(reopened.get("other", 0), CoreMatchers.is(-1));
+    }
+
+    @Test
+    public void put_Bounded() throws Exception {
+        Path file = file();
+        BucketStickyStore store = BucketStickyStore.open(file, 10);
+        long key = BucketHash.hash64("sticky");
+        for (long index = 0; index < 100; index++) {
+            BucketClock.set(index * 60_000);
+            store.put(key, index, 1);
+        }
+
+        assertThat(store.size(), CoreMatchers.is(10));
+        assertThat(store.getRejected(), CoreMatchers.is(90L));
+        // 已有记录可以覆盖
+        assertThat(store.put(key, 3, 2), CoreMatchers.is(true));
+        assertThat(store.get("sticky", 3), CoreMatchers.is(2));
+        store.close();
+
+        // 缩小上限时保留最近的记录
+        BucketStickyStore reopened = BucketStickyStore.open(file, 4);
+        assertThat(reopened.size(), CoreMatchers.is(4));
+        assertThat(reopened.getMaxEntries(), CoreMatchers.is(4));
+        assertThat(reopened.get("sticky", 9), CoreMatchers.is(1));
+        assertThat(reopened.get("sticky", 5), CoreMatchers.is(-1));
+    }
+
+    @Test
+    public void compact() throws Exception {
+        BucketStickyStore store = BucketStickyStore.open(file(), 100);
+        for (long index = 0; index < 10; index++) {
+            BucketClock.set(index * 60_000);
+            store.put(BucketHash.hash64("a"), index, 1);
+            store.put(BucketHash.hash64("b"), index, 2);
+            store.put(BucketHash.hash64("b") ^ 1, index, 3);
+        }
+
+        assertThat(store.compact(Arrays.asList("b", "c"), 0), CoreMatchers.is(10));
+        assertThat(store.get("a", 0), CoreMatchers.is(-1));
+        assertThat(store.get("b", 0), CoreMatchers.is(2));
+
+        assertThat(store.compact(null, 5 * 60_000), CoreMatchers.is(10));
+        assertThat(store.size(), CoreMatchers.is(10));
+        assertThat(store.get("b", 4), CoreMatchers.is(-1));
+        assertThat(store.get("b", 5), CoreMatchers.is(2));
+    }
+
+    @Test
+    public void compact_After2038() throws Exception {
+        BucketStickyStore store = BucketStickyStore.open(file(), 100);
+        long key = BucketHash.hash64("sticky");
+        // 2030年、2040年、2100年
+        long[] times = {1893456000000L, 2208988800000L, 4102444800000L};
+        for (int i = 0; i < times.length; i++) {
+            BucketClock.set(times[i]);
+            store.put(key, i, i);
+        }
+
+        assertThat(store.compact(null, 2000000000000L), CoreMatchers.is(1));
+        assertThat(store.get(key, 0), CoreMatchers.is(-1));
+        assertThat(store.get(key, 1), CoreMatchers.is(1));
+        assertThat(store.get(key, 2), CoreMatchers.is(2));
+        assertThat(store.compact(null, 3000000000000L), CoreMatchers.is(1));
+        assertThat(store.get(key, 2), CoreMatchers.is(2));
+    }
+
+    @Test
+    public void rename() throws Exception {
+        BucketStickyStore store = BucketStickyStore.open(file(), 100);
+        store.put(BucketHash.hash64("old"), 1, 11);
+        store.put(BucketHash.hash64("old") ^ 1, 1, 12);
+        store.put(BucketHash.hash64("new"), 2, 13);
+        store.put(BucketHash.hash64("other"), 1, 14);
+
+        store.rename("old", "new");
+
+        assertThat(store.size(), CoreMatchers.is(3));
+        assertThat(store.get("old", 1), CoreMatchers.is(-1));
+        assertThat(store.get("new", 1), CoreMatchers.is(11));
+        assertThat(store.get(BucketHash.hash64("new") ^ 1, 1), CoreMatchers.is(12));
+        assertThat(store.get("new", 2), CoreMatchers.is(-1));
+        assertThat(store.get("other", 1), CoreMatchers.is(14));
+    }
+
+    @Test
+    public void open_Corrupted() throws Exception {
+        Path file = file();
+        Files.write(file, new byte[64]);
+        try {
+            BucketStickyStore.open(file, 100);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage().startsWith("not a bucket sticky store"), CoreMatchers.is(true));
+        }
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        BucketStickyStore store = BucketStickyStore.open(file(), 100000);
+        long key = BucketHash.hash64("sticky");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (long index = 0; index < 20000; index++) {
+                        int bucket = store.get(key, index);
+                        if (bucket < 0) {
+                            store.put(key, index, (int) (index % 97));
+                        } else if (bucket != index % 97) {
+                            throw new AssertionError("index " + index + " bucket " + bucket);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 5; i++) {
+                    store.compact(null, 0);
+                }
+                return null;
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(store.size(), CoreMatchers.is(20000));
+        for (long index = 0; index < 20000; index++) {
+            assertThat(store.get(key, index), CoreMatchers.is((int) (index % 97)));
+        }
+    }
+
+    @Test
+    public void concurrentPut_Bounded() throws Exception {
+        BucketStickyStore store = BucketStickyStore.open(file(), 10000);
+        long key = BucketHash.hash64("sticky");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long base = t * 5000L;
+                futures.add(executor.submit(() -> {
+                    for (long index = base; index < base + 5000; index++) {
+                        store.put(key, index, (int) (index % 97));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int recorded = 0;
+        for (long index = 0; index < 40000; index++) {
+            int bucket = store.get(key, index);
+            if (bucket >= 0) {
+                assertThat(bucket, CoreMatchers.is((int) (index % 97)));
+                recorded++;
+            }
+        }
+        assertThat(store.size(), CoreMatchers.is(10000));
+        assertThat(recorded, CoreMatchers.is(10000));
+        assertThat(store.getRejected(), CoreMatchers.is(30000L));
+    }
+
+    private static Path file() throws Exception {
+        return Files.createTempDirectory("sticky").resolve("sticky.bin");
+    }
+}
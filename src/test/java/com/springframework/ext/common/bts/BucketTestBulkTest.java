@@ -0,0 +1,96 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+import org.springframework.ext.common.helper.JsonHelper;
+
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketTestBulkTest {
+    private static final int SIZE = BucketTestBulk.THRESHOLD * 4 + 37;
+
+    @Test
+    public void bucket_SameAsSingle() {
+        CompiledBucketTest bucketTest = compile("{\"name\":\"bucket_test\", \"percent\":10, \"basic\":\"100\", \"status\":\"1\"}");
+        long[] indexes = indexes();
+
+        int[] buckets = BucketTestBulk.bucket(bucketTest, indexes);
+
+        for (int i = 0; i < indexes.length; i++) {
+            assertThat(buckets[i], CoreMatchers.is(bucketTest.bucket(indexes[i])));
+        }
+    }
+
+    @Test
+    public void bucket_WithHitsAndExcludes() {
+        CompiledBucketTest bucketTest = compile("{\"name\":\"bucket_test\", \"percent\":10, \"status\":\"1\", \"hits\":[\"3\",\"5\"], \"excludes\":[\"7\"]}");
+        long[] indexes = indexes();
+
+        int[] buckets = BucketTestBulk.bucket(bucketTest, indexes);
+
+        for (int i = 0; i < indexes.length; i++) {
+            assertThat(buckets[i], CoreMatchers.is(bucketTest.bucket(indexes[i])));
+        }
+    }
+
+    @Test
+    public void bucket_Disabled() {
+        CompiledBucketTest bucketTest = compile("{\"name\":\"bucket_test\", \"percent\":10, \"status\":\"2\"}");
+
+        int[] buckets = BucketTestBulk.bucket(bucketTest, new long[]{1L, 2L, 3L});
+
+        assertArrayEquals(new int[]{-1, -1, -1}, buckets);
+    }
+
+    @Test
+    public void hits_SameAsSingle() {
+        CompiledBucketTest bucketTest = compile("{\"name\":\"bucket_test\", \"percent\":30, \"status\":\"1\", \"hits\":[\"11\"]}");
+        long[] indexes = indexes();
+
+        long[] hits = BucketTestBulk.hits(bucketTest, indexes);
+
+        for (int i = 0; i < indexes.length; i++) {
+            boolean hit = (hits[i >>> 6] & (1L << i)) != 0;
+            assertThat(hit, CoreMatchers.is(bucketTest.isBucket(indexes[i])));
+        }
+    }
+
+    @Test
+    public void stream_SameAsArray() {
+        CompiledBucketTest bucketTest = compile("{\"name\":\"bucket_test\", \"percent\":10, \"status\":\"1\"}");
+        long[] indexes = indexes();
+
+        assertArrayEquals(BucketTestBulk.bucket(bucketTest, indexes), BucketTestBulk.bucket(bucketTest, LongStream.of(indexes).parallel()));
+    }
+
+    @Test
+    public void histogram_Counts() {
+        CompiledBucketTest bucketTest = compile("{\"name\":\"bucket_test\", \"percent\":10, \"basic\":100, \"status\":\"1\"}");
+
+        long[] histogram = BucketTestBulk.histogram(bucketTest, LongStream.range(0, 100000).parallel());
+
+        assertThat(histogram.length, CoreMatchers.is(10));
+        for (long count : histogram) {
+            assertThat(count, CoreMatchers.is(1000L));
+        }
+    }
+
+    private static CompiledBucketTest compile(String json) {
+        return JsonHelper.fromJson(json, BucketTest.class).compile();
+    }
+
+    private static long[] indexes() {
+        long[] indexes = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            indexes[i] = i * 7919L - 1000;
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,259 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketTestFilterTest {
+    private static final String BUCKET_CONFIG = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":0,\"status\":1,\"hits\":[\"123\"]},"
+            + "{\"name\":\"all\",\"basic\":100,\"percent\":100,\"status\":1},{\"name\":\"none\",\"percent\":0,\"status\":1}]";
+
+    private BucketTestFilter filter;
+    private Map<String, String> headers;
+    private Map<String, String> parameters;
+    private Map<String, Object> attributes;
+    private Map<String, String> responseHeaders;
+    private Cookie[] cookies;
+    private BucketAssignment seen;
+
+    @Before
+    public void setUp() {
+        filter = new BucketTestFilter(BucketTestHelper.instance(BUCKET_CONFIG));
+        headers = new HashMap<>();
+        parameters = new HashMap<>();
+        attributes = new HashMap<>();
+        responseHeaders = new HashMap<>();
+        cookies = null;
+        seen = null;
+    }
+
+    @After
+    public void tearDown() {
+        BucketTestHelper.setExposure(null);
+        BucketTestHelper.setStickyStore(null);
+    }
+
+    @Test
+    public void doFilter_Header() throws Exception {
+        filter.setHeader("X-User-Id");
+        headers.put("X-User-Id", " 123 ");
+
+        doFilter();
+
+        assertThat(seen.getIndex(), CoreMatchers.is(123L));
+        assertThat(seen.isBucket("bucket_test"), CoreMatchers.is(true));
+        assertThat(seen.isBucket("all"), CoreMatchers.is(true));
+        assertThat(seen.isBucket("none"), CoreMatchers.is(false));
+        assertThat(responseHeaders.isEmpty(), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void doFilter_CookieThenParameter() throws Exception {
+        filter.setHeader("X-User-Id");
+        filter.setCookie("uid");
+        filter.setParameter("userId");
+        cookies = new Cookie[]{new Cookie("other", "1"), new Cookie("uid", "456")};
+        parameters.put("userId", "123");
+
+        doFilter();
+        assertThat(seen.getIndex(), CoreMatchers.is(456L));
+
+        cookies = null;
+        doFilter();
+        assertThat(seen.getIndex(), CoreMatchers.is(123L));
+    }
+
+    @Test
+    public void doFilter_NoDimension() throws Exception {
+        filter.setParameter("userId");
+
+        doFilter();
+
+        assertThat(seen.size(), CoreMatchers.is(0));
+    }
+
+    @Test
+    public void doFilter_StringDimension() throws Exception {
+        filter.setCookie("uuid");
+        cookies = new Cookie[]{new Cookie("uuid", "550e8400-e29b-41d4-a716-446655440000")};
+
+        doFilter();
+
+        assertThat(seen.getIndex(), CoreMatchers.is(CompiledBucketTest.key("550e8400-e29b-41d4-a716-446655440000")));
+        assertThat(seen.isBucket("all"), CoreMatchers.is(true));
+        assertThat(seen.isBucket("bucket_test"), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void doFilter_ResponseHeader() throws Exception {
+        filter.setParameter("userId");
+        filter.setResponseHeader("X-Bucket");
+        parameters.put("userId", "123");
+
+        doFilter();
+
+        assertThat(responseHeaders.get("X-Bucket"), CoreMatchers.is("bucket_test:0,all:" + seen.bucket("all")));
+    }
+
+    @Test
+    public void doFilter_TrustHeader() throws Exception {
+        filter.setParameter("userId");
+        filter.setResponseHeader("X-Bucket");
+        filter.setTrustHeader(true);
+        parameters.put("userId", "789");
+        headers.put("X-Bucket", "none:3,bad,x:y");
+
+        doFilter();
+
+        assertThat(seen.getIndex(), CoreMatchers.is(789L));
+        assertThat(seen.size(), CoreMatchers.is(1));
+        assertThat(seen.bucket("none"), CoreMatchers.is(3));
+        assertThat(seen.isBucket("all"), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void doFilter_ObservesReads() throws Exception {
+        BucketExposureTest.CollectingSink sink = new BucketExposureTest.CollectingSink();
+        BucketExposure exposure = new BucketExposure(64, 64, sink);
+        BucketTestHelper.setExposure(exposure);
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(BUCKET_CONFIG);
+        filter = new BucketTestFilter(helper);
+        filter.setParameter("userId");
+        filter.setResponseHeader("X-Bucket");
+        parameters.put("userId", "123");
+
+        doFilter();
+        // 整体读取（写响应头）不计入
+        assertThat(exposure.drain(), CoreMatchers.is(0));
+        assertThat(helper.metrics().get("all"), CoreMatchers.nullValue());
+
+        assertThat(seen.isBucket("all"), CoreMatchers.is(true));
+        assertThat(seen.isBucket("bucket_test"), CoreMatchers.is(true));
+        assertThat(seen.isBucket("none"), CoreMatchers.is(false));
+        exposure.drain();
+        assertThat(sink.lines, CoreMatchers.is(Arrays.asList("all:123:" + seen.toBuckets()[1], "bucket_test:123:0")));
+        assertThat(helper.metrics().get("all").getCalls(), CoreMatchers.is(1L));
+        assertThat(helper.metrics().get("bucket_test").getWhitelisted(), CoreMatchers.is(1L));
+        assertThat(helper.metrics().get("none").getMisses(), CoreMatchers.is(1L));
+    }
+
+    @Test
+    public void doFilter_Sticky() throws Exception {
+        Path file = Files.createTempDirectory("filter").resolve("sticky.bin");
+        BucketStickyStore store = BucketStickyStore.open(file, 1000);
+        try {
+            BucketTestHelper.setStickyStore(store);
+            BucketTestHelper helper = new BucketTestHelper();
+            helper.setBucketConfig("[{\"name\":\"sticky\",\"percent\":100,\"status\":1}]");
+            filter = new BucketTestFilter(helper);
+            filter.setCookie("uuid");
+            int[] before = new int[50];
+            for (int i = 0; i < before.length; i++) {
+                cookies = new Cookie[]{new Cookie("uuid", "user-" + i)};
+                doFilter();
+                before[i] = seen.bucket("sticky");
+            }
+
+            helper.onChange("[{\"name\":\"sticky\",\"percent\":100,\"status\":1,\"hash\":\"xxhash\"}]");
+
+            int moved = 0;
+            for (int i = 0; i < before.length; i++) {
+                cookies = new Cookie[]{new Cookie("uuid", "user-" + i)};
+                doFilter();
+                assertThat(seen.bucket("sticky"), CoreMatchers.is(before[i]));
+                if (helper.bucketAll("user-" + i).toBuckets()[0] != before[i]) {
+                    moved++;
+                }
+            }
+            // bucketAll不查记录，重新分桶后大多数换了桶
+            assertThat(moved > before.length / 2, CoreMatchers.is(true));
+        } finally {
+            store.close();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+        }
+    }
+
+    @Test
+    public void doFilter_MemoOpen() throws Exception {
+        filter.setParameter("userId");
+        parameters.put("userId", "123");
+        final BucketMemo[] memo = new BucketMemo[1];
+
+        filter.doFilter(request(), response(), (request, response) -> memo[0] = BucketMemo.current());
+
+        assertThat(memo[0], CoreMatchers.notNullValue());
+        assertThat(BucketMemo.current(), CoreMatchers.nullValue());
+    }
+
+    @Test
+    public void assignment_Missing() {
+        assertThat(BucketTestFilter.assignment(request()).size(), CoreMatchers.is(0));
+    }
+
+    @Test
+    public void encode_Decode() {
+        BucketAssignment assignment = BucketAssignment.decode(1L, "a%2Cb:1,c%3Ad:2");
+
+        assertThat(assignment.bucket("a,b"), CoreMatchers.is(1));
+        assertThat(assignment.bucket("c:d"), CoreMatchers.is(2));
+        assertThat(assignment.encode(), CoreMatchers.is("a%2Cb:1,c%3Ad:2"));
+    }
+
+    private void doFilter() throws Exception {
+        attributes.clear();
+        FilterChain chain = (request, response) -> seen = BucketTestFilter.assignment(request);
+        filter.doFilter(request(), response(), chain);
+    }
+
+    private HttpServletRequest request() {
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{HttpServletRequest.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getHeader":
+                            return headers.get(args[0]);
+                        case "getCookies":
+                            return cookies;
+                        case "getParameter":
+                            return parameters.get(args[0]);
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            return attributes.put((String) args[0], args[1]);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private HttpServletResponse response() {
+        return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{HttpServletResponse.class},
+                (proxy, method, args) -> {
+                    if ("setHeader".equals(method.getName())) {
+                        responseHeaders.put((String) args[0], (String) args[1]);
+                    }
+                    return "isCommitted".equals(method.getName()) ? false : null;
+                });
+    }
+}
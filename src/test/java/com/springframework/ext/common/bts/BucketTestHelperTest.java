@@ -68,6 +68,19 @@ public class BucketTestHelperTest {
         assertThat(bucket, CoreMatchers.is(-1));
     }
 
+    @Test
+    public void variant_Arms() throws Exception {
+        String bucketConfig = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":100,\"status\":1,\"hits\":[\"123\"],"
+                + "\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}]}]";
+        BucketTestHelper helper = BucketTestHelper.instance(bucketConfig);
+
+        CompiledBucketTest compiled = BucketConfigParser.parse(bucketConfig).get(0);
+        assertThat(helper.variant("bucket_test", 123L), CoreMatchers.is(compiled.variant(123L)));
+        assertThat(helper.variant("bucket_test", 123L), CoreMatchers.notNullValue());
+        assertThat(helper.variant("bucket_test", 12345678861L), CoreMatchers.is(compiled.variant(12345678861L)));
+        assertThat(helper.variant("missing", 123L), CoreMatchers.nullValue());
+    }
+
     @Test
     public void bucket_nocache_hit() throws Exception {
         String name = "bucket_test";
@@ -192,6 +205,66 @@ public class BucketTestHelperTest {
         assertThat(instance, CoreMatchers.nullValue());
     }
 
+    @Test
+    public void findBucketTest_LayerRange() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig("[{\"name\":\"first\",\"layer\":\"L\",\"percent\":40,\"status\":1},"
+                + "{\"name\":\"second\",\"layer\":\"L\",\"percent\":30,\"status\":1,\"hits\":[\"7\"]}]");
+        BucketTest second = helper.findBucketTest("second");
+
+        // 还原的配置沿用注册表分配的层内区间，与helper的结果一致
+        int hits = 0;
+        for (long index = 0; index < 10000; index++) {
+            assertThat(second.bucket(index), CoreMatchers.is(helper.bucket("second", index)));
+            if (second.isBucket(index)) {
+                hits++;
+                assertThat(helper.isBucket("first", index), CoreMatchers.is(index == 7));
+            }
+        }
+        assertThat(hits > 2500 && hits < 3500, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void onChange_SharedDetached() {
+        String bucketConfig = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":0,\"status\":1}]";
+        BucketTestHelper helper = BucketTestHelper.instance(bucketConfig);
+        assertThat(helper.isShared(), CoreMatchers.is(true));
+
+        helper.onChange("[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":100,\"status\":1}]");
+
+        assertThat(helper.isShared(), CoreMatchers.is(false));
+        assertThat(helper.isBucket("bucket_test", 123456789L), CoreMatchers.is(true));
+        BucketTestHelper fresh = BucketTestHelper.instance(bucketConfig);
+        assertThat(fresh, CoreMatchers.not(CoreMatchers.sameInstance(helper)));
+        assertThat(fresh.isBucket("bucket_test", 123456789L), CoreMatchers.is(false));
+        assertThat(new BucketTestHelper().isShared(), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void setBucketConfig_SharedDetached() {
+        String bucketConfig = "[{\"name\":\"bucket_detach\",\"basic\":100,\"percent\":0,\"status\":1}]";
+        BucketTestHelper helper = BucketTestHelper.instance(bucketConfig);
+
+        helper.setBucketConfig("[{\"name\":\"bucket_detach\",\"basic\":100,\"percent\":100,\"status\":1}]");
+
+        assertThat(helper.isBucket("bucket_detach", 123456789L), CoreMatchers.is(true));
+        assertThat(BucketTestHelper.instance(bucketConfig).isBucket("bucket_detach", 123456789L), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void onChange_Reload() {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig("[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":0,\"status\":1}]");
+        assertThat(helper.isBucket("bucket_test", 123456789L), CoreMatchers.is(false));
+
+        helper.onChange("[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":100,\"status\":1}]");
+        assertThat(helper.isBucket("bucket_test", 123456789L), CoreMatchers.is(true));
+
+        // 格式错误的推送被忽略，保留当前配置
+        helper.onChange("[{\"name:\"bucket_test\",\"basic\":100,\"percent\":0,\"status\":1}]");
+        assertThat(helper.isBucket("bucket_test", 123456789L), CoreMatchers.is(true));
+    }
+
     private static class TempCacheClient implements CacheClient {
         @Override
         public Serializable key(Serializable... identifies) {
@@ -0,0 +1,260 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+import org.springframework.ext.common.helper.JsonHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketTestRegistryTest {
+
+    @Test
+    public void find_NotFound() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+
+        assertThat(registry.find("bucket_test").isEmpty(), CoreMatchers.is(true));
+        assertThat(registry.find(null).isEmpty(), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void publish_Found() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.publish(JsonHelper.fromJsonList("[{\"name\":\"a\",\"percent\":1,\"status\":1},{\"name\":\"b\",\"percent\":2,\"status\":1}]", BucketTest.class));
+
+        assertThat(registry.find("a").getPercent(), CoreMatchers.is(1));
+        assertThat(registry.find("b").getPercent(), CoreMatchers.is(2));
+        assertThat(registry.snapshot().size(), CoreMatchers.is(2));
+    }
+
+    @Test
+    public void publish_DuplicateNameLastWins() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.publish(JsonHelper.fromJsonList("[{\"name\":\"a\",\"percent\":1,\"status\":1},{\"name\":\"a\",\"percent\":2,\"status\":1}]", BucketTest.class));
+
+        assertThat(registry.find("a").getPercent(), CoreMatchers.is(2));
+        assertThat(registry.snapshot().size(), CoreMatchers.is(1));
+    }
+
+    @Test
+    public void publish_ConcurrentReaders() throws Exception {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        List<BucketTest> first = JsonHelper.fromJsonList("[{\"name\":\"a\",\"percent\":100,\"status\":1},{\"name\":\"b\",\"percent\":100,\"status\":1}]", BucketTest.class);
+        List<BucketTest> second = JsonHelper.fromJsonList("[{\"name\":\"b\",\"percent\":100,\"status\":1},{\"name\":\"a\",\"percent\":100,\"status\":1}]", BucketTest.class);
+        registry.publish(first);
+
+        int readers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(readers);
+        Future<?>[] futures = new Future<?>[readers];
+        for (int i = 0; i < readers; i++) {
+            futures[i] = executor.submit(() -> {
+                started.countDown();
+                long index = 0;
+                while (running.get()) {
+                    // 两份配置中a、b都是全量，任何时刻都必须命中
+                    if (!registry.find("a").isBucket(index) || !registry.find("b").isBucket(index)) {
+                        throw new AssertionError("lost experiment at index " + index);
+                    }
+                    index++;
+                }
+                return null;
+            });
+        }
+
+        started.await();
+        for (int i = 0; i < 2000; i++) {
+            registry.publish(i % 2 == 0 ? second : first);
+        }
+        running.set(false);
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        assertThat(Arrays.asList("a", "b").contains(registry.snapshot().asMap().keySet().iterator().next()), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void reload_ReuseUnchanged() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+
+        int rebuilt = registry.reload("[{\"name\":\"a\",\"percent\":1,\"status\":1},{\"name\":\"b\",\"percent\":2,\"status\":1}]").getRebuilt();
+        CompiledBucketTest a = registry.find("a");
+        CompiledBucketTest b = registry.find("b");
+        assertThat(rebuilt, CoreMatchers.is(2));
+
+        rebuilt = registry.reload("[{\"name\":\"a\",\"percent\":1,\"status\":1},{\"name\":\"b\",\"percent\":3,\"status\":1},{\"name\":\"c\",\"percent\":4,\"status\":1}]").getRebuilt();
+        assertThat(rebuilt, CoreMatchers.is(2));
+        assertThat(registry.find("a"), CoreMatchers.sameInstance(a));
+        assertThat(registry.find("b"), CoreMatchers.not(CoreMatchers.sameInstance(b)));
+        assertThat(registry.find("b").getPercent(), CoreMatchers.is(3));
+        assertThat(registry.find("c").getPercent(), CoreMatchers.is(4));
+
+        rebuilt = registry.reload("[{\"name\":\"a\",\"percent\":1,\"status\":1}]").getRebuilt();
+        assertThat(rebuilt, CoreMatchers.is(0));
+        assertThat(registry.find("a"), CoreMatchers.sameInstance(a));
+        assertThat(registry.find("b").isEmpty(), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void reload_MalformedKeepsCurrent() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.reload("[{\"name\":\"a\",\"percent\":1,\"status\":1}]");
+
+        try {
+            registry.reload("[{\"name:\"a\",\"percent\":2,\"status\":1}]");
+        } catch (RuntimeException e) {
+            // 格式错误
+        }
+
+        assertThat(registry.find("a").getPercent(), CoreMatchers.is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reload_UnknownHashRejected() {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        registry.reload("[{\"name\":\"a\",\"percent\":1,\"status\":1}]");
+
+        try {
+            registry.reload("[{\"name\":\"a\",\"percent\":2,\"status\":1,\"hash\":\"murmur\"}]");
+        } finally {
+            assertThat(registry.find("a").getPercent(), CoreMatchers.is(1));
+        }
+    }
+
+    @Test
+    public void reload_LazyDecodesOnFirstAccess() {
+        String config = "[{\"name\":\"a\",\"percent\":10,\"status\":1,\"hits\":[\"1\",\"2\"]},"
+                + "{\"name\":\"b\",\"percent\":20,\"status\":1,\"hash\":\"murmur3\"},"
+                + "{\"name\":\"c\",\"layer\":\"L\",\"percent\":30,\"status\":1},"
+                + "{\"name\":\"d\",\"layer\":\"L\",\"percent\":40,\"status\":1},"
+                + "{\"name\":\"a\",\"percent\":15,\"status\":1}]";
+        BucketTestRegistry eager = new BucketTestRegistry();
+        eager.reload(config);
+        BucketTestRegistry registry = lazy(config);
+        BucketConfigStats stats = lazyStats;
+
+        // 分层实验在加载时解析，其余实验延迟到首次访问
+        assertThat(stats.getRebuilt(), CoreMatchers.is(2));
+        assertThat(stats.getDeferred(), CoreMatchers.is(3));
+        assertThat(registry.snapshot().size(), CoreMatchers.is(4));
+        assertThat(registry.snapshot().resolved(), CoreMatchers.is(2));
+
+        CompiledBucketTest b = registry.find("b");
+        assertThat(registry.snapshot().resolved(), CoreMatchers.is(3));
+        assertThat(registry.find("b"), CoreMatchers.sameInstance(b));
+        assertThat(registry.find("a").getPercent(), CoreMatchers.is(15));
+        assertThat(registry.find("x").isEmpty(), CoreMatchers.is(true));
+        for (String name : Arrays.asList("a", "b", "c", "d")) {
+            for (long index = 0; index < 1000; index++) {
+                assertThat(registry.find(name).bucket(index), CoreMatchers.is(eager.find(name).bucket(index)));
+            }
+        }
+        assertThat(Arrays.asList(registry.snapshot().names()), CoreMatchers.is(Arrays.asList("a", "b", "c", "d")));
+        for (long index = 0; index < 1000; index++) {
+            assertThat(BucketAssignment.of(registry.snapshot(), index).encode(),
+                    CoreMatchers.is(BucketAssignment.of(eager.snapshot(), index).encode()));
+        }
+    }
+
+    @Test
+    public void reload_LazyConcurrentFirstAccess() throws Exception {
+        BucketTestRegistry registry = lazy("[{\"name\":\"a\",\"percent\":10,\"status\":1}]");
+        int readers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<CompiledBucketTest>> futures = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return registry.find("a");
+                }));
+            }
+            start.countDown();
+            CompiledBucketTest first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<CompiledBucketTest> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS), CoreMatchers.sameInstance(first));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reload_LazyMalformedExperiment() {
+        BucketTestRegistry registry = lazy("[{\"name\":\"a\",\"percent\":x,\"status\":1},{\"name\":\"b\",\"percent\":10,\"status\":1}]");
+
+        // 格式错误的实验在访问时按空实验处理，不影响其他实验
+        assertThat(registry.find("a").isEmpty(), CoreMatchers.is(true));
+        assertThat(registry.find("b").getPercent(), CoreMatchers.is(10));
+        assertThat(registry.snapshot().asMap().keySet(), CoreMatchers.is(Collections.singleton("b")));
+    }
+
+    @Test
+    public void reload_LazyReuseResolved() {
+        BucketTestRegistry registry = lazy("[{\"name\":\"a\",\"percent\":1,\"status\":1},{\"name\":\"b\",\"percent\":2,\"status\":1}]");
+        CompiledBucketTest a = registry.find("a");
+
+        try {
+            BucketTestRegistry.setLazy(true);
+            registry.reload(" [{\"name\":\"a\",\"percent\":1,\"status\":1}, {\"name\":\"b\",\"percent\":3,\"status\":1}]");
+        } finally {
+            BucketTestRegistry.setLazy(false);
+        }
+
+        assertThat(registry.snapshot().resolved(), CoreMatchers.is(1));
+        assertThat(registry.find("a"), CoreMatchers.sameInstance(a));
+        assertThat(registry.find("b").getPercent(), CoreMatchers.is(3));
+    }
+
+    @Test
+    public void reload_LazyResolvedOnly() {
+        BucketTestRegistry registry = lazy("[{\"name\":\"a\",\"percent\":100,\"status\":1},"
+                + "{\"name\":\"b\",\"percent\":100,\"status\":1},{\"name\":\"c\",\"layer\":\"L\",\"percent\":100,\"status\":1}]");
+        BucketTestRegistry.Snapshot snapshot = registry.snapshot();
+
+        // 只计算已解析的实验（分层实验c加载时已解析），不触发a、b的解析
+        assertThat(Arrays.asList(snapshot.resolvedOnly().names()), CoreMatchers.is(Collections.singletonList("c")));
+        assertThat(snapshot.resolved(), CoreMatchers.is(1));
+        assertThat(snapshot.resolvedOnly(), CoreMatchers.sameInstance(snapshot.resolvedOnly()));
+
+        registry.find("b");
+        assertThat(Arrays.asList(snapshot.resolvedOnly().names()), CoreMatchers.is(Arrays.asList("b", "c")));
+        assertThat(BucketAssignment.of(snapshot.resolvedOnly(), 42L).encode(), CoreMatchers.is("b:" + registry.find("b").bucket(42L)
+                + ",c:" + registry.find("c").bucket(42L)));
+        assertThat(snapshot.resolved(), CoreMatchers.is(2));
+    }
+
+    /** 最近一次延迟加载的统计 */
+    private BucketConfigStats lazyStats;
+
+    private BucketTestRegistry lazy(String config) {
+        BucketTestRegistry registry = new BucketTestRegistry();
+        BucketTestRegistry.setLazy(true);
+        try {
+            lazyStats = registry.reload(config);
+        } finally {
+            BucketTestRegistry.setLazy(false);
+        }
+        return registry;
+    }
+}
@@ -128,4 +128,27 @@ public class BucketTestTest {
         assertThat(enable, CoreMatchers.is(false));
     }
 
-}
\ No newline at end of file
+    @Test(expected = IllegalArgumentException.class)
+    public void setHash_Unknown() throws Exception {
+        new BucketTest().setHash("murmur");
+    }
+
+    @Test
+    public void bucket_CompileFailureCached() throws Exception {
+        int[] compiles = new int[1];
+        BucketTest bucketTest = new BucketTest() {
+            @Override
+            public String getHash() {
+                compiles[0]++;
+                return "murmur";
+            }
+        };
+        bucketTest.setName("bucket_test");
+        bucketTest.setStatus(1);
+        bucketTest.setPercent(100);
+
+        assertThat(bucketTest.bucket(123L), CoreMatchers.is(-1));
+        assertThat(bucketTest.isBucket(456L), CoreMatchers.is(false));
+        assertThat(compiles[0], CoreMatchers.is(1));
+    }
+}
@@ -0,0 +1,199 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class BucketWireFormatTest {
+    private static final String BUCKET_CONFIG = "["
+            + "{\"name\":\"bucket_test\",\"basic\":100,\"percent\":7,\"status\":1,"
+            + "\"hits\":[\"123\",\"hislist\",\"-9\",\"-9223372036854775808\",\"9223372036854775807\"],"
+            + "\"excludes\":[\"456\",\"uuid-x\"],\"extra\":\"{\\\"current\\\":1}\"},"
+            + "{\"name\":\"other\",\"percent\":30,\"status\":2,\"hash\":\"xxhash\"},"
+            + "{\"name\":\"arms\",\"percent\":90,\"status\":1,\"layer\":\"L\",\"rule\":\"region == 'cn'\","
+            + "\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":2}]},"
+            + "{\"name\":\"ramped\",\"percent\":50,\"status\":1,\"startTime\":1000,\"endTime\":9000,"
+            + "\"ramps\":[{\"time\":2000,\"percent\":5},{\"time\":4000,\"percent\":20}]}]";
+
+    @After
+    public void tearDown() {
+        BucketClock.reset();
+    }
+
+    @Test
+    public void decode_SameAsEncoded() {
+        BucketClock.set(3000);
+        List<CompiledBucketTest> expected = BucketConfigParser.parse(BUCKET_CONFIG);
+
+        List<CompiledBucketTest> decoded = BucketWireFormat.decode(BucketWireFormat.encode(expected));
+
+        assertThat(decoded.size(), CoreMatchers.is(expected.size()));
+        BucketContext context = new BucketContext().set("region", "cn");
+        for (int i = 0; i < expected.size(); i++) {
+            CompiledBucketTest left = expected.get(i);
+            CompiledBucketTest right = decoded.get(i);
+            assertThat(right.getName(), CoreMatchers.is(left.getName()));
+            assertThat(right.getStatus(), CoreMatchers.is(left.getStatus()));
+            assertThat(right.getPercent(), CoreMatchers.is(left.getPercent()));
+            assertThat(right.getHash(), CoreMatchers.is(left.getHash()));
+            assertThat(right.getExtra(), CoreMatchers.is(left.getExtra()));
+            assertThat(right.getLayer(), CoreMatchers.is(left.getLayer()));
+            assertThat(right.getRule(), CoreMatchers.is(left.getRule()));
+            assertThat(right.getStartTime(), CoreMatchers.is(left.getStartTime()));
+            assertThat(right.getEndTime(), CoreMatchers.is(left.getEndTime()));
+            assertThat(Arrays.toString(right.rampTimes()), CoreMatchers.is(Arrays.toString(left.rampTimes())));
+            assertThat(Arrays.toString(right.rampPercents()), CoreMatchers.is(Arrays.toString(left.rampPercents())));
+            assertThat(Arrays.asList(right.hitNames()), CoreMatchers.is(Arrays.asList(left.hitNames())));
+            assertThat(Arrays.asList(right.excludeNames()), CoreMatchers.is(Arrays.asList(left.excludeNames())));
+            assertThat(Arrays.toString(right.hits().toArray()), CoreMatchers.is(Arrays.toString(left.hits().toArray())));
+            assertThat(Arrays.toString(right.excludes().toArray()), CoreMatchers.is(Arrays.toString(left.excludes().toArray())));
+            for (long index = -1000; index < 1000; index++) {
+                assertThat(right.bucket(index), CoreMatchers.is(left.bucket(index)));
+                assertThat(right.bucket(index, context), CoreMatchers.is(left.bucket(index, context)));
+                assertThat(right.variant(index), CoreMatchers.is(left.variant(index)));
+            }
+            assertThat(right.bucket("hislist"), CoreMatchers.is(left.bucket("hislist")));
+        }
+    }
+
+    @Test
+    public void encode_SmallerThanConfig() {
+        StringBuilder config = new StringBuilder("[{\"name\":\"big\",\"percent\":5,\"status\":1,\"hits\":[");
+        for (int i = 0; i < 100000; i++) {
+            config.append(i == 0 ? "" : ",").append('"').append(3665000000L + i * 17L).append('"');
+        }
+        config.append("]}]");
+
+        byte[] bytes = BucketWireFormat.encode(BucketConfigParser.parse(config.toString()));
+
+        // 100000个id，相邻差17，每个id 1字节
+        assertThat(bytes.length < 100100, CoreMatchers.is(true));
+        assertThat(bytes.length * 10 < config.length(), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void decode_Malformed() {
+        byte[] bytes = BucketWireFormat.encode(BucketConfigParser.parse(BUCKET_CONFIG));
+        assertIllegal(Arrays.copyOf(bytes, bytes.length - 1));
+        assertIllegal(Arrays.copyOf(bytes, bytes.length + 1));
+        assertIllegal(new byte[]{BucketWireFormat.MAGIC, BucketWireFormat.VERSION + 1, 0});
+        assertIllegal(new byte[]{0, BucketWireFormat.VERSION, 0});
+        // 个数超过剩余字节数
+        assertIllegal(new byte[]{BucketWireFormat.MAGIC, BucketWireFormat.VERSION, (byte) 0xFF, (byte) 0xFF, 0x7F});
+        assertThat(BucketWireFormat.decode(new byte[]{BucketWireFormat.MAGIC, BucketWireFormat.VERSION, 0, 0}).isEmpty(),
+                CoreMatchers.is(true));
+        // 片段位置超出实验个数
+        assertIllegal(new byte[]{BucketWireFormat.MAGIC, BucketWireFormat.VERSION, 0, 1, 1, 3, '{', '}'});
+    }
+
+    @Test
+    public void helper_LazySerialization() throws Exception {
+        BucketTestHelper helper = new BucketTestHelper();
+        BucketTestRegistry.setLazy(true);
+        try {
+            helper.setBucketConfig(BUCKET_CONFIG);
+        } finally {
+            BucketTestRegistry.setLazy(false);
+        }
+        helper.bucket("other", 1L);
+        // 分层实验arms加载时解析，other已访问
+        assertThat(helper.snapshot().resolved(), CoreMatchers.is(2));
+
+        BucketTestHelper copy = deserialize(serialize(helper));
+
+        // 序列化不解析其余实验，反序列化后仍为延迟解析
+        assertThat(helper.snapshot().resolved(), CoreMatchers.is(2));
+        assertThat(copy.snapshot().size(), CoreMatchers.is(4));
+        assertThat(copy.snapshot().resolved(), CoreMatchers.is(2));
+        assertThat(Arrays.asList(copy.snapshot().names()), CoreMatchers.is(Arrays.asList(helper.snapshot().names())));
+        for (long index = -1000; index < 1000; index++) {
+            for (String name : Arrays.asList("bucket_test", "other", "ramped")) {
+                assertThat(copy.bucket(name, index), CoreMatchers.is(helper.bucket(name, index)));
+            }
+            assertThat(copy.variant("arms", index, new BucketContext().set("region", "cn")),
+                    CoreMatchers.is(helper.variant("arms", index, new BucketContext().set("region", "cn"))));
+        }
+        assertThat(copy.isBucket("bucket_test", "hislist"), CoreMatchers.is(true));
+        assertThat(BucketWireFormat.decode(BucketWireFormat.encode(helper.snapshot())).size(), CoreMatchers.is(4));
+    }
+
+    @Test
+    public void helper_JavaSerialization() throws Exception {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(BUCKET_CONFIG);
+
+        BucketTestHelper copy = deserialize(serialize(helper));
+
+        for (long index = -1000; index < 1000; index++) {
+            assertThat(copy.bucket("bucket_test", index), CoreMatchers.is(helper.bucket("bucket_test", index)));
+            assertThat(copy.variant("arms", index, new BucketContext().set("region", "cn")),
+                    CoreMatchers.is(helper.variant("arms", index, new BucketContext().set("region", "cn"))));
+        }
+        assertThat(copy.isBucket("bucket_test", "hislist"), CoreMatchers.is(true));
+        assertThat(copy.metrics().reloads().getCount(), CoreMatchers.is(1L));
+        // 反序列化后的实例仍可推送新配置
+        copy.onChange("[{\"name\":\"bucket_test\",\"percent\":100,\"status\":1}]");
+        assertThat(copy.isBucket("bucket_test", 456L), CoreMatchers.is(true));
+    }
+
+    @Test
+    public void helper_Corrupted() throws Exception {
+        BucketTestHelper helper = new BucketTestHelper();
+        helper.setBucketConfig(BUCKET_CONFIG);
+        byte[] bytes = serialize(helper);
+        // 篡改magic
+        byte[] magic = BucketWireFormat.encode(helper.snapshot().asMap().values());
+        for (int i = 0; i + magic.length <= bytes.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + magic.length), magic)) {
+                bytes[i] = 0;
+                break;
+            }
+        }
+
+        try {
+            deserialize(bytes);
+            fail();
+        } catch (InvalidObjectException e) {
+            assertThat(e.getMessage(), CoreMatchers.is("not a bucket wire form"));
+        }
+    }
+
+    private static void assertIllegal(byte[] bytes) {
+        try {
+            BucketWireFormat.decode(bytes);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static byte[] serialize(BucketTestHelper helper) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(helper);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static BucketTestHelper deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (BucketTestHelper) in.readObject();
+        }
+    }
+}
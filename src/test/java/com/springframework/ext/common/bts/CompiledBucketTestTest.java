@@ -0,0 +1,301 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.ext.common.helper.JsonHelper;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class CompiledBucketTestTest {
+    private static final String RAMP_CONFIG = "[{\"name\":\"bucket_ramp\",\"percent\":50,\"status\":1,\"hits\":[\"123\"],"
+            + "\"startTime\":1000,\"endTime\":9000,"
+            + "\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}],"
+            + "\"ramps\":[{\"time\":5000,\"percent\":25},{\"time\":2000,\"percent\":5},{\"time\":7000,\"percent\":50}]}]";
+
+    @After
+    public void tearDown() {
+        BucketClock.reset();
+    }
+
+    @Test
+    public void bucket_SameAsLegacy() {
+        BucketTest bucketTest = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":7, \"basic\":\"100\", \"status\":\"1\", \"hits\":[\"123\",\"hislist\"], \"excludes\":[\"456\"]}", BucketTest.class);
+        CompiledBucketTest compiled = bucketTest.compile();
+
+        for (long index = -5000; index < 5000; index++) {
+            assertThat(compiled.bucket(index), CoreMatchers.is(legacyBucket(bucketTest, index)));
+        }
+        assertThat(compiled.bucket(Long.MAX_VALUE), CoreMatchers.is(legacyBucket(bucketTest, Long.MAX_VALUE)));
+        assertThat(compiled.bucket(Long.MIN_VALUE), CoreMatchers.is(legacyBucket(bucketTest, Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void bucket_WithHit() {
+        CompiledBucketTest compiled = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":0, \"status\":\"1\", \"hits\":[\"123456789\"]}", BucketTest.class).compile();
+
+        assertThat(compiled.bucket(123456789L), CoreMatchers.is(0));
+    }
+
+    @Test
+    public void bucket_NonCanonicalHitNeverMatches() {
+        CompiledBucketTest compiled = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":0, \"status\":\"1\", \"hits\":[\"0123\",\"+5\"]}", BucketTest.class).compile();
+
+        assertThat(compiled.bucket(123L), CoreMatchers.is(-1));
+        assertThat(compiled.bucket(5L), CoreMatchers.is(-1));
+    }
+
+    @Test
+    public void bucket_WithExclude() {
+        CompiledBucketTest compiled = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":100, \"status\":\"1\", \"hits\":[\"1\"], \"excludes\":[\"1\"]}", BucketTest.class).compile();
+
+        assertThat(compiled.bucket(1L), CoreMatchers.is(-1));
+        assertThat(compiled.bucket(2L), CoreMatchers.not(-1));
+    }
+
+    @Test
+    public void compile_ReusedUntilChanged() {
+        BucketTest bucketTest = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":1, \"status\":\"1\"}", BucketTest.class);
+        CompiledBucketTest compiled = bucketTest.compile();
+
+        assertThat(bucketTest.compile(), CoreMatchers.sameInstance(compiled));
+
+        bucketTest.setPercent(100);
+        assertThat(bucketTest.compile(), CoreMatchers.not(CoreMatchers.sameInstance(compiled)));
+        assertThat(bucketTest.compile().getPercent(), CoreMatchers.is(100));
+    }
+
+    @Test
+    public void compile_BasicIsZero() {
+        CompiledBucketTest compiled = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":1, \"basic\":\"0\", \"status\":\"1\"}", BucketTest.class).compile();
+
+        assertThat(compiled.getBasic(), CoreMatchers.is(100));
+    }
+
+    @Test
+    public void variant_WeightedArms() {
+        BucketTest bucketTest = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":60, \"status\":1, \"hits\":[\"7\"],"
+                + " \"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":0},{\"name\":\"C\",\"weight\":2}]}", BucketTest.class);
+        CompiledBucketTest compiled = bucketTest.compile();
+
+        assertThat(compiled.variant(7L), CoreMatchers.notNullValue());
+        int in = 0;
+        int armA = 0;
+        for (long index = 0; index < 30000; index++) {
+            String variant = compiled.variant(index);
+            assertThat(variant == null, CoreMatchers.is(compiled.bucket(index) < 0));
+            assertThat(bucketTest.variant(index), CoreMatchers.is(variant));
+            // 权重为0的分组不分配流量
+            assertThat("B".equals(variant), CoreMatchers.is(false));
+            in += variant == null ? 0 : 1;
+            armA += "A".equals(variant) ? 1 : 0;
+        }
+        assertThat(Math.abs(armA / (double) in - 1 / 3.0) < 0.02, CoreMatchers.is(true));
+        assertThat(compiled.definition().getArms().size(), CoreMatchers.is(3));
+    }
+
+    @Test
+    public void variant_SmallPercentShares() {
+        // percent小于分组数、桶数不能被分组数整除时，分组比例仍按权重
+        assertArmShares(1, "{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}", 0.5, 0.5);
+        assertArmShares(3, "{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}", 0.5, 0.5);
+        assertArmShares(10, "{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1},{\"name\":\"C\",\"weight\":1}",
+                1 / 3.0, 1 / 3.0, 1 / 3.0);
+        assertArmShares(7, "{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":3}", 0.25, 0.75);
+    }
+
+    @Test
+    public void variant_WhitelistByWeight() {
+        StringBuilder hits = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            hits.append(i == 0 ? "" : ",").append('"').append(1000000L + i).append('"');
+        }
+        CompiledBucketTest compiled = BucketConfigParser.parse("[{\"name\":\"arms\",\"percent\":0,\"status\":1,"
+                + "\"hits\":[" + hits + "],\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}]}]").get(0);
+
+        int armA = 0;
+        for (int i = 0; i < 2000; i++) {
+            armA += "A".equals(compiled.variant(1000000L + i)) ? 1 : 0;
+        }
+        assertThat(Math.abs(armA / 2000.0 - 0.5) < 0.05, CoreMatchers.is(true));
+    }
+
+    @Test
+    public void variant_StableAcrossPercent() {
+        String arms = ",\"arms\":[{\"name\":\"A\",\"weight\":1},{\"name\":\"B\",\"weight\":1}]}]";
+        CompiledBucketTest small = BucketConfigParser.parse("[{\"name\":\"arms\",\"percent\":10,\"status\":1,\"hash\":\"murmur3\"" + arms).get(0);
+        CompiledBucketTest large = BucketConfigParser.parse("[{\"name\":\"arms\",\"percent\":60,\"status\":1,\"hash\":\"murmur3\"" + arms).get(0);
+
+        for (long index = 0; index < 10000; index++) {
+            if (small.bucket(index) >= 0) {
+                assertThat(large.variant(index), CoreMatchers.is(small.variant(index)));
+            }
+        }
+    }
+
+    private static void assertArmShares(int percent, String arms, double... shares) {
+        CompiledBucketTest compiled = BucketConfigParser.parse("[{\"name\":\"arms\",\"percent\":" + percent
+                + ",\"status\":1,\"hash\":\"murmur3\",\"arms\":[" + arms + "]}]").get(0);
+        long[] counts = new long[shares.length];
+        long in = 0;
+        for (long index = 0; index < 2000000; index++) {
+            int arm = compiled.variantIndex(index);
+            if (arm >= 0) {
+                counts[arm]++;
+                in++;
+            }
+        }
+        assertThat(in > 10000, CoreMatchers.is(true));
+        for (int i = 0; i < shares.length; i++) {
+            double share = counts[i] / (double) in;
+            assertThat("percent " + percent + " arm " + i + " share " + share,
+                    Math.abs(share - shares[i]) < 0.02, CoreMatchers.is(true));
+        }
+    }
+
+    @Test
+    public void variant_NoArms() {
+        CompiledBucketTest compiled = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":100, \"status\":1}", BucketTest.class).compile();
+
+        assertThat(compiled.variant(1L), CoreMatchers.nullValue());
+        assertThat(compiled.variantIndex(1L), CoreMatchers.is(-1));
+    }
+
+    @Test
+    public void bucket_StringKeys() {
+        CompiledBucketTest compiled = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":30, \"status\":1,"
+                + " \"hits\":[\"550e8400-e29b-41d4-a716-446655440000\", \"123\"], \"excludes\":[\"blocked\"]}", BucketTest.class).compile();
+
+        assertThat(compiled.bucket("550e8400-e29b-41d4-a716-446655440000"), CoreMatchers.is(0));
+        assertThat(compiled.bucket(UUID.fromString("550e8400-e29b-41d4-a716-446655440000")), CoreMatchers.is(0));
+        assertThat(compiled.bucket(new StringBuilder("123")), CoreMatchers.is(0));
+        assertThat(compiled.bucket("blocked"), CoreMatchers.is(-1));
+        assertThat(compiled.bucket((CharSequence) null), CoreMatchers.is(-1));
+        for (long index = 0; index < 1000; index++) {
+            assertThat(compiled.bucket(String.valueOf(index)), CoreMatchers.is(compiled.bucket(index)));
+        }
+    }
+
+    @Test
+    public void bucket_UUIDDistribution() {
+        CompiledBucketTest compiled = JsonHelper.fromJson("{\"name\":\"bucket_test\", \"percent\":100, \"basic\":10, \"status\":1}", BucketTest.class).compile();
+
+        int[] counts = new int[10];
+        for (int i = 0; i < 100000; i++) {
+            UUID uuid = UUID.randomUUID();
+            int bucket = compiled.bucket(uuid);
+            assertThat(bucket, CoreMatchers.is(compiled.bucket(uuid.toString())));
+            counts[bucket]++;
+        }
+        for (int count : counts) {
+            assertThat(Math.abs(count - 10000) < 500, CoreMatchers.is(true));
+        }
+    }
+
+    /**
+     * 原有的分桶实现，用于校验编译后结果一致
+     */
+    private static int legacyBucket(BucketTest bucketTest, long index) {
+        if (!bucketTest.isEnable()) {
+            return -1;
+        }
+        if (bucketTest.getExcludes() != null && bucketTest.getExcludes().contains(String.valueOf(index))) {
+            return -1;
+        }
+        if (bucketTest.getHits() != null && bucketTest.getHits().contains(String.valueOf(index))) {
+            return 0;
+        }
+        if (bucketTest.getPercent() <= 0) {
+            return -1;
+        }
+        index = Math.abs(index + Math.abs(bucketTest.getName().hashCode()));
+        long bucket = index % bucketTest.getBasic();
+        return bucket < bucketTest.getPercent() ? (int) bucket : -1;
+    }
+
+    @Test
+    public void bucket_TimeWindow() {
+        CompiledBucketTest compiled = BucketConfigParser.parse(RAMP_CONFIG).get(0);
+
+        BucketClock.set(999L);
+        assertThat(compiled.bucket(123L), CoreMatchers.is(-1));
+        assertThat(compiled.effectivePercent(), CoreMatchers.is(0));
+        BucketClock.set(1000L);
+        assertThat(compiled.bucket(123L), CoreMatchers.is(0));
+        BucketClock.set(9000L);
+        assertThat(compiled.bucket(123L), CoreMatchers.is(-1));
+        assertThat(compiled.bucket("123"), CoreMatchers.is(-1));
+    }
+
+    @Test
+    public void bucket_RampMonotonic() {
+        CompiledBucketTest compiled = BucketConfigParser.parse(RAMP_CONFIG).get(0);
+        CompiledBucketTest full = BucketConfigParser.parse(RAMP_CONFIG.replaceAll(",\"ramps\".*]}]", "}]")).get(0);
+
+        long[] times = {1500L, 2000L, 5000L, 7000L};
+        int[] percents = {0, 5, 25, 50};
+        int[] previous = new int[100000];
+        java.util.Arrays.fill(previous, -1);
+        for (int step = 0; step < times.length; step++) {
+            BucketClock.set(times[step]);
+            assertThat(compiled.effectivePercent(), CoreMatchers.is(percents[step]));
+            int in = 0;
+            int armA = 0;
+            for (int index = 0; index < previous.length; index++) {
+                int bucket = compiled.bucket(index);
+                if (previous[index] >= 0) {
+                    // 已进入的索引桶号不变
+                    assertThat(bucket, CoreMatchers.is(previous[index]));
+                }
+                if (bucket >= 0) {
+                    // 放量只抽取索引，不改变桶号
+                    assertThat(bucket, CoreMatchers.is(full.bucket(index)));
+                    in++;
+                    armA += "A".equals(compiled.variant(index)) ? 1 : 0;
+                }
+                previous[index] = bucket;
+            }
+            double rate = in / (double) previous.length;
+            assertThat(Math.abs(rate - percents[step] / 100.0) < 0.01, CoreMatchers.is(true));
+            if (in > 1000) {
+                // 放量过程中各分组保持均衡，白名单不受放量限制
+                assertThat(Math.abs(armA / (double) in - 0.5) < 0.05, CoreMatchers.is(true));
+            }
+        }
+    }
+
+    @Test
+    public void bucket_RampDefinition() {
+        CompiledBucketTest compiled = BucketConfigParser.parse(RAMP_CONFIG).get(0);
+        BucketTest definition = compiled.definition();
+
+        assertThat(definition.getStartTime(), CoreMatchers.is(1000L));
+        assertThat(definition.getEndTime(), CoreMatchers.is(9000L));
+        assertThat(definition.getRamps().size(), CoreMatchers.is(3));
+        assertThat(definition.getRamps().get(0).getTime(), CoreMatchers.is(2000L));
+
+        CompiledBucketTest recompiled = definition.compile();
+        for (long now : new long[]{500L, 3000L, 6000L, 8000L, 9500L}) {
+            BucketClock.set(now);
+            for (long index = 0; index < 1000; index++) {
+                assertThat(recompiled.bucket(index), CoreMatchers.is(compiled.bucket(index)));
+            }
+        }
+    }
+
+    @Test
+    public void bucket_RampNeverDecreases() {
+        CompiledBucketTest compiled = CompiledBucketTest.builder().name("bucket_ramp").status(1).percent(10)
+                .ramps(new long[]{1000L, 2000L}, new int[]{8, 3}).build();
+
+        BucketClock.set(2500L);
+        assertThat(compiled.effectivePercent(), CoreMatchers.is(8));
+        assertThat(compiled.rampPercents()[1], CoreMatchers.is(8));
+    }
+}
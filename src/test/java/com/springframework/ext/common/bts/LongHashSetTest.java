@@ -0,0 +1,57 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class LongHashSetTest {
+
+    @Test
+    public void contains_Members() {
+        LongHashSet set = LongHashSet.of(new long[]{0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 3665061551L});
+
+        assertThat(set.contains(0L), CoreMatchers.is(true));
+        assertThat(set.contains(-1L), CoreMatchers.is(true));
+        assertThat(set.contains(Long.MIN_VALUE), CoreMatchers.is(true));
+        assertThat(set.contains(Long.MAX_VALUE), CoreMatchers.is(true));
+        assertThat(set.contains(3665061551L), CoreMatchers.is(true));
+        assertThat(set.contains(2L), CoreMatchers.is(false));
+        assertThat(set.size(), CoreMatchers.is(6));
+    }
+
+    @Test
+    public void contains_Empty() {
+        LongHashSet set = LongHashSet.of(null);
+
+        assertThat(set.isEmpty(), CoreMatchers.is(true));
+        assertThat(set.contains(0L), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void of_Duplicates() {
+        LongHashSet set = LongHashSet.of(new long[]{5L, 5L, 0L, 0L, 7L});
+
+        assertThat(set.size(), CoreMatchers.is(3));
+        assertArrayEquals(new long[]{0L, 5L, 7L}, set.toArray());
+    }
+
+    @Test
+    public void contains_SequentialIds() {
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 3665061551L + i * 2;
+        }
+        LongHashSet set = LongHashSet.of(values);
+
+        for (int i = 0; i < values.length; i++) {
+            assertThat(set.contains(3665061551L + i * 2), CoreMatchers.is(true));
+            assertThat(set.contains(3665061551L + i * 2 + 1), CoreMatchers.is(false));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class LongSetsTest {
+
+    @After
+    public void tearDown() {
+        LongSets.setOffHeapThreshold(1 << 20);
+        LongSets.setBloomFilter(true);
+    }
+
+    @Test
+    public void of_BelowThreshold() {
+        LongSet set = LongSets.of(new long[]{1L, 2L, 3L});
+
+        assertThat(set instanceof LongHashSet, CoreMatchers.is(true));
+        assertThat(set.offHeapBytes(), CoreMatchers.is(0L));
+    }
+
+    @Test
+    public void of_OffHeapWithBloomFilter() {
+        LongSets.setOffHeapThreshold(2);
+        long[] values = sequentialIds(10000);
+        LongSet set = LongSets.of(values);
+
+        assertThat(set instanceof BloomLongSet, CoreMatchers.is(true));
+        assertThat(set.size(), CoreMatchers.is(10000));
+        assertThat(set.offHeapBytes() > 0, CoreMatchers.is(true));
+        assertMembers(set);
+    }
+
+    @Test
+    public void of_OffHeapWithoutBloomFilter() {
+        LongSets.setOffHeapThreshold(0);
+        LongSets.setBloomFilter(false);
+        LongSet set = LongSets.of(sequentialIds(10000));
+
+        assertThat(set instanceof OffHeapLongHashSet, CoreMatchers.is(true));
+        assertMembers(set);
+    }
+
+    /**
+     * 内存占用：LongHashSet与堆外表每个元素不超过32字节，堆外表在堆上只占固定大小，布隆过滤器每个元素不超过2字节
+     */
+    @Test
+    public void memoryBytes_Footprint() {
+        int count = 100000;
+        long[] values = sequentialIds(count);
+        LongSet heap = LongHashSet.of(values);
+        LongSet offHeap = new OffHeapLongHashSet(values);
+        LongSet bloom = new BloomLongSet(values, offHeap);
+
+        assertThat(heap.memoryBytes() <= 32L * count + 16, CoreMatchers.is(true));
+        assertThat(heap.offHeapBytes(), CoreMatchers.is(0L));
+        assertThat(offHeap.memoryBytes() <= 64L, CoreMatchers.is(true));
+        assertThat(offHeap.offHeapBytes() <= 32L * count, CoreMatchers.is(true));
+        assertThat(bloom.memoryBytes() - offHeap.memoryBytes() <= 2L * count + 16, CoreMatchers.is(true));
+        assertThat(bloom.offHeapBytes(), CoreMatchers.is(offHeap.offHeapBytes()));
+    }
+
+    @Test
+    public void offHeap_ZeroAndDuplicates() {
+        OffHeapLongHashSet set = new OffHeapLongHashSet(new long[]{5L, 5L, 0L, 0L, Long.MIN_VALUE, -1L});
+
+        assertThat(set.size(), CoreMatchers.is(4));
+        assertThat(set.contains(0L), CoreMatchers.is(true));
+        assertThat(set.contains(Long.MIN_VALUE), CoreMatchers.is(true));
+        assertThat(set.contains(1L), CoreMatchers.is(false));
+        assertArrayEquals(new long[]{Long.MIN_VALUE, -1L, 0L, 5L}, set.toArray());
+    }
+
+    @Test
+    public void bucket_OffHeapLists() {
+        LongSets.setOffHeapThreshold(1);
+        CompiledBucketTest bucketTest = CompiledBucketTest.builder()
+                .name("bucket_test").status(1).percent(0)
+                .hits(new long[]{3665061551L}, new String[0])
+                .excludes(new long[]{3665061552L}, new String[0])
+                .build();
+
+        assertThat(bucketTest.offHeapBytes() > 0, CoreMatchers.is(true));
+        assertThat(bucketTest.bucket(3665061551L), CoreMatchers.is(0));
+        assertThat(bucketTest.bucket(3665061552L), CoreMatchers.is(-1));
+    }
+
+    private static long[] sequentialIds(int count) {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = 3665061551L + i * 2;
+        }
+        return values;
+    }
+
+    private static void assertMembers(LongSet set) {
+        for (int i = 0; i < 10000; i++) {
+            assertThat(set.contains(3665061551L + i * 2), CoreMatchers.is(true));
+            assertThat(set.contains(3665061551L + i * 2 + 1), CoreMatchers.is(false));
+        }
+    }
+}
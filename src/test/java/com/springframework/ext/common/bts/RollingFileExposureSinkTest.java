@@ -0,0 +1,60 @@
+package com.springframework.ext.common.bts;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author: oleone
+ * @since: 2026-10-18.
+ */
+public class RollingFileExposureSinkTest {
+    private static final String BUCKET_CONFIG = "[{\"name\":\"bucket_test\",\"basic\":100,\"percent\":100,\"status\":1}]";
+
+    @Test
+    public void write_Lines() throws Exception {
+        Path file = Files.createTempDirectory("exposure").resolve("exposure.log");
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        BucketExposure exposure = new BucketExposure(16, 16, new RollingFileExposureSink(file, 1 << 20, 2));
+
+        exposure.record(bucketTest, 123L, 7);
+        exposure.record(bucketTest, 456L, 8);
+        exposure.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines.size(), CoreMatchers.is(2));
+        String[] fields = lines.get(0).split("\t");
+        assertThat(fields.length, CoreMatchers.is(4));
+        assertThat(fields[1], CoreMatchers.is("bucket_test"));
+        assertThat(fields[2], CoreMatchers.is("123"));
+        assertThat(fields[3], CoreMatchers.is("7"));
+    }
+
+    @Test
+    public void write_Rolls() throws Exception {
+        Path file = Files.createTempDirectory("exposure").resolve("exposure.log");
+        CompiledBucketTest bucketTest = BucketConfigParser.parse(BUCKET_CONFIG).get(0);
+        RollingFileExposureSink sink = new RollingFileExposureSink(file, 200, 2);
+        BucketExposure exposure = new BucketExposure(1024, 64, sink);
+
+        for (long index = 0; index < 100; index++) {
+            exposure.record(bucketTest, index, 0);
+        }
+        exposure.close();
+
+        assertThat(Files.exists(sink.rolled(1)), CoreMatchers.is(true));
+        assertThat(Files.exists(sink.rolled(2)), CoreMatchers.is(true));
+        assertThat(Files.exists(sink.rolled(3)), CoreMatchers.is(false));
+        assertThat(Files.size(sink.rolled(1)) >= 200, CoreMatchers.is(true));
+        // 最新的记录在当前文件或最近一次滚动的文件中
+        String last = Files.readAllLines(Files.size(file) > 0 ? file : sink.rolled(1), StandardCharsets.UTF_8)
+                .stream().reduce((a, b) -> b).orElse("");
+        assertThat(last.endsWith("\t99\t0"), CoreMatchers.is(true));
+    }
+}